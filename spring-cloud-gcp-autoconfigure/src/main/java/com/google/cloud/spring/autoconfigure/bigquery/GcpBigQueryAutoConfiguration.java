@@ -19,10 +19,13 @@ package com.google.cloud.spring.autoconfigure.bigquery;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryOptions;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadSettings;
 import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
 import com.google.cloud.bigquery.storage.v1.BigQueryWriteSettings;
 import com.google.cloud.spring.autoconfigure.core.GcpContextAutoConfiguration;
 import com.google.cloud.spring.bigquery.core.BigQueryTemplate;
+import com.google.cloud.spring.bigquery.core.BigQueryWriteMode;
 import com.google.cloud.spring.core.DefaultCredentialsProvider;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
 import com.google.cloud.spring.core.UserAgentHeaderProvider;
@@ -57,6 +60,8 @@ public class GcpBigQueryAutoConfiguration {
 
   private int threadPoolSize;
 
+  private BigQueryWriteMode writeMode;
+
   GcpBigQueryAutoConfiguration(
       GcpBigQueryProperties gcpBigQueryProperties,
       GcpProjectIdProvider projectIdProvider,
@@ -78,6 +83,8 @@ public class GcpBigQueryAutoConfiguration {
     this.jsonWriterBatchSize = gcpBigQueryProperties.getJsonWriterBatchSize();
 
     this.threadPoolSize = getThreadPoolSize(gcpBigQueryProperties.getThreadPoolSize());
+
+    this.writeMode = gcpBigQueryProperties.getWriteMode();
   }
 
   /**
@@ -118,6 +125,18 @@ public class GcpBigQueryAutoConfiguration {
     return BigQueryWriteClient.create(bigQueryWriteSettings);
   }
 
+  @Bean
+  @ConditionalOnMissingBean
+  public BigQueryReadClient bigQueryReadClient() throws IOException {
+    BigQueryReadSettings bigQueryReadSettings =
+        BigQueryReadSettings.newBuilder()
+            .setCredentialsProvider(this.credentialsProvider)
+            .setQuotaProjectId(this.projectId)
+            .setHeaderProvider(new UserAgentHeaderProvider(GcpBigQueryAutoConfiguration.class))
+            .build();
+    return BigQueryReadClient.create(bigQueryReadSettings);
+  }
+
   @Bean
   @ConditionalOnMissingBean(name = "bigQueryThreadPoolTaskScheduler")
   public ThreadPoolTaskScheduler bigQueryThreadPoolTaskScheduler() {
@@ -133,12 +152,18 @@ public class GcpBigQueryAutoConfiguration {
   public BigQueryTemplate bigQueryTemplate(
       BigQuery bigQuery,
       BigQueryWriteClient bigQueryWriteClient,
+      BigQueryReadClient bigQueryReadClient,
       @Qualifier("bigQueryThreadPoolTaskScheduler")
           ThreadPoolTaskScheduler bigQueryThreadPoolTaskScheduler) {
     Map<String, Object> bqInitSettings = new HashMap<>();
     bqInitSettings.put("DATASET_NAME", this.datasetName);
     bqInitSettings.put("JSON_WRITER_BATCH_SIZE", this.jsonWriterBatchSize);
+    bqInitSettings.put("WRITE_MODE", this.writeMode);
     return new BigQueryTemplate(
-        bigQuery, bigQueryWriteClient, bqInitSettings, bigQueryThreadPoolTaskScheduler);
+        bigQuery,
+        bigQueryWriteClient,
+        bigQueryReadClient,
+        bqInitSettings,
+        bigQueryThreadPoolTaskScheduler);
   }
 }
@@ -16,6 +16,7 @@
 
 package com.google.cloud.spring.autoconfigure.bigquery;
 
+import com.google.cloud.spring.bigquery.core.BigQueryWriteMode;
 import com.google.cloud.spring.core.Credentials;
 import com.google.cloud.spring.core.CredentialsSupplier;
 import com.google.cloud.spring.core.GcpScope;
@@ -45,6 +46,12 @@ public class GcpBigQueryProperties implements CredentialsSupplier {
   /** The size of thread pool of ThreadPoolTaskScheduler used by GcpBigQueryAutoConfiguration */
   private int threadPoolSize;
 
+  /**
+   * The mode in which BigQueryTemplate writes JSON data: a pending stream per write, or pooled
+   * committed or default streams. Defaulted to PENDING
+   */
+  private BigQueryWriteMode writeMode = BigQueryWriteMode.PENDING;
+
   public int getJsonWriterBatchSize() {
     return jsonWriterBatchSize;
   }
@@ -61,6 +68,14 @@ public class GcpBigQueryProperties implements CredentialsSupplier {
     this.jsonWriterBatchSize = jsonWriterBatchSize;
   }
 
+  public BigQueryWriteMode getWriteMode() {
+    return writeMode;
+  }
+
+  public void setWriteMode(BigQueryWriteMode writeMode) {
+    this.writeMode = writeMode;
+  }
+
   public Credentials getCredentials() {
     return this.credentials;
   }
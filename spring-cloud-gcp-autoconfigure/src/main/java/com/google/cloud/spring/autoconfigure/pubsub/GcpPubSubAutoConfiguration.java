@@ -45,13 +45,19 @@ import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
 import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
 import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.support.AdaptiveBatchingTuner;
 import com.google.cloud.spring.pubsub.support.CachingPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.cloud.spring.pubsub.support.PubSubChannelPool;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.TopicName;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,6 +65,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
@@ -66,6 +74,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -78,6 +87,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.Assert;
 import org.threeten.bp.Duration;
 
 /** Auto-config for Pub/Sub. */
@@ -109,6 +119,12 @@ public class GcpPubSubAutoConfiguration {
   private final Map<ProjectSubscriptionName, ExecutorProvider> executorProviderMap =
       new HashMap<>();
 
+  private final Map<TopicName, ExecutorProvider> publisherExecutorProviderMap = new HashMap<>();
+
+  private final Map<TopicName, BatchingSettings> publisherBatchingSettingsMap = new HashMap<>();
+
+  private final Map<TopicName, RetrySettings> publisherRetrySettingsMap = new HashMap<>();
+
   private final ApplicationContext applicationContext;
 
   private ThreadPoolTaskScheduler globalScheduler;
@@ -119,6 +135,10 @@ public class GcpPubSubAutoConfiguration {
 
   private ExecutorProvider globalExecutorProvider;
 
+  private final boolean virtualThreads;
+
+  private ExecutorService subscriberVirtualThreadExecutor;
+
   private ObjectProvider<SelectiveSchedulerThreadNameProvider> selectiveSchedulerThreadNameProvider;
 
   public GcpPubSubAutoConfiguration(
@@ -150,6 +170,13 @@ public class GcpPubSubAutoConfiguration {
     }
 
     this.gcpPubSubProperties.initialize(this.finalProjectIdProvider.getProjectId());
+
+    boolean virtualThreadsEnabled = gcpPubSubProperties.getSubscriber().isVirtualThreads();
+    if (virtualThreadsEnabled && !VirtualThreads.isSupported()) {
+      logger.warn(
+          "Virtual threads require Java 21 or later; Pub/Sub subscribers use platform threads.");
+    }
+    this.virtualThreads = virtualThreadsEnabled && VirtualThreads.isSupported();
   }
 
   @Bean
@@ -173,15 +200,31 @@ public class GcpPubSubAutoConfiguration {
   @ConditionalOnMissingBean
   public PubSubPublisherTemplate pubSubPublisherTemplate(
       PublisherFactory publisherFactory,
-      ObjectProvider<PubSubMessageConverter> pubSubMessageConverter) {
+      ObjectProvider<PubSubMessageConverter> pubSubMessageConverter,
+      ObjectProvider<PubSubMetricsRecorder> metricsRecorder,
+      ObjectProvider<AdaptiveBatchingTuner> adaptiveBatchingTuner) {
     PubSubPublisherTemplate pubSubPublisherTemplate = new PubSubPublisherTemplate(publisherFactory);
     pubSubMessageConverter.ifUnique(pubSubPublisherTemplate::setMessageConverter);
+    metricsRecorder.ifUnique(pubSubPublisherTemplate::setMetricsRecorder);
+    adaptiveBatchingTuner.ifAvailable(pubSubPublisherTemplate::setAdaptiveBatchingTuner);
+    PubSubConfiguration.PublisherFlowControl flowControl =
+        this.gcpPubSubProperties.getPublisher().getFlowControl();
+    if (flowControl.getMaxOutstandingElementCount() != null
+        || flowControl.getMaxOutstandingRequestBytes() != null) {
+      pubSubPublisherTemplate.setFlowControl(
+          Optional.ofNullable(flowControl.getMaxOutstandingElementCount()).orElse(Long.MAX_VALUE),
+          Optional.ofNullable(flowControl.getMaxOutstandingRequestBytes()).orElse(Long.MAX_VALUE),
+          flowControl.getLimitExceededBehavior());
+    }
     return pubSubPublisherTemplate;
   }
 
   @Bean
   @ConditionalOnMissingBean(name = "pubSubAcknowledgementExecutor")
   public Executor pubSubAcknowledgementExecutor() {
+    if (this.virtualThreads) {
+      return VirtualThreads.newVirtualThreadPerTaskExecutor("gcp-pubsub-ack-executor-");
+    }
     ThreadPoolTaskExecutor ackExecutor = new ThreadPoolTaskExecutor();
     ackExecutor.setMaxPoolSize(
         this.gcpPubSubProperties.getSubscriber().getMaxAcknowledgementThreads());
@@ -196,12 +239,37 @@ public class GcpPubSubAutoConfiguration {
       SubscriberFactory subscriberFactory,
       ObjectProvider<PubSubMessageConverter> pubSubMessageConverter,
       @Qualifier("pubSubAsynchronousPullExecutor") ObjectProvider<Executor> asyncPullExecutor,
-      @Qualifier("pubSubAcknowledgementExecutor") Executor ackExecutor) {
+      @Qualifier("pubSubAcknowledgementExecutor") Executor ackExecutor,
+      ObjectProvider<PubSubMetricsRecorder> metricsRecorder) {
     PubSubSubscriberTemplate pubSubSubscriberTemplate =
         new PubSubSubscriberTemplate(subscriberFactory);
     pubSubMessageConverter.ifUnique(pubSubSubscriberTemplate::setMessageConverter);
+    metricsRecorder.ifUnique(pubSubSubscriberTemplate::setMetricsRecorder);
     pubSubSubscriberTemplate.setAckExecutor(ackExecutor);
-    asyncPullExecutor.ifAvailable(pubSubSubscriberTemplate::setAsyncPullExecutor);
+    Executor pullExecutor = asyncPullExecutor.getIfAvailable();
+    if (pullExecutor != null) {
+      pubSubSubscriberTemplate.setAsyncPullExecutor(pullExecutor);
+    } else if (this.subscriberVirtualThreadExecutor != null) {
+      pubSubSubscriberTemplate.setAsyncPullExecutor(this.subscriberVirtualThreadExecutor);
+    }
+    PubSubConfiguration.AckBatching ackBatching =
+        this.gcpPubSubProperties.getSubscriber().getAckBatching();
+    if (ackBatching.isEnabled()) {
+      pubSubSubscriberTemplate.setAckBatching(
+          ackBatching.getElementCountThreshold(),
+          java.time.Duration.ofMillis(ackBatching.getDelayThresholdMillis()));
+    }
+    PubSubConfiguration.ExactlyOnce exactlyOnce =
+        this.gcpPubSubProperties.getSubscriber().getExactlyOnce();
+    if (exactlyOnce.isEnabled()) {
+      pubSubSubscriberTemplate.setAckRetry(
+          java.time.Duration.ofSeconds(exactlyOnce.getAckRetryTimeoutSeconds()));
+      if (exactlyOnce.getDeduplicationWindowSeconds() > 0) {
+        pubSubSubscriberTemplate.setDeduplicationWindow(
+            java.time.Duration.ofSeconds(exactlyOnce.getDeduplicationWindowSeconds()),
+            exactlyOnce.getDeduplicationMaxMessages());
+      }
+    }
     return pubSubSubscriberTemplate;
   }
 
@@ -282,9 +350,11 @@ public class GcpPubSubAutoConfiguration {
   @Bean
   @ConditionalOnMissingBean(name = "publisherBatchSettings")
   public BatchingSettings publisherBatchSettings() {
-    BatchingSettings.Builder builder = BatchingSettings.newBuilder();
+    return buildBatchingSettings(this.gcpPubSubProperties.getPublisher().getBatching());
+  }
 
-    PubSubConfiguration.Batching batching = this.gcpPubSubProperties.getPublisher().getBatching();
+  private BatchingSettings buildBatchingSettings(PubSubConfiguration.Batching batching) {
+    BatchingSettings.Builder builder = BatchingSettings.newBuilder();
 
     FlowControlSettings flowControlSettings = buildFlowControlSettings(batching.getFlowControl());
     if (flowControlSettings != null) {
@@ -349,6 +419,25 @@ public class GcpPubSubAutoConfiguration {
     return false;
   }
 
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty("spring.cloud.gcp.pubsub.publisher-adaptive-batching.enabled")
+  public AdaptiveBatchingTuner publisherAdaptiveBatchingTuner() {
+    PubSubConfiguration.PublisherAdaptiveBatching adaptiveBatching =
+        this.gcpPubSubProperties.getPublisherAdaptiveBatching();
+    AdaptiveBatchingTuner tuner =
+        new AdaptiveBatchingTuner(
+            adaptiveBatching.getMinElementCountThreshold(),
+            adaptiveBatching.getMaxElementCountThreshold(),
+            java.time.Duration.ofMillis(adaptiveBatching.getMinDelayThresholdMillis()),
+            java.time.Duration.ofMillis(adaptiveBatching.getMaxDelayThresholdMillis()));
+    ifSet(adaptiveBatching.getRequestByteThreshold(), tuner::setRequestByteThreshold);
+    tuner.setFlowControlSettings(
+        buildFlowControlSettings(
+            this.gcpPubSubProperties.getPublisher().getBatching().getFlowControl()));
+    return tuner;
+  }
+
   @Bean
   @ConditionalOnMissingBean
   public PublisherFactory defaultPublisherFactory(
@@ -357,14 +446,22 @@ public class GcpPubSubAutoConfiguration {
       @Qualifier("publisherRetrySettings") ObjectProvider<RetrySettings> retrySettings,
       @Qualifier("publisherTransportChannelProvider")
           TransportChannelProvider publisherTransportChannelProvider,
-      ObjectProvider<PublisherCustomizer> customizersProvider) {
-    DefaultPublisherFactory factory = new DefaultPublisherFactory(this.finalProjectIdProvider);
+      ObjectProvider<PublisherCustomizer> customizersProvider,
+      @Qualifier("pubsubPublisherThreadPool")
+          ObjectProvider<ThreadPoolTaskScheduler> publisherThreadPool,
+      ObjectProvider<AdaptiveBatchingTuner> adaptiveBatchingTuner) {
+    DefaultPublisherFactory factory =
+        new DefaultPublisherFactory(this.finalProjectIdProvider, this.gcpPubSubProperties);
     factory.setExecutorProvider(executorProvider);
+    factory.setExecutorProviderMap(this.publisherExecutorProviderMap);
     factory.setCredentialsProvider(this.finalCredentialsProvider);
     factory.setHeaderProvider(this.headerProvider);
     factory.setChannelProvider(publisherTransportChannelProvider);
     retrySettings.ifAvailable(factory::setRetrySettings);
+    factory.setRetrySettingsMap(this.publisherRetrySettingsMap);
     batchingSettings.ifAvailable(factory::setBatchingSettings);
+    factory.setBatchingSettingsMap(this.publisherBatchingSettingsMap);
+    adaptiveBatchingTuner.ifAvailable(factory::setAdaptiveBatchingTuner);
     factory.setEnableMessageOrdering(gcpPubSubProperties.getPublisher().getEnableMessageOrdering());
     factory.setEndpoint(gcpPubSubProperties.getPublisher().getEndpoint());
 
@@ -373,7 +470,23 @@ public class GcpPubSubAutoConfiguration {
     Collections.reverse(customizers); // highest priority customizer needs to be last
     factory.setCustomizers(customizers);
 
-    return new CachingPublisherFactory(factory);
+    CachingPublisherFactory cachingFactory = new CachingPublisherFactory(factory);
+    PubSubConfiguration.PublisherCache publisherCache = this.gcpPubSubProperties.getPublisherCache();
+    ifSet(publisherCache.getMaxSize(), cachingFactory::setMaxSize);
+    ifSet(
+        publisherCache.getIdleTimeoutSeconds(),
+        x ->
+            cachingFactory.setIdleTimeout(
+                java.time.Duration.ofSeconds(x), publisherThreadPool.getObject()));
+    adaptiveBatchingTuner.ifAvailable(
+        tuner ->
+            cachingFactory.setAdaptiveBatching(
+                tuner,
+                java.time.Duration.ofSeconds(
+                    this.gcpPubSubProperties.getPublisherAdaptiveBatching()
+                        .getTuningIntervalSeconds()),
+                publisherThreadPool.getObject()));
+    return cachingFactory;
   }
 
   @Bean
@@ -428,7 +541,12 @@ public class GcpPubSubAutoConfiguration {
 
   @Bean
   @ConditionalOnMissingBean(name = "subscriberTransportChannelProvider")
-  public TransportChannelProvider subscriberTransportChannelProvider() {
+  public TransportChannelProvider subscriberTransportChannelProvider(
+      ObjectProvider<PubSubChannelPool> channelPool) {
+    PubSubChannelPool pool = channelPool.getIfUnique();
+    if (pool != null) {
+      return pool.createChannelProvider();
+    }
     return SubscriberStubSettings.defaultGrpcTransportProviderBuilder()
         .setKeepAliveTime(
             Duration.ofMinutes(this.gcpPubSubProperties.getKeepAliveIntervalMinutes()))
@@ -437,13 +555,51 @@ public class GcpPubSubAutoConfiguration {
 
   @Bean
   @ConditionalOnMissingBean(name = "publisherTransportChannelProvider")
-  public TransportChannelProvider publisherTransportChannelProvider() {
+  public TransportChannelProvider publisherTransportChannelProvider(
+      ObjectProvider<PubSubChannelPool> channelPool) {
+    PubSubChannelPool pool = channelPool.getIfUnique();
+    if (pool != null) {
+      return pool.createChannelProvider();
+    }
     return PublisherStubSettings.defaultGrpcTransportProviderBuilder()
         .setKeepAliveTime(
             Duration.ofMinutes(this.gcpPubSubProperties.getKeepAliveIntervalMinutes()))
         .build();
   }
 
+  @Bean(destroyMethod = "shutdown")
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty("spring.cloud.gcp.pubsub.channel-pool.enabled")
+  public PubSubChannelPool pubSubChannelPool() {
+    Assert.state(
+        !hasCustomEndpoint(),
+        "The Pub/Sub channel pool connects to the default endpoint; it can't be enabled together "
+            + "with publisher endpoints or subscriber pull endpoints.");
+    PubSubConfiguration.ChannelPool channelPool = this.gcpPubSubProperties.getChannelPool();
+    // Publishers and subscribers connect to the same endpoint, so their channels can be shared.
+    TransportChannelProvider channelProvider =
+        SubscriberStubSettings.defaultGrpcTransportProviderBuilder()
+            .setKeepAliveTime(
+                Duration.ofMinutes(this.gcpPubSubProperties.getKeepAliveIntervalMinutes()))
+            .setEndpoint(SubscriberStubSettings.getDefaultEndpoint())
+            .setHeaderProvider(this.headerProvider)
+            .build();
+    return new PubSubChannelPool(
+        channelProvider,
+        channelPool.getChannelCount(),
+        channelPool.getMaxChannelCount(),
+        channelPool.getMaxConcurrentStreamsPerChannel());
+  }
+
+  private boolean hasCustomEndpoint() {
+    return this.gcpPubSubProperties.getPublisher().getEndpoint() != null
+        || this.gcpPubSubProperties.getSubscriber().getPullEndpoint() != null
+        || this.gcpPubSubProperties.getFullyQualifiedPublisherProperties().values().stream()
+            .anyMatch(publisher -> publisher.getEndpoint() != null)
+        || this.gcpPubSubProperties.getFullyQualifiedSubscriberProperties().values().stream()
+            .anyMatch(subscriber -> subscriber.getPullEndpoint() != null);
+  }
+
   @PostConstruct
   public void registerSubscriberSettings() {
     GenericApplicationContext context = (GenericApplicationContext) this.applicationContext;
@@ -453,6 +609,60 @@ public class GcpPubSubAutoConfiguration {
     registerSubscriberRetrySettingsBeans(context);
   }
 
+  @PostConstruct
+  public void registerPublisherSettings() {
+    GenericApplicationContext context = (GenericApplicationContext) this.applicationContext;
+    Map<TopicName, PubSubConfiguration.Publisher> publisherMap =
+        this.gcpPubSubProperties.getFullyQualifiedPublisherProperties();
+    if (publisherMap.isEmpty()) {
+      return;
+    }
+
+    BatchingSettings globalBatchingSettings =
+        buildBatchingSettings(this.gcpPubSubProperties.getPublisher().getBatching());
+    RetrySettings globalPublisherRetrySettings =
+        buildRetrySettings(this.gcpPubSubProperties.getPublisher().getRetry());
+
+    for (Map.Entry<TopicName, PubSubConfiguration.Publisher> topic : publisherMap.entrySet()) {
+      TopicName topicName = topic.getKey();
+      String qualifiedName = topicName.toString();
+
+      if (topic.getValue().hasExecutorThreads()) {
+        ThreadPoolTaskScheduler selectiveScheduler =
+            createAndRegisterSchedulerBean(
+                topic.getValue().getExecutorThreads(),
+                "gcp-pubsub-publisher-" + qualifiedName,
+                "publisherThreadPool-" + qualifiedName,
+                context);
+        this.publisherExecutorProviderMap.put(
+            topicName,
+            createAndRegisterExecutorProvider(
+                "publisherExecutorProvider-" + qualifiedName, selectiveScheduler, context));
+      }
+
+      BatchingSettings batchingSettings =
+          buildBatchingSettings(this.gcpPubSubProperties.computePublisherBatchingSettings(topicName));
+      if (batchingSettings != null && !batchingSettings.equals(globalBatchingSettings)) {
+        this.publisherBatchingSettingsMap.put(topicName, batchingSettings);
+        context.registerBeanDefinition(
+            "publisherBatchSettings-" + qualifiedName,
+            BeanDefinitionBuilder.genericBeanDefinition(
+                    BatchingSettings.class, () -> batchingSettings)
+                .getBeanDefinition());
+      }
+
+      RetrySettings retrySettings =
+          buildRetrySettings(this.gcpPubSubProperties.computePublisherRetrySettings(topicName));
+      if (retrySettings != null && !retrySettings.equals(globalPublisherRetrySettings)) {
+        this.publisherRetrySettingsMap.put(topicName, retrySettings);
+        context.registerBeanDefinition(
+            "publisherRetrySettings-" + qualifiedName,
+            BeanDefinitionBuilder.genericBeanDefinition(RetrySettings.class, () -> retrySettings)
+                .getBeanDefinition());
+      }
+    }
+  }
+
   private void registerSubscriberThreadPoolSchedulerBeans(GenericApplicationContext context) {
     Integer numThreads = getGlobalExecutorThreads();
     this.globalScheduler =
@@ -461,7 +671,9 @@ public class GcpPubSubAutoConfiguration {
             "global-gcp-pubsub-subscriber",
             "globalPubSubSubscriberThreadPoolScheduler",
             context);
-    registerSelectiveSchedulerBeans(context);
+    if (!this.virtualThreads) {
+      registerSelectiveSchedulerBeans(context);
+    }
   }
 
   private void registerSubscriberFlowControlSettingsBeans(GenericApplicationContext context) {
@@ -484,6 +696,10 @@ public class GcpPubSubAutoConfiguration {
     if (context.containsBean("subscriberExecutorProvider")) {
       return;
     }
+    if (this.virtualThreads) {
+      registerVirtualThreadExecutorProvider(context);
+      return;
+    }
     if (this.globalScheduler != null) {
       this.globalExecutorProvider =
           createAndRegisterExecutorProvider(
@@ -492,6 +708,31 @@ public class GcpPubSubAutoConfiguration {
     createAndRegisterSelectiveExecutorProvider(context);
   }
 
+  /**
+   * Registers a subscriber {@link ExecutorProvider} shared by all subscriptions, running message
+   * handlers on virtual threads and timers on the global subscriber scheduler.
+   *
+   * @param context application context
+   */
+  private void registerVirtualThreadExecutorProvider(GenericApplicationContext context) {
+    ExecutorService executor =
+        VirtualThreads.newVirtualThreadPerTaskExecutor("gcp-pubsub-subscriber-");
+    AbstractBeanDefinition executorDefinition =
+        BeanDefinitionBuilder.genericBeanDefinition(ExecutorService.class, () -> executor)
+            .getBeanDefinition();
+    executorDefinition.setDestroyMethodName("shutdown");
+    context.registerBeanDefinition("pubSubSubscriberVirtualThreadExecutor", executorDefinition);
+    this.subscriberVirtualThreadExecutor = executor;
+
+    this.globalScheduler.initialize();
+    this.globalExecutorProvider =
+        registerExecutorProvider(
+            "globalSubscriberExecutorProvider",
+            new HybridScheduledExecutorService(
+                executor, this.globalScheduler.getScheduledExecutor()),
+            context);
+  }
+
   private void registerSubscriberRetrySettingsBeans(GenericApplicationContext context) {
     if (context.containsBean("subscriberRetrySettings")) {
       return;
@@ -619,7 +860,14 @@ public class GcpPubSubAutoConfiguration {
   private ExecutorProvider createAndRegisterExecutorProvider(
       String beanName, ThreadPoolTaskScheduler scheduler, GenericApplicationContext context) {
     scheduler.initialize();
-    ExecutorProvider executor = FixedExecutorProvider.create(scheduler.getScheduledExecutor());
+    return registerExecutorProvider(beanName, scheduler.getScheduledExecutor(), context);
+  }
+
+  private ExecutorProvider registerExecutorProvider(
+      String beanName,
+      ScheduledExecutorService scheduledExecutor,
+      GenericApplicationContext context) {
+    ExecutorProvider executor = FixedExecutorProvider.create(scheduledExecutor);
     context.registerBeanDefinition(
         beanName,
         BeanDefinitionBuilder.genericBeanDefinition(ExecutorProvider.class, () -> executor)
@@ -653,4 +901,90 @@ public class GcpPubSubAutoConfiguration {
     Integer numThreads = this.gcpPubSubProperties.getSubscriber().getExecutorThreads();
     return numThreads != null ? numThreads : PubSubConfiguration.DEFAULT_EXECUTOR_THREADS;
   }
+
+  /** Publishes the batching thresholds chosen by the adaptive batching tuner as metrics. */
+  @ConditionalOnClass(MeterBinder.class)
+  @ConditionalOnProperty("spring.cloud.gcp.pubsub.publisher-adaptive-batching.enabled")
+  static class AdaptiveBatchingMetricsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(name = "pubSubAdaptiveBatchingMetrics")
+    public MeterBinder pubSubAdaptiveBatchingMetrics(
+        AdaptiveBatchingTuner adaptiveBatchingTuner, GcpPubSubProperties gcpPubSubProperties) {
+      return new PubSubAdaptiveBatchingMetrics(
+          adaptiveBatchingTuner, gcpPubSubProperties.getMetrics().getMaxTaggedNames());
+    }
+  }
+
+  /**
+   * Records the latency and batch sizes of the publish and subscribe paths, and the state of the
+   * publisher flow control and of the shared channel pool, as metrics.
+   */
+  @ConditionalOnClass(MeterBinder.class)
+  @ConditionalOnProperty("spring.cloud.gcp.pubsub.metrics.enabled")
+  static class MetricsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(PubSubMetricsRecorder.class)
+    public PubSubMicrometerMetrics pubSubMetricsRecorder(
+        GcpPubSubProperties gcpPubSubProperties, GcpProjectIdProvider gcpProjectIdProvider) {
+      PubSubConfiguration.Metrics metrics = gcpPubSubProperties.getMetrics();
+      String projectId =
+          gcpPubSubProperties.getProjectId() != null
+              ? gcpPubSubProperties.getProjectId()
+              : gcpProjectIdProvider.getProjectId();
+      return new PubSubMicrometerMetrics(
+          projectId, metrics.getMaxTaggedNames(), metrics.isPercentileHistogram());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "pubSubPublisherFlowControlMetrics")
+    public MeterBinder pubSubPublisherFlowControlMetrics(
+        PubSubPublisherTemplate pubSubPublisherTemplate) {
+      return registry -> {
+        Gauge.builder(
+                "spring.cloud.gcp.pubsub.publisher.flow.control.outstanding.elements",
+                pubSubPublisherTemplate,
+                PubSubPublisherTemplate::getOutstandingElementCount)
+            .description("Messages admitted by the publisher flow control and not yet published")
+            .baseUnit("messages")
+            .register(registry);
+        Gauge.builder(
+                "spring.cloud.gcp.pubsub.publisher.flow.control.outstanding.bytes",
+                pubSubPublisherTemplate,
+                PubSubPublisherTemplate::getOutstandingRequestBytes)
+            .description("Size of the messages admitted by the publisher flow control")
+            .baseUnit("bytes")
+            .register(registry);
+      };
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "pubSubChannelPoolMetrics")
+    public MeterBinder pubSubChannelPoolMetrics(ObjectProvider<PubSubChannelPool> channelPool) {
+      return registry ->
+          channelPool.ifUnique(
+              pool -> {
+                Gauge.builder(
+                        "spring.cloud.gcp.pubsub.channel.pool.channels",
+                        pool,
+                        PubSubChannelPool::getChannelCount)
+                    .description("Open channels of the shared Pub/Sub channel pool")
+                    .register(registry);
+                Gauge.builder(
+                        "spring.cloud.gcp.pubsub.channel.pool.outstanding.calls",
+                        pool,
+                        PubSubChannelPool::getOutstandingCallCount)
+                    .description("Calls in progress on the shared Pub/Sub channel pool")
+                    .register(registry);
+                Gauge.builder(
+                        "spring.cloud.gcp.pubsub.channel.pool.utilization",
+                        pool,
+                        PubSubChannelPool::getUtilization)
+                    .description(
+                        "Outstanding calls relative to the concurrent streams the channels carry")
+                    .register(registry);
+              });
+    }
+  }
 }
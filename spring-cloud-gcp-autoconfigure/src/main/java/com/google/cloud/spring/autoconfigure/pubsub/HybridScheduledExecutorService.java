@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ScheduledExecutorService} running submitted tasks on one executor and delayed or
+ * periodic tasks on a separate scheduler.
+ *
+ * <p>Subscribers run message handlers on their executor and also schedule lease extensions and
+ * other timers on it. Backing the former with virtual threads lets blocking handlers scale without
+ * tuning thread counts, while a few platform threads keep firing the timers.
+ *
+ * @since 4.1.5
+ */
+class HybridScheduledExecutorService extends AbstractExecutorService
+    implements ScheduledExecutorService {
+
+  private final ExecutorService taskExecutor;
+
+  private final ScheduledExecutorService scheduler;
+
+  HybridScheduledExecutorService(
+      ExecutorService taskExecutor, ScheduledExecutorService scheduler) {
+    this.taskExecutor = taskExecutor;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    this.taskExecutor.execute(command);
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+    return this.scheduler.schedule(command, delay, unit);
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    return this.scheduler.schedule(callable, delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(
+      Runnable command, long initialDelay, long period, TimeUnit unit) {
+    return this.scheduler.scheduleAtFixedRate(command, initialDelay, period, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(
+      Runnable command, long initialDelay, long delay, TimeUnit unit) {
+    return this.scheduler.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+  }
+
+  @Override
+  public void shutdown() {
+    this.scheduler.shutdown();
+    this.taskExecutor.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> pending = new ArrayList<>(this.scheduler.shutdownNow());
+    pending.addAll(this.taskExecutor.shutdownNow());
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return this.scheduler.isShutdown() && this.taskExecutor.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return this.scheduler.isTerminated() && this.taskExecutor.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+    return this.scheduler.awaitTermination(timeout, unit)
+        && this.taskExecutor.awaitTermination(
+            deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+  }
+}
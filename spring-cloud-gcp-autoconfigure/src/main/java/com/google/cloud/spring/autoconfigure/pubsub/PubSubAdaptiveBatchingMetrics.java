@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub;
+
+import com.google.cloud.spring.pubsub.support.AdaptiveBatchingTuner;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers gauges for the batching thresholds chosen by an {@link AdaptiveBatchingTuner}, tagged
+ * with the topic name. Gauges are registered for a topic once its first publisher is created, and
+ * removed once the topic is removed from the tuner.
+ *
+ * <p>To bound the number of time series, gauges are only registered for up to {@code
+ * maxTaggedNames} topics at a time, like the tags of {@link PubSubMicrometerMetrics}.
+ *
+ * @since 4.1.5
+ */
+class PubSubAdaptiveBatchingMetrics implements MeterBinder {
+
+  static final String ELEMENT_COUNT_THRESHOLD =
+      "spring.cloud.gcp.pubsub.publisher.batching.element.count.threshold";
+
+  static final String DELAY_THRESHOLD = "spring.cloud.gcp.pubsub.publisher.batching.delay.threshold";
+
+  static final String PUBLISH_RATE = "spring.cloud.gcp.pubsub.publisher.publish.rate";
+
+  private final AdaptiveBatchingTuner tuner;
+
+  private final int maxTaggedNames;
+
+  /** The gauges registered for each topic. */
+  private final Map<String, List<Meter>> topicGauges = new HashMap<>();
+
+  PubSubAdaptiveBatchingMetrics(AdaptiveBatchingTuner tuner, int maxTaggedNames) {
+    this.tuner = tuner;
+    this.maxTaggedNames = maxTaggedNames;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    this.tuner.setTunedTopicListener(topic -> registerGauges(registry, topic));
+    this.tuner.setRemovedTopicListener(topic -> removeGauges(registry, topic));
+    this.tuner.getTunedTopics().forEach(topic -> registerGauges(registry, topic));
+  }
+
+  private synchronized void registerGauges(MeterRegistry registry, String topic) {
+    if (this.topicGauges.containsKey(topic) || this.topicGauges.size() >= this.maxTaggedNames) {
+      return;
+    }
+    Gauge elementCountThreshold =
+        Gauge.builder(ELEMENT_COUNT_THRESHOLD, this.tuner, t -> t.getElementCountThreshold(topic))
+            .description("Element count threshold of the publisher batching settings")
+            .tag("topic", topic)
+            .register(registry);
+    TimeGauge delayThreshold =
+        TimeGauge.builder(
+                DELAY_THRESHOLD,
+                this.tuner,
+                TimeUnit.MILLISECONDS,
+                t -> {
+                  Duration delay = t.getDelayThreshold(topic);
+                  return delay != null ? delay.toNanos() / 1e6 : 0;
+                })
+            .description("Delay threshold of the publisher batching settings")
+            .tag("topic", topic)
+            .register(registry);
+    Gauge publishRate =
+        Gauge.builder(PUBLISH_RATE, this.tuner, t -> t.getPublishRate(topic))
+            .description("Estimated publish rate in messages per second")
+            .baseUnit("messages")
+            .tag("topic", topic)
+            .register(registry);
+    this.topicGauges.put(topic, List.of(elementCountThreshold, delayThreshold, publishRate));
+  }
+
+  private synchronized void removeGauges(MeterRegistry registry, String topic) {
+    List<Meter> gauges = this.topicGauges.remove(topic);
+    if (gauges != null) {
+      gauges.forEach(registry::remove);
+    }
+  }
+}
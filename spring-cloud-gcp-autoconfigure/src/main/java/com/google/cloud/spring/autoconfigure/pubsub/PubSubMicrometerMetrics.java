@@ -0,0 +1,282 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub;
+
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
+import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
+import com.google.cloud.spring.pubsub.support.PubSubTopicUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Records the measurements of the Pub/Sub templates and channel adapters as Micrometer timers and
+ * distribution summaries, tagged with the fully-qualified topic or subscription name.
+ *
+ * <p>To bound the number of time series, only the first {@code maxTaggedNames} distinct topic and
+ * subscription names are used as tag values; the others are tagged with {@value #OTHER}.
+ * Measurements taken before this binder is bound to a registry are dropped.
+ *
+ * @since 4.1.5
+ */
+class PubSubMicrometerMetrics implements PubSubMetricsRecorder, MeterBinder {
+
+  static final String PUBLISH = "spring.cloud.gcp.pubsub.publish";
+
+  static final String SERIALIZATION = "spring.cloud.gcp.pubsub.publish.serialization";
+
+  static final String PULL = "spring.cloud.gcp.pubsub.pull";
+
+  static final String MESSAGES_PER_PULL = "spring.cloud.gcp.pubsub.pull.messages";
+
+  static final String DESERIALIZATION = "spring.cloud.gcp.pubsub.pull.deserialization";
+
+  static final String ACKNOWLEDGEMENT = "spring.cloud.gcp.pubsub.acknowledgement";
+
+  static final String ACK_IDS_PER_REQUEST = "spring.cloud.gcp.pubsub.acknowledgement.ack.ids";
+
+  static final String PROCESSING = "spring.cloud.gcp.pubsub.processing";
+
+  static final String MESSAGES_PER_PROCESSING = "spring.cloud.gcp.pubsub.processing.messages";
+
+  static final String RECEIVE = "spring.cloud.gcp.pubsub.receive";
+
+  static final String DISPATCH_WAIT = "spring.cloud.gcp.pubsub.dispatch.wait";
+
+  static final String OTHER = "other";
+
+  private static final String SUCCESS = "success";
+
+  private static final String FAILURE = "failure";
+
+  private final String projectId;
+
+  private final int maxTaggedNames;
+
+  private final boolean percentileHistogram;
+
+  private final Map<String, String> topicTags = new ConcurrentHashMap<>();
+
+  private final Map<String, String> subscriptionTags = new ConcurrentHashMap<>();
+
+  private final Set<String> taggedNames = ConcurrentHashMap.newKeySet();
+
+  private final Map<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+
+  private final Map<MeterKey, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+  private volatile MeterRegistry registry;
+
+  PubSubMicrometerMetrics(String projectId, int maxTaggedNames, boolean percentileHistogram) {
+    this.projectId = projectId;
+    this.maxTaggedNames = maxTaggedNames;
+    this.percentileHistogram = percentileHistogram;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void recordPublish(String topic, long durationNanos, boolean success) {
+    record(timer(PUBLISH, "topic", topicTag(topic), null, result(success)), durationNanos);
+  }
+
+  @Override
+  public void recordSerialization(String topic, long durationNanos) {
+    record(timer(SERIALIZATION, "topic", topicTag(topic), null, null), durationNanos);
+  }
+
+  @Override
+  public void recordPull(
+      String subscription, int messageCount, long durationNanos, boolean success) {
+    String tag = subscriptionTag(subscription);
+    record(timer(PULL, "subscription", tag, null, result(success)), durationNanos);
+    if (success) {
+      record(summary(MESSAGES_PER_PULL, tag, null), messageCount);
+    }
+  }
+
+  @Override
+  public void recordDeserialization(String subscription, long durationNanos) {
+    record(
+        timer(DESERIALIZATION, "subscription", subscriptionTag(subscription), null, null),
+        durationNanos);
+  }
+
+  @Override
+  public void recordAcknowledgement(
+      String subscription, String operation, int ackIdCount, long durationNanos, boolean success) {
+    String tag = subscriptionTag(subscription);
+    record(timer(ACKNOWLEDGEMENT, "subscription", tag, operation, result(success)), durationNanos);
+    record(summary(ACK_IDS_PER_REQUEST, tag, operation), ackIdCount);
+  }
+
+  @Override
+  public void recordProcessing(
+      String subscription, int messageCount, long durationNanos, boolean success) {
+    String tag = subscriptionTag(subscription);
+    record(timer(PROCESSING, "subscription", tag, null, result(success)), durationNanos);
+    record(summary(MESSAGES_PER_PROCESSING, tag, null), messageCount);
+  }
+
+  @Override
+  public void recordReceive(String subscription, int messageCount, long durationNanos) {
+    record(
+        timer(
+            RECEIVE,
+            "subscription",
+            subscriptionTag(subscription),
+            null,
+            messageCount > 0 ? "message" : "empty"),
+        durationNanos);
+  }
+
+  @Override
+  public void recordDispatchWait(String subscription, int lane, long waitNanos) {
+    record(laneTimer(subscriptionTag(subscription), lane), waitNanos);
+  }
+
+  private String topicTag(String topic) {
+    return tag(
+        this.topicTags,
+        topic,
+        name -> PubSubTopicUtils.toTopicName(name, this.projectId).toString());
+  }
+
+  private String subscriptionTag(String subscription) {
+    return tag(
+        this.subscriptionTags,
+        subscription,
+        name -> PubSubSubscriptionUtils.toProjectSubscriptionName(name, this.projectId).toString());
+  }
+
+  /**
+   * Map a topic or subscription name, short or fully-qualified, to its tag value. The mapping is
+   * cached for a bounded number of names.
+   */
+  private String tag(Map<String, String> tags, String name, Function<String, String> qualifier) {
+    if (name == null) {
+      return OTHER;
+    }
+    String tag = tags.get(name);
+    if (tag != null) {
+      return tag;
+    }
+
+    String qualifiedName;
+    try {
+      qualifiedName = qualifier.apply(name);
+    } catch (IllegalArgumentException ex) {
+      qualifiedName = name;
+    }
+    if (this.taggedNames.contains(qualifiedName)
+        || (this.taggedNames.size() < this.maxTaggedNames && this.taggedNames.add(qualifiedName))) {
+      tag = qualifiedName;
+    } else {
+      tag = OTHER;
+    }
+    // Names beyond the cap aren't cached, so that unbounded names can't exhaust memory.
+    if (tags.size() < 2 * this.maxTaggedNames) {
+      tags.put(name, tag);
+    }
+    return tag;
+  }
+
+  private Timer timer(
+      String name, String entityTagKey, String entityTag, String operation, String result) {
+    MeterRegistry meterRegistry = this.registry;
+    if (meterRegistry == null) {
+      return null;
+    }
+    return this.timers.computeIfAbsent(
+        new MeterKey(name, entityTag, operation, result),
+        key -> {
+          Timer.Builder builder =
+              Timer.builder(name)
+                  .tag(entityTagKey, entityTag)
+                  .publishPercentileHistogram(this.percentileHistogram);
+          if (operation != null) {
+            builder.tag("operation", operation);
+          }
+          if (result != null) {
+            builder.tag("result", result);
+          }
+          return builder.register(meterRegistry);
+        });
+  }
+
+  private Timer laneTimer(String subscriptionTag, int lane) {
+    MeterRegistry meterRegistry = this.registry;
+    if (meterRegistry == null) {
+      return null;
+    }
+    String laneTag = Integer.toString(lane);
+    return this.timers.computeIfAbsent(
+        new MeterKey(DISPATCH_WAIT, subscriptionTag, laneTag, null),
+        key ->
+            Timer.builder(DISPATCH_WAIT)
+                .tag("subscription", subscriptionTag)
+                .tag("lane", laneTag)
+                .publishPercentileHistogram(this.percentileHistogram)
+                .register(meterRegistry));
+  }
+
+  private DistributionSummary summary(String name, String subscriptionTag, String operation) {
+    MeterRegistry meterRegistry = this.registry;
+    if (meterRegistry == null) {
+      return null;
+    }
+    return this.summaries.computeIfAbsent(
+        new MeterKey(name, subscriptionTag, operation, null),
+        key -> {
+          DistributionSummary.Builder builder =
+              DistributionSummary.builder(name)
+                  .baseUnit("messages")
+                  .tag("subscription", subscriptionTag);
+          if (operation != null) {
+            builder.tag("operation", operation);
+          }
+          return builder.register(meterRegistry);
+        });
+  }
+
+  private static void record(Timer timer, long durationNanos) {
+    if (timer != null) {
+      timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static void record(DistributionSummary summary, int amount) {
+    if (summary != null) {
+      summary.record(amount);
+    }
+  }
+
+  private static String result(boolean success) {
+    return success ? SUCCESS : FAILURE;
+  }
+
+  private record MeterKey(String name, String entityTag, String operation, String result) {}
+}
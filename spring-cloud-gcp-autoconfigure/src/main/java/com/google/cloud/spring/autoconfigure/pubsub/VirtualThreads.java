@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors running each task on a new virtual thread. Virtual threads are final in Java
+ * 21; since this module is built for Java 17, they are created reflectively.
+ *
+ * @since 4.1.5
+ */
+final class VirtualThreads {
+
+  private static final int MIN_JAVA_VERSION = 21;
+
+  private VirtualThreads() {}
+
+  /**
+   * Return whether the running JVM supports virtual threads.
+   *
+   * @return true on Java 21 or later
+   */
+  static boolean isSupported() {
+    return Runtime.version().feature() >= MIN_JAVA_VERSION;
+  }
+
+  /**
+   * Create an executor starting a new virtual thread for each task.
+   *
+   * @param threadNamePrefix the prefix of the thread names, followed by a counter
+   * @return the executor
+   * @throws IllegalStateException if virtual threads aren't supported
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+    if (!isSupported()) {
+      throw new IllegalStateException(
+          "Virtual threads require Java " + MIN_JAVA_VERSION + " or later.");
+    }
+    try {
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder =
+          builderType
+              .getMethod("name", String.class, long.class)
+              .invoke(builder, threadNamePrefix, 0L);
+      ThreadFactory threadFactory =
+          (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+      return (ExecutorService)
+          Executors.class
+              .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+              .invoke(null, threadFactory);
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException("Unable to create a virtual thread executor.", ex);
+    }
+  }
+}
@@ -22,10 +22,13 @@ import com.google.cloud.monitoring.v3.MetricServiceClient;
 import com.google.cloud.spring.autoconfigure.pubsub.GcpPubSubAutoConfiguration;
 import com.google.cloud.spring.autoconfigure.pubsub.GcpPubSubProperties;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistryImpl;
 import java.io.IOException;
+import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.autoconfigure.health.CompositeHealthContributorConfiguration;
 import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
@@ -37,6 +40,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
@@ -68,6 +72,7 @@ public class PubSubSubscriptionHealthIndicatorAutoConfiguration
   }
 
   @Bean
+  @Lazy
   @ConditionalOnMissingBean
   public MetricServiceClient metricServiceClient() throws IOException {
     return MetricServiceClient.create();
@@ -93,15 +98,26 @@ public class PubSubSubscriptionHealthIndicatorAutoConfiguration
   @Bean
   @ConditionalOnMissingBean(name = "healthTrackerRegistry")
   public HealthTrackerRegistry healthTrackerRegistry(
-      MetricServiceClient metricServiceClient,
+      ObjectProvider<MetricServiceClient> metricServiceClient,
       @Qualifier("healthCheckExecutorProvider") ExecutorProvider executorProvider) {
-    return new HealthTrackerRegistryImpl(
-        projectId,
-        metricServiceClient,
-        gcpPubSubProperties.getHealth().getLagThreshold(),
-        gcpPubSubProperties.getHealth().getBacklogThreshold(),
-        gcpPubSubProperties.getHealth().getLookUpInterval(),
-        executorProvider);
+    PubSubConfiguration.Health health = gcpPubSubProperties.getHealth();
+    if (health.isLocalTracking() && !health.isRemoteFallback()) {
+      return new HealthTrackerRegistryImpl(
+          projectId, health.getLagThreshold(), health.getBacklogThreshold(), executorProvider);
+    }
+
+    HealthTrackerRegistryImpl healthTrackerRegistry =
+        new HealthTrackerRegistryImpl(
+            projectId,
+            metricServiceClient.getObject(),
+            health.getLagThreshold(),
+            health.getBacklogThreshold(),
+            health.getLookUpInterval(),
+            executorProvider);
+    healthTrackerRegistry.setLocalTracking(health.isLocalTracking());
+    healthTrackerRegistry.setRemoteCheckInterval(
+        Duration.ofSeconds(health.getRemoteCheckInterval()));
+    return healthTrackerRegistry;
   }
 
   @Bean
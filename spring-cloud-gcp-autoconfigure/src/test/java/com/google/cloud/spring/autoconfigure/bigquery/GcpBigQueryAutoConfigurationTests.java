@@ -23,8 +23,10 @@ import com.google.api.gax.core.CredentialsProvider;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryOptions;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
 import com.google.cloud.spring.autoconfigure.core.GcpContextAutoConfiguration;
 import com.google.cloud.spring.bigquery.core.BigQueryTemplate;
+import com.google.cloud.spring.bigquery.core.BigQueryWriteMode;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
@@ -57,9 +59,26 @@ class GcpBigQueryAutoConfigurationTests {
           assertThat(bigQueryTemplate.getDatasetName()).isEqualTo("test-dataset");
 
           assertThat(bigQueryTemplate.getJsonWriterBatchSize()).isEqualTo(2000);
+          assertThat(bigQueryTemplate.getWriteMode()).isEqualTo(BigQueryWriteMode.PENDING);
         });
   }
 
+  @Test
+  void testSettingWriteMode() {
+    this.contextRunner
+        .withPropertyValues("spring.cloud.gcp.bigquery.writeMode=DEFAULT_STREAM")
+        .run(
+            context ->
+                assertThat(context.getBean(BigQueryTemplate.class).getWriteMode())
+                    .isEqualTo(BigQueryWriteMode.DEFAULT_STREAM));
+  }
+
+  @Test
+  void testBigQueryReadClientCreated() {
+    this.contextRunner.run(
+        context -> assertThat(context).hasSingleBean(BigQueryReadClient.class));
+  }
+
   /** Spring Boot config for tests. */
   @AutoConfigurationPackage
   static class TestConfiguration {
@@ -18,6 +18,8 @@ package com.google.cloud.spring.autoconfigure.pubsub;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.mockito.Mockito.mock;
 
 import com.google.api.gax.batching.BatchingSettings;
@@ -25,6 +27,7 @@ import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.batching.FlowController;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.api.gax.core.ExecutorProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
 import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
 import com.google.api.gax.retrying.RetrySettings;
 import com.google.api.gax.rpc.StatusCode.Code;
@@ -34,13 +37,21 @@ import com.google.cloud.pubsub.v1.Publisher;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
 import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.publisher.PublishLimitExceededBehavior;
 import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.support.AdaptiveBatchingTuner;
 import com.google.cloud.spring.pubsub.support.CachingPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.cloud.spring.pubsub.support.PubSubChannelPool;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -54,6 +65,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.threeten.bp.Duration;
 
@@ -133,6 +145,67 @@ class GcpPubSubAutoConfigurationTests {
         });
   }
 
+  @Test
+  void channelPool_disabledByDefault() {
+    contextRunner.run(
+        ctx -> {
+          assertThat(ctx).doesNotHaveBean(PubSubChannelPool.class);
+          assertThat(ctx.getBean("subscriberTransportChannelProvider"))
+              .isInstanceOf(InstantiatingGrpcChannelProvider.class);
+        });
+  }
+
+  @Test
+  void channelPool_sharedByPublishersAndSubscribers() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.channel-pool.enabled=true",
+            "spring.cloud.gcp.pubsub.channel-pool.channel-count=2")
+        .run(
+            ctx -> {
+              PubSubChannelPool channelPool = ctx.getBean(PubSubChannelPool.class);
+              assertThat(channelPool.getChannelCount()).isEqualTo(2);
+
+              TransportChannelProvider subscriberTcp =
+                  ctx.getBean("subscriberTransportChannelProvider", TransportChannelProvider.class);
+              TransportChannelProvider publisherTcp =
+                  ctx.getBean("publisherTransportChannelProvider", TransportChannelProvider.class);
+              assertThat(subscriberTcp.shouldAutoClose()).isFalse();
+              assertThat(
+                      ((GrpcTransportChannel) subscriberTcp.getTransportChannel()).getChannel())
+                  .isSameAs(channelPool);
+              assertThat(((GrpcTransportChannel) publisherTcp.getTransportChannel()).getChannel())
+                  .isSameAs(channelPool);
+              assertThat(
+                      FieldUtils.readField(
+                          ctx.getBean(DefaultSubscriberFactory.class), "channelProvider", true))
+                  .isSameAs(subscriberTcp);
+            });
+  }
+
+  @Test
+  void channelPool_failsWithCustomEndpoints() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.channel-pool.enabled=true",
+            "spring.cloud.gcp.pubsub.publisher.endpoint=us-east1-pubsub.googleapis.com:443")
+        .run(
+            ctx ->
+                assertThat(ctx)
+                    .getFailure()
+                    .hasRootCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage(
+                        "The Pub/Sub channel pool connects to the default endpoint; it can't be "
+                            + "enabled together with publisher endpoints or subscriber pull "
+                            + "endpoints."));
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.channel-pool.enabled=true",
+            "spring.cloud.gcp.pubsub.subscription.subscription-name.pull-endpoint="
+                + "us-east1-pubsub.googleapis.com:443")
+        .run(ctx -> assertThat(ctx).hasFailed());
+  }
+
   @Test
   void retryableCodes_default() {
     contextRunner.run(
@@ -326,6 +399,56 @@ class GcpPubSubAutoConfigurationTests {
             });
   }
 
+  @Test
+  void virtualThreads_platformThreadsBeforeJava21() {
+    assumeFalse(VirtualThreads.isSupported());
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.subscriber.virtual-threads=true",
+            "spring.cloud.gcp.pubsub.subscription.subscription-name.executor-threads=7")
+        .run(
+            ctx -> {
+              assertThat(ctx.containsBean("pubSubSubscriberVirtualThreadExecutor")).isFalse();
+              assertThat(
+                      ctx.containsBean(
+                          "threadPoolScheduler_projects/fake project/subscriptions/subscription-name"))
+                  .isTrue();
+              assertThat(ctx.getBean("pubSubAcknowledgementExecutor"))
+                  .isInstanceOf(ThreadPoolTaskExecutor.class);
+            });
+  }
+
+  @Test
+  void virtualThreads_sharedExecutorProvider() {
+    assumeTrue(VirtualThreads.isSupported());
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.subscriber.virtual-threads=true",
+            "spring.cloud.gcp.pubsub.subscription.subscription-name.executor-threads=7")
+        .run(
+            ctx -> {
+              DefaultSubscriberFactory factory =
+                  ctx.getBean("defaultSubscriberFactory", DefaultSubscriberFactory.class);
+              ExecutorProvider globalExecutorProvider =
+                  ctx.getBean("globalSubscriberExecutorProvider", ExecutorProvider.class);
+              assertThat(globalExecutorProvider.getExecutor())
+                  .isInstanceOf(HybridScheduledExecutorService.class);
+              assertThat(factory.getExecutorProvider("subscription-name"))
+                  .isSameAs(globalExecutorProvider);
+              assertThat(
+                      ctx.containsBean(
+                          "threadPoolScheduler_projects/fake project/subscriptions/subscription-name"))
+                  .isFalse();
+
+              PubSubSubscriberTemplate subscriberTemplate =
+                  ctx.getBean(PubSubSubscriberTemplate.class);
+              assertThat(FieldUtils.readField(subscriberTemplate, "asyncPullExecutor", true))
+                  .isSameAs(ctx.getBean("pubSubSubscriberVirtualThreadExecutor"));
+              assertThat(ctx.getBean("pubSubAcknowledgementExecutor"))
+                  .isNotInstanceOf(ThreadPoolTaskExecutor.class);
+            });
+  }
+
   @Test
   void threadPoolTaskScheduler_selectiveConfigurationSet() {
     contextRunner
@@ -1371,6 +1494,279 @@ class GcpPubSubAutoConfigurationTests {
         });
   }
 
+  @Test
+  void createPublisher_topicSpecificSettings() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.publisher.batching.element-count-threshold=10",
+            "spring.cloud.gcp.pubsub.publisher.batching.delay-threshold-seconds=2",
+            "spring.cloud.gcp.pubsub.topic.busy-topic.batching.element-count-threshold=500",
+            "spring.cloud.gcp.pubsub.topic.busy-topic.executor-threads=2",
+            "spring.cloud.gcp.pubsub.topic.busy-topic.enable-message-ordering=true",
+            "spring.cloud.gcp.pubsub.publisher-cache.max-size=100")
+        .run(
+            ctx -> {
+              String qualifiedName = "projects/fake project/topics/busy-topic";
+              assertThat(ctx.containsBean("publisherThreadPool-" + qualifiedName)).isTrue();
+              assertThat(ctx.containsBean("publisherExecutorProvider-" + qualifiedName)).isTrue();
+              BatchingSettings topicBatchingSettings =
+                  ctx.getBean("publisherBatchSettings-" + qualifiedName, BatchingSettings.class);
+              assertThat(topicBatchingSettings.getElementCountThreshold()).isEqualTo(500L);
+              assertThat(topicBatchingSettings.getDelayThreshold())
+                  .isEqualTo(Duration.ofSeconds(2));
+
+              PublisherFactory factory =
+                  ctx.getBean("defaultPublisherFactory", PublisherFactory.class);
+              assertThat(FieldUtils.readField(factory, "maxSize", true)).isEqualTo(100);
+
+              Publisher busyPublisher = factory.createPublisher("busy-topic");
+              assertThat(busyPublisher.getBatchingSettings()).isEqualTo(topicBatchingSettings);
+              Publisher quietPublisher = factory.createPublisher("quiet-topic");
+              assertThat(quietPublisher.getBatchingSettings().getElementCountThreshold())
+                  .isEqualTo(10L);
+            });
+  }
+
+  @Test
+  void publisherTemplate_flowControlDisabledByDefault() {
+    contextRunner.run(
+        ctx -> {
+          PubSubPublisherTemplate publisherTemplate = ctx.getBean(PubSubPublisherTemplate.class);
+          assertThat(FieldUtils.readField(publisherTemplate, "flowController", true)).isNull();
+        });
+  }
+
+  @Test
+  void publisherTemplate_flowControl() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.publisher.flow-control.max-outstanding-element-count=100",
+            "spring.cloud.gcp.pubsub.publisher.flow-control.limit-exceeded-behavior=drop_oldest")
+        .run(
+            ctx -> {
+              GcpPubSubProperties gcpPubSubProperties = ctx.getBean(GcpPubSubProperties.class);
+              PubSubConfiguration.PublisherFlowControl flowControl =
+                  gcpPubSubProperties.getPublisher().getFlowControl();
+              assertThat(flowControl.getMaxOutstandingElementCount()).isEqualTo(100L);
+              assertThat(flowControl.getMaxOutstandingRequestBytes()).isNull();
+              assertThat(flowControl.getLimitExceededBehavior())
+                  .isEqualTo(PublishLimitExceededBehavior.DROP_OLDEST);
+
+              PubSubPublisherTemplate publisherTemplate =
+                  ctx.getBean(PubSubPublisherTemplate.class);
+              Object flowController =
+                  FieldUtils.readField(publisherTemplate, "flowController", true);
+              assertThat(flowController).isNotNull();
+              assertThat(FieldUtils.readField(flowController, "maxOutstandingElementCount", true))
+                  .isEqualTo(100L);
+              assertThat(FieldUtils.readField(flowController, "maxOutstandingRequestBytes", true))
+                  .isEqualTo(Long.MAX_VALUE);
+            });
+  }
+
+  @Test
+  void createPublisher_adaptiveBatchingDisabledByDefault() {
+    contextRunner.run(
+        ctx -> {
+          assertThat(ctx).doesNotHaveBean(AdaptiveBatchingTuner.class);
+          assertThat(ctx.containsBean("pubSubAdaptiveBatchingMetrics")).isFalse();
+        });
+  }
+
+  @Test
+  void createPublisher_adaptiveBatching() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.publisher-adaptive-batching.enabled=true",
+            "spring.cloud.gcp.pubsub.publisher-adaptive-batching.min-element-count-threshold=5",
+            "spring.cloud.gcp.pubsub.publisher-adaptive-batching.min-delay-threshold-millis=3",
+            "spring.cloud.gcp.pubsub.publisher-adaptive-batching.request-byte-threshold=2000",
+            "spring.cloud.gcp.pubsub.publisher.batching.element-count-threshold=10",
+            "spring.cloud.gcp.pubsub.topic.busy-topic.batching.element-count-threshold=500")
+        .run(
+            ctx -> {
+              AdaptiveBatchingTuner tuner = ctx.getBean(AdaptiveBatchingTuner.class);
+              assertThat(ctx.containsBean("pubSubAdaptiveBatchingMetrics")).isTrue();
+
+              PublisherFactory factory =
+                  ctx.getBean("defaultPublisherFactory", PublisherFactory.class);
+              assertThat(FieldUtils.readField(factory, "adaptiveBatchingTuner", true))
+                  .isSameAs(tuner);
+
+              BatchingSettings tunedBatching =
+                  factory.createPublisher("quiet-topic").getBatchingSettings();
+              assertThat(tunedBatching.getElementCountThreshold()).isEqualTo(5L);
+              assertThat(tunedBatching.getDelayThreshold()).isEqualTo(Duration.ofMillis(3));
+              assertThat(tunedBatching.getRequestByteThreshold()).isEqualTo(2000L);
+              assertThat(tuner.getTunedTopics()).containsExactly("quiet-topic");
+
+              assertThat(
+                      factory.createPublisher("busy-topic")
+                          .getBatchingSettings()
+                          .getElementCountThreshold())
+                  .isEqualTo(500L);
+            });
+  }
+
+  @Test
+  void metricsDisabledByDefault() {
+    contextRunner.run(
+        ctx -> {
+          assertThat(ctx).doesNotHaveBean(PubSubMetricsRecorder.class);
+          assertThat(ctx.containsBean("pubSubPublisherFlowControlMetrics")).isFalse();
+          assertThat(
+                  FieldUtils.readField(
+                      ctx.getBean(PubSubPublisherTemplate.class), "metricsRecorder", true))
+              .isNull();
+        });
+  }
+
+  @Test
+  void metricsEnabled_recorderSetOnTemplates() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.metrics.enabled=true",
+            "spring.cloud.gcp.pubsub.publisher.flow-control.max-outstanding-element-count=10")
+        .run(
+            ctx -> {
+              PubSubMetricsRecorder recorder = ctx.getBean(PubSubMetricsRecorder.class);
+              assertThat(
+                      FieldUtils.readField(
+                          ctx.getBean(PubSubPublisherTemplate.class), "metricsRecorder", true))
+                  .isSameAs(recorder);
+              assertThat(
+                      FieldUtils.readField(
+                          ctx.getBean(PubSubSubscriberTemplate.class), "metricsRecorder", true))
+                  .isSameAs(recorder);
+
+              SimpleMeterRegistry registry = new SimpleMeterRegistry();
+              ctx.getBeansOfType(MeterBinder.class).values().forEach(b -> b.bindTo(registry));
+              assertThat(
+                      registry
+                          .get("spring.cloud.gcp.pubsub.publisher.flow.control.outstanding.elements")
+                          .gauge()
+                          .value())
+                  .isZero();
+
+              recorder.recordPublish("topic1", 1000L, true);
+              assertThat(
+                      registry
+                          .get("spring.cloud.gcp.pubsub.publish")
+                          .tag("topic", "projects/fake project/topics/topic1")
+                          .timer()
+                          .count())
+                  .isEqualTo(1);
+            });
+  }
+
+  @Test
+  void metricsEnabled_channelPoolGauges() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.metrics.enabled=true",
+            "spring.cloud.gcp.pubsub.channel-pool.enabled=true",
+            "spring.cloud.gcp.pubsub.channel-pool.channel-count=3")
+        .run(
+            ctx -> {
+              SimpleMeterRegistry registry = new SimpleMeterRegistry();
+              ctx.getBeansOfType(MeterBinder.class).values().forEach(b -> b.bindTo(registry));
+              assertThat(
+                      registry.get("spring.cloud.gcp.pubsub.channel.pool.channels").gauge().value())
+                  .isEqualTo(3);
+              assertThat(
+                      registry
+                          .get("spring.cloud.gcp.pubsub.channel.pool.outstanding.calls")
+                          .gauge()
+                          .value())
+                  .isZero();
+              assertThat(
+                      registry
+                          .get("spring.cloud.gcp.pubsub.channel.pool.utilization")
+                          .gauge()
+                          .value())
+                  .isZero();
+            });
+  }
+
+  @Test
+  void subscriberTemplate_ackBatchingDisabledByDefault() {
+    contextRunner.run(
+        ctx -> {
+          PubSubSubscriberTemplate subscriberTemplate = ctx.getBean(PubSubSubscriberTemplate.class);
+          assertThat(FieldUtils.readField(subscriberTemplate, "acknowledgementBatcher", true))
+              .isNull();
+        });
+  }
+
+  @Test
+  void subscriberTemplate_ackBatchingEnabled() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.subscriber.ack-batching.enabled=true",
+            "spring.cloud.gcp.pubsub.subscriber.ack-batching.element-count-threshold=500",
+            "spring.cloud.gcp.pubsub.subscriber.ack-batching.delay-threshold-millis=25")
+        .run(
+            ctx -> {
+              GcpPubSubProperties gcpPubSubProperties = ctx.getBean(GcpPubSubProperties.class);
+              PubSubConfiguration.AckBatching ackBatching =
+                  gcpPubSubProperties.getSubscriber().getAckBatching();
+              assertThat(ackBatching.isEnabled()).isTrue();
+              assertThat(ackBatching.getElementCountThreshold()).isEqualTo(500);
+              assertThat(ackBatching.getDelayThresholdMillis()).isEqualTo(25L);
+
+              PubSubSubscriberTemplate subscriberTemplate =
+                  ctx.getBean(PubSubSubscriberTemplate.class);
+              assertThat(FieldUtils.readField(subscriberTemplate, "acknowledgementBatcher", true))
+                  .isNotNull();
+            });
+  }
+
+  @Test
+  void subscriberTemplate_exactlyOnceDisabledByDefault() {
+    contextRunner.run(
+        ctx -> {
+          PubSubSubscriberTemplate subscriberTemplate = ctx.getBean(PubSubSubscriberTemplate.class);
+          assertThat(FieldUtils.readField(subscriberTemplate, "acknowledgementRetrier", true))
+              .isNull();
+          assertThat(FieldUtils.readField(subscriberTemplate, "deduplicationWindow", true))
+              .isNull();
+        });
+  }
+
+  @Test
+  void subscriberTemplate_exactlyOnceEnabled() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.subscriber.exactly-once.enabled=true",
+            "spring.cloud.gcp.pubsub.subscriber.exactly-once.ack-retry-timeout-seconds=30")
+        .run(
+            ctx -> {
+              PubSubSubscriberTemplate subscriberTemplate =
+                  ctx.getBean(PubSubSubscriberTemplate.class);
+              assertThat(FieldUtils.readField(subscriberTemplate, "acknowledgementRetrier", true))
+                  .isNotNull();
+              assertThat(FieldUtils.readField(subscriberTemplate, "deduplicationWindow", true))
+                  .isNotNull();
+            });
+  }
+
+  @Test
+  void subscriberTemplate_exactlyOnceWithoutDeduplication() {
+    contextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.subscriber.exactly-once.enabled=true",
+            "spring.cloud.gcp.pubsub.subscriber.exactly-once.deduplication-window-seconds=0")
+        .run(
+            ctx -> {
+              PubSubSubscriberTemplate subscriberTemplate =
+                  ctx.getBean(PubSubSubscriberTemplate.class);
+              assertThat(FieldUtils.readField(subscriberTemplate, "acknowledgementRetrier", true))
+                  .isNotNull();
+              assertThat(FieldUtils.readField(subscriberTemplate, "deduplicationWindow", true))
+                  .isNull();
+            });
+  }
+
   @Test
   void flowControlSettings_multipleKeysForSameSubscription_firstOneUsed(CapturedOutput output) {
     contextRunner
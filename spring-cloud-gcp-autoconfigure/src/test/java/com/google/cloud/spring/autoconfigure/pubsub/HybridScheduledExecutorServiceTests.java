@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link HybridScheduledExecutorService} and {@link VirtualThreads}. */
+class HybridScheduledExecutorServiceTests {
+
+  private ExecutorService taskExecutor;
+
+  private ScheduledExecutorService scheduler;
+
+  private HybridScheduledExecutorService executorService;
+
+  @BeforeEach
+  void setUp() {
+    taskExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "task"));
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "timer"));
+    executorService = new HybridScheduledExecutorService(taskExecutor, scheduler);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  void tasksRunOnTaskExecutorAndTimersOnScheduler()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String taskThread =
+        executorService.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+    String timerThread =
+        executorService
+            .schedule(() -> Thread.currentThread().getName(), 1, TimeUnit.MILLISECONDS)
+            .get(5, TimeUnit.SECONDS);
+
+    assertThat(taskThread).isEqualTo("task");
+    assertThat(timerThread).isEqualTo("timer");
+  }
+
+  @Test
+  void shutdownStopsBothExecutors() throws InterruptedException {
+    executorService.shutdown();
+
+    assertThat(executorService.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(executorService.isShutdown()).isTrue();
+    assertThat(executorService.isTerminated()).isTrue();
+    assertThat(taskExecutor.isTerminated()).isTrue();
+    assertThat(scheduler.isTerminated()).isTrue();
+  }
+
+  @Test
+  void virtualThreadExecutorRequiresJava21() {
+    if (VirtualThreads.isSupported()) {
+      ExecutorService virtualThreadExecutor =
+          VirtualThreads.newVirtualThreadPerTaskExecutor("virtual-");
+      virtualThreadExecutor.shutdown();
+      assertThat(virtualThreadExecutor.isShutdown()).isTrue();
+    } else {
+      assertThatThrownBy(() -> VirtualThreads.newVirtualThreadPerTaskExecutor("virtual-"))
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessage("Virtual threads require Java 21 or later.");
+    }
+  }
+}
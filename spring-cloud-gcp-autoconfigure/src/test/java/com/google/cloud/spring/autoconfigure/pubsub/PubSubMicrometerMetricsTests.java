@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link PubSubMicrometerMetrics}. */
+class PubSubMicrometerMetricsTests {
+
+  private static final String SUBSCRIPTION = "projects/my-project/subscriptions/sub1";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private PubSubMicrometerMetrics metrics;
+
+  @BeforeEach
+  void setUp() {
+    metrics = new PubSubMicrometerMetrics("my-project", 2, false);
+  }
+
+  @Test
+  void measurementsBeforeBindingAreDropped() {
+    metrics.recordPublish("topic1", 1000L, true);
+
+    metrics.bindTo(registry);
+
+    assertThat(registry.getMeters()).isEmpty();
+  }
+
+  @Test
+  void shortAndQualifiedNamesShareTags() {
+    metrics.bindTo(registry);
+
+    metrics.recordPull("sub1", 3, 1000L, true);
+    metrics.recordPull(SUBSCRIPTION, 0, 1000L, false);
+    metrics.recordAcknowledgement("sub1", PubSubMetricsRecorder.NACK, 3, 1000L, true);
+    metrics.recordProcessing("sub1", 2, 1000L, true);
+
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.PULL)
+                .tags("subscription", SUBSCRIPTION, "result", "success")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.PULL)
+                .tags("subscription", SUBSCRIPTION, "result", "failure")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    // Failed pulls don't count as pulls of 0 messages.
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.MESSAGES_PER_PULL)
+                .tag("subscription", SUBSCRIPTION)
+                .summary()
+                .totalAmount())
+        .isEqualTo(3);
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.ACK_IDS_PER_REQUEST)
+                .tags("subscription", SUBSCRIPTION, "operation", "nack")
+                .summary()
+                .totalAmount())
+        .isEqualTo(3);
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.MESSAGES_PER_PROCESSING)
+                .tag("subscription", SUBSCRIPTION)
+                .summary()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void namesBeyondTheCapAreTaggedOther() {
+    metrics.bindTo(registry);
+
+    metrics.recordPublish("topic1", 1000L, true);
+    metrics.recordSerialization("topic2", 1000L);
+    metrics.recordPublish("topic3", 1000L, true);
+    metrics.recordPublish("topic4", 1000L, true);
+    metrics.recordPublish("topic1", 1000L, true);
+
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.PUBLISH)
+                .tag("topic", "projects/my-project/topics/topic1")
+                .timer()
+                .count())
+        .isEqualTo(2);
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.SERIALIZATION)
+                .tag("topic", "projects/my-project/topics/topic2")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.PUBLISH)
+                .tag("topic", PubSubMicrometerMetrics.OTHER)
+                .timer()
+                .count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void dispatchWaitsTaggedByLane() {
+    metrics.bindTo(registry);
+
+    metrics.recordDispatchWait("sub1", 0, 1000L);
+    metrics.recordDispatchWait("sub1", 1, 1000L);
+    metrics.recordDispatchWait(SUBSCRIPTION, 1, 1000L);
+
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.DISPATCH_WAIT)
+                .tags("subscription", SUBSCRIPTION, "lane", "0")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            registry.get(PubSubMicrometerMetrics.DISPATCH_WAIT)
+                .tags("subscription", SUBSCRIPTION, "lane", "1")
+                .timer()
+                .count())
+        .isEqualTo(2);
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.spring.bigquery.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.bigquery.storage.v1.JsonToProtoMessage;
+import com.google.cloud.bigquery.storage.v1.ProtoRows;
+import com.google.cloud.bigquery.storage.v1.TableFieldSchema;
+import com.google.cloud.bigquery.storage.v1.TableFieldSchema.Type;
+import com.google.cloud.bigquery.storage.v1.TableSchema;
+import com.google.cloud.spring.bigquery.core.ProtoRowEncoder;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the conversion of rows to the protocol buffers appended through the BigQuery
+ * Storage Write API, in rows per second.
+ *
+ * <p>{@code jsonStreamWriter} converts new line delimited JSON like {@code writeJsonStream} and the
+ * {@code JsonStreamWriter} do: a {@code JSONObject} per line, collected in a {@code JSONArray},
+ * each converted to a {@code DynamicMessage} and serialized. The other benchmarks encode the same
+ * rows with the {@link ProtoRowEncoder}, from the same JSON or from objects. Run with {@code -prof
+ * gc} to compare the bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(RowEncodingBenchmark.ROWS)
+public class RowEncodingBenchmark {
+
+  static final int ROWS = 1000;
+
+  private static final TableSchema TABLE_SCHEMA =
+      TableSchema.newBuilder()
+          .addFields(field("order_id", Type.INT64, TableFieldSchema.Mode.REQUIRED))
+          .addFields(field("customer", Type.STRING, TableFieldSchema.Mode.NULLABLE))
+          .addFields(field("amount", Type.NUMERIC, TableFieldSchema.Mode.NULLABLE))
+          .addFields(field("created", Type.TIMESTAMP, TableFieldSchema.Mode.NULLABLE))
+          .addFields(field("delivery_date", Type.DATE, TableFieldSchema.Mode.NULLABLE))
+          .addFields(field("tags", Type.STRING, TableFieldSchema.Mode.REPEATED))
+          .addFields(
+              field("item", Type.STRUCT, TableFieldSchema.Mode.NULLABLE).toBuilder()
+                  .addFields(field("sku", Type.STRING, TableFieldSchema.Mode.NULLABLE))
+                  .addFields(field("quantity", Type.INT64, TableFieldSchema.Mode.NULLABLE))
+                  .addFields(field("price", Type.DOUBLE, TableFieldSchema.Mode.NULLABLE)))
+          .build();
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  private final ProtoRowEncoder encoder = new ProtoRowEncoder(TABLE_SCHEMA);
+
+  private List<Order> orders;
+
+  private byte[] json;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.orders = new ArrayList<>();
+    for (int i = 0; i < ROWS; i++) {
+      this.orders.add(Order.create(i));
+    }
+    ObjectMapper objectMapper = new ObjectMapper();
+    StringBuilder lines = new StringBuilder();
+    for (Order order : this.orders) {
+      lines.append(objectMapper.writeValueAsString(order.toJsonRow())).append('\n');
+    }
+    this.json = lines.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public ProtoRows jsonStreamWriter() throws IOException {
+    BufferedReader jsonReader =
+        new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(this.json), StandardCharsets.UTF_8));
+    JSONArray jsonBatch = new JSONArray();
+    String jsonLine;
+    while ((jsonLine = jsonReader.readLine()) != null) {
+      jsonBatch.put(new JSONObject(jsonLine));
+    }
+    ProtoRows.Builder rows = ProtoRows.newBuilder();
+    for (int i = 0; i < jsonBatch.length(); i++) {
+      rows.addSerializedRows(
+          JsonToProtoMessage.convertJsonToProtoMessage(
+                  this.encoder.getDescriptor(), TABLE_SCHEMA, jsonBatch.getJSONObject(i))
+              .toByteString());
+    }
+    return rows.build();
+  }
+
+  @Benchmark
+  public ProtoRows protoRowEncoderJson() throws IOException {
+    ProtoRows.Builder rows = ProtoRows.newBuilder();
+    try (JsonParser parser = this.jsonFactory.createParser(this.json)) {
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        rows.addSerializedRows(this.encoder.encode(parser));
+      }
+    }
+    return rows.build();
+  }
+
+  @Benchmark
+  public ProtoRows protoRowEncoderObjects() {
+    ProtoRows.Builder rows = ProtoRows.newBuilder();
+    for (Order order : this.orders) {
+      rows.addSerializedRows(this.encoder.encode(order));
+    }
+    return rows.build();
+  }
+
+  private static TableFieldSchema field(String name, Type type, TableFieldSchema.Mode mode) {
+    return TableFieldSchema.newBuilder().setName(name).setType(type).setMode(mode).build();
+  }
+
+  /** A typical row. */
+  public record Order(
+      long orderId,
+      String customer,
+      BigDecimal amount,
+      Instant created,
+      LocalDate deliveryDate,
+      List<String> tags,
+      Item item) {
+
+    static Order create(int i) {
+      return new Order(
+          i,
+          "customer-" + (i * 7919 % 1000),
+          BigDecimal.valueOf(999 + i, 2),
+          Instant.parse("2023-04-01T10:15:30.123456Z").plusSeconds(i),
+          LocalDate.of(2023, 4, 1).plusDays(i % 30),
+          List.of("priority", "gift"),
+          new Item("sku-" + (i % 100), i % 5 + 1, 9.99 + i));
+    }
+
+    /** The row in the JSON format of the Storage Write API. */
+    Map<String, Object> toJsonRow() {
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("order_id", this.orderId);
+      row.put("customer", this.customer);
+      row.put("amount", this.amount);
+      // Timestamp strings are much slower to convert by JsonToProtoMessage than microseconds.
+      row.put(
+          "created",
+          TimeUnit.SECONDS.toMicros(this.created.getEpochSecond())
+              + TimeUnit.NANOSECONDS.toMicros(this.created.getNano()));
+      row.put("delivery_date", this.deliveryDate.toString());
+      row.put("tags", this.tags);
+      row.put("item", this.item);
+      return row;
+    }
+  }
+
+  /** An item of an {@link Order}. */
+  public record Item(String sku, int quantity, double price) {}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import com.google.cloud.bigquery.storage.v1.ArrowRecordBatch;
+import com.google.cloud.bigquery.storage.v1.ArrowSchema;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.VectorLoader;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.StructVector;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.ByteArrayReadableSeekableByteChannel;
+import org.apache.arrow.vector.util.Text;
+
+/**
+ * Decodes the Arrow record batches of a read stream into rows, keyed by column name in the order
+ * of the schema.
+ *
+ * <p>Values are converted to the Java types of the BigQuery column types: {@code TIMESTAMP} to
+ * {@link Instant}, {@code DATE} to {@link LocalDate}, {@code TIME} to {@link LocalTime}, {@code
+ * STRUCT} to {@link Map} and {@code ARRAY} to {@link List}. Rows are copied out of the Arrow
+ * buffers, so they stay valid after the next batch is decoded. A read that's cancelled may close
+ * the decoder from another thread; batches decoded after that have no rows.
+ *
+ * @since 4.1.5
+ */
+class ArrowRowDecoder implements AutoCloseable {
+
+  private final BufferAllocator allocator = new RootAllocator();
+
+  private final VectorSchemaRoot root;
+
+  private final VectorLoader loader;
+
+  private boolean closed;
+
+  ArrowRowDecoder(ArrowSchema arrowSchema) {
+    Schema schema;
+    try {
+      schema =
+          MessageSerializer.deserializeSchema(
+              new ReadChannel(
+                  new ByteArrayReadableSeekableByteChannel(
+                      arrowSchema.getSerializedSchema().toByteArray())));
+    } catch (IOException e) {
+      this.allocator.close();
+      throw new BigQueryException("Failed to decode the Arrow schema of the read session.", e);
+    }
+    this.root = VectorSchemaRoot.create(schema, this.allocator);
+    this.loader = new VectorLoader(this.root);
+  }
+
+  /**
+   * Decode the rows of a record batch.
+   *
+   * @param recordBatch the serialized record batch of a read response
+   * @return the rows, keyed by column name
+   */
+  synchronized List<Map<String, Object>> decode(ArrowRecordBatch recordBatch) {
+    if (this.closed) {
+      return Collections.emptyList();
+    }
+    try (org.apache.arrow.vector.ipc.message.ArrowRecordBatch batch =
+        MessageSerializer.deserializeRecordBatch(
+            new ReadChannel(
+                new ByteArrayReadableSeekableByteChannel(
+                    recordBatch.getSerializedRecordBatch().toByteArray())),
+            this.allocator)) {
+      this.loader.load(batch);
+    } catch (IOException e) {
+      throw new BigQueryException("Failed to decode an Arrow record batch.", e);
+    }
+
+    try {
+      List<FieldVector> vectors = this.root.getFieldVectors();
+      int rowCount = this.root.getRowCount();
+      List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+      for (int i = 0; i < rowCount; i++) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (FieldVector vector : vectors) {
+          row.put(vector.getName(), getValue(vector, i));
+        }
+        rows.add(row);
+      }
+      return rows;
+    } finally {
+      this.root.clear();
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    this.closed = true;
+    this.root.close();
+    this.allocator.close();
+  }
+
+  private static Object getValue(FieldVector vector, int index) {
+    if (vector.isNull(index)) {
+      return null;
+    }
+    if (vector instanceof TimeStampMicroTZVector timestampVector) {
+      long micros = timestampVector.get(index);
+      return Instant.ofEpochSecond(
+          Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+    if (vector instanceof DateDayVector dateVector) {
+      return LocalDate.ofEpochDay(dateVector.get(index));
+    }
+    if (vector instanceof TimeMicroVector timeVector) {
+      return LocalTime.ofNanoOfDay(timeVector.get(index) * 1_000L);
+    }
+    if (vector instanceof StructVector structVector) {
+      Map<String, Object> struct = new LinkedHashMap<>();
+      for (FieldVector child : structVector.getChildrenFromFields()) {
+        struct.put(child.getName(), getValue(child, index));
+      }
+      return struct;
+    }
+    if (vector instanceof ListVector listVector) {
+      FieldVector elements = listVector.getDataVector();
+      int end = listVector.getElementEndIndex(index);
+      List<Object> list = new ArrayList<>();
+      for (int i = listVector.getElementStartIndex(index); i < end; i++) {
+        list.add(getValue(elements, i));
+      }
+      return list;
+    }
+    Object value = vector.getObject(index);
+    return (value instanceof Text) ? value.toString() : value;
+  }
+}
@@ -26,26 +26,52 @@ import com.google.cloud.bigquery.storage.v1.Exceptions;
 import com.google.cloud.bigquery.storage.v1.Exceptions.StorageException;
 import com.google.cloud.bigquery.storage.v1.FinalizeWriteStreamResponse;
 import com.google.cloud.bigquery.storage.v1.JsonStreamWriter;
+import com.google.cloud.bigquery.storage.v1.ProtoRows;
+import com.google.cloud.bigquery.storage.v1.StreamWriter;
 import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.TableSchema;
 import com.google.cloud.bigquery.storage.v1.WriteStream;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.Descriptors.DescriptorValidationException;
+import io.grpc.protobuf.StatusProto;
 import java.io.IOException;
-import java.util.concurrent.Phaser;
+import java.util.function.Function;
 import javax.annotation.concurrent.GuardedBy;
 import org.json.JSONArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Helper class for using BigQuery storage write API in exactly once delivery mode. */
+/**
+ * Helper class for using BigQuery storage write API in exactly once delivery mode, or appending to
+ * a stream writer of a {@link JsonStreamWriterPool}. Rows are appended either as JSON, or encoded
+ * by a {@link ProtoRowEncoder}.
+ */
 public class BigQueryJsonDataWriter implements AutoCloseable {
 
   private final JsonStreamWriter streamWriter;
-  // Track the number of in-flight requests to wait for all responses before shutting down.
-  private final Phaser inflightRequestCount = new Phaser(1);
+
+  // The stream writer of encoded rows, and their encoder, when not appending JSON.
+  private final StreamWriter protoStreamWriter;
+
+  private final ProtoRowEncoder rowEncoder;
+
+  // The pooled writer appended to instead of the stream writer, if any.
+  private final JsonStreamWriterPool.PooledWriter pooledWriter;
+
+  static final long DEFAULT_MAX_INFLIGHT_BYTES = 20L * 1024 * 1024;
 
   private final Object lock = new Object();
 
+  // Track the in-flight requests to wait for all responses before shutting down, and their size
+  // to bound the memory used by appends when BigQuery is slow.
+  @GuardedBy("lock")
+  private int inflightRequestCount = 0;
+
+  @GuardedBy("lock")
+  private long inflightBytes = 0;
+
+  private long maxInflightBytes = DEFAULT_MAX_INFLIGHT_BYTES;
+
   private final Logger logger = LoggerFactory.getLogger(BigQueryJsonDataWriter.class);
 
   private final BigQueryWriteClient bigQueryWriteClient;
@@ -79,69 +105,251 @@ public class BigQueryJsonDataWriter implements AutoCloseable {
     // https://googleapis.dev/java/google-cloud-bigquerystorage/latest/com/google/cloud/bigquery/storage/v1beta2/JsonStreamWriter.html
     streamWriter =
         JsonStreamWriter.newBuilder(writeStream.getName(), writeStream.getTableSchema()).build();
+    this.protoStreamWriter = null;
+    this.rowEncoder = null;
+    this.pooledWriter = null;
+    this.bigQueryWriteClient = bigQueryWriteClient;
+  }
+
+  /**
+   * Package-Private constructor for initializing BigQueryJsonDataWriter on a pending stream
+   * appended to with rows encoded by a {@link ProtoRowEncoder}.
+   *
+   * @param parentTable against which the writer has to be initialized
+   * @param bigQueryWriteClient BigQueryWriteClient reference which has to be used for writing to
+   *     the database
+   * @param rowEncoders provides the encoder of the rows of a table schema, which are meant to be
+   *     cached since their creation is costly
+   */
+  BigQueryJsonDataWriter(
+      TableName parentTable,
+      BigQueryWriteClient bigQueryWriteClient,
+      Function<TableSchema, ProtoRowEncoder> rowEncoders)
+      throws IOException {
+    WriteStream writeStream =
+        bigQueryWriteClient.createWriteStream(
+            CreateWriteStreamRequest.newBuilder()
+                .setParent(parentTable.toString())
+                .setWriteStream(WriteStream.newBuilder().setType(WriteStream.Type.PENDING))
+                .build());
+    this.rowEncoder = rowEncoders.apply(writeStream.getTableSchema());
+    this.protoStreamWriter =
+        StreamWriter.newBuilder(writeStream.getName(), bigQueryWriteClient)
+            .setWriterSchema(this.rowEncoder.getProtoSchema())
+            .build();
+    this.streamWriter = null;
+    this.pooledWriter = null;
+    this.bigQueryWriteClient = bigQueryWriteClient;
+  }
+
+  /**
+   * Package-Private constructor for initializing BigQueryJsonDataWriter on a pooled stream writer,
+   * which is released to its pool rather than closed when this writer is closed.
+   *
+   * @param pooledWriter the pooled stream writer to append to
+   * @param bigQueryWriteClient BigQueryWriteClient reference which has to be used for writing to
+   *     the database
+   */
+  BigQueryJsonDataWriter(
+      JsonStreamWriterPool.PooledWriter pooledWriter, BigQueryWriteClient bigQueryWriteClient) {
+    this.streamWriter = null;
+    this.protoStreamWriter = null;
+    this.rowEncoder = null;
+    this.pooledWriter = pooledWriter;
     this.bigQueryWriteClient = bigQueryWriteClient;
   }
 
+  /**
+   * Sets the maximum size of the data of in-flight appends. Appends wait for earlier ones to
+   * complete once it's reached, though a single append larger than the limit is let through.
+   *
+   * @param maxInflightBytes the maximum size in bytes
+   */
+  void setMaxInflightBytes(long maxInflightBytes) {
+    this.maxInflightBytes = maxInflightBytes;
+  }
+
   /**
    * @param data JSONArray to be appended
-   * @param offset offset at which data has to be added
+   * @param offset offset at which data has to be added. Ignored when appending to a pooled
+   *     stream writer, which tracks the offsets of its stream.
    */
   public void append(JSONArray data, long offset)
       throws DescriptorValidationException, IOException {
+    append(data, offset, data.toString().length());
+  }
+
+  /**
+   * @param data JSONArray to be appended
+   * @param offset offset at which data has to be added
+   * @param size the size of the JSON data, in bytes
+   */
+  void append(JSONArray data, long offset, long size)
+      throws DescriptorValidationException, IOException {
+    reserve(size);
+    // Append asynchronously for increased throughput.
+    ApiFuture<AppendRowsResponse> future;
+    try {
+      future =
+          (pooledWriter != null) ? pooledWriter.append(data) : streamWriter.append(data, offset);
+    } catch (RuntimeException | DescriptorValidationException | IOException e) {
+      done(size);
+      throw e;
+    }
+    ApiFutures.addCallback(
+        future, new AppendCompleteCallback(size), MoreExecutors.directExecutor());
+  }
+
+  /**
+   * @param rows rows encoded by the encoder of this writer
+   * @param offset offset at which the rows have to be added
+   * @param size the size of the encoded rows, in bytes
+   */
+  void append(ProtoRows rows, long offset, long size) {
+    reserve(size);
+    ApiFuture<AppendRowsResponse> future;
+    try {
+      future = protoStreamWriter.append(rows, offset);
+    } catch (RuntimeException e) {
+      done(size);
+      throw e;
+    }
+    ApiFutures.addCallback(
+        future, new AppendCompleteCallback(size), MoreExecutors.directExecutor());
+  }
+
+  /**
+   * The encoder of the rows appended as protocol buffers.
+   *
+   * @return the encoder, or null if this writer appends JSON
+   */
+  public ProtoRowEncoder getRowEncoder() {
+    return this.rowEncoder;
+  }
+
+  private void reserve(long size) {
     synchronized (this.lock) {
+      // Wait for earlier appends to complete if too much data is in flight.
+      while (this.error == null
+          && this.inflightBytes > 0
+          && this.inflightBytes + size > this.maxInflightBytes) {
+        awaitCompletedAppend();
+      }
       // If earlier appends have failed, we need to reset before continuing.
       if (this.error != null) {
         throw this.error;
       }
+      // Increase the count of in-flight requests.
+      this.inflightRequestCount++;
+      this.inflightBytes += size;
     }
-    // Append asynchronously for increased throughput.
-    ApiFuture<AppendRowsResponse> future = streamWriter.append(data, offset);
-    ApiFutures.addCallback(future, new AppendCompleteCallback(), MoreExecutors.directExecutor());
-    // Increase the count of in-flight requests.
-    inflightRequestCount.register();
   }
 
   /** Call this method before committing the stream */
   public void finalizeWriteStream() {
-    // Wait for all in-flight requests to complete.
-    inflightRequestCount.arriveAndAwaitAdvance();
+    flush();
+
+    // Finalize the stream.
+    FinalizeWriteStreamResponse finalizeResponse =
+        bigQueryWriteClient.finalizeWriteStream(getStreamName());
+    logger.info("Rows written: {}", finalizeResponse.getRowCount());
+  }
 
-    // Verify that no error occurred in the stream.
+  /**
+   * Wait for the responses of all appends, which is all that's needed when appending to a pooled
+   * committed or default stream.
+   */
+  void flush() {
     synchronized (this.lock) {
+      // Wait for all in-flight requests to complete.
+      while (this.inflightRequestCount > 0) {
+        awaitCompletedAppend();
+      }
+
+      // Verify that no error occurred in the stream.
       if (this.error != null) {
         throw this.error;
       }
     }
+  }
 
-    // Finalize the stream.
-    FinalizeWriteStreamResponse finalizeResponse =
-        bigQueryWriteClient.finalizeWriteStream(streamWriter.getStreamName());
-    logger.info("Rows written: {}", finalizeResponse.getRowCount());
+  @GuardedBy("lock")
+  private void awaitCompletedAppend() {
+    try {
+      this.lock.wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BigQueryException("Interrupted while waiting for appends to complete.", e);
+    }
+  }
+
+  private void done(long size) {
+    // Reduce the count of in-flight requests.
+    synchronized (this.lock) {
+      this.inflightRequestCount--;
+      this.inflightBytes -= size;
+      this.lock.notifyAll();
+    }
   }
 
   public String getStreamName() {
-    return streamWriter.getStreamName();
+    if (pooledWriter != null) {
+      return pooledWriter.getStreamName();
+    }
+    return (streamWriter != null)
+        ? streamWriter.getStreamName()
+        : protoStreamWriter.getStreamName();
   }
 
   @Override
   public void close() throws Exception {
+    if (pooledWriter != null) {
+      pooledWriter.release();
+      return;
+    }
     // Close the connection to the server.
-    streamWriter.close();
+    if (streamWriter != null) {
+      streamWriter.close();
+    } else {
+      protoStreamWriter.close();
+    }
   }
 
   class AppendCompleteCallback implements ApiFutureCallback<AppendRowsResponse> {
     private final Logger logger = LoggerFactory.getLogger(AppendCompleteCallback.class);
 
+    private final long size;
+
+    AppendCompleteCallback(long size) {
+      this.size = size;
+    }
+
     public void onSuccess(AppendRowsResponse response) {
       logger.info("Append {} success", response.getAppendResult().getOffset().getValue());
       done();
     }
 
     public void onFailure(Throwable throwable) {
+      if (throwable instanceof Exceptions.OffsetAlreadyExists) {
+        // The rows were already appended, before the stream writer reconnected.
+        logger.info("Append of existing offset ignored: {}", throwable.getMessage());
+        done();
+        return;
+      }
+      if (pooledWriter != null) {
+        // Appends after a failed one fail too, so a new stream writer is needed.
+        pooledWriter.markBroken();
+      }
       String errMsg = null;
       synchronized (lock) {
         if (error == null) {
-          StorageException storageException = Exceptions.toStorageException(throwable);
+          StorageException storageException = null;
+          if (throwable instanceof StorageException) {
+            storageException = (StorageException) throwable;
+          } else if (StatusProto.fromThrowable(throwable) != null) {
+            // Only errors with gRPC status details can be converted.
+            storageException = Exceptions.toStorageException(throwable);
+          }
           error = (storageException != null) ? storageException : new RuntimeException(throwable);
           errMsg = error.getMessage();
         }
@@ -151,8 +359,7 @@ public class BigQueryJsonDataWriter implements AutoCloseable {
     }
 
     private void done() {
-      // Reduce the count of in-flight requests.
-      inflightRequestCount.arriveAndDeregister();
+      BigQueryJsonDataWriter.this.done(this.size);
     }
   }
 }
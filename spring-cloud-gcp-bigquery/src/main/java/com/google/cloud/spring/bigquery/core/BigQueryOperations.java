@@ -20,7 +20,10 @@ import com.google.cloud.bigquery.FormatOptions;
 import com.google.cloud.bigquery.Job;
 import com.google.cloud.bigquery.Schema;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import reactor.core.publisher.Flux;
 
 /**
  * Defines operations for use with BigQuery.
@@ -91,4 +94,130 @@ public interface BigQueryOperations {
    */
   CompletableFuture<WriteApiResponse> writeJsonStream(
       String tableName, InputStream jsonInputStream, Schema schema);
+
+  /**
+   * Writes rows to an existing table through the BigQuery Storage Write API, in a pending stream
+   * committed once all rows are appended. The rows are encoded straight to protocol buffers
+   * according to the table schema, without going through JSON.
+   *
+   * <p>Example:
+   *
+   * <pre>{@code
+   * List<Order> orders = List.of(new Order(42, new BigDecimal("12.5"), Instant.now()));
+   * bigQueryTemplate.writeRows("orders", orders).join();
+   * }</pre>
+   *
+   * @param tableName name of the table to write to
+   * @param rows the rows to write: {@link java.util.Map}s of values keyed by column name, records
+   *     or beans with properties matching the column names
+   * @return {@link CompletableFuture} containing the WriteApiResponse indicating completion of
+   *     operation
+   * @since 4.1.5
+   */
+  CompletableFuture<WriteApiResponse> writeRows(String tableName, Iterable<?> rows);
+
+  /**
+   * Writes JSON objects to an existing table through the BigQuery Storage Write API, in a pending
+   * stream committed once all rows are appended. The JSON is parsed as a stream and encoded
+   * straight to protocol buffers according to the table schema, which takes much less CPU and
+   * memory than {@link #writeJsonStream(String, InputStream)}.
+   *
+   * @param tableName name of the table to write to
+   * @param jsonInputStream input stream of new line delimited JSON objects, or of a JSON array of
+   *     objects
+   * @return {@link CompletableFuture} containing the WriteApiResponse indicating completion of
+   *     operation
+   * @since 4.1.5
+   */
+  CompletableFuture<WriteApiResponse> writeJsonRows(String tableName, InputStream jsonInputStream);
+
+  /**
+   * Reads a table through the BigQuery Storage Read API. The table is split into streams that are
+   * read in parallel, so rows aren't returned in table order. Close the returned {@link Stream} to
+   * stop reading before all rows were consumed.
+   *
+   * <p>Example:
+   *
+   * <pre>{@code
+   * try (Stream<Order> orders =
+   *     bigQueryTemplate.readTable(
+   *         "orders",
+   *         new BigQueryReadOptions()
+   *             .setSelectedFields("order_id", "amount")
+   *             .setRowRestriction("amount > 100"),
+   *         Order.class)) {
+   *   orders.forEach(this::process);
+   * }
+   * }</pre>
+   *
+   * @param tableName name of the table to read
+   * @param readOptions the columns and rows to read and the number of streams to read them in
+   * @param rowType the type rows are mapped to: {@link java.util.Map}, a simple type for single
+   *     column reads, a record or a bean with properties matching the column names
+   * @param <T> the type rows are mapped to
+   * @return the rows of the table
+   * @throws BigQueryException if errors occur when reading the table
+   * @since 4.1.5
+   */
+  <T> Stream<T> readTable(String tableName, BigQueryReadOptions readOptions, Class<T> rowType);
+
+  /**
+   * Reads a table through the BigQuery Storage Read API. The read starts on subscription, and
+   * streams only fetch more rows as they're requested.
+   *
+   * @param tableName name of the table to read
+   * @param readOptions the columns and rows to read and the number of streams to read them in
+   * @param rowType the type rows are mapped to
+   * @param <T> the type rows are mapped to
+   * @return {@link Flux} of the rows of the table; it fails with a {@link BigQueryException} if
+   *     errors occur when reading the table
+   * @see #readTable(String, BigQueryReadOptions, Class)
+   * @since 4.1.5
+   */
+  <T> Flux<T> readTableAsFlux(String tableName, BigQueryReadOptions readOptions, Class<T> rowType);
+
+  /**
+   * Runs a query and returns its results. The query job is polled for completion like the jobs of
+   * {@link #writeDataToTable}, and the results are paged through, fetching the next page while the
+   * rows of the current one are consumed. Large results are instead read from the table the query
+   * wrote them to, through the BigQuery Storage Read API. Close the returned {@link Stream} to
+   * cancel the query or stop reading before all rows were consumed.
+   *
+   * <p>Example:
+   *
+   * <pre>{@code
+   * try (Stream<Order> orders =
+   *     bigQueryTemplate.query(
+   *         "SELECT * FROM orders WHERE customer_id = @customerId",
+   *         Map.of("customerId", 42L),
+   *         Order.class)) {
+   *   orders.forEach(this::process);
+   * }
+   * }</pre>
+   *
+   * @param sql the GoogleSQL query, using named parameters. Tables of the template's dataset can
+   *     be referenced without dataset name.
+   * @param params the values of the named parameters, keyed by parameter name; may be null
+   * @param rowType the type rows are mapped to
+   * @param <T> the type rows are mapped to
+   * @return the rows of the query results
+   * @throws BigQueryException if errors occur when running the query or reading its results
+   * @see #readTable(String, BigQueryReadOptions, Class)
+   * @since 4.1.5
+   */
+  <T> Stream<T> query(String sql, Map<String, Object> params, Class<T> rowType);
+
+  /**
+   * Runs a query and returns its results. The query job starts on subscription.
+   *
+   * @param sql the GoogleSQL query, using named parameters
+   * @param params the values of the named parameters, keyed by parameter name; may be null
+   * @param rowType the type rows are mapped to
+   * @param <T> the type rows are mapped to
+   * @return {@link Flux} of the rows of the query results; it fails with a {@link
+   *     BigQueryException} if errors occur when running the query or reading its results
+   * @see #query(String, Map, Class)
+   * @since 4.1.5
+   */
+  <T> Flux<T> queryAsFlux(String sql, Map<String, Object> params, Class<T> rowType);
 }
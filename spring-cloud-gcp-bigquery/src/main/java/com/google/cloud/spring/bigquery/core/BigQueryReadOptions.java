@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.util.Assert;
+
+/**
+ * Encapsulates the options of a table read through the BigQuery Storage Read API. Use the
+ * extension-style set functions to set options.
+ *
+ * @since 4.1.5
+ */
+public class BigQueryReadOptions {
+
+  private List<String> selectedFields = new ArrayList<>();
+
+  private String rowRestriction;
+
+  private int maxStreamCount = Runtime.getRuntime().availableProcessors();
+
+  public List<String> getSelectedFields() {
+    return this.selectedFields;
+  }
+
+  /**
+   * Sets the columns to read. Nested fields are selected with their dotted path, e.g. {@code
+   * "address.city"}.
+   *
+   * @param selectedFields the names of the columns to read. All columns are read if empty.
+   * @return this options object
+   */
+  public BigQueryReadOptions setSelectedFields(List<String> selectedFields) {
+    Assert.notNull(selectedFields, "Selected fields must not be null.");
+    this.selectedFields = new ArrayList<>(selectedFields);
+    return this;
+  }
+
+  /**
+   * Sets the columns to read.
+   *
+   * @param selectedFields the names of the columns to read
+   * @return this options object
+   * @see #setSelectedFields(List)
+   */
+  public BigQueryReadOptions setSelectedFields(String... selectedFields) {
+    Assert.notNull(selectedFields, "Selected fields must not be null.");
+    return setSelectedFields(Arrays.asList(selectedFields));
+  }
+
+  public String getRowRestriction() {
+    return this.rowRestriction;
+  }
+
+  /**
+   * Sets the filter rows must match to be read, in GoogleSQL, e.g. {@code "state = \"WA\""}.
+   * Filters can't refer to nested or repeated fields and are limited to 1 MB.
+   *
+   * @param rowRestriction the filter. All rows are read if null.
+   * @return this options object
+   */
+  public BigQueryReadOptions setRowRestriction(String rowRestriction) {
+    this.rowRestriction = rowRestriction;
+    return this;
+  }
+
+  public int getMaxStreamCount() {
+    return this.maxStreamCount;
+  }
+
+  /**
+   * Sets the maximum number of streams the table is split into. Streams are read in parallel, so
+   * this is also the maximum number of threads reading the table. BigQuery may create fewer streams,
+   * e.g. for small tables.
+   *
+   * @param maxStreamCount the maximum number of streams. Default is the number of available
+   *     processors.
+   * @return this options object
+   */
+  public BigQueryReadOptions setMaxStreamCount(int maxStreamCount) {
+    Assert.isTrue(maxStreamCount > 0, "Max stream count must be greater than 0.");
+    this.maxStreamCount = maxStreamCount;
+    return this;
+  }
+}
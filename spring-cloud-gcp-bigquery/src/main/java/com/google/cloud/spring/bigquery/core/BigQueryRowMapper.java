@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.Assert;
+
+/**
+ * Maps rows, keyed by column name, to objects of a type.
+ *
+ * <ul>
+ *   <li>{@link Map} rows are returned as they are.
+ *   <li>Simple types, such as {@link String} or {@link Long}, are mapped from the value of rows
+ *       with a single column, e.g. for {@code SELECT COUNT(*)}.
+ *   <li>Records are created with the values of the columns matching their components.
+ *   <li>Other types are created with their no-argument constructor; the columns are set to the
+ *       matching bean properties.
+ * </ul>
+ *
+ * <p>Column names match property names ignoring case and underscores, so the {@code customer_id}
+ * column matches the {@code customerId} property. Columns without matching property are ignored.
+ * Values are converted to the property types through the {@link DefaultConversionService}.
+ *
+ * @param <T> the type rows are mapped to
+ * @since 4.1.5
+ */
+class BigQueryRowMapper<T> {
+
+  private final Class<T> type;
+
+  private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+  /** The bean property or record component names, keyed by normalized name. */
+  private final Map<String, String> propertyNames = new HashMap<>();
+
+  private final Constructor<T> recordConstructor;
+
+  private final RecordComponent[] recordComponents;
+
+  BigQueryRowMapper(Class<T> type) {
+    Assert.notNull(type, "The row type can't be null.");
+    this.type = type;
+    if (type.isRecord()) {
+      this.recordComponents = type.getRecordComponents();
+      Class<?>[] componentTypes = new Class<?>[this.recordComponents.length];
+      for (int i = 0; i < this.recordComponents.length; i++) {
+        componentTypes[i] = this.recordComponents[i].getType();
+        this.propertyNames.put(
+            normalize(this.recordComponents[i].getName()), this.recordComponents[i].getName());
+      }
+      try {
+        this.recordConstructor = type.getDeclaredConstructor(componentTypes);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalArgumentException("No canonical constructor found for " + type + ".", e);
+      }
+    } else {
+      this.recordComponents = null;
+      this.recordConstructor = null;
+      if (!isDirectlyMapped()) {
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+          if (descriptor.getWriteMethod() != null) {
+            this.propertyNames.put(normalize(descriptor.getName()), descriptor.getName());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Map a row.
+   *
+   * @param row the values of the row keyed by column name
+   * @return the mapped object
+   * @throws BigQueryException if the row can't be mapped to the type
+   */
+  @SuppressWarnings("unchecked")
+  T map(Map<String, Object> row) {
+    if (this.type.isInstance(row)) {
+      return (T) row;
+    }
+    try {
+      if (isDirectlyMapped()) {
+        return mapValue(row);
+      }
+      if (this.recordConstructor != null) {
+        return mapRecord(row);
+      }
+      return mapBean(row);
+    } catch (BeansException | ConversionException e) {
+      throw new BigQueryException("Failed to map a row to " + this.type.getName() + ".", e);
+    }
+  }
+
+  private boolean isDirectlyMapped() {
+    return BeanUtils.isSimpleValueType(this.type) || this.type.isArray();
+  }
+
+  private T mapValue(Map<String, Object> row) {
+    if (row.size() != 1) {
+      throw new BigQueryException(
+          "Can't map a row of "
+              + row.size()
+              + " columns to "
+              + this.type.getName()
+              + "; a single column is expected.");
+    }
+    return this.conversionService.convert(row.values().iterator().next(), this.type);
+  }
+
+  private T mapRecord(Map<String, Object> row) {
+    Map<String, Object> valuesByComponent = new HashMap<>();
+    row.forEach(
+        (column, value) -> {
+          String component = this.propertyNames.get(normalize(column));
+          if (component != null) {
+            valuesByComponent.put(component, value);
+          }
+        });
+    Object[] args = new Object[this.recordComponents.length];
+    for (int i = 0; i < args.length; i++) {
+      RecordComponent component = this.recordComponents[i];
+      args[i] =
+          this.conversionService.convert(
+              valuesByComponent.get(component.getName()), component.getType());
+    }
+    return BeanUtils.instantiateClass(this.recordConstructor, args);
+  }
+
+  private T mapBean(Map<String, Object> row) {
+    T bean = BeanUtils.instantiateClass(this.type);
+    BeanWrapper beanWrapper = PropertyAccessorFactory.forBeanPropertyAccess(bean);
+    beanWrapper.setConversionService(this.conversionService);
+    row.forEach(
+        (column, value) -> {
+          String property = this.propertyNames.get(normalize(column));
+          if (property != null) {
+            beanWrapper.setPropertyValue(property, value);
+          }
+        });
+    return bean;
+  }
+
+  private static String normalize(String name) {
+    return name.replace("_", "").toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ServerStream;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1.DataFormat;
+import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.ReadSession.TableReadOptions;
+import com.google.cloud.bigquery.storage.v1.ReadStream;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reads tables through the BigQuery Storage Read API.
+ *
+ * <p>A read creates a read session splitting the table into streams, which are read in parallel
+ * and decoded from Arrow. Rows of the same stream keep their order; rows of different streams are
+ * interleaved. The streams are read lazily: a stream only fetches the next batch of rows when the
+ * previous ones were consumed, and cancelling the read cancels the streams.
+ *
+ * <p>Reading a stream resumes from the last row received when the connection fails, see {@link
+ * BigQueryReadClient#readRowsCallable()}.
+ *
+ * @since 4.1.5
+ */
+class BigQueryTableReader {
+
+  private final Logger logger = LoggerFactory.getLogger(BigQueryTableReader.class);
+
+  private final BigQueryReadClient bigQueryReadClient;
+
+  private final Scheduler scheduler;
+
+  BigQueryTableReader(BigQueryReadClient bigQueryReadClient, Scheduler scheduler) {
+    Assert.notNull(bigQueryReadClient, "BigQueryReadClient must not be null");
+    Assert.notNull(scheduler, "Scheduler must not be null");
+    this.bigQueryReadClient = bigQueryReadClient;
+    this.scheduler = scheduler;
+  }
+
+  BigQueryTableReader(BigQueryReadClient bigQueryReadClient) {
+    this(bigQueryReadClient, Schedulers.boundedElastic());
+  }
+
+  /**
+   * Read a table. The read session is created on subscription.
+   *
+   * @param table the table to read
+   * @param readOptions the columns, rows and parallelism of the read
+   * @return the rows of the table, keyed by column name
+   */
+  Flux<Map<String, Object>> read(TableName table, BigQueryReadOptions readOptions) {
+    Assert.notNull(table, "Table must not be null");
+    Assert.notNull(readOptions, "Read options must not be null");
+    return Flux.defer(
+            () -> {
+              ReadSession session = createReadSession(table, readOptions);
+              logger.debug("Reading {} in {} streams", table, session.getStreamsCount());
+              // A session of an empty table has no streams.
+              return Flux.fromIterable(session.getStreamsList())
+                  .flatMap(
+                      stream -> readStream(session, stream).subscribeOn(this.scheduler),
+                      Math.max(session.getStreamsCount(), 1));
+            })
+        .onErrorMap(
+            ApiException.class, e -> new BigQueryException("Failed to read " + table + ".", e));
+  }
+
+  private ReadSession createReadSession(TableName table, BigQueryReadOptions readOptions) {
+    TableReadOptions.Builder tableReadOptions =
+        TableReadOptions.newBuilder().addAllSelectedFields(readOptions.getSelectedFields());
+    if (readOptions.getRowRestriction() != null) {
+      tableReadOptions.setRowRestriction(readOptions.getRowRestriction());
+    }
+    CreateReadSessionRequest request =
+        CreateReadSessionRequest.newBuilder()
+            .setParent("projects/" + table.getProject())
+            .setReadSession(
+                ReadSession.newBuilder()
+                    .setTable(table.toString())
+                    .setDataFormat(DataFormat.ARROW)
+                    .setReadOptions(tableReadOptions))
+            .setMaxStreamCount(readOptions.getMaxStreamCount())
+            .build();
+    return this.bigQueryReadClient.createReadSession(request);
+  }
+
+  private Flux<Map<String, Object>> readStream(ReadSession session, ReadStream stream) {
+    return Flux.using(
+        () -> new ArrowRowDecoder(session.getArrowSchema()),
+        decoder -> {
+          ServerStream<ReadRowsResponse> responses =
+              this.bigQueryReadClient
+                  .readRowsCallable()
+                  .call(ReadRowsRequest.newBuilder().setReadStream(stream.getName()).build());
+          // Only fetch one response ahead, so that a stream buffers at most two batches of rows.
+          return Flux.fromIterable(responses)
+              .doOnCancel(responses::cancel)
+              .concatMapIterable(response -> decoder.decode(response.getArrowRecordBatch()), 1);
+        },
+        ArrowRowDecoder::close);
+  }
+}
@@ -16,12 +16,20 @@
 
 package com.google.cloud.spring.bigquery.core;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
 import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.FieldList;
 import com.google.cloud.bigquery.FormatOptions;
 import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobInfo;
 import com.google.cloud.bigquery.JobInfo.CreateDisposition;
 import com.google.cloud.bigquery.JobInfo.WriteDisposition;
 import com.google.cloud.bigquery.JobStatus.State;
+import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.Schema;
 import com.google.cloud.bigquery.StandardTableDefinition;
 import com.google.cloud.bigquery.Table;
@@ -29,12 +37,15 @@ import com.google.cloud.bigquery.TableDataWriteChannel;
 import com.google.cloud.bigquery.TableDefinition;
 import com.google.cloud.bigquery.TableId;
 import com.google.cloud.bigquery.TableInfo;
+import com.google.cloud.bigquery.TableResult;
 import com.google.cloud.bigquery.WriteChannelConfiguration;
 import com.google.cloud.bigquery.storage.v1.BatchCommitWriteStreamsRequest;
 import com.google.cloud.bigquery.storage.v1.BatchCommitWriteStreamsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
 import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
 import com.google.cloud.bigquery.storage.v1.StorageError;
 import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.TableSchema;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.Descriptors.DescriptorValidationException;
 import java.io.BufferedReader;
@@ -45,22 +56,38 @@ import java.io.OutputStream;
 import java.nio.channels.Channels;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Helper class which simplifies common operations done in BigQuery.
  *
  * @since 1.2
  */
-public class BigQueryTemplate implements BigQueryOperations {
+public class BigQueryTemplate implements BigQueryOperations, DisposableBean {
 
   private final BigQuery bigQuery;
 
@@ -70,6 +97,10 @@ public class BigQueryTemplate implements BigQueryOperations {
 
   private final BigQueryWriteClient bigQueryWriteClient;
 
+  private final BigQueryTableReader bigQueryTableReader;
+
+  private final JsonStreamWriterPool jsonStreamWriterPool;
+
   private boolean autoDetectSchema = true;
 
   private WriteDisposition writeDisposition = WriteDisposition.WRITE_APPEND;
@@ -78,15 +109,47 @@ public class BigQueryTemplate implements BigQueryOperations {
 
   private Duration jobPollInterval = Duration.ofSeconds(2);
 
+  private long queryStorageReadRowThreshold = DEFAULT_QUERY_STORAGE_READ_ROW_THRESHOLD;
+
+  // Runs writeJsonStream calls, unless another executor is set.
+  private final ExecutorService defaultWriteExecutor = createDefaultWriteExecutor();
+
+  private Executor writeExecutor = this.defaultWriteExecutor;
+
+  private long maxInflightAppendBytes = BigQueryJsonDataWriter.DEFAULT_MAX_INFLIGHT_BYTES;
+
+  private long writeBatchBytes = DEFAULT_WRITE_BATCH_BYTES;
+
+  // The encoders of the rows written by writeRows and writeJsonRows, by table schema.
+  private final Map<TableSchema, ProtoRowEncoder> rowEncoders = new ConcurrentHashMap<>();
+
   private static final int DEFAULT_JSON_STREAM_WRITER_BATCH_SIZE =
       1000; // write records in batches of 1000
 
   private static final int MIN_JSON_STREAM_WRITER_BATCH_SIZE = 10; // minimum batch size
 
+  private static final long DEFAULT_QUERY_STORAGE_READ_ROW_THRESHOLD = 100_000L;
+
+  private static final int DEFAULT_WRITE_THREAD_COUNT = 4;
+
+  private static final int DEFAULT_WRITE_QUEUE_CAPACITY = 1000;
+
+  private static final long DEFAULT_WRITE_BATCH_BYTES = 1024L * 1024;
+
+  // Leaves the input streams of writeJsonRows open, like writeJsonStream does.
+  private static final JsonFactory JSON_FACTORY =
+      JsonFactory.builder().disable(StreamReadFeature.AUTO_CLOSE_SOURCE).build();
+
+  // Results of queries with ORDER BY must be paged through to keep their order.
+  private static final Pattern ORDER_BY_PATTERN =
+      Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
   private final Logger logger = LoggerFactory.getLogger(BigQueryTemplate.class);
 
   private final int jsonWriterBatchSize;
 
+  private final BigQueryWriteMode writeMode;
+
   /**
    * A Full constructor which creates the {@link BigQuery} template.
    *
@@ -102,6 +165,29 @@ public class BigQueryTemplate implements BigQueryOperations {
       BigQueryWriteClient bigQueryWriteClient,
       Map<String, Object> bqInitSettings,
       TaskScheduler taskScheduler) {
+    this(bigQuery, bigQueryWriteClient, null, bqInitSettings, taskScheduler);
+  }
+
+  /**
+   * A Full constructor which creates the {@link BigQuery} template, including the client used to
+   * read tables.
+   *
+   * @param bigQuery the underlying client object used to interface with BigQuery
+   * @param bigQueryWriteClient the underlying BigQueryWriteClient reference use to connect with
+   *     BigQuery Storage Write Client
+   * @param bigQueryReadClient the underlying BigQueryReadClient reference used to read tables
+   *     through the BigQuery Storage Read API. Reads fail if it's null.
+   * @param bqInitSettings Properties required for initialisation of this class
+   * @param taskScheduler the {@link TaskScheduler} used to poll for the status of long-running
+   *     BigQuery operations, and to close idle stream writers
+   * @since 4.1.5
+   */
+  public BigQueryTemplate(
+      BigQuery bigQuery,
+      BigQueryWriteClient bigQueryWriteClient,
+      BigQueryReadClient bigQueryReadClient,
+      Map<String, Object> bqInitSettings,
+      TaskScheduler taskScheduler) {
     String bqDatasetName = (String) bqInitSettings.get("DATASET_NAME");
     Assert.notNull(bigQuery, "BigQuery client object must not be null.");
     Assert.notNull(bqDatasetName, "Dataset name must not be null");
@@ -111,10 +197,18 @@ public class BigQueryTemplate implements BigQueryOperations {
         (Integer)
             bqInitSettings.getOrDefault(
                 "JSON_WRITER_BATCH_SIZE", DEFAULT_JSON_STREAM_WRITER_BATCH_SIZE);
+    writeMode =
+        (BigQueryWriteMode) bqInitSettings.getOrDefault("WRITE_MODE", BigQueryWriteMode.PENDING);
     this.bigQuery = bigQuery;
     this.datasetName = bqDatasetName;
     this.taskScheduler = taskScheduler;
     this.bigQueryWriteClient = bigQueryWriteClient;
+    this.bigQueryTableReader =
+        (bigQueryReadClient != null) ? new BigQueryTableReader(bigQueryReadClient) : null;
+    this.jsonStreamWriterPool =
+        (writeMode != BigQueryWriteMode.PENDING)
+            ? new JsonStreamWriterPool(bigQueryWriteClient, writeMode, taskScheduler)
+            : null;
   }
 
   /**
@@ -164,6 +258,77 @@ public class BigQueryTemplate implements BigQueryOperations {
     this.jobPollInterval = jobPollInterval;
   }
 
+  /**
+   * Sets the number of rows above which query results are read through the BigQuery Storage Read
+   * API instead of paged through. Results of queries with an {@code ORDER BY} clause are always
+   * paged through, since the Storage Read API doesn't keep the order of rows.
+   *
+   * @param queryStorageReadRowThreshold the number of rows. Default is 100000.
+   * @since 4.1.5
+   */
+  public void setQueryStorageReadRowThreshold(long queryStorageReadRowThreshold) {
+    Assert.isTrue(
+        queryStorageReadRowThreshold >= 0, "Query Storage Read row threshold must not be negative");
+    this.queryStorageReadRowThreshold = queryStorageReadRowThreshold;
+  }
+
+  /**
+   * Sets how long the stream writer of a table is kept open without being used. Stream writers
+   * are only kept open when writing to committed or default streams.
+   *
+   * @param streamWriterIdleTimeout the idle timeout. Default is one minute.
+   * @throws IllegalStateException if the write mode is {@link BigQueryWriteMode#PENDING}
+   * @since 4.1.5
+   */
+  public void setStreamWriterIdleTimeout(Duration streamWriterIdleTimeout) {
+    Assert.state(
+        this.jsonStreamWriterPool != null,
+        "Stream writers are only kept open in the COMMITTED and DEFAULT_STREAM write modes");
+    this.jsonStreamWriterPool.setIdleTimeout(streamWriterIdleTimeout);
+  }
+
+  /**
+   * Sets the {@link Executor} running the writes of {@link #writeJsonStream(String,
+   * InputStream)}, which block until all rows are written. Writes the executor rejects fail with a
+   * {@link BigQueryException}, so an executor with a bounded number of threads and a bounded
+   * queue, such as a {@code ThreadPoolTaskExecutor}, bounds the number of writes in progress.
+   *
+   * @param writeExecutor the executor. Default is an executor of 4 threads, queueing up to 1000
+   *     writes.
+   * @since 4.1.5
+   */
+  public void setWriteExecutor(Executor writeExecutor) {
+    Assert.notNull(writeExecutor, "Write executor must not be null");
+    this.writeExecutor = writeExecutor;
+    this.defaultWriteExecutor.shutdown();
+  }
+
+  /**
+   * Sets the maximum size of the JSON data of the in-flight appends of a write through the BigQuery
+   * Storage Write API. Once it's reached, the write waits for appends to complete before appending
+   * more rows, so that the memory used by writes stays bounded when BigQuery slows down.
+   *
+   * @param maxInflightAppendBytes the maximum size in bytes. Default is 20 MiB.
+   * @since 4.1.5
+   */
+  public void setMaxInflightAppendBytes(long maxInflightAppendBytes) {
+    Assert.isTrue(maxInflightAppendBytes > 0, "Max in-flight append bytes must be positive");
+    this.maxInflightAppendBytes = maxInflightAppendBytes;
+  }
+
+  /**
+   * Sets the maximum size of the batches of encoded rows appended by {@link #writeRows(String,
+   * Iterable)} and {@link #writeJsonRows(String, InputStream)}. A single row larger than that is
+   * appended on its own. Appends are limited to 10 MB by BigQuery.
+   *
+   * @param writeBatchBytes the maximum size in bytes. Default is 1 MiB.
+   * @since 4.1.5
+   */
+  public void setWriteBatchBytes(long writeBatchBytes) {
+    Assert.isTrue(writeBatchBytes > 0, "Write batch bytes must be positive");
+    this.writeBatchBytes = writeBatchBytes;
+  }
+
   @Override
   public CompletableFuture<Job> writeDataToTable(
       String tableName, InputStream inputStream, FormatOptions dataFormatOptions) {
@@ -246,37 +411,104 @@ public class BigQueryTemplate implements BigQueryOperations {
   @Override
   public CompletableFuture<WriteApiResponse> writeJsonStream(
       String tableName, InputStream jsonInputStream) {
+    return submitWrite(tableName, () -> getWriteApiResponse(tableName, jsonInputStream));
+  }
+
+  @Override
+  public CompletableFuture<WriteApiResponse> writeRows(String tableName, Iterable<?> rows) {
+    Assert.notNull(rows, "Rows must not be null");
+    return submitWrite(
+        tableName,
+        () ->
+            writeEncodedRows(
+                tableName,
+                (encoder, batcher) -> {
+                  for (Object row : rows) {
+                    batcher.add(encoder.encode(row));
+                  }
+                }));
+  }
+
+  @Override
+  public CompletableFuture<WriteApiResponse> writeJsonRows(
+      String tableName, InputStream jsonInputStream) {
+    Assert.notNull(jsonInputStream, "JSON input stream must not be null");
+    return submitWrite(
+        tableName,
+        () ->
+            writeEncodedRows(
+                tableName,
+                (encoder, batcher) -> encodeJsonRows(jsonInputStream, encoder, batcher)));
+  }
+
+  /**
+   * Runs a write on the write executor.
+   *
+   * @param tableName name of the table written to
+   * @param write the write, blocking until it's done
+   * @return {@link CompletableFuture} completed with the result of the write
+   */
+  private CompletableFuture<WriteApiResponse> submitWrite(
+      String tableName, Callable<WriteApiResponse> write) {
 
     CompletableFuture<WriteApiResponse> writeApiFutureResponse =
         new CompletableFuture<>();
 
-    Thread asyncTask =
-        new Thread(
-            () -> {
-              try {
-                WriteApiResponse apiResponse = getWriteApiResponse(tableName, jsonInputStream);
-                writeApiFutureResponse.complete(apiResponse);
-              } catch (DescriptorValidationException | IOException e) {
-                writeApiFutureResponse.completeExceptionally(e);
-                logger.warn(String.format("Error: %s %n", e.getMessage()), e);
-              } catch (Exception e) {
-                writeApiFutureResponse.completeExceptionally(e);
-                // Restore interrupted state in case of an InterruptedException
-                Thread.currentThread().interrupt();
-              }
-            });
-    asyncTask
-        .start(); // run the thread async so that we can return the writeApiFutureResponse. This
-    // thread can be run in the ExecutorService when it has been wired-in
+    // The thread running the write, while it's running.
+    AtomicReference<Thread> writeThread = new AtomicReference<>();
+    Runnable writeTask =
+        () -> {
+          if (writeApiFutureResponse.isDone()) {
+            return; // cancelled while queued
+          }
+          writeThread.set(Thread.currentThread());
+          WriteApiResponse apiResponse = null;
+          Exception failure = null;
+          try {
+            apiResponse = write.call();
+          } catch (InterruptedException e) {
+            failure = e;
+            // Restore interrupted state
+            Thread.currentThread().interrupt();
+          } catch (DescriptorValidationException | IOException e) {
+            failure = e;
+            logger.warn(String.format("Error: %s %n", e.getMessage()), e);
+          } catch (Exception e) {
+            failure = e;
+          } finally {
+            synchronized (writeThread) {
+              writeThread.set(null);
+            }
+          }
+          // Completed once the write is over, so that the failure callback doesn't interrupt the
+          // executor thread itself.
+          if (failure != null) {
+            writeApiFutureResponse.completeExceptionally(failure);
+          } else {
+            writeApiFutureResponse.complete(apiResponse);
+          }
+        };
+    try {
+      this.writeExecutor.execute(writeTask);
+    } catch (RejectedExecutionException e) {
+      writeApiFutureResponse.completeExceptionally(
+          new BigQueryException("Write to " + tableName + " rejected: " + e.getMessage(), e));
+      return writeApiFutureResponse;
+    }
 
     // register success and failure callback
     writeApiFutureResponse.whenComplete(
         (writeApiResponse, exception) -> {
           if (exception != null) {
-            asyncTask.interrupt(); // interrupt the thread as the developer might have cancelled the
-            // Future.
-            // This can be replaced with interrupting the ExecutorService when it has been wired-in
-            logger.info("asyncTask interrupted");
+            // interrupt the write as the developer might have cancelled the Future. The lock makes
+            // sure that the thread isn't running another task already.
+            synchronized (writeThread) {
+              Thread thread = writeThread.get();
+              if (thread != null) {
+                thread.interrupt();
+                logger.info("asyncTask interrupted");
+              }
+            }
             return;
           }
           logger.info("Data successfully written");
@@ -291,43 +523,42 @@ public class BigQueryTemplate implements BigQueryOperations {
     return new BigQueryJsonDataWriter(parentTable, bigQueryWriteClient);
   }
 
+  @VisibleForTesting
+  public BigQueryJsonDataWriter getBigQueryProtoDataWriter(TableName parentTable)
+      throws IOException {
+    return new BigQueryJsonDataWriter(
+        parentTable,
+        bigQueryWriteClient,
+        schema -> this.rowEncoders.computeIfAbsent(schema, ProtoRowEncoder::new));
+  }
+
   public WriteApiResponse getWriteApiResponse(String tableName, InputStream jsonInputStream)
       throws DescriptorValidationException, IOException, InterruptedException {
     WriteApiResponse apiResponse = new WriteApiResponse();
     TableName parentTable =
         TableName.of(bigQuery.getOptions().getProjectId(), datasetName, tableName);
 
+    if (this.jsonStreamWriterPool != null) {
+      // Rows appended to committed and default streams need no commit.
+      try (BigQueryJsonDataWriter writer = this.jsonStreamWriterPool.getWriter(parentTable)) {
+        writer.setMaxInflightBytes(this.maxInflightAppendBytes);
+        appendJsonLines(writer, jsonInputStream);
+        writer.flush();
+      } catch (BigQueryException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new BigQueryException("Failed to append records. \n" + e);
+      }
+      apiResponse.setSuccessful(true);
+      return apiResponse;
+    }
+
     // Initialize a write stream for the specified table.
     BigQueryJsonDataWriter writer = getBigQueryJsonDataWriter(parentTable);
+    writer.setMaxInflightBytes(this.maxInflightAppendBytes);
 
     try {
-      // Write data in batches. Ref: https://cloud.google.com/bigquery/quotas#write-api-limits
-      long offset = 0;
-      int currentBatchSize = 0;
-
-      BufferedReader jsonReader = new BufferedReader(new InputStreamReader(jsonInputStream));
-      String jsonLine = null;
-      JSONArray jsonBatch = new JSONArray();
-      while ((jsonLine = jsonReader.readLine()) != null) { // read the input stream line by line
-        JSONObject jsonObj = new JSONObject(jsonLine); // cast the JSON string into JSON Object
-        jsonBatch.put(jsonObj);
-        currentBatchSize++;
-        if (currentBatchSize
-            == getBatchSize()) { // append the batch, increment the offset and reset
-          // the batch
-          writer.append(jsonBatch, offset);
-          offset += jsonBatch.length();
-          jsonBatch = new JSONArray();
-          currentBatchSize = 0;
-        }
-      }
-
-      if (jsonBatch.length()
-          != 0) { // there might be records less than JSON_STREAM_WRITER_BATCH_SIZE, append those as
-        // well
-        writer.append(jsonBatch, offset);
-      }
-
+      appendJsonLines(writer, jsonInputStream);
     } catch (Exception e) {
       throw new BigQueryException("Failed to append records. \n" + e);
     }
@@ -335,6 +566,61 @@ public class BigQueryTemplate implements BigQueryOperations {
     // Finalize the stream before committing it
     writer.finalizeWriteStream();
 
+    return commitWriteStream(parentTable, writer);
+  }
+
+  /**
+   * Writes rows encoded to protocol buffers to a new pending stream, and commits it.
+   *
+   * @param tableName name of the table to write to
+   * @param rows encodes the rows and adds them to the batches appended to the stream
+   * @return the WriteApiResponse of the commit
+   */
+  private WriteApiResponse writeEncodedRows(String tableName, EncodedRows rows) throws Exception {
+    TableName parentTable =
+        TableName.of(bigQuery.getOptions().getProjectId(), datasetName, tableName);
+
+    try (BigQueryJsonDataWriter writer = getBigQueryProtoDataWriter(parentTable)) {
+      writer.setMaxInflightBytes(this.maxInflightAppendBytes);
+      try {
+        ProtoRowsBatcher batcher = new ProtoRowsBatcher(writer, this.writeBatchBytes);
+        rows.encode(writer.getRowEncoder(), batcher);
+        batcher.flush();
+      } catch (BigQueryException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new BigQueryException("Failed to append records.", e);
+      }
+
+      // Finalize the stream before committing it
+      writer.finalizeWriteStream();
+
+      return commitWriteStream(parentTable, writer);
+    }
+  }
+
+  private static void encodeJsonRows(
+      InputStream jsonInputStream, ProtoRowEncoder encoder, ProtoRowsBatcher batcher)
+      throws IOException {
+    JsonParser parser = JSON_FACTORY.createParser(jsonInputStream);
+    JsonToken token = parser.nextToken();
+    // The objects are either the elements of an array, or a sequence of root values.
+    boolean array = (token == JsonToken.START_ARRAY);
+    if (array) {
+      token = parser.nextToken();
+    }
+    while (token != null && token != JsonToken.END_ARRAY) {
+      batcher.add(encoder.encode(parser));
+      token = parser.nextToken();
+    }
+    if (array && token == null) {
+      throw new BigQueryException("Unexpected end of the JSON array of rows.");
+    }
+  }
+
+  private WriteApiResponse commitWriteStream(
+      TableName parentTable, BigQueryJsonDataWriter writer) {
+    WriteApiResponse apiResponse = new WriteApiResponse();
     BatchCommitWriteStreamsResponse commitResponse = getCommitResponse(parentTable, writer);
     // If the response does not have a commit time, it means the commit operation failed.
     if (!commitResponse.hasCommitTime()) {
@@ -351,6 +637,45 @@ public class BigQueryTemplate implements BigQueryOperations {
     return apiResponse;
   }
 
+  private void appendJsonLines(BigQueryJsonDataWriter writer, InputStream jsonInputStream)
+      throws DescriptorValidationException, IOException {
+    // Write data in batches. Ref: https://cloud.google.com/bigquery/quotas#write-api-limits
+    long offset = 0;
+    int currentBatchSize = 0;
+    long currentBatchBytes = 0;
+
+    BufferedReader jsonReader = new BufferedReader(new InputStreamReader(jsonInputStream));
+    String jsonLine = null;
+    JSONArray jsonBatch = new JSONArray();
+    while ((jsonLine = jsonReader.readLine()) != null) { // read the input stream line by line
+      JSONObject jsonObj = new JSONObject(jsonLine); // cast the JSON string into JSON Object
+      jsonBatch.put(jsonObj);
+      currentBatchSize++;
+      currentBatchBytes += jsonLine.length();
+      if (currentBatchSize
+          == getBatchSize()) { // append the batch, increment the offset and reset
+        // the batch
+        writer.append(jsonBatch, offset, currentBatchBytes);
+        offset += jsonBatch.length();
+        jsonBatch = new JSONArray();
+        currentBatchSize = 0;
+        currentBatchBytes = 0;
+      }
+    }
+
+    if (jsonBatch.length()
+        != 0) { // there might be records less than JSON_STREAM_WRITER_BATCH_SIZE, append those as
+      // well
+      writer.append(jsonBatch, offset, currentBatchBytes);
+    }
+  }
+
+  /** Encodes rows and adds them to the batches appended to a stream. */
+  @FunctionalInterface
+  private interface EncodedRows {
+    void encode(ProtoRowEncoder encoder, ProtoRowsBatcher batcher) throws IOException;
+  }
+
   @VisibleForTesting
   public BatchCommitWriteStreamsResponse getCommitResponse(
       TableName parentTable, BigQueryJsonDataWriter writer) {
@@ -363,6 +688,88 @@ public class BigQueryTemplate implements BigQueryOperations {
     return bigQueryWriteClient.batchCommitWriteStreams(commitRequest);
   }
 
+  @Override
+  public <T> Stream<T> readTable(
+      String tableName, BigQueryReadOptions readOptions, Class<T> rowType) {
+    return readTableAsFlux(tableName, readOptions, rowType).toStream();
+  }
+
+  @Override
+  public <T> Flux<T> readTableAsFlux(
+      String tableName, BigQueryReadOptions readOptions, Class<T> rowType) {
+    Assert.notNull(tableName, "Table name must not be null");
+    Assert.state(
+        this.bigQueryTableReader != null, "A BigQueryReadClient is required to read tables.");
+    BigQueryRowMapper<T> rowMapper = new BigQueryRowMapper<>(rowType);
+    TableName table = TableName.of(bigQuery.getOptions().getProjectId(), datasetName, tableName);
+    return this.bigQueryTableReader.read(table, readOptions).map(rowMapper::map);
+  }
+
+  @Override
+  public <T> Stream<T> query(String sql, Map<String, Object> params, Class<T> rowType) {
+    return queryAsFlux(sql, params, rowType).toStream();
+  }
+
+  @Override
+  public <T> Flux<T> queryAsFlux(String sql, Map<String, Object> params, Class<T> rowType) {
+    Assert.notNull(sql, "SQL must not be null");
+    BigQueryRowMapper<T> rowMapper = new BigQueryRowMapper<>(rowType);
+    QueryJobConfiguration queryConfig =
+        QueryJobConfiguration.newBuilder(sql)
+            .setDefaultDataset(DatasetId.of(datasetName))
+            .setNamedParameters(QueryParameters.toNamedParameters(params))
+            .build();
+    boolean ordered = ORDER_BY_PATTERN.matcher(sql).find();
+
+    return Mono.defer(
+            () -> Mono.fromFuture(createJobFuture(bigQuery.create(JobInfo.of(queryConfig)))))
+        // Don't block the job polling scheduler while fetching results.
+        .publishOn(Schedulers.boundedElastic())
+        .flatMapMany(job -> readQueryResults(job, ordered))
+        .onErrorMap(
+            e -> !(e instanceof BigQueryException),
+            e -> new BigQueryException("Failed to run query: " + e.getMessage(), e))
+        .map(rowMapper::map);
+  }
+
+  private Flux<Map<String, Object>> readQueryResults(Job job, boolean ordered) {
+    TableId destination = ((QueryJobConfiguration) job.getConfiguration()).getDestinationTable();
+    if (this.bigQueryTableReader != null && !ordered && destination != null) {
+      Table destinationTable = bigQuery.getTable(destination);
+      if (destinationTable != null
+          && destinationTable.getNumRows() != null
+          && destinationTable.getNumRows().longValue() > this.queryStorageReadRowThreshold) {
+        logger.debug(
+            "Reading {} rows of query results through the Storage Read API",
+            destinationTable.getNumRows());
+        return this.bigQueryTableReader.read(
+            TableName.of(
+                destination.getProject(), destination.getDataset(), destination.getTable()),
+            new BigQueryReadOptions());
+      }
+    }
+
+    return Mono.fromCallable(job::getQueryResults)
+        .flatMapMany(
+            firstPage -> {
+              if (firstPage.getSchema() == null) {
+                // Statements such as DDL have no results.
+                return Flux.empty();
+              }
+              FieldList fields = firstPage.getSchema().getFields();
+              return Mono.just(firstPage)
+                  .expand(
+                      page ->
+                          page.hasNextPage()
+                              ? Mono.fromCallable(page::getNextPage)
+                                  .subscribeOn(Schedulers.boundedElastic())
+                              : Mono.empty())
+                  // Fetch the next page while the rows of the current one are consumed.
+                  .concatMapIterable(TableResult::getValues, 2)
+                  .map(values -> FieldValueRowDecoder.decode(fields, values));
+            });
+  }
+
   /**
    * This method ensures that we use the DEFAULT_JSON_STREAM_WRITER_BATCH_SIZE if the user doesn't
    * set this property or if they set it too low.
@@ -385,6 +792,37 @@ public class BigQueryTemplate implements BigQueryOperations {
     return this.jsonWriterBatchSize;
   }
 
+  // @return the mode in which the template writes JSON data.
+  public BigQueryWriteMode getWriteMode() {
+    return this.writeMode;
+  }
+
+  /**
+   * Stops the default write executor and closes the pooled stream writers, once the writes using
+   * them are done.
+   */
+  @Override
+  public void destroy() {
+    this.defaultWriteExecutor.shutdown();
+    if (this.jsonStreamWriterPool != null) {
+      this.jsonStreamWriterPool.close();
+    }
+  }
+
+  private static ExecutorService createDefaultWriteExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            DEFAULT_WRITE_THREAD_COUNT,
+            DEFAULT_WRITE_THREAD_COUNT,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(DEFAULT_WRITE_QUEUE_CAPACITY),
+            new CustomizableThreadFactory("gcp-bigquery-write-"));
+    // Threads are only kept while writes are running.
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   private CompletableFuture<Job> createJobFuture(Job pendingJob) {
     // Prepare the polling task for the CompletableFuture result returned to end-user
     CompletableFuture<Job> result = new CompletableFuture<>();
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+/**
+ * The modes of writing JSON data through the BigQuery Storage Write API.
+ *
+ * @see BigQueryTemplate#writeJsonStream(String, java.io.InputStream)
+ * @since 4.1.5
+ */
+public enum BigQueryWriteMode {
+
+  /**
+   * Each write appends to a new pending stream, which is committed once all rows were appended, so
+   * that either all rows of a write are committed or none is. This is the default.
+   */
+  PENDING,
+
+  /**
+   * Writes append to a committed stream of the table, reused across writes. Rows are visible as
+   * soon as they're appended; offsets make sure that rows resent after a connection failure aren't
+   * duplicated.
+   */
+  COMMITTED,
+
+  /**
+   * Writes append to the default stream of the table, reused across writes. Rows are visible as
+   * soon as they're appended, with at-least-once semantics. This is the cheapest mode for frequent
+   * small writes.
+   */
+  DEFAULT_STREAM
+}
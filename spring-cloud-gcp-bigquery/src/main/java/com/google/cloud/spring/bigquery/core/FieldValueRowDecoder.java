@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValueList;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the rows of query results paged through the BigQuery REST API into rows keyed by column
+ * name, with the same value types as the rows decoded by the {@link ArrowRowDecoder}.
+ *
+ * @since 4.1.5
+ */
+final class FieldValueRowDecoder {
+
+  private FieldValueRowDecoder() {}
+
+  /**
+   * Decode a row.
+   *
+   * @param fields the schema of the row
+   * @param values the values of the row
+   * @return the values keyed by column name
+   */
+  static Map<String, Object> decode(FieldList fields, FieldValueList values) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (int i = 0; i < fields.size(); i++) {
+      Field field = fields.get(i);
+      row.put(field.getName(), getValue(field, values.get(i)));
+    }
+    return row;
+  }
+
+  private static Object getValue(Field field, FieldValue value) {
+    if (value.isNull()) {
+      return null;
+    }
+    if (value.getAttribute() == FieldValue.Attribute.REPEATED) {
+      List<Object> list = new ArrayList<>();
+      for (FieldValue element : value.getRepeatedValue()) {
+        list.add(getValue(field, element));
+      }
+      return list;
+    }
+    switch (field.getType().getStandardType()) {
+      case STRUCT:
+        return decode(field.getSubFields(), value.getRecordValue());
+      case INT64:
+        return value.getLongValue();
+      case FLOAT64:
+        return value.getDoubleValue();
+      case BOOL:
+        return value.getBooleanValue();
+      case NUMERIC:
+      case BIGNUMERIC:
+        return value.getNumericValue();
+      case BYTES:
+        return value.getBytesValue();
+      case TIMESTAMP:
+        return value.getTimestampInstant();
+      case DATE:
+        return LocalDate.parse(value.getStringValue());
+      case TIME:
+        return LocalTime.parse(value.getStringValue());
+      case DATETIME:
+        return LocalDateTime.parse(value.getStringValue());
+      default:
+        return value.getStringValue();
+    }
+  }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.bigquery.storage.v1.AppendRowsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.CreateWriteStreamRequest;
+import com.google.cloud.bigquery.storage.v1.JsonStreamWriter;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.WriteStream;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import javax.annotation.concurrent.GuardedBy;
+import org.json.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Pool of {@link JsonStreamWriter}s appending to the committed or default stream of tables, reused
+ * across writes so that steady-state writes are a single append per batch of rows.
+ *
+ * <p>The writer of a table is created on the first write to the table, and closed once it wasn't
+ * used for the idle timeout. A writer whose append failed is replaced on the next write to its
+ * table, by a writer connected to a new committed stream or again to the default stream.
+ *
+ * @since 4.1.5
+ */
+class JsonStreamWriterPool implements AutoCloseable {
+
+  private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+  private final Logger logger = LoggerFactory.getLogger(JsonStreamWriterPool.class);
+
+  private final BigQueryWriteClient bigQueryWriteClient;
+
+  private final BigQueryWriteMode writeMode;
+
+  private final TaskScheduler taskScheduler;
+
+  private final ConcurrentHashMap<TableName, PooledWriter> writers = new ConcurrentHashMap<>();
+
+  private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+  @GuardedBy("this")
+  private ScheduledFuture<?> idleCheck;
+
+  JsonStreamWriterPool(
+      BigQueryWriteClient bigQueryWriteClient,
+      BigQueryWriteMode writeMode,
+      TaskScheduler taskScheduler) {
+    Assert.notNull(bigQueryWriteClient, "BigQueryWriteClient must not be null");
+    Assert.isTrue(
+        writeMode == BigQueryWriteMode.COMMITTED || writeMode == BigQueryWriteMode.DEFAULT_STREAM,
+        "Only committed and default stream writers can be pooled");
+    Assert.notNull(taskScheduler, "TaskScheduler must not be null");
+    this.bigQueryWriteClient = bigQueryWriteClient;
+    this.writeMode = writeMode;
+    this.taskScheduler = taskScheduler;
+  }
+
+  /**
+   * Set how long a writer is kept open without being used.
+   *
+   * @param idleTimeout the idle timeout. Default is one minute.
+   */
+  synchronized void setIdleTimeout(Duration idleTimeout) {
+    Assert.notNull(idleTimeout, "Idle timeout must not be null");
+    Assert.isTrue(
+        !idleTimeout.isNegative() && !idleTimeout.isZero(), "Idle timeout must be positive");
+    this.idleTimeout = idleTimeout;
+    if (this.idleCheck != null) {
+      this.idleCheck.cancel(false);
+      this.idleCheck = null;
+    }
+  }
+
+  /**
+   * Get a writer appending to the pooled stream writer of a table. Closing the returned writer
+   * releases the stream writer to the pool.
+   *
+   * @param table the table to write to
+   * @return the writer
+   */
+  BigQueryJsonDataWriter getWriter(TableName table) {
+    PooledWriter writer = leaseWriter(table);
+    scheduleIdleCheck();
+    return new BigQueryJsonDataWriter(writer, this.bigQueryWriteClient);
+  }
+
+  private PooledWriter leaseWriter(TableName table) {
+    while (true) {
+      PooledWriter pooled = this.writers.get(table);
+      if (pooled != null && pooled.tryLease()) {
+        return pooled;
+      }
+      // Created outside of the map, so that the round trips of creating a stream writer don't
+      // block the writes to other tables.
+      PooledWriter created =
+          new PooledWriter(createStreamWriter(table), this.writeMode == BigQueryWriteMode.COMMITTED);
+      created.lease();
+      boolean installed =
+          (pooled == null)
+              ? this.writers.putIfAbsent(table, created) == null
+              : this.writers.replace(table, pooled, created);
+      if (installed) {
+        if (pooled != null) {
+          logger.debug("Replaced the broken stream writer of {}", table);
+          pooled.markBroken();
+        }
+        return created;
+      }
+      // Another write installed a writer first; use that one instead.
+      created.markBroken();
+      created.release();
+    }
+  }
+
+  JsonStreamWriter createStreamWriter(TableName table) {
+    try {
+      if (this.writeMode == BigQueryWriteMode.DEFAULT_STREAM) {
+        // A writer created for a table appends to its default stream.
+        return JsonStreamWriter.newBuilder(table.toString(), this.bigQueryWriteClient).build();
+      }
+      CreateWriteStreamRequest createWriteStreamRequest =
+          CreateWriteStreamRequest.newBuilder()
+              .setParent(table.toString())
+              .setWriteStream(WriteStream.newBuilder().setType(WriteStream.Type.COMMITTED))
+              .build();
+      WriteStream writeStream =
+          this.bigQueryWriteClient.createWriteStream(createWriteStreamRequest);
+      return JsonStreamWriter.newBuilder(
+              writeStream.getName(), writeStream.getTableSchema(), this.bigQueryWriteClient)
+          .build();
+    } catch (DescriptorValidationException | IOException e) {
+      throw new BigQueryException("Failed to create a stream writer for " + table + ".", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BigQueryException(
+          "Interrupted while creating a stream writer for " + table + ".", e);
+    }
+  }
+
+  /** Close the writers which weren't used for the idle timeout, or whose append failed. */
+  void closeIdleWriters() {
+    long now = System.nanoTime();
+    long idleTimeoutNanos;
+    synchronized (this) {
+      idleTimeoutNanos = this.idleTimeout.toNanos();
+    }
+    for (Map.Entry<TableName, PooledWriter> entry : this.writers.entrySet()) {
+      PooledWriter writer = entry.getValue();
+      if (writer.closeIfIdle(now, idleTimeoutNanos)) {
+        this.writers.remove(entry.getKey(), writer);
+      }
+    }
+  }
+
+  private synchronized void scheduleIdleCheck() {
+    if (this.idleCheck == null) {
+      this.idleCheck =
+          this.taskScheduler.scheduleWithFixedDelay(this::closeIdleWriters, this.idleTimeout);
+    }
+  }
+
+  /** Close all writers; writers still in use are closed once released. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (this.idleCheck != null) {
+        this.idleCheck.cancel(false);
+        this.idleCheck = null;
+      }
+    }
+    for (TableName table : this.writers.keySet()) {
+      PooledWriter writer = this.writers.remove(table);
+      if (writer != null) {
+        writer.markBroken();
+      }
+    }
+  }
+
+  /** A stream writer shared by the writes to a table. */
+  static class PooledWriter {
+
+    private final JsonStreamWriter streamWriter;
+
+    private final boolean trackOffsets;
+
+    @GuardedBy("this")
+    private long nextOffset;
+
+    @GuardedBy("this")
+    private int leases;
+
+    @GuardedBy("this")
+    private long lastUsed = System.nanoTime();
+
+    @GuardedBy("this")
+    private boolean broken;
+
+    @GuardedBy("this")
+    private boolean closed;
+
+    PooledWriter(JsonStreamWriter streamWriter, boolean trackOffsets) {
+      this.streamWriter = streamWriter;
+      this.trackOffsets = trackOffsets;
+    }
+
+    synchronized ApiFuture<AppendRowsResponse> append(JSONArray rows)
+        throws DescriptorValidationException, IOException {
+      if (!this.trackOffsets) {
+        return this.streamWriter.append(rows);
+      }
+      // Offsets must be appended in order, so they're assigned while holding the lock.
+      ApiFuture<AppendRowsResponse> future = this.streamWriter.append(rows, this.nextOffset);
+      this.nextOffset += rows.length();
+      return future;
+    }
+
+    String getStreamName() {
+      return this.streamWriter.getStreamName();
+    }
+
+    synchronized boolean isBroken() {
+      return this.broken || this.streamWriter.isClosed();
+    }
+
+    synchronized void lease() {
+      this.leases++;
+    }
+
+    /**
+     * Lease this writer unless it's broken or closed.
+     *
+     * @return false if the writer can't be used for new writes anymore
+     */
+    synchronized boolean tryLease() {
+      if (this.closed || isBroken()) {
+        return false;
+      }
+      this.leases++;
+      return true;
+    }
+
+    synchronized void release() {
+      this.leases--;
+      this.lastUsed = System.nanoTime();
+      if (this.broken && this.leases == 0) {
+        closeStreamWriter();
+      }
+    }
+
+    /** Stop using this writer for new writes, and close it once it's no longer used. */
+    synchronized void markBroken() {
+      this.broken = true;
+      if (this.leases == 0) {
+        closeStreamWriter();
+      }
+    }
+
+    synchronized boolean closeIfIdle(long now, long idleTimeoutNanos) {
+      if (this.leases > 0 || (!isBroken() && now - this.lastUsed < idleTimeoutNanos)) {
+        return false;
+      }
+      closeStreamWriter();
+      return true;
+    }
+
+    @GuardedBy("this")
+    private void closeStreamWriter() {
+      if (!this.closed) {
+        this.closed = true;
+        // Waits for the responses of in-flight appends.
+        this.streamWriter.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,623 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.spring.bigquery.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.bigquery.storage.v1.BQTableSchemaToProtoDescriptor;
+import com.google.cloud.bigquery.storage.v1.BigDecimalByteStringEncoder;
+import com.google.cloud.bigquery.storage.v1.ProtoSchema;
+import com.google.cloud.bigquery.storage.v1.ProtoSchemaConverter;
+import com.google.cloud.bigquery.storage.v1.TableFieldSchema;
+import com.google.cloud.bigquery.storage.v1.TableSchema;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import com.google.protobuf.UnsafeByteOperations;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Encodes rows to the protocol buffer format of the BigQuery Storage Write API, according to the
+ * schema of a table.
+ *
+ * <p>Rows are read from JSON with a Jackson streaming parser, or from {@link Map}s, records and
+ * beans, and their fields are written straight to the encoded bytes of the row. Unlike {@link
+ * com.google.cloud.bigquery.storage.v1.JsonStreamWriter}, no {@code JSONObject} nor {@code
+ * DynamicMessage} is built for a row, which saves most of the allocations and CPU of the
+ * conversion.
+ *
+ * <p>Values are converted like the Storage Write API converts JSON: {@code TIMESTAMP} values are
+ * microseconds since the epoch or timestamp strings, {@code DATE} values are days since the epoch
+ * or date strings, {@code BYTES} values are arrays of bytes or Base64 strings, and numbers may be
+ * passed as strings.
+ * Java values may also be {@link Instant}s, {@link Date}s, {@link LocalDate}s, {@link
+ * LocalTime}s, {@link LocalDateTime}s, {@link BigDecimal}s and byte arrays, and repeated fields
+ * collections or arrays. Null values are skipped.
+ *
+ * <p>JSON fields and {@link Map} keys are matched to columns ignoring case, and fail the encoding
+ * when there's no such column. Bean properties and record components are matched to columns
+ * ignoring case and underscores, and are left out when there's no such column.
+ *
+ * <p>Creating the encoder of a table schema is costly, so encoders are meant to be cached. They are
+ * thread-safe.
+ *
+ * @since 4.1.5
+ */
+public final class ProtoRowEncoder {
+
+  // Most rows fit in the initial buffers; the default ones of CodedOutputStream are 4 KiB.
+  private static final int BUFFER_SIZE = 256;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  // Parses timestamps and datetimes as "2023-04-01T10:15:30.123456Z" or "2023-04-01 10:15:30".
+  private static final DateTimeFormatter DATE_TIME_FORMATTER =
+      new DateTimeFormatterBuilder()
+          .parseCaseInsensitive()
+          .append(DateTimeFormatter.ISO_LOCAL_DATE)
+          .optionalStart()
+          .appendLiteral('T')
+          .optionalEnd()
+          .optionalStart()
+          .appendLiteral(' ')
+          .optionalEnd()
+          .append(DateTimeFormatter.ISO_LOCAL_TIME)
+          .optionalStart()
+          .appendOffset("+HH:MM", "Z")
+          .optionalEnd()
+          .optionalStart()
+          .appendLiteral(" UTC")
+          .optionalEnd()
+          .toFormatter(Locale.ROOT);
+
+  private final Descriptor descriptor;
+
+  private final ProtoSchema protoSchema;
+
+  private final MessageEncoder messageEncoder;
+
+  /**
+   * Create the encoder of rows of a table.
+   *
+   * @param tableSchema the schema of the table, as returned with a write stream
+   */
+  public ProtoRowEncoder(TableSchema tableSchema) {
+    Assert.notNull(tableSchema, "Table schema must not be null");
+    try {
+      this.descriptor =
+          BQTableSchemaToProtoDescriptor.convertBQTableSchemaToProtoDescriptor(tableSchema);
+    } catch (DescriptorValidationException e) {
+      throw new BigQueryException("Failed to create the descriptor of the table schema.", e);
+    }
+    this.protoSchema = ProtoSchemaConverter.convert(this.descriptor);
+    this.messageEncoder = new MessageEncoder(tableSchema.getFieldsList());
+  }
+
+  /**
+   * The descriptor of the encoded rows.
+   *
+   * @return the descriptor
+   */
+  public Descriptor getDescriptor() {
+    return this.descriptor;
+  }
+
+  /**
+   * The schema of the encoded rows, to create the stream writer appending them.
+   *
+   * @return the proto schema
+   */
+  public ProtoSchema getProtoSchema() {
+    return this.protoSchema;
+  }
+
+  /**
+   * Encode the JSON object the parser is positioned at. The parser is left at the end of the
+   * object.
+   *
+   * @param parser the parser, with {@link JsonToken#START_OBJECT} as current token
+   * @return the encoded row
+   * @throws IOException if the JSON can't be read
+   * @throws BigQueryException if the object doesn't match the table schema
+   */
+  public ByteString encode(JsonParser parser) throws IOException {
+    Assert.notNull(parser, "JSON parser must not be null");
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      throw new BigQueryException(
+          "Expected a JSON object but found " + parser.currentToken() + ".");
+    }
+    return this.messageEncoder.encodeJson(parser);
+  }
+
+  /**
+   * Encode a row.
+   *
+   * @param row a {@link Map} of the values keyed by column name, or a record or bean
+   * @return the encoded row
+   * @throws BigQueryException if the row doesn't match the table schema
+   */
+  public ByteString encode(Object row) {
+    Assert.notNull(row, "Row must not be null");
+    return this.messageEncoder.encodeObject(row);
+  }
+
+  private static String normalize(String name) {
+    return name.replace("_", "").toLowerCase(Locale.ROOT);
+  }
+
+  /** Encodes the rows of a table, or the values of a {@code STRUCT} column. */
+  private static final class MessageEncoder {
+
+    private final FieldEncoder[] fields;
+
+    /** The fields keyed by column name, and by lower case column name. */
+    private final Map<String, FieldEncoder> fieldsByName = new HashMap<>();
+
+    /** The accessors of the values of the fields, by bean or record class. */
+    private final Map<Class<?>, Method[]> accessors = new ConcurrentHashMap<>();
+
+    MessageEncoder(List<TableFieldSchema> fieldSchemas) {
+      this.fields = new FieldEncoder[fieldSchemas.size()];
+      for (int i = 0; i < this.fields.length; i++) {
+        // The descriptor numbers the fields in the order of the schema.
+        FieldEncoder field = new FieldEncoder(fieldSchemas.get(i), i + 1);
+        this.fields[i] = field;
+        this.fieldsByName.put(field.name, field);
+        this.fieldsByName.putIfAbsent(field.name.toLowerCase(Locale.ROOT), field);
+      }
+    }
+
+    ByteString encodeJson(JsonParser parser) throws IOException {
+      ByteString.Output bytes = ByteString.newOutput(BUFFER_SIZE);
+      CodedOutputStream output = CodedOutputStream.newInstance(bytes, BUFFER_SIZE);
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        FieldEncoder field = getField(parser.getCurrentName());
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) {
+          continue;
+        }
+        if (!field.repeated) {
+          field.writeJson(parser, output);
+          continue;
+        }
+        if (token != JsonToken.START_ARRAY) {
+          throw field.invalidValue(parser.getText(), null);
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            throw field.invalidValue("null", null);
+          }
+          field.writeJson(parser, output);
+        }
+      }
+      output.flush();
+      return bytes.toByteString();
+    }
+
+    ByteString encodeObject(Object row) {
+      ByteString.Output bytes = ByteString.newOutput(BUFFER_SIZE);
+      CodedOutputStream output = CodedOutputStream.newInstance(bytes, BUFFER_SIZE);
+      try {
+        if (row instanceof Map<?, ?> map) {
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeObject(getField(String.valueOf(entry.getKey())), entry.getValue(), output);
+          }
+        } else {
+          Method[] rowAccessors =
+              this.accessors.computeIfAbsent(row.getClass(), this::findAccessors);
+          for (int i = 0; i < this.fields.length; i++) {
+            if (rowAccessors[i] != null) {
+              Object value = ReflectionUtils.invokeMethod(rowAccessors[i], row);
+              writeObject(this.fields[i], value, output);
+            }
+          }
+        }
+        output.flush();
+      } catch (IOException e) {
+        throw new BigQueryException("Failed to encode a row.", e);
+      }
+      return bytes.toByteString();
+    }
+
+    private void writeObject(FieldEncoder field, Object value, CodedOutputStream output)
+        throws IOException {
+      if (value == null) {
+        return;
+      }
+      if (!field.repeated) {
+        field.writeObject(value, output);
+        return;
+      }
+      if (value instanceof Collection<?> collection) {
+        for (Object element : collection) {
+          writeElement(field, element, output);
+        }
+      } else if (value.getClass().isArray()) {
+        for (int i = 0; i < Array.getLength(value); i++) {
+          writeElement(field, Array.get(value, i), output);
+        }
+      } else {
+        throw field.invalidValue(value, null);
+      }
+    }
+
+    private static void writeElement(FieldEncoder field, Object element, CodedOutputStream output)
+        throws IOException {
+      if (element == null) {
+        throw field.invalidValue("null", null);
+      }
+      field.writeObject(element, output);
+    }
+
+    private FieldEncoder getField(String name) {
+      FieldEncoder field = this.fieldsByName.get(name);
+      if (field == null) {
+        field = this.fieldsByName.get(name.toLowerCase(Locale.ROOT));
+      }
+      if (field == null) {
+        throw new BigQueryException("Column " + name + " doesn't exist in the table schema.");
+      }
+      return field;
+    }
+
+    private Method[] findAccessors(Class<?> type) {
+      Map<String, Method> readMethods = new HashMap<>();
+      if (type.isRecord()) {
+        for (RecordComponent component : type.getRecordComponents()) {
+          readMethods.put(normalize(component.getName()), component.getAccessor());
+        }
+      } else {
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+          if (descriptor.getReadMethod() != null && !"class".equals(descriptor.getName())) {
+            readMethods.put(normalize(descriptor.getName()), descriptor.getReadMethod());
+          }
+        }
+      }
+      Method[] fieldAccessors = new Method[this.fields.length];
+      for (int i = 0; i < fieldAccessors.length; i++) {
+        fieldAccessors[i] = readMethods.get(normalize(this.fields[i].name));
+        if (fieldAccessors[i] != null) {
+          ReflectionUtils.makeAccessible(fieldAccessors[i]);
+        }
+      }
+      return fieldAccessors;
+    }
+  }
+
+  /** Encodes the values of a column. */
+  private static final class FieldEncoder {
+
+    private final String name;
+
+    private final int number;
+
+    private final TableFieldSchema.Type type;
+
+    private final boolean repeated;
+
+    private final MessageEncoder messageEncoder;
+
+    FieldEncoder(TableFieldSchema fieldSchema, int number) {
+      this.name = fieldSchema.getName();
+      this.number = number;
+      this.type = fieldSchema.getType();
+      this.repeated = fieldSchema.getMode() == TableFieldSchema.Mode.REPEATED;
+      this.messageEncoder =
+          (this.type == TableFieldSchema.Type.STRUCT)
+              ? new MessageEncoder(fieldSchema.getFieldsList())
+              : null;
+    }
+
+    void writeJson(JsonParser parser, CodedOutputStream output) throws IOException {
+      JsonToken token = parser.currentToken();
+      if (this.type == TableFieldSchema.Type.STRUCT) {
+        if (token != JsonToken.START_OBJECT) {
+          throw invalidValue(parser.getText(), null);
+        }
+        output.writeBytes(this.number, this.messageEncoder.encodeJson(parser));
+        return;
+      }
+      if (this.type == TableFieldSchema.Type.JSON && token.isStructStart()) {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+          generator.copyCurrentStructure(parser);
+        }
+        output.writeString(this.number, json.toString());
+        return;
+      }
+      if (this.type == TableFieldSchema.Type.BYTES && token == JsonToken.START_ARRAY) {
+        output.writeBytes(this.number, readByteArray(parser));
+        return;
+      }
+      if (!token.isScalarValue()) {
+        throw invalidValue(parser.getText(), null);
+      }
+      try {
+        switch (this.type) {
+          case INT64:
+            output.writeInt64(
+                this.number,
+                (token == JsonToken.VALUE_NUMBER_INT)
+                    ? parser.getLongValue()
+                    : Long.parseLong(parser.getText()));
+            break;
+          case DOUBLE:
+            output.writeDouble(
+                this.number,
+                token.isNumeric() ? parser.getDoubleValue() : Double.parseDouble(parser.getText()));
+            break;
+          case BOOL:
+            output.writeBool(
+                this.number,
+                token.isBoolean() ? parser.getBooleanValue() : parseBoolean(parser.getText()));
+            break;
+          case BYTES:
+            output.writeBytes(
+                this.number, UnsafeByteOperations.unsafeWrap(parser.getBinaryValue()));
+            break;
+          case NUMERIC:
+          case BIGNUMERIC:
+            writeDecimal(
+                token.isNumeric() ? parser.getDecimalValue() : new BigDecimal(parser.getText()),
+                output);
+            break;
+          case TIMESTAMP:
+            output.writeInt64(
+                this.number,
+                (token == JsonToken.VALUE_NUMBER_INT)
+                    ? parser.getLongValue()
+                    : toMicros(parseTimestamp(parser.getText())));
+            break;
+          case DATE:
+            output.writeInt32(
+                this.number,
+                (token == JsonToken.VALUE_NUMBER_INT)
+                    ? parser.getIntValue()
+                    : (int) LocalDate.parse(parser.getText()).toEpochDay());
+            break;
+          case TIME:
+            output.writeInt64(
+                this.number,
+                (token == JsonToken.VALUE_NUMBER_INT)
+                    ? parser.getLongValue()
+                    : encodePackedTime(LocalTime.parse(parser.getText())));
+            break;
+          case DATETIME:
+            output.writeInt64(
+                this.number,
+                (token == JsonToken.VALUE_NUMBER_INT)
+                    ? parser.getLongValue()
+                    : encodePackedDateTime(parseDateTime(parser.getText())));
+            break;
+          default:
+            output.writeString(this.number, parser.getText());
+        }
+      } catch (NumberFormatException | DateTimeException | JsonProcessingException e) {
+        throw invalidValue(parser.getText(), e);
+      }
+    }
+
+    void writeObject(Object value, CodedOutputStream output) throws IOException {
+      try {
+        switch (this.type) {
+          case STRUCT:
+            output.writeBytes(this.number, this.messageEncoder.encodeObject(value));
+            break;
+          case INT64:
+            output.writeInt64(
+                this.number,
+                (value instanceof Number number)
+                    ? number.longValue()
+                    : Long.parseLong(value.toString()));
+            break;
+          case DOUBLE:
+            output.writeDouble(
+                this.number,
+                (value instanceof Number number)
+                    ? number.doubleValue()
+                    : Double.parseDouble(value.toString()));
+            break;
+          case BOOL:
+            output.writeBool(
+                this.number,
+                (value instanceof Boolean bool) ? bool : parseBoolean(value.toString()));
+            break;
+          case BYTES:
+            output.writeBytes(this.number, toByteString(value));
+            break;
+          case NUMERIC:
+          case BIGNUMERIC:
+            writeDecimal(
+                (value instanceof BigDecimal decimal) ? decimal : new BigDecimal(value.toString()),
+                output);
+            break;
+          case TIMESTAMP:
+            output.writeInt64(this.number, toTimestampMicros(value));
+            break;
+          case DATE:
+            output.writeInt32(
+                this.number,
+                (value instanceof LocalDate date)
+                    ? (int) date.toEpochDay()
+                    : (int) LocalDate.parse(value.toString()).toEpochDay());
+            break;
+          case TIME:
+            output.writeInt64(
+                this.number,
+                encodePackedTime(
+                    (value instanceof LocalTime time) ? time : LocalTime.parse(value.toString())));
+            break;
+          case DATETIME:
+            output.writeInt64(
+                this.number,
+                encodePackedDateTime(
+                    (value instanceof LocalDateTime dateTime)
+                        ? dateTime
+                        : parseDateTime(value.toString())));
+            break;
+          case JSON:
+            output.writeString(
+                this.number,
+                (value instanceof CharSequence)
+                    ? value.toString()
+                    : OBJECT_MAPPER.writeValueAsString(value));
+            break;
+          default:
+            output.writeString(this.number, value.toString());
+        }
+      } catch (DateTimeException
+          | ArithmeticException
+          | IllegalArgumentException
+          | JsonProcessingException e) {
+        throw invalidValue(value, e);
+      }
+    }
+
+    private ByteString readByteArray(JsonParser parser) throws IOException {
+      ByteString.Output bytes = ByteString.newOutput();
+      while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) {
+        bytes.write(parser.getIntValue());
+      }
+      if (parser.currentToken() != JsonToken.END_ARRAY) {
+        throw invalidValue(parser.getText(), null);
+      }
+      return bytes.toByteString();
+    }
+
+    private void writeDecimal(BigDecimal value, CodedOutputStream output) throws IOException {
+      output.writeBytes(
+          this.number,
+          (this.type == TableFieldSchema.Type.NUMERIC)
+              ? BigDecimalByteStringEncoder.encodeToNumericByteString(value)
+              : BigDecimalByteStringEncoder.encodeToBigNumericByteString(value));
+    }
+
+    private boolean parseBoolean(String value) {
+      if ("true".equalsIgnoreCase(value)) {
+        return true;
+      }
+      if ("false".equalsIgnoreCase(value)) {
+        return false;
+      }
+      throw invalidValue(value, null);
+    }
+
+    private static ByteString toByteString(Object value) {
+      if (value instanceof ByteString byteString) {
+        return byteString;
+      }
+      if (value instanceof byte[] array) {
+        return ByteString.copyFrom(array);
+      }
+      if (value instanceof ByteBuffer buffer) {
+        return ByteString.copyFrom(buffer.duplicate());
+      }
+      return UnsafeByteOperations.unsafeWrap(Base64.getDecoder().decode(value.toString()));
+    }
+
+    private static long toTimestampMicros(Object value) {
+      if (value instanceof Number number) {
+        return number.longValue();
+      }
+      if (value instanceof Instant instant) {
+        return toMicros(instant);
+      }
+      if (value instanceof Date date) {
+        return TimeUnit.MILLISECONDS.toMicros(date.getTime());
+      }
+      if (value instanceof TemporalAccessor temporal) {
+        return toMicros(Instant.from(temporal));
+      }
+      return toMicros(parseTimestamp(value.toString()));
+    }
+
+    BigQueryException invalidValue(Object value, Exception cause) {
+      return new BigQueryException(
+          "Invalid value " + value + " of " + this.type + " column " + this.name + ".", cause);
+    }
+  }
+
+  private static long toMicros(Instant instant) {
+    return Math.addExact(
+        TimeUnit.SECONDS.toMicros(instant.getEpochSecond()),
+        TimeUnit.NANOSECONDS.toMicros(instant.getNano()));
+  }
+
+  private static Instant parseTimestamp(String value) {
+    TemporalAccessor parsed = DATE_TIME_FORMATTER.parse(value);
+    // Timestamps without an offset are in UTC.
+    return parsed.isSupported(ChronoField.OFFSET_SECONDS)
+        ? Instant.from(parsed)
+        : LocalDateTime.from(parsed).toInstant(ZoneOffset.UTC);
+  }
+
+  private static LocalDateTime parseDateTime(String value) {
+    return LocalDateTime.from(DATE_TIME_FORMATTER.parse(value));
+  }
+
+  // The bit-field encodings of CivilTimeEncoder, without going through threetenbp types.
+  private static long encodePackedTime(LocalTime time) {
+    return ((long) time.getHour() << 32)
+        | ((long) time.getMinute() << 26)
+        | ((long) time.getSecond() << 20)
+        | TimeUnit.NANOSECONDS.toMicros(time.getNano());
+  }
+
+  private static long encodePackedDateTime(LocalDateTime dateTime) {
+    return ((long) dateTime.getYear() << 46)
+        | ((long) dateTime.getMonthValue() << 42)
+        | ((long) dateTime.getDayOfMonth() << 37)
+        | encodePackedTime(dateTime.toLocalTime());
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.spring.bigquery.core;
+
+import com.google.cloud.bigquery.storage.v1.ProtoRows;
+import com.google.protobuf.ByteString;
+import org.springframework.util.Assert;
+
+/**
+ * Collects encoded rows into batches of a maximum size in bytes, each appended to the stream of a
+ * {@link BigQueryJsonDataWriter} at the offset following the previous batch.
+ *
+ * @since 4.1.5
+ */
+class ProtoRowsBatcher {
+
+  private final BigQueryJsonDataWriter writer;
+
+  private final long maxBatchBytes;
+
+  private ProtoRows.Builder batch = ProtoRows.newBuilder();
+
+  private long batchBytes = 0;
+
+  private long offset = 0;
+
+  ProtoRowsBatcher(BigQueryJsonDataWriter writer, long maxBatchBytes) {
+    Assert.notNull(writer, "Writer must not be null");
+    Assert.isTrue(maxBatchBytes > 0, "Max batch bytes must be positive");
+    this.writer = writer;
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  /**
+   * Add a row, appending the current batch first if the row doesn't fit in it. A row larger than
+   * the maximum size is appended in a batch of its own.
+   *
+   * @param row the encoded row
+   */
+  void add(ByteString row) {
+    if (this.batch.getSerializedRowsCount() > 0
+        && this.batchBytes + row.size() > this.maxBatchBytes) {
+      flush();
+    }
+    this.batch.addSerializedRows(row);
+    this.batchBytes += row.size();
+  }
+
+  /** Append the current batch, if it has rows. */
+  void flush() {
+    int rowCount = this.batch.getSerializedRowsCount();
+    if (rowCount == 0) {
+      return;
+    }
+    this.writer.append(this.batch.build(), this.offset, this.batchBytes);
+    this.offset += rowCount;
+    this.batch = ProtoRows.newBuilder();
+    this.batchBytes = 0;
+  }
+}
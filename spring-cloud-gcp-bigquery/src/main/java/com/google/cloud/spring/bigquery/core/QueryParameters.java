@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import com.google.cloud.bigquery.QueryParameterValue;
+import com.google.cloud.bigquery.StandardSQLTypeName;
+import java.lang.reflect.Array;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.util.Assert;
+
+/**
+ * Converts the values of named query parameters to {@link QueryParameterValue}s.
+ *
+ * <p>Besides the types supported by {@link QueryParameterValue#of(Object, Class)}, {@link
+ * Instant}, {@link LocalDate}, {@link LocalTime} and {@link LocalDateTime} values are converted to
+ * {@code TIMESTAMP}, {@code DATE}, {@code TIME} and {@code DATETIME} parameters, and arrays and
+ * collections to {@code ARRAY} parameters. {@link QueryParameterValue}s are used as they are, which
+ * is how {@code NULL} and {@code STRUCT} parameters are passed.
+ *
+ * @since 4.1.5
+ */
+final class QueryParameters {
+
+  private QueryParameters() {}
+
+  /**
+   * Convert the values of named query parameters.
+   *
+   * @param params the parameter values keyed by parameter name, or null if there are none
+   * @return the query parameter values keyed by parameter name
+   */
+  static Map<String, QueryParameterValue> toNamedParameters(Map<String, Object> params) {
+    Map<String, QueryParameterValue> namedParameters = new LinkedHashMap<>();
+    if (params != null) {
+      params.forEach(
+          (name, value) -> namedParameters.put(name, toQueryParameterValue(name, value)));
+    }
+    return namedParameters;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static QueryParameterValue toQueryParameterValue(String name, Object value) {
+    Assert.notNull(
+        value,
+        "The value of query parameter "
+            + name
+            + " can't be null; pass a typed null QueryParameterValue instead.");
+    if (value instanceof QueryParameterValue queryParameterValue) {
+      return queryParameterValue;
+    }
+    if (value instanceof Instant instant) {
+      return QueryParameterValue.timestamp(
+          TimeUnit.SECONDS.toMicros(instant.getEpochSecond())
+              + TimeUnit.NANOSECONDS.toMicros(instant.getNano()));
+    }
+    if (value instanceof LocalDate) {
+      return QueryParameterValue.date(value.toString());
+    }
+    if (value instanceof LocalTime) {
+      return QueryParameterValue.time(value.toString());
+    }
+    if (value instanceof LocalDateTime localDateTime) {
+      return QueryParameterValue.dateTime(localDateTime.toString());
+    }
+    if (value instanceof Collection<?> collection) {
+      return toArrayParameterValue(name, collection.toArray());
+    }
+    if (value.getClass().isArray() && !(value instanceof byte[])) {
+      Object[] elements = new Object[Array.getLength(value)];
+      for (int i = 0; i < elements.length; i++) {
+        elements[i] = Array.get(value, i);
+      }
+      return toArrayParameterValue(name, elements);
+    }
+    try {
+      return QueryParameterValue.of(value, (Class<Object>) value.getClass());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(
+          "Unsupported type " + value.getClass().getName() + " of query parameter " + name + ".",
+          e);
+    }
+  }
+
+  private static QueryParameterValue toArrayParameterValue(String name, Object[] elements) {
+    QueryParameterValue[] values = new QueryParameterValue[elements.length];
+    StandardSQLTypeName elementType = StandardSQLTypeName.STRING;
+    for (int i = 0; i < elements.length; i++) {
+      values[i] = toQueryParameterValue(name, elements[i]);
+      elementType = values[i].getType();
+    }
+    return QueryParameterValue.newBuilder()
+        .setType(StandardSQLTypeName.ARRAY)
+        .setArrayType(elementType)
+        .setArrayValues(Arrays.asList(values))
+        .build();
+  }
+}
@@ -23,41 +23,71 @@ import static com.google.cloud.bigquery.JobInfo.WriteDisposition.WRITE_EMPTY;
 import static com.google.cloud.bigquery.JobInfo.WriteDisposition.WRITE_TRUNCATE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.gax.paging.Page;
+import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.ServiceOptions;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryOptions;
+import com.google.cloud.bigquery.DatasetId;
 import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobException;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.cloud.bigquery.QueryParameterValue;
 import com.google.cloud.bigquery.Schema;
 import com.google.cloud.bigquery.StandardSQLTypeName;
 import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.TableResult;
 import com.google.cloud.bigquery.spi.BigQueryRpcFactory;
 import com.google.cloud.bigquery.spi.v2.BigQueryRpc;
 import com.google.cloud.bigquery.storage.v1.BatchCommitWriteStreamsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
 import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.TableFieldSchema;
 import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.TableSchema;
+import com.google.cloud.bigquery.storage.v1.stub.EnhancedBigQueryReadStub;
 import com.google.cloud.spring.bigquery.core.BigQueryJsonDataWriter;
+import com.google.cloud.spring.bigquery.core.BigQueryReadOptions;
 import com.google.cloud.spring.bigquery.core.BigQueryTemplate;
+import com.google.cloud.spring.bigquery.core.ProtoRowEncoder;
 import com.google.cloud.spring.bigquery.core.WriteApiResponse;
 import com.google.protobuf.Descriptors.DescriptorValidationException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.scheduling.concurrent.DefaultManagedTaskScheduler;
@@ -90,6 +120,21 @@ class BigQueryTemplateTest {
         Field.of("EmpName", StandardSQLTypeName.STRING));
   }
 
+  private TableSchema getDefaultTableSchema() {
+    TableSchema.Builder tableSchema = TableSchema.newBuilder();
+    for (Field field : getDefaultSchema().getFields()) {
+      tableSchema.addFields(
+          TableFieldSchema.newBuilder()
+              .setName(field.getName())
+              .setType(
+                  field.getType() == LegacySQLTypeName.STRING
+                      ? TableFieldSchema.Type.STRING
+                      : TableFieldSchema.Type.NUMERIC)
+              .setMode(TableFieldSchema.Mode.NULLABLE));
+    }
+    return tableSchema.build();
+  }
+
   /*
   Create mock instance of the required class
    */
@@ -169,6 +214,15 @@ class BigQueryTemplateTest {
         .hasStackTraceContaining("BigQuery create disposition must not be null.");
   }
 
+  @Test
+  void setStreamWriterIdleTimeoutFailsInPendingMode() {
+    Duration idleTimeout = Duration.ofSeconds(30);
+    assertThatCode(() -> bqTemplateSpy.setStreamWriterIdleTimeout(idleTimeout))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage(
+            "Stream writers are only kept open in the COMMITTED and DEFAULT_STREAM write modes");
+  }
+
   @Test
   void setJobPollIntervalTest() {
     assertThatCode(() -> bqTemplateSpy.setJobPollInterval(Duration.ofSeconds(1L)))
@@ -265,4 +319,222 @@ class BigQueryTemplateTest {
         .withFailMessage("boom!")
         .failsWithin(Duration.ofSeconds(1));
   }
+
+  @Test
+  void writeJsonStreamFailureDoesNotInterruptWriteThread()
+      throws DescriptorValidationException, IOException, InterruptedException {
+    bqTemplateSpy.setWriteExecutor(Runnable::run);
+    doThrow(new NullPointerException("boom!"))
+        .when(bqTemplateSpy)
+        .getWriteApiResponse(any(String.class), any(InputStream.class));
+
+    try {
+      CompletableFuture<WriteApiResponse> futRes =
+          bqTemplateSpy.writeJsonStream(
+              TABLE, new ByteArrayInputStream(newLineSeperatedJson.getBytes()));
+      assertThat(futRes).isCompletedExceptionally();
+      assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  void writeJsonStreamInterruptedRestoresInterruptedState()
+      throws DescriptorValidationException, IOException, InterruptedException {
+    bqTemplateSpy.setWriteExecutor(Runnable::run);
+    doThrow(new InterruptedException())
+        .when(bqTemplateSpy)
+        .getWriteApiResponse(any(String.class), any(InputStream.class));
+
+    try {
+      CompletableFuture<WriteApiResponse> futRes =
+          bqTemplateSpy.writeJsonStream(
+              TABLE, new ByteArrayInputStream(newLineSeperatedJson.getBytes()));
+      assertThat(futRes).isCompletedExceptionally();
+      assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  @Test
+  void writeJsonStreamFailsWhenRejectedByExecutor() {
+    bqTemplateSpy.setWriteExecutor(
+        command -> {
+          throw new RejectedExecutionException("queue full");
+        });
+    InputStream jsonInputStream = new ByteArrayInputStream(newLineSeperatedJson.getBytes());
+
+    CompletableFuture<WriteApiResponse> futRes =
+        bqTemplateSpy.writeJsonStream(TABLE, jsonInputStream);
+
+    assertThat(futRes)
+        .failsWithin(Duration.ofSeconds(1))
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(com.google.cloud.spring.bigquery.core.BigQueryException.class)
+        .withMessageContaining("Write to table rejected: queue full");
+  }
+
+  @Test
+  void writeRowsTest() throws Exception {
+    BigQueryJsonDataWriter writer = mock(BigQueryJsonDataWriter.class);
+    when(writer.getRowEncoder()).thenReturn(new ProtoRowEncoder(getDefaultTableSchema()));
+    doReturn(writer).when(bqTemplateSpy).getBigQueryProtoDataWriter(any(TableName.class));
+    doReturn(BatchCommitWriteStreamsResponse.getDefaultInstance())
+        .when(bqTemplateSpy)
+        .getCommitResponse(any(TableName.class), any(BigQueryJsonDataWriter.class));
+
+    CompletableFuture<WriteApiResponse> futRes =
+        bqTemplateSpy.writeRows(
+            TABLE,
+            List.of(
+                Map.of("CompanyName", "TALES", "SerialNumber", 97),
+                Map.of("CompanyName", "1Q84", "SerialNumber", 978)));
+
+    assertTrue(futRes.get().isSuccessful());
+    verify(writer).finalizeWriteStream();
+    verify(writer).close();
+  }
+
+  @Test
+  void writeJsonRowsFailsOnUnknownColumn() throws Exception {
+    BigQueryJsonDataWriter writer = mock(BigQueryJsonDataWriter.class);
+    when(writer.getRowEncoder()).thenReturn(new ProtoRowEncoder(getDefaultTableSchema()));
+    doReturn(writer).when(bqTemplateSpy).getBigQueryProtoDataWriter(any(TableName.class));
+    InputStream jsonInputStream =
+        new ByteArrayInputStream("[{\"CompanyName\":\"TALES\",\"Founded\":1984}]".getBytes());
+
+    CompletableFuture<WriteApiResponse> futRes =
+        bqTemplateSpy.writeJsonRows(TABLE, jsonInputStream);
+
+    assertThat(futRes)
+        .failsWithin(Duration.ofSeconds(1))
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(com.google.cloud.spring.bigquery.core.BigQueryException.class)
+        .withMessageContaining("Column Founded doesn't exist in the table schema.");
+    verify(writer, never()).finalizeWriteStream();
+    verify(writer).close();
+  }
+
+  @Test
+  void readTableWithoutReadClientFails() {
+    BigQueryReadOptions readOptions = new BigQueryReadOptions();
+
+    assertThatCode(() -> bqTemplateSpy.readTableAsFlux(TABLE, readOptions, Map.class))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("A BigQueryReadClient is required to read tables.");
+  }
+
+  @Test
+  void queryPagesThroughResults() throws InterruptedException, JobException {
+    BigQuery bigQueryMock = mock(BigQuery.class);
+    Job job = mockQueryJob(bigQueryMock, null);
+    Schema schema = Schema.of(Field.of("order_id", StandardSQLTypeName.INT64));
+    Page<FieldValueList> secondPage = page(schema, null, "2");
+    Page<FieldValueList> firstPage = page(schema, secondPage, "1");
+    when(job.getQueryResults()).thenReturn(new TableResult(schema, 2, firstPage));
+    BigQueryTemplate bqTemplate =
+        new BigQueryTemplate(
+            bigQueryMock, bigQueryWriteClientMock, bqInitSettings, new DefaultManagedTaskScheduler());
+    bqTemplate.setJobPollInterval(Duration.ofMillis(10));
+
+    List<Long> orderIds =
+        bqTemplate
+            .queryAsFlux(
+                "SELECT order_id FROM orders WHERE customer = @customer",
+                Map.of("customer", "alice"),
+                Long.class)
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+    assertThat(orderIds).containsExactly(1L, 2L);
+    ArgumentCaptor<JobInfo> jobInfo = ArgumentCaptor.forClass(JobInfo.class);
+    verify(bigQueryMock).create(jobInfo.capture());
+    QueryJobConfiguration queryConfig = jobInfo.getValue().getConfiguration();
+    assertThat(queryConfig.getNamedParameters())
+        .containsExactly(Map.entry("customer", QueryParameterValue.string("alice")));
+    assertThat(queryConfig.getDefaultDataset()).isEqualTo(DatasetId.of(DATASET));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void queryReadsLargeResultsThroughStorageReadApi() {
+    BigQuery bigQueryMock = mock(BigQuery.class);
+    TableId destination = TableId.of(PROJECT, "_anonymous", "results");
+    mockQueryJob(bigQueryMock, destination);
+    Table destinationTable = mock(Table.class);
+    when(destinationTable.getNumRows()).thenReturn(BigInteger.valueOf(1_000_000));
+    when(bigQueryMock.getTable(destination)).thenReturn(destinationTable);
+    EnhancedBigQueryReadStub readStub = mock(EnhancedBigQueryReadStub.class);
+    UnaryCallable<CreateReadSessionRequest, ReadSession> createReadSessionCallable =
+        mock(UnaryCallable.class);
+    when(readStub.createReadSessionCallable()).thenReturn(createReadSessionCallable);
+    when(createReadSessionCallable.call(any(CreateReadSessionRequest.class)))
+        .thenReturn(ReadSession.getDefaultInstance());
+    BigQueryTemplate bqTemplate =
+        new BigQueryTemplate(
+            bigQueryMock,
+            bigQueryWriteClientMock,
+            BigQueryReadClient.create(readStub),
+            bqInitSettings,
+            new DefaultManagedTaskScheduler());
+    bqTemplate.setJobPollInterval(Duration.ofMillis(10));
+
+    List<Map> rows =
+        bqTemplate.queryAsFlux("SELECT * FROM orders", null, Map.class).collectList().block();
+
+    assertThat(rows).isEmpty();
+    ArgumentCaptor<CreateReadSessionRequest> request =
+        ArgumentCaptor.forClass(CreateReadSessionRequest.class);
+    verify(createReadSessionCallable).call(request.capture());
+    assertThat(request.getValue().getReadSession().getTable())
+        .isEqualTo(TableName.of(PROJECT, "_anonymous", "results").toString());
+  }
+
+  @Test
+  void queryFailsWhenJobFails() {
+    BigQuery bigQueryMock = mock(BigQuery.class);
+    when(bigQueryMock.create(any(JobInfo.class)))
+        .thenThrow(new com.google.cloud.bigquery.BigQueryException(400, "Syntax error"));
+    BigQueryTemplate bqTemplate =
+        new BigQueryTemplate(
+            bigQueryMock, bigQueryWriteClientMock, bqInitSettings, new DefaultManagedTaskScheduler());
+
+    assertThatThrownBy(() -> bqTemplate.query("SELEC 1", null, Long.class).count())
+        .isInstanceOf(com.google.cloud.spring.bigquery.core.BigQueryException.class)
+        .hasMessage("Failed to run query: Syntax error");
+  }
+
+  private static Job mockQueryJob(BigQuery bigQueryMock, TableId destination) {
+    Job job = mock(Job.class);
+    JobStatus status = mock(JobStatus.class);
+    when(status.getState()).thenReturn(JobStatus.State.DONE);
+    when(job.getStatus()).thenReturn(status);
+    when(job.reload()).thenReturn(job);
+    doReturn(
+            QueryJobConfiguration.newBuilder("SELECT 1").setDestinationTable(destination).build())
+        .when(job)
+        .getConfiguration();
+    when(bigQueryMock.create(any(JobInfo.class))).thenReturn(job);
+    return job;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Page<FieldValueList> page(
+      Schema schema, Page<FieldValueList> nextPage, String... values) {
+    Page<FieldValueList> page = mock(Page.class);
+    List<FieldValueList> rows = new ArrayList<>();
+    for (String value : values) {
+      rows.add(
+          FieldValueList.of(
+              List.of(FieldValue.of(FieldValue.Attribute.PRIMITIVE, value)), schema.getFields()));
+    }
+    when(page.getValues()).thenReturn(rows);
+    when(page.hasNextPage()).thenReturn(nextPage != null);
+    if (nextPage != null) {
+      when(page.getNextPage()).thenReturn(nextPage);
+    }
+    return page;
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.bigquery.storage.v1.AppendRowsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.JsonStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link BigQueryJsonDataWriter}. */
+class BigQueryJsonDataWriterTests {
+
+  private final JsonStreamWriter streamWriter = mock(JsonStreamWriter.class);
+
+  private final List<SettableApiFuture<AppendRowsResponse>> responses = new ArrayList<>();
+
+  private BigQueryJsonDataWriter writer;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(this.streamWriter.append(any(JSONArray.class)))
+        .thenAnswer(
+            invocation -> {
+              SettableApiFuture<AppendRowsResponse> response = SettableApiFuture.create();
+              this.responses.add(response);
+              return response;
+            });
+    this.writer =
+        new BigQueryJsonDataWriter(
+            new JsonStreamWriterPool.PooledWriter(this.streamWriter, false),
+            mock(BigQueryWriteClient.class));
+    this.writer.setMaxInflightBytes(100);
+  }
+
+  @Test
+  void testAppendWaitsWhenTooManyBytesAreInFlight() throws Exception {
+    this.writer.append(new JSONArray(), 0, 60);
+    CompletableFuture<Void> secondAppend =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                this.writer.append(new JSONArray(), 0, 60);
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+
+    Thread.sleep(100);
+    assertThat(secondAppend).isNotDone();
+    verify(this.streamWriter, times(1)).append(any(JSONArray.class));
+
+    this.responses.get(0).set(AppendRowsResponse.getDefaultInstance());
+    secondAppend.get(1, TimeUnit.SECONDS);
+    verify(this.streamWriter, times(2)).append(any(JSONArray.class));
+  }
+
+  @Test
+  void testAppendLargerThanLimitIsLetThroughAlone() throws Exception {
+    this.writer.append(new JSONArray(), 0, 500);
+
+    verify(this.streamWriter).append(any(JSONArray.class));
+  }
+
+  @Test
+  void testFlushWaitsForAppendsAndThrowsTheirError() throws Exception {
+    this.writer.append(new JSONArray(), 0, 10);
+    this.writer.append(new JSONArray(), 0, 10);
+    CompletableFuture<Void> flush = CompletableFuture.runAsync(this.writer::flush);
+
+    this.responses.get(0).set(AppendRowsResponse.getDefaultInstance());
+    Thread.sleep(100);
+    assertThat(flush).isNotDone();
+
+    this.responses.get(1).setException(new IllegalStateException("boom!"));
+    assertThatThrownBy(() -> flush.get(1, TimeUnit.SECONDS)).hasMessageContaining("boom!");
+  }
+}
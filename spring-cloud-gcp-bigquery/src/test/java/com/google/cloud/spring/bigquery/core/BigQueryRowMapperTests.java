@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link BigQueryRowMapper}. */
+class BigQueryRowMapperTests {
+
+  private static final Instant CREATED = Instant.parse("2023-04-01T10:15:30Z");
+
+  @Test
+  void testMapToBean() {
+    Order order = new BigQueryRowMapper<>(Order.class).map(row());
+
+    assertThat(order.getOrderId()).isEqualTo(42);
+    assertThat(order.getAmount()).isEqualByComparingTo("12.5");
+    assertThat(order.getCreated()).isEqualTo(CREATED);
+  }
+
+  @Test
+  void testMapToRecord() {
+    OrderRecord order = new BigQueryRowMapper<>(OrderRecord.class).map(row());
+
+    assertThat(order).isEqualTo(new OrderRecord(42, new BigDecimal("12.5"), null));
+  }
+
+  @Test
+  void testMapToMap() {
+    Map<String, Object> row = row();
+
+    Object mapped = new BigQueryRowMapper<>(Map.class).map(row);
+
+    assertThat(mapped).isSameAs(row);
+  }
+
+  @Test
+  void testMapSingleColumnToSimpleType() {
+    assertThat(new BigQueryRowMapper<>(Integer.class).map(Map.of("f0_", 7L))).isEqualTo(7);
+    assertThat(new BigQueryRowMapper<>(String.class).map(Map.of("f0_", 7L))).isEqualTo("7");
+  }
+
+  @Test
+  void testMapSeveralColumnsToSimpleTypeFails() {
+    BigQueryRowMapper<Long> rowMapper = new BigQueryRowMapper<>(Long.class);
+    Map<String, Object> row = row();
+
+    assertThatThrownBy(() -> rowMapper.map(row))
+        .isInstanceOf(BigQueryException.class)
+        .hasMessage("Can't map a row of 4 columns to java.lang.Long; a single column is expected.");
+  }
+
+  @Test
+  void testMapUnconvertibleValueFails() {
+    BigQueryRowMapper<Order> rowMapper = new BigQueryRowMapper<>(Order.class);
+    Map<String, Object> row = Map.of("order_id", "not a number");
+
+    assertThatThrownBy(() -> rowMapper.map(row))
+        .isInstanceOf(BigQueryException.class)
+        .hasMessageStartingWith("Failed to map a row to ");
+  }
+
+  private static Map<String, Object> row() {
+    Map<String, Object> row = new LinkedHashMap<>();
+    row.put("order_id", 42L);
+    row.put("AMOUNT", new BigDecimal("12.5"));
+    row.put("created", CREATED);
+    row.put("unknown_column", "ignored");
+    return row;
+  }
+
+  record OrderRecord(int orderId, BigDecimal amount, String customer) {}
+
+  static class Order {
+
+    private int orderId;
+
+    private BigDecimal amount;
+
+    private Instant created;
+
+    public int getOrderId() {
+      return this.orderId;
+    }
+
+    public void setOrderId(int orderId) {
+      this.orderId = orderId;
+    }
+
+    public BigDecimal getAmount() {
+      return this.amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+      this.amount = amount;
+    }
+
+    public Instant getCreated() {
+      return this.created;
+    }
+
+    public void setCreated(Instant created) {
+      this.created = created;
+    }
+  }
+}
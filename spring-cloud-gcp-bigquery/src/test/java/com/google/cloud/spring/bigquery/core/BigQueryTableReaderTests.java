@@ -0,0 +1,291 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.google.api.gax.rpc.ServerStream;
+import com.google.api.gax.rpc.ServerStreamingCallable;
+import com.google.api.gax.rpc.UnaryCallable;
+import com.google.cloud.bigquery.storage.v1.ArrowRecordBatch;
+import com.google.cloud.bigquery.storage.v1.ArrowSchema;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1.DataFormat;
+import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.ReadStream;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.stub.EnhancedBigQueryReadStub;
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.impl.UnionListWriter;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/** Tests for the {@link BigQueryTableReader}. */
+class BigQueryTableReaderTests {
+
+  private static final TableName TABLE = TableName.of("project", "dataset", "orders");
+
+  private static final Instant CREATED = Instant.parse("2023-04-01T10:15:30.123456Z");
+
+  private final BufferAllocator allocator = new RootAllocator();
+
+  private final Schema schema =
+      new Schema(
+          List.of(
+              Field.nullable("order_id", new ArrowType.Int(64, true)),
+              Field.nullable("customer", ArrowType.Utf8.INSTANCE),
+              Field.nullable("created", new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC")),
+              Field.nullable("delivery", new ArrowType.Date(DateUnit.DAY)),
+              new Field(
+                  "tags",
+                  FieldType.nullable(ArrowType.List.INSTANCE),
+                  List.of(Field.nullable("element", ArrowType.Utf8.INSTANCE)))));
+
+  private UnaryCallable<CreateReadSessionRequest, ReadSession> createReadSessionCallable;
+
+  private ServerStreamingCallable<ReadRowsRequest, ReadRowsResponse> readRowsCallable;
+
+  private BigQueryTableReader tableReader;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    EnhancedBigQueryReadStub stub = mock(EnhancedBigQueryReadStub.class);
+    this.createReadSessionCallable = mock(UnaryCallable.class);
+    this.readRowsCallable = mock(ServerStreamingCallable.class);
+    when(stub.createReadSessionCallable()).thenReturn(this.createReadSessionCallable);
+    when(stub.readRowsCallable()).thenReturn(this.readRowsCallable);
+    this.tableReader = new BigQueryTableReader(BigQueryReadClient.create(stub));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.allocator.close();
+  }
+
+  @Test
+  void testReadDecodesRowsOfAllStreams() throws IOException {
+    when(this.createReadSessionCallable.call(any(CreateReadSessionRequest.class)))
+        .thenReturn(session("stream-1", "stream-2"));
+    mockStream("stream-1", batch(1L, "alice", 2L, null));
+    mockStream("stream-2", batch(3L, "bob"), batch(4L, "carol"));
+
+    List<Map<String, Object>> rows =
+        this.tableReader.read(TABLE, new BigQueryReadOptions()).collectList().block();
+
+    assertThat(rows)
+        .extracting(row -> row.get("order_id"))
+        .containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+    Map<String, Object> alice =
+        rows.stream().filter(row -> row.get("order_id").equals(1L)).findFirst().get();
+    assertThat(alice)
+        .containsExactly(
+            Map.entry("order_id", 1L),
+            Map.entry("customer", "alice"),
+            Map.entry("created", CREATED),
+            Map.entry("delivery", LocalDate.of(2023, 4, 3)),
+            Map.entry("tags", List.of("alice", "vip")));
+    Map<String, Object> unnamed =
+        rows.stream().filter(row -> row.get("order_id").equals(2L)).findFirst().get();
+    assertThat(unnamed).containsEntry("customer", null);
+  }
+
+  @Test
+  void testReadSessionRequestsColumnsRowsAndStreams() {
+    when(this.createReadSessionCallable.call(any(CreateReadSessionRequest.class)))
+        .thenReturn(session());
+
+    List<Map<String, Object>> rows =
+        this.tableReader
+            .read(
+                TABLE,
+                new BigQueryReadOptions()
+                    .setSelectedFields("order_id", "customer")
+                    .setRowRestriction("order_id > 2")
+                    .setMaxStreamCount(3))
+            .collectList()
+            .block();
+
+    assertThat(rows).isEmpty();
+    ArgumentCaptor<CreateReadSessionRequest> request =
+        ArgumentCaptor.forClass(CreateReadSessionRequest.class);
+    verify(this.createReadSessionCallable).call(request.capture());
+    assertThat(request.getValue().getParent()).isEqualTo("projects/project");
+    assertThat(request.getValue().getMaxStreamCount()).isEqualTo(3);
+    ReadSession readSession = request.getValue().getReadSession();
+    assertThat(readSession.getTable()).isEqualTo("projects/project/datasets/dataset/tables/orders");
+    assertThat(readSession.getDataFormat()).isEqualTo(DataFormat.ARROW);
+    assertThat(readSession.getReadOptions().getSelectedFieldsList())
+        .containsExactly("order_id", "customer");
+    assertThat(readSession.getReadOptions().getRowRestriction()).isEqualTo("order_id > 2");
+  }
+
+  @Test
+  void testCancellingReadCancelsStreams() throws IOException {
+    when(this.createReadSessionCallable.call(any(CreateReadSessionRequest.class)))
+        .thenReturn(session("stream-1"));
+    ServerStream<ReadRowsResponse> stream =
+        mockStream(
+            "stream-1", batch(1L, "alice", 2L, "bob"), batch(3L, "carol"), batch(4L, "dave"));
+
+    List<Map<String, Object>> rows =
+        this.tableReader.read(TABLE, new BigQueryReadOptions()).take(1).collectList().block();
+
+    assertThat(rows).hasSize(1);
+    // flatMap cancels its inner streams after the downstream completed.
+    verify(stream, timeout(1000)).cancel();
+  }
+
+  @Test
+  void testReadFailsWithBigQueryException() {
+    when(this.createReadSessionCallable.call(any(CreateReadSessionRequest.class)))
+        .thenThrow(
+            ApiExceptionFactory.createException(
+                new RuntimeException("boom!"),
+                GrpcStatusCode.of(Status.Code.PERMISSION_DENIED),
+                false));
+
+    assertThatThrownBy(
+            () -> this.tableReader.read(TABLE, new BigQueryReadOptions()).blockLast())
+        .isInstanceOf(BigQueryException.class)
+        .hasMessage("Failed to read projects/project/datasets/dataset/tables/orders.");
+  }
+
+  private ReadSession session(String... streamNames) {
+    ReadSession.Builder session =
+        ReadSession.newBuilder()
+            .setArrowSchema(
+                ArrowSchema.newBuilder().setSerializedSchema(serialize(this.schema)).build());
+    for (String streamName : streamNames) {
+      session.addStreams(ReadStream.newBuilder().setName(streamName));
+    }
+    return session.build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private ServerStream<ReadRowsResponse> mockStream(
+      String streamName, ArrowRecordBatch... batches) {
+    List<ReadRowsResponse> responses =
+        Arrays.stream(batches)
+            .map(batch -> ReadRowsResponse.newBuilder().setArrowRecordBatch(batch).build())
+            .toList();
+    ServerStream<ReadRowsResponse> serverStream = mock(ServerStream.class);
+    when(serverStream.iterator()).thenAnswer(invocation -> responses.iterator());
+    when(serverStream.spliterator()).thenAnswer(invocation -> responses.spliterator());
+    when(this.readRowsCallable.call(
+            ReadRowsRequest.newBuilder().setReadStream(streamName).build()))
+        .thenReturn(serverStream);
+    return serverStream;
+  }
+
+  /** Create a batch of rows from order ID and customer pairs. */
+  private ArrowRecordBatch batch(Object... orders) throws IOException {
+    try (VectorSchemaRoot root = VectorSchemaRoot.create(this.schema, this.allocator)) {
+      root.allocateNew();
+      int rowCount = orders.length / 2;
+      ListVector tags = (ListVector) root.getVector("tags");
+      UnionListWriter tagsWriter = tags.getWriter();
+      for (int i = 0; i < rowCount; i++) {
+        ((BigIntVector) root.getVector("order_id")).setSafe(i, (Long) orders[2 * i]);
+        String customer = (String) orders[2 * i + 1];
+        tagsWriter.setPosition(i);
+        tagsWriter.startList();
+        if (customer != null) {
+          ((VarCharVector) root.getVector("customer"))
+              .setSafe(i, customer.getBytes(StandardCharsets.UTF_8));
+          writeTag(tagsWriter, customer);
+          writeTag(tagsWriter, "vip");
+        }
+        tagsWriter.endList();
+        ((TimeStampMicroTZVector) root.getVector("created"))
+            .setSafe(i, CREATED.getEpochSecond() * 1_000_000L + CREATED.getNano() / 1_000L);
+        ((DateDayVector) root.getVector("delivery"))
+            .setSafe(i, (int) LocalDate.of(2023, 4, 3).toEpochDay());
+      }
+      tags.setValueCount(rowCount);
+      root.setRowCount(rowCount);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (org.apache.arrow.vector.ipc.message.ArrowRecordBatch recordBatch =
+          new VectorUnloader(root).getRecordBatch()) {
+        MessageSerializer.serialize(new WriteChannel(Channels.newChannel(out)), recordBatch);
+      }
+      return ArrowRecordBatch.newBuilder()
+          .setSerializedRecordBatch(ByteString.copyFrom(out.toByteArray()))
+          .build();
+    }
+  }
+
+  private void writeTag(UnionListWriter tagsWriter, String tag) {
+    byte[] bytes = tag.getBytes(StandardCharsets.UTF_8);
+    try (ArrowBuf buffer = this.allocator.buffer(bytes.length)) {
+      buffer.setBytes(0, bytes);
+      tagsWriter.varChar().writeVarChar(0, bytes.length, buffer);
+    }
+  }
+
+  private static ByteString serialize(Schema schema) {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      MessageSerializer.serialize(new WriteChannel(Channels.newChannel(out)), schema);
+      return ByteString.copyFrom(out.toByteArray());
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.bigquery.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.bigquery.storage.v1.AppendRowsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.JsonStreamWriter;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.protobuf.Descriptors.DescriptorValidationException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+
+/** Tests for the {@link JsonStreamWriterPool}. */
+class JsonStreamWriterPoolTests {
+
+  private static final TableName TABLE = TableName.of("project", "dataset", "orders");
+
+  private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+
+  private final Deque<JsonStreamWriter> streamWriters = new ArrayDeque<>();
+
+  @BeforeEach
+  void setUp() {
+    doReturn(mock(ScheduledFuture.class))
+        .when(this.taskScheduler)
+        .scheduleWithFixedDelay(any(Runnable.class), any(Duration.class));
+  }
+
+  @Test
+  void testCommittedStreamWriterIsReusedWithIncreasingOffsets() throws Exception {
+    JsonStreamWriter streamWriter = mockStreamWriter();
+    JsonStreamWriterPool pool = pool(BigQueryWriteMode.COMMITTED);
+
+    try (BigQueryJsonDataWriter writer = pool.getWriter(TABLE)) {
+      writer.append(rows(2), 0);
+      writer.flush();
+    }
+    try (BigQueryJsonDataWriter writer = pool.getWriter(TABLE)) {
+      writer.append(rows(1), 0);
+      writer.flush();
+    }
+
+    verify(streamWriter).append(any(JSONArray.class), eq(0L));
+    verify(streamWriter).append(any(JSONArray.class), eq(2L));
+    verify(streamWriter, never()).close();
+    assertThat(this.streamWriters).isEmpty();
+    verify(this.taskScheduler)
+        .scheduleWithFixedDelay(any(Runnable.class), eq(Duration.ofMinutes(1)));
+  }
+
+  @Test
+  void testDefaultStreamWriterAppendsWithoutOffsets() throws Exception {
+    JsonStreamWriter streamWriter = mockStreamWriter();
+    JsonStreamWriterPool pool = pool(BigQueryWriteMode.DEFAULT_STREAM);
+
+    try (BigQueryJsonDataWriter writer = pool.getWriter(TABLE)) {
+      writer.append(rows(2), 0);
+      writer.flush();
+    }
+
+    verify(streamWriter).append(any(JSONArray.class));
+  }
+
+  @Test
+  void testFailedStreamWriterIsReplaced() throws Exception {
+    JsonStreamWriter failingStreamWriter = mockStreamWriter();
+    when(failingStreamWriter.append(any(JSONArray.class), eq(0L)))
+        .thenReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("boom!")));
+    JsonStreamWriter streamWriter = mockStreamWriter();
+    JsonStreamWriterPool pool = pool(BigQueryWriteMode.COMMITTED);
+
+    try (BigQueryJsonDataWriter writer = pool.getWriter(TABLE)) {
+      writer.append(rows(1), 0);
+      assertThatThrownBy(writer::flush).hasMessageContaining("boom!");
+      // Still in use, so not closed yet.
+      verify(failingStreamWriter, never()).close();
+    }
+    verify(failingStreamWriter).close();
+
+    try (BigQueryJsonDataWriter writer = pool.getWriter(TABLE)) {
+      writer.append(rows(1), 0);
+      writer.flush();
+    }
+    verify(streamWriter).append(any(JSONArray.class), eq(0L));
+  }
+
+  @Test
+  void testIdleStreamWriterIsClosed() throws Exception {
+    JsonStreamWriter streamWriter = mockStreamWriter();
+    JsonStreamWriterPool pool = pool(BigQueryWriteMode.DEFAULT_STREAM);
+    pool.setIdleTimeout(Duration.ofMillis(1));
+
+    BigQueryJsonDataWriter writer = pool.getWriter(TABLE);
+    Thread.sleep(10);
+    pool.closeIdleWriters();
+    verify(streamWriter, never()).close();
+
+    writer.close();
+    Thread.sleep(10);
+    pool.closeIdleWriters();
+    verify(streamWriter).close();
+
+    mockStreamWriter();
+    pool.getWriter(TABLE).close();
+    assertThat(this.streamWriters).isEmpty();
+  }
+
+  @Test
+  void testStreamWriterCreatedConcurrentlyIsDiscarded() throws Exception {
+    JsonStreamWriter installed = mockStreamWriter();
+    JsonStreamWriter discarded = mockStreamWriter();
+    AtomicBoolean firstCreation = new AtomicBoolean(true);
+    JsonStreamWriterPool pool =
+        new JsonStreamWriterPool(
+            mock(BigQueryWriteClient.class), BigQueryWriteMode.DEFAULT_STREAM, this.taskScheduler) {
+          @Override
+          JsonStreamWriter createStreamWriter(TableName table) {
+            if (firstCreation.compareAndSet(true, false)) {
+              // Another write to the table gets a writer while this one is being created.
+              CompletableFuture.runAsync(() -> getWriter(table)).join();
+              return discarded;
+            }
+            return installed;
+          }
+        };
+
+    try (BigQueryJsonDataWriter writer = pool.getWriter(TABLE)) {
+      writer.append(rows(1), 0);
+      writer.flush();
+    }
+
+    verify(installed).append(any(JSONArray.class));
+    verify(installed, never()).close();
+    verify(discarded, never()).append(any(JSONArray.class));
+    verify(discarded).close();
+  }
+
+  private JsonStreamWriterPool pool(BigQueryWriteMode writeMode) {
+    BigQueryWriteClient bigQueryWriteClient = mock(BigQueryWriteClient.class);
+    return new JsonStreamWriterPool(bigQueryWriteClient, writeMode, this.taskScheduler) {
+      @Override
+      JsonStreamWriter createStreamWriter(TableName table) {
+        return JsonStreamWriterPoolTests.this.streamWriters.remove();
+      }
+    };
+  }
+
+  private JsonStreamWriter mockStreamWriter()
+      throws DescriptorValidationException, IOException {
+    JsonStreamWriter streamWriter = mock(JsonStreamWriter.class);
+    when(streamWriter.append(any(JSONArray.class)))
+        .thenReturn(ApiFutures.immediateFuture(AppendRowsResponse.getDefaultInstance()));
+    when(streamWriter.append(any(JSONArray.class), any(Long.class)))
+        .thenReturn(ApiFutures.immediateFuture(AppendRowsResponse.getDefaultInstance()));
+    this.streamWriters.add(streamWriter);
+    return streamWriter;
+  }
+
+  private static JSONArray rows(int count) {
+    JSONArray rows = new JSONArray();
+    for (int i = 0; i < count; i++) {
+      rows.put(new JSONObject().put("order_id", i));
+    }
+    return rows;
+  }
+}
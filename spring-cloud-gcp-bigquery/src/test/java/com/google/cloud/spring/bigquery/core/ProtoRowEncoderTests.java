@@ -0,0 +1,191 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.spring.bigquery.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.cloud.bigquery.storage.v1.JsonToProtoMessage;
+import com.google.cloud.bigquery.storage.v1.TableFieldSchema;
+import com.google.cloud.bigquery.storage.v1.TableFieldSchema.Mode;
+import com.google.cloud.bigquery.storage.v1.TableFieldSchema.Type;
+import com.google.cloud.bigquery.storage.v1.TableSchema;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DynamicMessage;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link ProtoRowEncoder}. */
+class ProtoRowEncoderTests {
+
+  private static final String JSON_ROW =
+      "{\"name\":\"Mark\",\"COUNT\":42,\"score\":1.5,\"active\":true,\"data\":\"AQID\","
+          + "\"amount\":\"12.5\",\"created\":\"2023-04-01T10:15:30.123456Z\","
+          + "\"day\":\"2023-04-01\",\"at\":\"10:15:30.5\",\"local\":\"2023-04-01T10:15:30\","
+          + "\"tags\":[1,2],\"address\":{\"city\":\"Paris\"},\"payload\":\"{\\\"a\\\":1}\","
+          + "\"comment\":null}";
+
+  private static final TableSchema TABLE_SCHEMA =
+      TableSchema.newBuilder()
+          .addFields(field("name", Type.STRING))
+          .addFields(field("count", Type.INT64))
+          .addFields(field("score", Type.DOUBLE))
+          .addFields(field("active", Type.BOOL))
+          .addFields(field("data", Type.BYTES))
+          .addFields(field("amount", Type.NUMERIC))
+          .addFields(field("created", Type.TIMESTAMP))
+          .addFields(field("day", Type.DATE))
+          .addFields(field("at", Type.TIME))
+          .addFields(field("local", Type.DATETIME))
+          .addFields(field("tags", Type.INT64).toBuilder().setMode(Mode.REPEATED))
+          .addFields(
+              field("address", Type.STRUCT).toBuilder().addFields(field("city", Type.STRING)))
+          .addFields(field("payload", Type.JSON))
+          .addFields(field("comment", Type.STRING))
+          .build();
+
+  private final ProtoRowEncoder encoder = new ProtoRowEncoder(TABLE_SCHEMA);
+
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  @Test
+  void testEncodeJsonLikeJsonStreamWriter() throws IOException {
+    ByteString row = encodeJson(JSON_ROW);
+
+    assertThat(DynamicMessage.parseFrom(this.encoder.getDescriptor(), row))
+        .isEqualTo(expectedRow());
+  }
+
+  @Test
+  void testEncodeRecordLikeJson() throws IOException {
+    Row record =
+        new Row(
+            "Mark",
+            42,
+            1.5,
+            true,
+            new byte[] {1, 2, 3},
+            new BigDecimal("12.5"),
+            Instant.parse("2023-04-01T10:15:30.123456Z"),
+            LocalDate.of(2023, 4, 1),
+            LocalTime.of(10, 15, 30, 500_000_000),
+            LocalDateTime.of(2023, 4, 1, 10, 15, 30),
+            List.of(1L, 2L),
+            Map.of("city", "Paris"),
+            "{\"a\":1}",
+            null);
+
+    ByteString row = this.encoder.encode(record);
+
+    assertThat(DynamicMessage.parseFrom(this.encoder.getDescriptor(), row))
+        .isEqualTo(expectedRow());
+  }
+
+  @Test
+  void testEncodeMapWithStringValues() throws IOException {
+    ByteString row = this.encoder.encode(Map.of("Count", "42", "created", "2023-04-01 10:15:30"));
+
+    DynamicMessage message = DynamicMessage.parseFrom(this.encoder.getDescriptor(), row);
+    assertThat(message.getField(this.encoder.getDescriptor().findFieldByName("count")))
+        .isEqualTo(42L);
+    assertThat(message.getField(this.encoder.getDescriptor().findFieldByName("created")))
+        .isEqualTo(1680344130000000L);
+  }
+
+  @Test
+  void testEncodeJsonArrayOfBytes() throws IOException {
+    ByteString row = encodeJson("{\"data\":[1,2,3]}");
+
+    DynamicMessage message = DynamicMessage.parseFrom(this.encoder.getDescriptor(), row);
+    assertThat(message.getField(this.encoder.getDescriptor().findFieldByName("data")))
+        .isEqualTo(ByteString.copyFrom(new byte[] {1, 2, 3}));
+  }
+
+  @Test
+  void testEncodeJsonObjectOfJsonColumnAsText() throws IOException {
+    ByteString row = encodeJson("{\"payload\":{\"a\":[1,2],\"b\":null}}");
+
+    DynamicMessage message = DynamicMessage.parseFrom(this.encoder.getDescriptor(), row);
+    assertThat(message.getField(this.encoder.getDescriptor().findFieldByName("payload")))
+        .isEqualTo("{\"a\":[1,2],\"b\":null}");
+  }
+
+  @Test
+  void testEncodeUnknownColumnFails() {
+    assertThatThrownBy(() -> encodeJson("{\"name\":\"Mark\",\"age\":42}"))
+        .isInstanceOf(BigQueryException.class)
+        .hasMessage("Column age doesn't exist in the table schema.");
+  }
+
+  @Test
+  void testEncodeInvalidValueFails() {
+    Map<String, Object> row = Map.of("count", "many");
+
+    assertThatThrownBy(() -> this.encoder.encode(row))
+        .isInstanceOf(BigQueryException.class)
+        .hasMessage("Invalid value many of INT64 column count.")
+        .hasCauseInstanceOf(NumberFormatException.class);
+  }
+
+  private ByteString encodeJson(String json) throws IOException {
+    try (JsonParser parser = this.jsonFactory.createParser(json)) {
+      parser.nextToken();
+      return this.encoder.encode(parser);
+    }
+  }
+
+  private DynamicMessage expectedRow() {
+    JSONObject json = new JSONObject(JSON_ROW);
+    json.remove("comment");
+    // The JSON stream writer only takes arrays of bytes.
+    json.put("data", new JSONArray(new int[] {1, 2, 3}));
+    return JsonToProtoMessage.convertJsonToProtoMessage(
+        this.encoder.getDescriptor(), TABLE_SCHEMA, json);
+  }
+
+  private static TableFieldSchema field(String name, Type type) {
+    return TableFieldSchema.newBuilder().setName(name).setType(type).setMode(Mode.NULLABLE).build();
+  }
+
+  record Row(
+      String name,
+      long count,
+      double score,
+      boolean active,
+      byte[] data,
+      BigDecimal amount,
+      Instant created,
+      LocalDate day,
+      LocalTime at,
+      LocalDateTime local,
+      List<Long> tags,
+      Map<String, Object> address,
+      String payload,
+      String comment) {}
+}
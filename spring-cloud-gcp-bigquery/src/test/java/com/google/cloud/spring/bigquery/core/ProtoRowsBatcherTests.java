@@ -0,0 +1,75 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.spring.bigquery.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.bigquery.storage.v1.ProtoRows;
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/** Tests for the {@link ProtoRowsBatcher}. */
+class ProtoRowsBatcherTests {
+
+  private final BigQueryJsonDataWriter writer = mock(BigQueryJsonDataWriter.class);
+
+  private final ProtoRowsBatcher batcher = new ProtoRowsBatcher(this.writer, 10);
+
+  @Test
+  void testAppendBatchesOfMaxBytes() {
+    this.batcher.add(row(4));
+    this.batcher.add(row(6));
+    this.batcher.add(row(3));
+    this.batcher.flush();
+
+    ArgumentCaptor<ProtoRows> batches = ArgumentCaptor.forClass(ProtoRows.class);
+    verify(this.writer).append(batches.capture(), eq(0L), eq(10L));
+    verify(this.writer).append(batches.capture(), eq(2L), eq(3L));
+    assertThat(batches.getAllValues())
+        .extracting(ProtoRows::getSerializedRowsCount)
+        .containsExactly(2, 1);
+  }
+
+  @Test
+  void testAppendLargeRowOnItsOwn() {
+    this.batcher.add(row(2));
+    this.batcher.add(row(12));
+    this.batcher.add(row(2));
+
+    verify(this.writer).append(any(ProtoRows.class), eq(0L), eq(2L));
+    verify(this.writer).append(any(ProtoRows.class), eq(1L), eq(12L));
+  }
+
+  @Test
+  void testFlushWithoutRowsAppendsNothing() {
+    this.batcher.flush();
+
+    verify(this.writer, never()).append(any(ProtoRows.class), anyLong(), anyLong());
+  }
+
+  private static ByteString row(int size) {
+    return ByteString.copyFrom(new byte[size]);
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.spring.pubsub.support.converter.CompressingPubSubMessageConverter;
+import com.google.cloud.spring.pubsub.support.converter.JacksonPubSubMessageConverter;
+import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
+import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the message converters, in both directions.
+ *
+ * <p>The {@code messageBytes} and {@code messages} secondary results of the {@code to} benchmarks
+ * are rates whose ratio is the size of the converted messages, so that the CPU cost of compression
+ * can be weighed against the bytes it saves.
+ *
+ * <p>{@code toJacksonCopy} and {@code fromJacksonCopy} are the baseline of the Jackson converter:
+ * they convert like it did before payloads were wrapped rather than copied, with {@code
+ * ByteString.copyFrom} and {@code toByteArray()}, and with an {@code ObjectReader} created per
+ * message. Run with {@code -prof gc} to compare the bytes allocated per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConversionBenchmark {
+
+  @Param({"1", "100"})
+  private int orderItems;
+
+  private final Map<String, String> headers = Payloads.attributes(5);
+
+  private final SimplePubSubMessageConverter simpleConverter = new SimplePubSubMessageConverter();
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final PubSubMessageConverter jacksonConverter =
+      new JacksonPubSubMessageConverter(this.objectMapper);
+
+  private final PubSubMessageConverter gzipJacksonConverter =
+      new CompressingPubSubMessageConverter(
+          new JacksonPubSubMessageConverter(new ObjectMapper()), 0);
+
+  private byte[] bytes;
+
+  private Order order;
+
+  private PubsubMessage simpleMessage;
+
+  private PubsubMessage jacksonMessage;
+
+  private PubsubMessage gzipJacksonMessage;
+
+  @Setup
+  public void setUp() {
+    this.order = Order.create(this.orderItems);
+    this.jacksonMessage = this.jacksonConverter.toPubSubMessage(this.order, this.headers);
+    this.gzipJacksonMessage = this.gzipJacksonConverter.toPubSubMessage(this.order, this.headers);
+    this.bytes = this.jacksonMessage.getData().toByteArray();
+    this.simpleMessage = this.simpleConverter.toPubSubMessage(this.bytes, this.headers);
+  }
+
+  @Benchmark
+  public PubsubMessage toSimple(MessageSize size) {
+    return size.record(this.simpleConverter.toPubSubMessage(this.bytes, this.headers));
+  }
+
+  @Benchmark
+  public byte[] fromSimple() {
+    return this.simpleConverter.fromPubSubMessage(this.simpleMessage, byte[].class);
+  }
+
+  @Benchmark
+  public PubsubMessage toJackson(MessageSize size) {
+    return size.record(this.jacksonConverter.toPubSubMessage(this.order, this.headers));
+  }
+
+  @Benchmark
+  public Order fromJackson() {
+    return this.jacksonConverter.fromPubSubMessage(this.jacksonMessage, Order.class);
+  }
+
+  @Benchmark
+  public PubsubMessage toJacksonCopy(MessageSize size) throws IOException {
+    return size.record(
+        PubsubMessage.newBuilder()
+            .setData(ByteString.copyFrom(this.objectMapper.writeValueAsBytes(this.order)))
+            .putAllAttributes(this.headers)
+            .build());
+  }
+
+  @Benchmark
+  public Order fromJacksonCopy() throws IOException {
+    return this.objectMapper
+        .readerFor(Order.class)
+        .readValue(this.jacksonMessage.getData().toByteArray());
+  }
+
+  @Benchmark
+  public PubsubMessage toGzipJackson(MessageSize size) {
+    return size.record(this.gzipJacksonConverter.toPubSubMessage(this.order, this.headers));
+  }
+
+  @Benchmark
+  public Order fromGzipJackson() {
+    return this.gzipJacksonConverter.fromPubSubMessage(this.gzipJacksonMessage, Order.class);
+  }
+
+  /** Counters of the converted messages and of their bytes. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class MessageSize {
+
+    public long messages;
+
+    public long messageBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.messages = 0;
+      this.messageBytes = 0;
+    }
+
+    PubsubMessage record(PubsubMessage message) {
+      this.messages++;
+      this.messageBytes += message.getSerializedSize();
+      return message;
+    }
+  }
+
+  /** A typical JSON payload. */
+  public static class Order {
+
+    public String id;
+
+    public String customer;
+
+    public List<Item> items;
+
+    static Order create(int itemCount) {
+      Order order = new Order();
+      order.id = "order-42";
+      order.customer = "customer-1234";
+      order.items = new ArrayList<>();
+      for (int i = 0; i < itemCount; i++) {
+        Item item = new Item();
+        item.sku = "sku-" + (i * 7919 % 1000);
+        item.quantity = i % 5 + 1;
+        item.price = 9.99 + i;
+        order.items.add(item);
+      }
+      return order;
+    }
+  }
+
+  /** An item of an {@link Order}. */
+  public static class Item {
+
+    public String sku;
+
+    public int quantity;
+
+    public double price;
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
+import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PublisherGrpc;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.PullRequest;
+import com.google.pubsub.v1.PullResponse;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.SubscriberGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process gRPC server faking the Pub/Sub publisher and subscriber services, so that
+ * benchmarks measure the client side only.
+ *
+ * <p>Publish requests succeed right away. Pull requests return as many copies of a fixed message
+ * as requested, up to a batch size. Streaming pulls deliver a fixed number of messages up front,
+ * then as many new messages as are acknowledged, so that the number of outstanding messages stays
+ * constant.
+ */
+class FakePubSubServer implements Closeable {
+
+  static final String PROJECT_ID = "benchmark";
+
+  static final String TOPIC = "benchmark-topic";
+
+  static final String SUBSCRIPTION = "benchmark-subscription";
+
+  private static final int MAX_PULL_BATCH_SIZE = 1000;
+
+  private static final int STREAMING_PULL_BATCH_SIZE = 100;
+
+  private final AtomicLong nextId = new AtomicLong();
+
+  private final AtomicLong acknowledgedCount = new AtomicLong();
+
+  private final Queue<StreamingPull> streamingPulls = new ConcurrentLinkedQueue<>();
+
+  private final PubsubMessage message;
+
+  private final int streamingPullWindow;
+
+  private final Server server;
+
+  private final ManagedChannel channel;
+
+  /**
+   * Start a server delivering messages with the given data and attributes.
+   *
+   * @param data the data of delivered messages
+   * @param attributes the attributes of delivered messages
+   * @param streamingPullWindow the number of messages outstanding on each streaming pull
+   * @throws IOException if the server can't start
+   */
+  FakePubSubServer(ByteString data, Map<String, String> attributes, int streamingPullWindow)
+      throws IOException {
+    this.message = PubsubMessage.newBuilder().setData(data).putAllAttributes(attributes).build();
+    this.streamingPullWindow = streamingPullWindow;
+    String serverName = InProcessServerBuilder.generateName();
+    this.server =
+        InProcessServerBuilder.forName(serverName)
+            .directExecutor()
+            .addService(new FakePublisher())
+            .addService(new FakeSubscriber())
+            .build()
+            .start();
+    this.channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+  }
+
+  DefaultPublisherFactory createPublisherFactory() {
+    DefaultPublisherFactory publisherFactory = new DefaultPublisherFactory(() -> PROJECT_ID);
+    publisherFactory.setChannelProvider(channelProvider());
+    publisherFactory.setCredentialsProvider(NoCredentialsProvider.create());
+    return publisherFactory;
+  }
+
+  DefaultSubscriberFactory createSubscriberFactory() {
+    PubSubConfiguration pubSubConfiguration = new PubSubConfiguration();
+    pubSubConfiguration.initialize(PROJECT_ID);
+    DefaultSubscriberFactory subscriberFactory =
+        new DefaultSubscriberFactory(() -> PROJECT_ID, pubSubConfiguration);
+    subscriberFactory.setChannelProvider(channelProvider());
+    subscriberFactory.setCredentialsProvider(NoCredentialsProvider.create());
+    return subscriberFactory;
+  }
+
+  long getAcknowledgedCount() {
+    return this.acknowledgedCount.get();
+  }
+
+  @Override
+  public void close() {
+    this.channel.shutdownNow();
+    this.server.shutdownNow();
+    try {
+      this.server.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private TransportChannelProvider channelProvider() {
+    // Fixed channels aren't closed along with the clients using them.
+    return FixedTransportChannelProvider.create(GrpcTransportChannel.create(this.channel));
+  }
+
+  private ReceivedMessage nextMessage() {
+    String id = Long.toString(this.nextId.incrementAndGet());
+    return ReceivedMessage.newBuilder()
+        .setAckId(id)
+        .setMessage(this.message.toBuilder().setMessageId(id))
+        .build();
+  }
+
+  private final class FakePublisher extends PublisherGrpc.PublisherImplBase {
+
+    @Override
+    public void publish(PublishRequest request, StreamObserver<PublishResponse> responseObserver) {
+      PublishResponse.Builder response = PublishResponse.newBuilder();
+      for (int i = 0; i < request.getMessagesCount(); i++) {
+        response.addMessageIds(Long.toString(FakePubSubServer.this.nextId.incrementAndGet()));
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+  }
+
+  private final class FakeSubscriber extends SubscriberGrpc.SubscriberImplBase {
+
+    @Override
+    public void pull(PullRequest request, StreamObserver<PullResponse> responseObserver) {
+      int count = Math.min(request.getMaxMessages(), MAX_PULL_BATCH_SIZE);
+      PullResponse.Builder response = PullResponse.newBuilder();
+      for (int i = 0; i < count; i++) {
+        response.addReceivedMessages(nextMessage());
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void acknowledge(AcknowledgeRequest request, StreamObserver<Empty> responseObserver) {
+      onAcknowledged(request.getAckIdsCount());
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void modifyAckDeadline(
+        ModifyAckDeadlineRequest request, StreamObserver<Empty> responseObserver) {
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<StreamingPullRequest> streamingPull(
+        StreamObserver<StreamingPullResponse> responseObserver) {
+      StreamingPull streamingPull = new StreamingPull(responseObserver);
+      return new StreamObserver<>() {
+        @Override
+        public void onNext(StreamingPullRequest request) {
+          if (!request.getSubscription().isEmpty()) {
+            FakePubSubServer.this.streamingPulls.add(streamingPull);
+            streamingPull.deliver(FakePubSubServer.this.streamingPullWindow);
+          }
+          onAcknowledged(request.getAckIdsCount());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          FakePubSubServer.this.streamingPulls.remove(streamingPull);
+        }
+
+        @Override
+        public void onCompleted() {
+          FakePubSubServer.this.streamingPulls.remove(streamingPull);
+          streamingPull.complete();
+        }
+      };
+    }
+
+    /** Replace acknowledged messages with new ones, on the next streaming pull in turn. */
+    private void onAcknowledged(int count) {
+      if (count == 0) {
+        return;
+      }
+      FakePubSubServer.this.acknowledgedCount.addAndGet(count);
+      StreamingPull streamingPull = FakePubSubServer.this.streamingPulls.poll();
+      if (streamingPull != null) {
+        FakePubSubServer.this.streamingPulls.add(streamingPull);
+        streamingPull.deliver(count);
+      }
+    }
+  }
+
+  /** The response stream of a streaming pull, which isn't thread-safe. */
+  private final class StreamingPull {
+
+    private final StreamObserver<StreamingPullResponse> responseObserver;
+
+    private boolean completed;
+
+    private StreamingPull(StreamObserver<StreamingPullResponse> responseObserver) {
+      this.responseObserver = responseObserver;
+    }
+
+    private synchronized void deliver(int count) {
+      for (int delivered = 0; delivered < count && !this.completed; ) {
+        int batchSize = Math.min(count - delivered, STREAMING_PULL_BATCH_SIZE);
+        StreamingPullResponse.Builder response = StreamingPullResponse.newBuilder();
+        for (int i = 0; i < batchSize; i++) {
+          response.addReceivedMessages(nextMessage());
+        }
+        this.responseObserver.onNext(response.build());
+        delivered += batchSize;
+      }
+    }
+
+    private synchronized void complete() {
+      if (!this.completed) {
+        this.completed = true;
+        this.responseObserver.onCompleted();
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.MessageHeaders;
+
+/** Throughput of the {@link PubSubHeaderMapper}, with its default header patterns. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HeaderMapperBenchmark {
+
+  @Param({"5", "20"})
+  private int headerCount;
+
+  private final PubSubHeaderMapper headerMapper = new PubSubHeaderMapper();
+
+  private MessageHeaders messageHeaders;
+
+  private Map<String, String> attributes;
+
+  @Setup
+  public void setUp() {
+    this.attributes = Payloads.attributes(this.headerCount);
+    this.messageHeaders = new MessageHeaders(new HashMap<>(this.attributes));
+  }
+
+  @Benchmark
+  public Map<String, String> fromHeaders() {
+    Map<String, String> mapped = new HashMap<>();
+    this.headerMapper.fromHeaders(this.messageHeaders, mapped);
+    return mapped;
+  }
+
+  @Benchmark
+  public Map<String, Object> toHeaders() {
+    return this.headerMapper.toHeaders(this.attributes);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.integration.channel.DirectChannel;
+
+/**
+ * Throughput of messages delivered by streaming pull and dispatched by a {@link
+ * PubSubInboundChannelAdapter} to its output channel, acknowledged automatically.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class InboundChannelAdapterBenchmark {
+
+  private static final int MESSAGES_PER_INVOCATION = 1000;
+
+  /** The number of ordering key dispatch lanes; 0 to handle messages on subscriber threads. */
+  @Param({"0", "4"})
+  private int dispatchLanes;
+
+  private final AtomicLong handledCount = new AtomicLong();
+
+  private FakePubSubServer server;
+
+  private PubSubSubscriberTemplate subscriberTemplate;
+
+  private PubSubInboundChannelAdapter adapter;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.server = new FakePubSubServer(Payloads.bytes(1000), Payloads.attributes(5), 1000);
+    this.subscriberTemplate = new PubSubSubscriberTemplate(this.server.createSubscriberFactory());
+
+    DirectChannel outputChannel = new DirectChannel();
+    outputChannel.subscribe(message -> this.handledCount.incrementAndGet());
+    this.adapter =
+        new PubSubInboundChannelAdapter(this.subscriberTemplate, FakePubSubServer.SUBSCRIPTION);
+    this.adapter.setOutputChannel(outputChannel);
+    if (this.dispatchLanes > 0) {
+      this.adapter.setOrderingKeyDispatch(this.dispatchLanes, 100);
+    }
+    this.adapter.afterPropertiesSet();
+    this.adapter.start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.adapter.stop();
+    this.subscriberTemplate.destroy();
+    this.server.close();
+  }
+
+  /** Wait for a number of messages to be handled. */
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+  public void dispatch() {
+    long target = this.handledCount.get() + MESSAGES_PER_INVOCATION;
+    while (this.handledCount.get() < target) {
+      Thread.onSpinWait();
+    }
+  }
+}
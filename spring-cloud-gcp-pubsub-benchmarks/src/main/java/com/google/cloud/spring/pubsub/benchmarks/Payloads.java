@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.protobuf.ByteString;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Payloads and attributes shared by the benchmarks. */
+final class Payloads {
+
+  private Payloads() {}
+
+  /**
+   * Create a JSON-like payload of the given size, compressing about as well as typical JSON.
+   *
+   * @param size the size of the payload, in bytes
+   * @return the payload
+   */
+  static ByteString bytes(int size) {
+    StringBuilder json = new StringBuilder(size + 64);
+    for (int i = 0; json.length() < size; i++) {
+      json.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i * 7919 % 1000)
+          .append("\"},");
+    }
+    return ByteString.copyFrom(json.substring(0, size), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Create message attributes, as set by a typical application.
+   *
+   * @param count the number of attributes
+   * @return the attributes
+   */
+  static Map<String, String> attributes(int count) {
+    Map<String, String> attributes = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      attributes.put("attribute-" + i, "value-" + i);
+    }
+    return attributes;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Throughput of {@link PubSubPublisherTemplate#publish}, with the default batching settings. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PublisherBenchmark {
+
+  private static final int MESSAGES_PER_INVOCATION = 100;
+
+  @Param({"100", "10000"})
+  private int payloadBytes;
+
+  private FakePubSubServer server;
+
+  private DefaultPublisherFactory publisherFactory;
+
+  private PubSubPublisherTemplate publisherTemplate;
+
+  private byte[] payload;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.server = new FakePubSubServer(Payloads.bytes(0), Collections.emptyMap(), 0);
+    this.publisherFactory = this.server.createPublisherFactory();
+    this.publisherTemplate = new PubSubPublisherTemplate(this.publisherFactory);
+    this.payload = Payloads.bytes(this.payloadBytes).toByteArray();
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    Publisher publisher = this.publisherFactory.createPublisher(FakePubSubServer.TOPIC);
+    publisher.shutdown();
+    publisher.awaitTermination(10, TimeUnit.SECONDS);
+    this.server.close();
+  }
+
+  /** Publish a batch of messages and wait for all of them to be published. */
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+  public void publish() {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[MESSAGES_PER_INVOCATION];
+    for (int i = 0; i < MESSAGES_PER_INVOCATION; i++) {
+      futures[i] = this.publisherTemplate.publish(FakePubSubServer.TOPIC, this.payload);
+    }
+    CompletableFuture.allOf(futures).join();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.reactive.PubSubReactiveFactory;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/** Throughput of the {@link PubSubReactiveFactory#poll} Flux, with bounded demand. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReactiveBenchmark {
+
+  private static final int MESSAGES_PER_INVOCATION = 1000;
+
+  private FakePubSubServer server;
+
+  private PubSubSubscriberTemplate subscriberTemplate;
+
+  private Scheduler scheduler;
+
+  private PubSubReactiveFactory reactiveFactory;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.server = new FakePubSubServer(Payloads.bytes(1000), Payloads.attributes(5), 0);
+    this.subscriberTemplate = new PubSubSubscriberTemplate(this.server.createSubscriberFactory());
+    this.scheduler = Schedulers.newSingle("benchmark-poll");
+    this.reactiveFactory = new PubSubReactiveFactory(this.subscriberTemplate, this.scheduler);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.scheduler.dispose();
+    this.subscriberTemplate.destroy();
+    this.server.close();
+  }
+
+  /** Take messages from the Flux, requesting a batch at a time, and acknowledge them. */
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+  public void poll() {
+    List<AcknowledgeablePubsubMessage> messages =
+        this.reactiveFactory
+            .poll(FakePubSubServer.SUBSCRIPTION, 10)
+            .limitRate(100)
+            .take(MESSAGES_PER_INVOCATION)
+            .collectList()
+            .block();
+    this.subscriberTemplate.ack(messages).join();
+  }
+}
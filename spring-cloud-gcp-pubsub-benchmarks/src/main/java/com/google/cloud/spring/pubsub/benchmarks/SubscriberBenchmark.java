@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link PubSubSubscriberTemplate#pull} followed by {@link
+ * PubSubSubscriberTemplate#ack} of the pulled messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SubscriberBenchmark {
+
+  private static final int MESSAGES_PER_INVOCATION = 100;
+
+  @Param({"100", "10000"})
+  private int payloadBytes;
+
+  private FakePubSubServer server;
+
+  private PubSubSubscriberTemplate subscriberTemplate;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.server =
+        new FakePubSubServer(Payloads.bytes(this.payloadBytes), Payloads.attributes(5), 0);
+    this.subscriberTemplate = new PubSubSubscriberTemplate(this.server.createSubscriberFactory());
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.subscriberTemplate.destroy();
+    this.server.close();
+  }
+
+  /** Pull a batch of messages and acknowledge them. */
+  @Benchmark
+  @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+  public List<AcknowledgeablePubsubMessage> pullAndAck()
+      throws InterruptedException, ExecutionException {
+    List<AcknowledgeablePubsubMessage> messages =
+        this.subscriberTemplate.pull(
+            FakePubSubServer.SUBSCRIPTION, MESSAGES_PER_INVOCATION, true);
+    this.subscriberTemplate.ack(messages).get();
+    return messages;
+  }
+}
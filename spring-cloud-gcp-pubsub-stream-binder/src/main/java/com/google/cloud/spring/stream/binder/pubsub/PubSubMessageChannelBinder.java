@@ -22,10 +22,13 @@ import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubMessageSource;
 import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
+import com.google.cloud.spring.pubsub.integration.outbound.PubSubSpillBuffer;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubProducerProperties;
 import com.google.cloud.spring.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import java.nio.file.Path;
 import org.springframework.cloud.stream.binder.AbstractMessageChannelBinder;
 import org.springframework.cloud.stream.binder.BinderSpecificPropertiesProvider;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
@@ -46,6 +49,9 @@ public class PubSubMessageChannelBinder
     implements ExtendedPropertiesBinder<
         MessageChannel, PubSubConsumerProperties, PubSubProducerProperties> {
 
+  /** Size of the segment files of spill buffers, unless their maximum size is smaller. */
+  private static final int SPILL_SEGMENT_BYTES = 64 * 1024 * 1024;
+
   private final PubSubTemplate pubSubTemplate;
 
   private final PubSubExtendedBindingProperties pubSubExtendedBindingProperties;
@@ -54,6 +60,8 @@ public class PubSubMessageChannelBinder
 
   private HealthTrackerRegistry healthTrackerRegistry;
 
+  private PubSubMetricsRecorder metricsRecorder;
+
   public PubSubMessageChannelBinder(
       String[] headersToEmbed,
       PubSubChannelProvisioner provisioningProvider,
@@ -70,6 +78,17 @@ public class PubSubMessageChannelBinder
     this.healthTrackerRegistry = healthTrackerRegistry;
   }
 
+  /**
+   * Set the metrics recorder of the inbound channel adapters and message sources created by this
+   * binder.
+   *
+   * @param metricsRecorder the metrics recorder
+   * @since 4.1.5
+   */
+  public void setMetricsRecorder(PubSubMetricsRecorder metricsRecorder) {
+    this.metricsRecorder = metricsRecorder;
+  }
+
   @Override
   protected MessageHandler createProducerMessageHandler(
       ProducerDestination destination,
@@ -85,6 +104,16 @@ public class PubSubMessageChannelBinder
       messageHandler.setHeaderMapper(headerMapper);
     }
 
+    if (props != null && props.getSpillDirectory() != null) {
+      long spillMaxBytes = props.getSpillMaxBytes();
+      PubSubSpillBuffer spillBuffer =
+          new PubSubSpillBuffer(
+              Path.of(props.getSpillDirectory(), destination.getName()),
+              (int) Math.min(SPILL_SEGMENT_BYTES, spillMaxBytes),
+              spillMaxBytes);
+      messageHandler.setSpillBuffer(spillBuffer, this.pubSubTemplate.getMessageConverter());
+    }
+
     messageHandler.setBeanFactory(getBeanFactory());
     messageHandler.setSync(producerProperties.getExtension().isSync());
     return messageHandler;
@@ -110,10 +139,24 @@ public class PubSubMessageChannelBinder
       adapter.setHealthTrackerRegistry(healthTrackerRegistry);
     }
 
+    if (this.metricsRecorder != null) {
+      adapter.setMetricsRecorder(this.metricsRecorder);
+    }
+
     ErrorInfrastructure errorInfrastructure =
         registerErrorInfrastructure(destination, group, properties);
     adapter.setErrorChannel(errorInfrastructure.getErrorChannel());
     adapter.setAckMode(properties.getExtension().getAckMode());
+    if (properties.isBatchMode()) {
+      adapter.setBatchMode(
+          properties.getExtension().getBatchMaxSize(),
+          properties.getExtension().getBatchMaxBytes(),
+          properties.getExtension().getBatchTimeout());
+    } else if (properties.getExtension().getOrderingKeyDispatchLanes() != null) {
+      adapter.setOrderingKeyDispatch(
+          properties.getExtension().getOrderingKeyDispatchLanes(),
+          properties.getExtension().getOrderingKeyDispatchLaneCapacity());
+    }
     adapter.setBeanFactory(getBeanFactory());
 
     return adapter;
@@ -173,6 +216,14 @@ public class PubSubMessageChannelBinder
     PubSubMessageSource source =
         new PubSubMessageSource(this.pubSubTemplate, destination.getName());
     source.setMaxFetchSize(consumerProperties.getExtension().getMaxFetchSize());
+    if (this.metricsRecorder != null) {
+      source.setMetricsRecorder(this.metricsRecorder);
+    }
+    Integer prefetchBufferSize = consumerProperties.getExtension().getPrefetchBufferSize();
+    if (prefetchBufferSize != null) {
+      source.setPrefetch(
+          prefetchBufferSize, consumerProperties.getExtension().getPrefetchAckDeadlineSeconds());
+    }
     return source;
   }
 }
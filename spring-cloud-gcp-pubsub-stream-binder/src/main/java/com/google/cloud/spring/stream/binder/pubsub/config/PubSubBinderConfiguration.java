@@ -21,6 +21,7 @@ import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
 import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.stream.binder.pubsub.PubSubMessageChannelBinder;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
 import com.google.cloud.spring.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
@@ -37,6 +38,7 @@ import org.springframework.cloud.stream.config.ProducerMessageHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.Nullable;
+import org.springframework.messaging.converter.ProtobufMessageConverter;
 
 /** Pub/Sub binder configuration. */
 @Configuration(proxyBeanMethods = false)
@@ -58,7 +60,8 @@ public class PubSubBinderConfiguration {
       PubSubExtendedBindingProperties pubSubExtendedBindingProperties,
       @Nullable ProducerMessageHandlerCustomizer<PubSubMessageHandler> producerCustomizer,
       @Nullable ConsumerEndpointCustomizer<PubSubInboundChannelAdapter> consumerCustomizer,
-      @Nullable HealthTrackerRegistry healthTrackerRegistry) {
+      @Nullable HealthTrackerRegistry healthTrackerRegistry,
+      @Nullable PubSubMetricsRecorder metricsRecorder) {
     PubSubMessageChannelBinder binder =
         new PubSubMessageChannelBinder(
             null, pubSubChannelProvisioner, pubSubTemplate, pubSubExtendedBindingProperties);
@@ -69,9 +72,26 @@ public class PubSubBinderConfiguration {
       binder.setHealthTrackerRegistry(healthTrackerRegistry);
     }
 
+    if (metricsRecorder != null) {
+      binder.setMetricsRecorder(metricsRecorder);
+    }
+
     return binder;
   }
 
+  /**
+   * Converts Protocol Buffers payloads of bindings with the {@code application/x-protobuf} content
+   * type, or the {@code application/json} one.
+   *
+   * @return the message converter added to those of Spring Cloud Stream
+   * @since 4.1.5
+   */
+  @Bean
+  @ConditionalOnMissingBean(ProtobufMessageConverter.class)
+  public ProtobufMessageConverter pubSubProtobufMessageConverter() {
+    return new ProtobufMessageConverter();
+  }
+
   @Bean
   public MappingsProvider pubSubExtendedPropertiesDefaultMappingsProvider() {
     return () ->
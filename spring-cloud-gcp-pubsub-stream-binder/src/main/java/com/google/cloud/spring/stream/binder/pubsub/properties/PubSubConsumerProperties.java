@@ -17,6 +17,7 @@
 package com.google.cloud.spring.stream.binder.pubsub.properties;
 
 import com.google.cloud.spring.pubsub.integration.AckMode;
+import java.time.Duration;
 
 /** Consumer properties for Pub/Sub. */
 public class PubSubConsumerProperties extends PubSubCommonProperties {
@@ -29,6 +30,43 @@ public class PubSubConsumerProperties extends PubSubCommonProperties {
 
   private DeadLetterPolicy deadLetterPolicy = null;
 
+  /**
+   * Maximum number of messages in a batch, when {@code batch-mode} is enabled for the consumer
+   * binding.
+   */
+  private Integer batchMaxSize = 100;
+
+  /**
+   * Maximum size of the serialized messages of a batch in bytes, when {@code batch-mode} is
+   * enabled for the consumer binding.
+   */
+  private Long batchMaxBytes = 10_000_000L;
+
+  /**
+   * Maximum amount of time a message waits for its batch to be sent downstream, when {@code
+   * batch-mode} is enabled for the consumer binding.
+   */
+  private Duration batchTimeout = Duration.ofSeconds(1);
+
+  /**
+   * Number of messages polled consumers keep prefetched in the background, with their ack deadline
+   * extended. Prefetching is disabled when not set.
+   */
+  private Integer prefetchBufferSize = null;
+
+  /** Ack deadline prefetched messages are extended to, in seconds. */
+  private Integer prefetchAckDeadlineSeconds = 60;
+
+  /**
+   * Number of lanes messages are handled on, by ordering key, so that messages with different
+   * ordering keys are handled concurrently and in order for each key. Handled on the subscriber
+   * threads when not set.
+   */
+  private Integer orderingKeyDispatchLanes = null;
+
+  /** Maximum number of messages waiting or being handled in each ordering key dispatch lane. */
+  private Integer orderingKeyDispatchLaneCapacity = 100;
+
   public AckMode getAckMode() {
     return ackMode;
   }
@@ -61,6 +99,62 @@ public class PubSubConsumerProperties extends PubSubCommonProperties {
     this.deadLetterPolicy = deadLetterPolicy;
   }
 
+  public Integer getBatchMaxSize() {
+    return batchMaxSize;
+  }
+
+  public void setBatchMaxSize(Integer batchMaxSize) {
+    this.batchMaxSize = batchMaxSize;
+  }
+
+  public Long getBatchMaxBytes() {
+    return batchMaxBytes;
+  }
+
+  public void setBatchMaxBytes(Long batchMaxBytes) {
+    this.batchMaxBytes = batchMaxBytes;
+  }
+
+  public Duration getBatchTimeout() {
+    return batchTimeout;
+  }
+
+  public void setBatchTimeout(Duration batchTimeout) {
+    this.batchTimeout = batchTimeout;
+  }
+
+  public Integer getPrefetchBufferSize() {
+    return prefetchBufferSize;
+  }
+
+  public void setPrefetchBufferSize(Integer prefetchBufferSize) {
+    this.prefetchBufferSize = prefetchBufferSize;
+  }
+
+  public Integer getPrefetchAckDeadlineSeconds() {
+    return prefetchAckDeadlineSeconds;
+  }
+
+  public void setPrefetchAckDeadlineSeconds(Integer prefetchAckDeadlineSeconds) {
+    this.prefetchAckDeadlineSeconds = prefetchAckDeadlineSeconds;
+  }
+
+  public Integer getOrderingKeyDispatchLanes() {
+    return orderingKeyDispatchLanes;
+  }
+
+  public void setOrderingKeyDispatchLanes(Integer orderingKeyDispatchLanes) {
+    this.orderingKeyDispatchLanes = orderingKeyDispatchLanes;
+  }
+
+  public Integer getOrderingKeyDispatchLaneCapacity() {
+    return orderingKeyDispatchLaneCapacity;
+  }
+
+  public void setOrderingKeyDispatchLaneCapacity(Integer orderingKeyDispatchLaneCapacity) {
+    this.orderingKeyDispatchLaneCapacity = orderingKeyDispatchLaneCapacity;
+  }
+
   public static class DeadLetterPolicy {
     private String deadLetterTopic;
 
@@ -20,6 +20,15 @@ package com.google.cloud.spring.stream.binder.pubsub.properties;
 public class PubSubProducerProperties extends PubSubCommonProperties {
   private boolean sync = false;
 
+  /**
+   * Directory where messages that fail to publish are spilled, in a subdirectory named after the
+   * destination, to be published again in the background. Spilling is disabled when not set.
+   */
+  private String spillDirectory = null;
+
+  /** Maximum size of the spilled messages of a producer binding, in bytes. */
+  private Long spillMaxBytes = 1_073_741_824L;
+
   public boolean isSync() {
     return sync;
   }
@@ -27,4 +36,20 @@ public class PubSubProducerProperties extends PubSubCommonProperties {
   public void setSync(boolean sync) {
     this.sync = sync;
   }
+
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  public void setSpillDirectory(String spillDirectory) {
+    this.spillDirectory = spillDirectory;
+  }
+
+  public Long getSpillMaxBytes() {
+    return spillMaxBytes;
+  }
+
+  public void setSpillMaxBytes(Long spillMaxBytes) {
+    this.spillMaxBytes = spillMaxBytes;
+  }
 }
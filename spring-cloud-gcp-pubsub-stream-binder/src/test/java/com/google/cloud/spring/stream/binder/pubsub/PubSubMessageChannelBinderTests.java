@@ -32,10 +32,15 @@ import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubMessageSource;
 import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
+import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
 import com.google.cloud.spring.stream.binder.pubsub.config.PubSubBinderConfiguration;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
 import com.google.cloud.spring.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -47,6 +52,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.DirectFieldAccessor;
@@ -159,6 +165,34 @@ class PubSubMessageChannelBinderTests {
             });
   }
 
+  @Test
+  void producerSpillDirectoryPropagatesToMessageHandler(@TempDir Path spillDirectory) {
+    when(producerDestination.getName()).thenReturn("test-topic");
+    when(pubSubTemplate.getMessageConverter()).thenReturn(new SimplePubSubMessageConverter());
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.default.producer.spill-directory=" + spillDirectory,
+            "spring.cloud.stream.gcp.pubsub.default.producer.spill-max-bytes=1048576")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+              PubSubMessageHandler messageHandler =
+                  (PubSubMessageHandler)
+                      binder.createProducerMessageHandler(
+                          producerDestination,
+                          new ExtendedProducerProperties<>(
+                              props.getExtendedProducerProperties("test")),
+                          errorChannel);
+              assertThat(FieldUtils.readField(messageHandler, "spillBuffer", true)).isNotNull();
+              assertThat(Files.isDirectory(spillDirectory.resolve("test-topic"))).isTrue();
+              messageHandler.destroy();
+            });
+  }
+
   @Test
   void producerHeaderPropertyPropagatesToMessageHandler() {
     when(producerDestination.getName()).thenReturn("test-topic");
@@ -216,6 +250,31 @@ class PubSubMessageChannelBinderTests {
             });
   }
 
+  @Test
+  void consumerPrefetchPropertiesPropagateToMessageSource() {
+    when(consumerDestination.getName()).thenReturn("test-subscription");
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.default.consumer.prefetch-buffer-size=500",
+            "spring.cloud.stream.gcp.pubsub.default.consumer.prefetch-ack-deadline-seconds=120")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              PubSubMessageSource source =
+                  binder.createPubSubMessageSource(
+                      consumerDestination,
+                      new ExtendedConsumerProperties<>(
+                          props.getExtendedConsumerProperties("test")));
+              assertThat(FieldUtils.readField(source, "prefetchBufferSize", true)).isEqualTo(500);
+              assertThat(FieldUtils.readField(source, "prefetchAckDeadlineSeconds", true))
+                  .isEqualTo(120);
+            });
+  }
+
   @Test
   void testCreateConsumerWithRegistry() {
     when(consumerDestination.getName()).thenReturn("test-subscription");
@@ -240,6 +299,107 @@ class PubSubMessageChannelBinderTests {
         });
   }
 
+  @Test
+  void metricsRecorderPropagatesToConsumers() {
+    when(consumerDestination.getName()).thenReturn("test-subscription");
+    PubSubMetricsRecorder metricsRecorder = mock(PubSubMetricsRecorder.class);
+    baseContext.run(
+        ctx -> {
+          PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+          PubSubExtendedBindingProperties props =
+              ctx.getBean("pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+          binder.setMetricsRecorder(metricsRecorder);
+
+          MessageProducer messageProducer =
+              binder.createConsumerEndpoint(
+                  consumerDestination,
+                  "testGroup",
+                  new ExtendedConsumerProperties<>(props.getExtendedConsumerProperties("test")));
+          PubSubMessageSource source =
+              binder.createPubSubMessageSource(
+                  consumerDestination,
+                  new ExtendedConsumerProperties<>(props.getExtendedConsumerProperties("test")));
+
+          assertThat(FieldUtils.readField(messageProducer, "metricsRecorder", true))
+              .isSameAs(metricsRecorder);
+          assertThat(FieldUtils.readField(source, "metricsRecorder", true))
+              .isSameAs(metricsRecorder);
+        });
+  }
+
+  @Test
+  void consumerBatchModePropagatesToAdapter() {
+    when(consumerDestination.getName()).thenReturn("test-subscription");
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.default.consumer.batch-max-size=50",
+            "spring.cloud.stream.gcp.pubsub.default.consumer.batch-timeout=200ms")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties =
+                  new ExtendedConsumerProperties<>(props.getExtendedConsumerProperties("test"));
+              PubSubInboundChannelAdapter adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination, "testGroup", consumerProperties);
+              assertThat(adapter.isBatchMode()).isFalse();
+
+              consumerProperties.setBatchMode(true);
+              adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination, "testGroup", consumerProperties);
+              assertThat(adapter.isBatchMode()).isTrue();
+              assertThat(FieldUtils.readField(adapter, "maxBatchSize", true)).isEqualTo(50);
+              assertThat(FieldUtils.readField(adapter, "maxBatchBytes", true))
+                  .isEqualTo(10_000_000L);
+              assertThat(FieldUtils.readField(adapter, "maxBatchDelay", true))
+                  .isEqualTo(Duration.ofMillis(200));
+            });
+  }
+
+  @Test
+  void consumerOrderingKeyDispatchPropagatesToAdapter() {
+    when(consumerDestination.getName()).thenReturn("test-subscription");
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.bindings.ordered.consumer.ordering-key-dispatch-lanes=8",
+            "spring.cloud.stream.gcp.pubsub.bindings.ordered.consumer.ordering-key-dispatch-lane-capacity=20")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              PubSubInboundChannelAdapter adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination,
+                          "testGroup",
+                          new ExtendedConsumerProperties<>(
+                              props.getExtendedConsumerProperties("test")));
+              assertThat(adapter.isOrderingKeyDispatch()).isFalse();
+
+              adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination,
+                          "testGroup",
+                          new ExtendedConsumerProperties<>(
+                              props.getExtendedConsumerProperties("ordered")));
+              assertThat(adapter.isOrderingKeyDispatch()).isTrue();
+              assertThat(FieldUtils.readField(adapter, "dispatchLaneCount", true)).isEqualTo(8);
+              assertThat(FieldUtils.readField(adapter, "dispatchLaneCapacity", true))
+                  .isEqualTo(20);
+            });
+  }
+
   @Test
   void testProducerAndConsumerCustomizers() {
     baseContext
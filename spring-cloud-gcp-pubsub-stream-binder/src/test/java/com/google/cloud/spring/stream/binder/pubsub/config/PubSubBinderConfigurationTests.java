@@ -33,6 +33,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.converter.ProtobufMessageConverter;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -72,6 +73,19 @@ class PubSubBinderConfigurationTests {
     baseContext.run(ctx -> assertThat(ctx).hasSingleBean(PubSubChannelProvisioner.class));
   }
 
+  @Test
+  void testProtobufMessageConverterRegistered() {
+    ApplicationContextRunner baseContext =
+        new ApplicationContextRunner()
+            .withConfiguration(
+                AutoConfigurations.of(
+                    GcpContextAutoConfiguration.class,
+                    GcpPubSubAutoConfiguration.class,
+                    PubSubBinderConfiguration.class))
+            .withUserConfiguration(TestConfiguration.class);
+    baseContext.run(ctx -> assertThat(ctx).hasSingleBean(ProtobufMessageConverter.class));
+  }
+
   @Test
   void testBinderDisabled() {
     ApplicationContextRunner baseContext =
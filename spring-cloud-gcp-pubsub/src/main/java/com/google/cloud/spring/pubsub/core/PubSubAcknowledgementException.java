@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core;
+
+import com.google.cloud.pubsub.v1.AckResponse;
+import java.util.Collections;
+import java.util.Map;
+import org.springframework.lang.Nullable;
+
+/**
+ * The Spring Google Cloud Pub/Sub specific {@link PubSubException}. Reports the ack IDs of pulled
+ * messages that couldn't be acknowledged, nacked or have their ack deadline modified.
+ *
+ * <p>On subscriptions with exactly-once delivery, Pub/Sub reports the outcome of each ack ID of a
+ * request. Ack IDs of the request that aren't listed by {@link #getFailedAckIds()} succeeded.
+ *
+ * @since 4.1.5
+ */
+public class PubSubAcknowledgementException extends PubSubException {
+
+  private final Map<String, AckResponse> failedAckIds;
+
+  public PubSubAcknowledgementException(
+      String msg, Map<String, AckResponse> failedAckIds, @Nullable Throwable cause) {
+    super(msg, cause);
+    this.failedAckIds = Collections.unmodifiableMap(failedAckIds);
+  }
+
+  /**
+   * Get the ack IDs that failed, along with the reason they failed. {@link AckResponse#INVALID}
+   * means that the ack ID expired or is unknown; the message might be redelivered.
+   *
+   * @return the failed ack IDs, mapped to the reason they failed
+   */
+  public Map<String, AckResponse> getFailedAckIds() {
+    return this.failedAckIds;
+  }
+}
@@ -18,8 +18,11 @@ package com.google.cloud.spring.pubsub.core;
 
 import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import com.google.api.gax.rpc.StatusCode.Code;
+import com.google.cloud.spring.pubsub.core.publisher.PublishLimitExceededBehavior;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
+import com.google.cloud.spring.pubsub.support.PubSubTopicUtils;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.TopicName;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -53,12 +56,36 @@ public class PubSubConfiguration {
   /** Contains global and default subscriber settings. */
   private final Subscriber globalSubscriber = new Subscriber();
 
+  /**
+   * Automatically extracted user-provided properties. Contains only user-provided topic keys,
+   * therefore do not use except in initialize().
+   */
+  private Map<String, Publisher> topic = new HashMap<>();
+
+  /** Publisher properties keyed by fully qualified topic name.
+   * Initialized once; effectively a singleton.
+   */
+  private Map<TopicName, Publisher> fullyQualifiedTopicProperties;
+
   /** Contains default publisher settings. */
   private final Publisher publisher = new Publisher();
 
+  /** Contains publisher cache settings. */
+  private final PublisherCache publisherCache = new PublisherCache();
+
+  /** Contains adaptive publisher batching settings. */
+  private final PublisherAdaptiveBatching publisherAdaptiveBatching =
+      new PublisherAdaptiveBatching();
+
   /** Contains default health settings. */
   private final Health health = new Health();
 
+  /** Contains metrics settings. */
+  private final Metrics metrics = new Metrics();
+
+  /** Contains shared channel pool settings. */
+  private final ChannelPool channelPool = new ChannelPool();
+
   public Subscriber getSubscriber() {
     return this.globalSubscriber;
   }
@@ -67,10 +94,26 @@ public class PubSubConfiguration {
     return this.publisher;
   }
 
+  public PublisherCache getPublisherCache() {
+    return this.publisherCache;
+  }
+
+  public PublisherAdaptiveBatching getPublisherAdaptiveBatching() {
+    return this.publisherAdaptiveBatching;
+  }
+
   public Health getHealth() {
     return health;
   }
 
+  public Metrics getMetrics() {
+    return this.metrics;
+  }
+
+  public ChannelPool getChannelPool() {
+    return this.channelPool;
+  }
+
   /**
    * This method will be called by Spring Framework when binding user properties.
    * Also potentially useful for tests.
@@ -84,6 +127,32 @@ public class PubSubConfiguration {
     this.subscription = subscriberProperties;
   }
 
+  /**
+   * This method will be called by Spring Framework when binding user properties.
+   * Also potentially useful for tests.
+   *
+   * @param publisherProperties map of user-defined topic-specific publisher properties.
+   */
+  public void setTopic(Map<String, Publisher> publisherProperties) {
+    Assert.isNull(this.fullyQualifiedTopicProperties,
+        "Pub/Sub properties have already been initialized; cannot update topic properties");
+
+    this.topic = publisherProperties;
+  }
+
+  /**
+   * Returns an immutable map of topic-specific publisher properties keyed by the fully-qualified
+   * {@link TopicName}.
+   *
+   * <p>Cannot be called before {@link #initialize(String)}.
+   *
+   * @return map of topic-specific publisher properties
+   */
+  public Map<TopicName, Publisher> getFullyQualifiedPublisherProperties() {
+    Assert.notNull(this.fullyQualifiedTopicProperties, "Please call initialize() prior to retrieving properties.");
+    return this.fullyQualifiedTopicProperties;
+  }
+
   /**
    * Returns an immutable map of subscription properties keyed by the fully-qualified
    * {@link ProjectSubscriptionName}.
@@ -99,12 +168,16 @@ public class PubSubConfiguration {
 
   /**
    * Standardizes all subscription properties to be keyed by their fully qualified subscription
-   * names. Not thread-safe.
+   * names, and all topic properties to be keyed by their fully qualified topic names. Not
+   * thread-safe.
    *
    * <p>If a `fully-qualified-name` property is present, it is used as a key for all subscription
    * properties under the same group. Otherwise, the provided configuration group key is assumed to
    * be the short subscription name in the current project.
    *
+   * <p>Topic property keys can either be short topic names in the current project, or
+   * fully-qualified topic names.
+   *
    * @param defaultProjectId Project to use with short subscription names
    */
   public void initialize(String defaultProjectId) {
@@ -130,6 +203,19 @@ public class PubSubConfiguration {
     }
 
     this.fullyQualifiedSubscriptionProperties = Collections.unmodifiableMap(fullyQualifiedProps);
+
+    Map<TopicName, Publisher> fullyQualifiedTopicProps = new HashMap<>();
+    for (Entry<String, Publisher> entry : this.topic.entrySet()) {
+      TopicName topicName = PubSubTopicUtils.toTopicName(entry.getKey(), defaultProjectId);
+      if (fullyQualifiedTopicProps.containsKey(topicName)) {
+        logger.warn("Found multiple configurations for {}; ignoring properties with key {}",
+            topicName, entry.getKey());
+      } else {
+        fullyQualifiedTopicProps.put(topicName, entry.getValue());
+      }
+    }
+
+    this.fullyQualifiedTopicProperties = Collections.unmodifiableMap(fullyQualifiedTopicProps);
   }
 
   /**
@@ -158,18 +244,9 @@ public class PubSubConfiguration {
    */
   public FlowControl computeSubscriberFlowControlSettings(ProjectSubscriptionName projectSubscriptionName) {
     FlowControl flowControl = getSubscriptionProperties(projectSubscriptionName).getFlowControl();
-    FlowControl globalFlowControl = this.globalSubscriber.getFlowControl();
     // It is possible for flowControl and globalFlowControl to be the same object.
     // In the future, can return it here if that's the case.
-    if (flowControl.getMaxOutstandingRequestBytes() == null) {
-      flowControl.setMaxOutstandingRequestBytes(globalFlowControl.getMaxOutstandingRequestBytes());
-    }
-    if (flowControl.getMaxOutstandingElementCount() == null) {
-      flowControl.setMaxOutstandingElementCount(globalFlowControl.getMaxOutstandingElementCount());
-    }
-    if (flowControl.getLimitExceededBehavior() == null) {
-      flowControl.setLimitExceededBehavior(globalFlowControl.getLimitExceededBehavior());
-    }
+    applyDefaults(flowControl, this.globalSubscriber.getFlowControl());
     return flowControl;
   }
 
@@ -301,7 +378,81 @@ public class PubSubConfiguration {
    */
   public Retry computeSubscriberRetrySettings(ProjectSubscriptionName projectSubscriptionName) {
     Retry retry = getSubscriptionProperties(projectSubscriptionName).getRetry();
-    Retry globalRetry = this.globalSubscriber.getRetry();
+    applyDefaults(retry, this.globalSubscriber.getRetry());
+    return retry;
+  }
+
+  /**
+   * Returns publisher properties for the specified fully-qualified {@link TopicName}.
+   *
+   * @param topicName fully-qualified {@link TopicName}
+   * @return user-provided topic-specific publisher properties, or the global publisher properties
+   *     if there are none
+   */
+  public Publisher getTopicProperties(TopicName topicName) {
+    Assert.notNull(this.fullyQualifiedTopicProperties, "Please call initialize() prior to retrieving properties.");
+
+    if (this.fullyQualifiedTopicProperties.containsKey(topicName)) {
+      return this.fullyQualifiedTopicProperties.get(topicName);
+    }
+
+    return this.publisher;
+  }
+
+  /**
+   * Computes the publisher batching settings. The topic-specific property takes precedence if both
+   * global and topic-specific properties are set. If topic-specific settings are not set then the
+   * global settings are picked.
+   *
+   * @param topicName fully qualified topic name
+   * @return batching settings defaulting to global where not provided
+   */
+  public Batching computePublisherBatchingSettings(TopicName topicName) {
+    Batching batching = getTopicProperties(topicName).getBatching();
+    Batching globalBatching = this.publisher.getBatching();
+    if (batching.getElementCountThreshold() == null) {
+      batching.setElementCountThreshold(globalBatching.getElementCountThreshold());
+    }
+    if (batching.getRequestByteThreshold() == null) {
+      batching.setRequestByteThreshold(globalBatching.getRequestByteThreshold());
+    }
+    if (batching.getDelayThresholdSeconds() == null) {
+      batching.setDelayThresholdSeconds(globalBatching.getDelayThresholdSeconds());
+    }
+    if (batching.getEnabled() == null) {
+      batching.setEnabled(globalBatching.getEnabled());
+    }
+    applyDefaults(batching.getFlowControl(), globalBatching.getFlowControl());
+    return batching;
+  }
+
+  /**
+   * Computes the publisher retry settings. The topic-specific property takes precedence if both
+   * global and topic-specific properties are set. If topic-specific settings are not set then the
+   * global settings are picked.
+   *
+   * @param topicName fully qualified topic name
+   * @return retry settings defaulting to global where not provided
+   */
+  public Retry computePublisherRetrySettings(TopicName topicName) {
+    Retry retry = getTopicProperties(topicName).getRetry();
+    applyDefaults(retry, this.publisher.getRetry());
+    return retry;
+  }
+
+  private static void applyDefaults(FlowControl flowControl, FlowControl globalFlowControl) {
+    if (flowControl.getMaxOutstandingRequestBytes() == null) {
+      flowControl.setMaxOutstandingRequestBytes(globalFlowControl.getMaxOutstandingRequestBytes());
+    }
+    if (flowControl.getMaxOutstandingElementCount() == null) {
+      flowControl.setMaxOutstandingElementCount(globalFlowControl.getMaxOutstandingElementCount());
+    }
+    if (flowControl.getLimitExceededBehavior() == null) {
+      flowControl.setLimitExceededBehavior(globalFlowControl.getLimitExceededBehavior());
+    }
+  }
+
+  private static void applyDefaults(Retry retry, Retry globalRetry) {
     if (retry.getTotalTimeoutSeconds() == null) {
       retry.setTotalTimeoutSeconds(globalRetry.getTotalTimeoutSeconds());
     }
@@ -329,14 +480,19 @@ public class PubSubConfiguration {
     if (retry.getMaxRpcTimeoutSeconds() == null) {
       retry.setMaxRpcTimeoutSeconds(globalRetry.getMaxRpcTimeoutSeconds());
     }
-    return retry;
   }
 
   /** Publisher settings. */
   public static class Publisher {
 
-    /** Number of threads used by every publisher. */
-    private int executorThreads = 4;
+    /**
+     * Number of threads used by every publisher. Topic-specific publisher settings get a dedicated
+     * thread pool only when set.
+     */
+    private int executorThreads = DEFAULT_EXECUTOR_THREADS;
+
+    /** Whether executor threads were set, which gives topic-specific publishers their own pool. */
+    private boolean executorThreadsSet;
 
     /** Retry properties. */
     private final Retry retry = new Retry();
@@ -344,6 +500,12 @@ public class PubSubConfiguration {
     /** Batching properties. */
     private final Batching batching = new Batching();
 
+    /**
+     * Flow control properties bounding the messages handed to publishers and not yet published.
+     * Only applied globally.
+     */
+    private final PublisherFlowControl flowControl = new PublisherFlowControl();
+
     /** Enable message ordering setting. */
     private Boolean enableMessageOrdering;
 
@@ -354,6 +516,10 @@ public class PubSubConfiguration {
       return this.batching;
     }
 
+    public PublisherFlowControl getFlowControl() {
+      return this.flowControl;
+    }
+
     public Retry getRetry() {
       return this.retry;
     }
@@ -364,6 +530,17 @@ public class PubSubConfiguration {
 
     public void setExecutorThreads(int executorThreads) {
       this.executorThreads = executorThreads;
+      this.executorThreadsSet = true;
+    }
+
+    /**
+     * Whether the number of executor threads was set, rather than left to its default.
+     *
+     * @return true if {@link #setExecutorThreads(int)} was called
+     * @since 4.1.5
+     */
+    public boolean hasExecutorThreads() {
+      return this.executorThreadsSet;
     }
 
     public Boolean getEnableMessageOrdering() {
@@ -383,6 +560,262 @@ public class PubSubConfiguration {
     }
   }
 
+  /** Publisher flow control settings. */
+  public static class PublisherFlowControl {
+
+    /** Maximum number of messages handed to publishers and not yet published. */
+    private Long maxOutstandingElementCount;
+
+    /** Maximum size, in bytes, of messages handed to publishers and not yet published. */
+    private Long maxOutstandingRequestBytes;
+
+    /** The behavior when publishing a message would exceed the limits. */
+    private PublishLimitExceededBehavior limitExceededBehavior = PublishLimitExceededBehavior.BLOCK;
+
+    public Long getMaxOutstandingElementCount() {
+      return this.maxOutstandingElementCount;
+    }
+
+    public void setMaxOutstandingElementCount(Long maxOutstandingElementCount) {
+      this.maxOutstandingElementCount = maxOutstandingElementCount;
+    }
+
+    public Long getMaxOutstandingRequestBytes() {
+      return this.maxOutstandingRequestBytes;
+    }
+
+    public void setMaxOutstandingRequestBytes(Long maxOutstandingRequestBytes) {
+      this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+    }
+
+    public PublishLimitExceededBehavior getLimitExceededBehavior() {
+      return this.limitExceededBehavior;
+    }
+
+    public void setLimitExceededBehavior(PublishLimitExceededBehavior limitExceededBehavior) {
+      this.limitExceededBehavior = limitExceededBehavior;
+    }
+  }
+
+  /** Publisher cache settings. */
+  public static class PublisherCache {
+
+    /**
+     * Maximum number of publishers kept in the cache. When exceeded, the least recently used
+     * publisher is shut down and evicted. Unlimited if not set.
+     */
+    private Integer maxSize;
+
+    /**
+     * Time, in seconds, after which an unused publisher is shut down and evicted from the cache.
+     * Publishers are never evicted for being idle if not set.
+     */
+    private Long idleTimeoutSeconds;
+
+    public Integer getMaxSize() {
+      return this.maxSize;
+    }
+
+    public void setMaxSize(Integer maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public Long getIdleTimeoutSeconds() {
+      return this.idleTimeoutSeconds;
+    }
+
+    public void setIdleTimeoutSeconds(Long idleTimeoutSeconds) {
+      this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+  }
+
+  /** Adaptive publisher batching settings. */
+  public static class PublisherAdaptiveBatching {
+
+    /**
+     * Tunes the element count and delay thresholds of every publisher to its observed publish rate
+     * if true. Topics with topic-specific batching settings or message ordering are not tuned.
+     */
+    private boolean enabled;
+
+    /** The element count threshold used under light traffic. */
+    private long minElementCountThreshold = 1;
+
+    /** The element count threshold used under heavy traffic. Cannot exceed 1000. */
+    private long maxElementCountThreshold = 1000;
+
+    /** The delay threshold in milliseconds used under light traffic. */
+    private long minDelayThresholdMillis = 1;
+
+    /** The longest delay threshold in milliseconds to use. */
+    private long maxDelayThresholdMillis = 10;
+
+    /** The request byte threshold of the tuned batching settings. Defaults to 1 MB. */
+    private Long requestByteThreshold;
+
+    /**
+     * The interval in seconds at which publish rates are re-estimated. Publishers whose thresholds
+     * change significantly are replaced.
+     */
+    private long tuningIntervalSeconds = 10;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getMinElementCountThreshold() {
+      return this.minElementCountThreshold;
+    }
+
+    public void setMinElementCountThreshold(long minElementCountThreshold) {
+      this.minElementCountThreshold = minElementCountThreshold;
+    }
+
+    public long getMaxElementCountThreshold() {
+      return this.maxElementCountThreshold;
+    }
+
+    public void setMaxElementCountThreshold(long maxElementCountThreshold) {
+      this.maxElementCountThreshold = maxElementCountThreshold;
+    }
+
+    public long getMinDelayThresholdMillis() {
+      return this.minDelayThresholdMillis;
+    }
+
+    public void setMinDelayThresholdMillis(long minDelayThresholdMillis) {
+      this.minDelayThresholdMillis = minDelayThresholdMillis;
+    }
+
+    public long getMaxDelayThresholdMillis() {
+      return this.maxDelayThresholdMillis;
+    }
+
+    public void setMaxDelayThresholdMillis(long maxDelayThresholdMillis) {
+      this.maxDelayThresholdMillis = maxDelayThresholdMillis;
+    }
+
+    public Long getRequestByteThreshold() {
+      return this.requestByteThreshold;
+    }
+
+    public void setRequestByteThreshold(Long requestByteThreshold) {
+      this.requestByteThreshold = requestByteThreshold;
+    }
+
+    public long getTuningIntervalSeconds() {
+      return this.tuningIntervalSeconds;
+    }
+
+    public void setTuningIntervalSeconds(long tuningIntervalSeconds) {
+      this.tuningIntervalSeconds = tuningIntervalSeconds;
+    }
+  }
+
+  /** Metrics settings. */
+  public static class Metrics {
+
+    /**
+     * Records the latency of publish, pull and acknowledgement requests, the conversion and
+     * handling time of messages, and batch sizes as Micrometer metrics if true.
+     */
+    private boolean enabled;
+
+    /**
+     * The maximum number of distinct topic and subscription names to tag metrics with. Metrics of
+     * further topics and subscriptions are tagged with "other".
+     */
+    private int maxTaggedNames = 100;
+
+    /** Publishes percentile histograms of the recorded latencies if true. */
+    private boolean percentileHistogram = true;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getMaxTaggedNames() {
+      return this.maxTaggedNames;
+    }
+
+    public void setMaxTaggedNames(int maxTaggedNames) {
+      this.maxTaggedNames = maxTaggedNames;
+    }
+
+    public boolean isPercentileHistogram() {
+      return this.percentileHistogram;
+    }
+
+    public void setPercentileHistogram(boolean percentileHistogram) {
+      this.percentileHistogram = percentileHistogram;
+    }
+  }
+
+  /** Shared channel pool settings. */
+  public static class ChannelPool {
+
+    /**
+     * Shares a pool of gRPC channels between all publishers, subscribers, subscriber stubs and
+     * admin clients if true, instead of opening channels for each of them.
+     */
+    private boolean enabled;
+
+    /** Number of channels opened on startup. */
+    private int channelCount = 4;
+
+    /**
+     * Maximum number of channels. The pool opens another channel when every channel carries the
+     * maximum number of concurrent streams.
+     */
+    private int maxChannelCount = 16;
+
+    /**
+     * Number of concurrent calls, including streaming pulls, a channel carries before the pool
+     * prefers to open another channel.
+     */
+    private int maxConcurrentStreamsPerChannel = 100;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getChannelCount() {
+      return this.channelCount;
+    }
+
+    public void setChannelCount(int channelCount) {
+      this.channelCount = channelCount;
+    }
+
+    public int getMaxChannelCount() {
+      return this.maxChannelCount;
+    }
+
+    public void setMaxChannelCount(int maxChannelCount) {
+      this.maxChannelCount = maxChannelCount;
+    }
+
+    public int getMaxConcurrentStreamsPerChannel() {
+      return this.maxConcurrentStreamsPerChannel;
+    }
+
+    public void setMaxConcurrentStreamsPerChannel(int maxConcurrentStreamsPerChannel) {
+      this.maxConcurrentStreamsPerChannel = maxConcurrentStreamsPerChannel;
+    }
+  }
+
   /** Subscriber settings. */
   public static class Subscriber {
 
@@ -395,6 +828,13 @@ public class PubSubConfiguration {
     /** Number of threads used for batch acknowledgement. */
     private int maxAcknowledgementThreads = 4;
 
+    /**
+     * Runs message handlers, acknowledgements and asynchronous pull callbacks on virtual threads
+     * if true, on Java 21 or later. Only the global setting applies; the executor threads are then
+     * only used to schedule lease extensions and other timers.
+     */
+    private boolean virtualThreads;
+
     /** The optional pull endpoint setting for the subscriber factory. */
     private String pullEndpoint;
 
@@ -427,6 +867,12 @@ public class PubSubConfiguration {
     /** RPC status codes that should be retried when pulling messages. */
     private Code[] retryableCodes = null;
 
+    /** Settings for coalescing acknowledgements of pulled messages. */
+    private final AckBatching ackBatching = new AckBatching();
+
+    /** Settings for subscriptions with exactly-once delivery. */
+    private final ExactlyOnce exactlyOnce = new ExactlyOnce();
+
     public String getFullyQualifiedName() {
       return fullyQualifiedName;
     }
@@ -511,6 +957,122 @@ public class PubSubConfiguration {
     public void setMaxAcknowledgementThreads(int maxAcknowledgementThreads) {
       this.maxAcknowledgementThreads = maxAcknowledgementThreads;
     }
+
+    public boolean isVirtualThreads() {
+      return this.virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+    }
+
+    public AckBatching getAckBatching() {
+      return this.ackBatching;
+    }
+
+    public ExactlyOnce getExactlyOnce() {
+      return this.exactlyOnce;
+    }
+  }
+
+  /** Exactly-once delivery settings for the subscriber template. */
+  public static class ExactlyOnce {
+
+    /**
+     * Retries the ack IDs of pulled messages that failed transiently and filters out redeliveries
+     * of acknowledged messages if true.
+     */
+    private boolean enabled;
+
+    /** The maximum amount of time, in seconds, to retry an ack ID for. */
+    private long ackRetryTimeoutSeconds = 60;
+
+    /**
+     * The amount of time, in seconds, the IDs of acknowledged messages are remembered to filter out
+     * their redeliveries. 0 disables the filtering.
+     */
+    private long deduplicationWindowSeconds = 600;
+
+    /**
+     * The maximum number of message IDs remembered for each subscription to filter out
+     * redeliveries.
+     */
+    private int deduplicationMaxMessages = 100_000;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public long getAckRetryTimeoutSeconds() {
+      return this.ackRetryTimeoutSeconds;
+    }
+
+    public void setAckRetryTimeoutSeconds(long ackRetryTimeoutSeconds) {
+      this.ackRetryTimeoutSeconds = ackRetryTimeoutSeconds;
+    }
+
+    public long getDeduplicationWindowSeconds() {
+      return this.deduplicationWindowSeconds;
+    }
+
+    public void setDeduplicationWindowSeconds(long deduplicationWindowSeconds) {
+      this.deduplicationWindowSeconds = deduplicationWindowSeconds;
+    }
+
+    public int getDeduplicationMaxMessages() {
+      return this.deduplicationMaxMessages;
+    }
+
+    public void setDeduplicationMaxMessages(int deduplicationMaxMessages) {
+      this.deduplicationMaxMessages = deduplicationMaxMessages;
+    }
+  }
+
+  /** Acknowledgement batching settings for pulled messages. */
+  public static class AckBatching {
+
+    /**
+     * Coalesces acknowledgements and ack deadline modifications of pulled messages into batched
+     * requests if true.
+     */
+    private boolean enabled;
+
+    /** The maximum number of ack IDs sent in a single request. Cannot exceed 1000. */
+    private int elementCountThreshold = 1000;
+
+    /**
+     * The delay threshold in milliseconds. After this amount of time has elapsed (counting from the
+     * first ack ID added), the buffered ack IDs will be sent.
+     */
+    private long delayThresholdMillis = 10;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public int getElementCountThreshold() {
+      return this.elementCountThreshold;
+    }
+
+    public void setElementCountThreshold(int elementCountThreshold) {
+      this.elementCountThreshold = elementCountThreshold;
+    }
+
+    public long getDelayThresholdMillis() {
+      return this.delayThresholdMillis;
+    }
+
+    public void setDelayThresholdMillis(long delayThresholdMillis) {
+      this.delayThresholdMillis = delayThresholdMillis;
+    }
   }
 
   /** Health Check settings. */
@@ -536,6 +1098,24 @@ public class PubSubConfiguration {
     /** Number of threads used for Health Check Executors. */
     private int executorThreads = 4;
 
+    /**
+     * Derive subscription health from in-process counters of received, processed and outstanding
+     * messages instead of querying Cloud Monitoring on every health check.
+     */
+    private boolean localTracking = false;
+
+    /**
+     * With local tracking, query the subscription backlog on Cloud Monitoring when the subscriber
+     * has no outstanding messages and hasn't processed any within the lagThreshold.
+     */
+    private boolean remoteFallback = true;
+
+    /**
+     * With local tracking, the minimum interval in seconds between two Cloud Monitoring queries for
+     * the same subscription. The last result is reused in between.
+     */
+    private int remoteCheckInterval = 60;
+
     public Integer getLagThreshold() {
       return lagThreshold;
     }
@@ -567,6 +1147,30 @@ public class PubSubConfiguration {
     public void setExecutorThreads(int executorThreads) {
       this.executorThreads = executorThreads;
     }
+
+    public boolean isLocalTracking() {
+      return localTracking;
+    }
+
+    public void setLocalTracking(boolean localTracking) {
+      this.localTracking = localTracking;
+    }
+
+    public boolean isRemoteFallback() {
+      return remoteFallback;
+    }
+
+    public void setRemoteFallback(boolean remoteFallback) {
+      this.remoteFallback = remoteFallback;
+    }
+
+    public int getRemoteCheckInterval() {
+      return remoteCheckInterval;
+    }
+
+    public void setRemoteCheckInterval(int remoteCheckInterval) {
+      this.remoteCheckInterval = remoteCheckInterval;
+    }
   }
 
   /** Retry settings. */
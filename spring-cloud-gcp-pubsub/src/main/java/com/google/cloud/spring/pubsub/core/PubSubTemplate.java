@@ -120,6 +120,11 @@ public class PubSubTemplate implements PubSubOperations {
     return this.pubSubPublisherTemplate.publish(topic, pubsubMessage);
   }
 
+  @Override
+  public void resumePublish(String topic, String orderingKey) {
+    this.pubSubPublisherTemplate.resumePublish(topic, orderingKey);
+  }
+
   @Override
   public Subscriber subscribe(
       String subscription, Consumer<BasicAcknowledgeablePubsubMessage> messageConsumer) {
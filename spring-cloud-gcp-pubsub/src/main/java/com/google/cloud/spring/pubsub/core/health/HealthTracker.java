@@ -16,6 +16,7 @@
 
 package com.google.cloud.spring.pubsub.core.health;
 
+import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 
 /**
@@ -51,6 +52,21 @@ public interface HealthTracker {
    */
   long messagesOverThreshold();
 
+  /**
+   * Wrap a message receiver so that the tracker records the processing of the messages it
+   * receives. By default, a message counts as processed once the wrapped receiver returns.
+   *
+   * @param messageReceiver the {@link MessageReceiver} to wrap.
+   * @return the wrapped {@link MessageReceiver}.
+   * @since 4.1.5
+   */
+  default MessageReceiver wrap(MessageReceiver messageReceiver) {
+    return (m, a) -> {
+      messageReceiver.receiveMessage(m, a);
+      processedMessage();
+    };
+  }
+
   /**
    * Creates a GCP Monitoring filter to query the message backlog of a Pub/Sub subscription.
    *
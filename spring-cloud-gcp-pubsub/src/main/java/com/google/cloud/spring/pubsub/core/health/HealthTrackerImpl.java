@@ -106,7 +106,7 @@ public class HealthTrackerImpl implements HealthTracker {
     return elapsedSeconds < lagThreshold;
   }
 
-  private Optional<Long> getBackLogMessages(long currentMillis) {
+  Optional<Long> getBackLogMessages(long currentMillis) {
     TimeInterval timeInterval = timeInterval(currentMillis);
 
     ListTimeSeriesResponse timeSeriesResponse =
@@ -67,10 +67,24 @@ public interface HealthTrackerRegistry {
       ProjectSubscriptionName subscriptionName, MessageReceiver messageReceiver) {
     HealthTracker healthTracker = registerTracker(subscriptionName);
 
-    return (m, a) -> {
-      messageReceiver.receiveMessage(m, a);
-      healthTracker.processedMessage();
-    };
+    return healthTracker.wrap(messageReceiver);
+  }
+
+  /**
+   * Wrap a message receiver for a {@link ProjectSubscriptionName} whose {@link HealthTracker} is
+   * already registered, e.g. by an inbound channel adapter, if that tracker needs to observe the
+   * messages received. The registered tracker is reused.
+   *
+   * <p>The default implementation returns the receiver unchanged.
+   *
+   * @param subscriptionName the full {@link ProjectSubscriptionName} name to monitor.
+   * @param messageReceiver the {@link MessageReceiver} to wrap.
+   * @return messageReceiver the wrapped {@link MessageReceiver}, or the given one.
+   * @since 4.1.5
+   */
+  default MessageReceiver wrapTracked(
+      ProjectSubscriptionName subscriptionName, MessageReceiver messageReceiver) {
+    return messageReceiver;
   }
 
   /**
@@ -20,9 +20,11 @@ import com.google.api.core.ApiService;
 import com.google.api.core.ApiService.State;
 import com.google.api.gax.core.ExecutorProvider;
 import com.google.cloud.monitoring.v3.MetricServiceClient;
+import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -49,6 +51,10 @@ public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
 
   private final ConcurrentMap<ProjectSubscriptionName, HealthTracker> healthTrackers;
 
+  private boolean localTracking;
+
+  private Duration remoteCheckInterval = Duration.ofSeconds(60);
+
   public HealthTrackerRegistryImpl(
       String projectId,
       MetricServiceClient metricServiceClient,
@@ -84,6 +90,60 @@ public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
     this.executorProvider = executorProvider;
   }
 
+  /**
+   * Create a registry of {@link LocalHealthTracker}s that never query Cloud Monitoring.
+   *
+   * @param projectId the default project ID of the subscriptions
+   * @param lagThreshold the time in seconds without processing after which a subscription is
+   *     checked for outstanding messages
+   * @param backlogThreshold the number of outstanding messages over which a subscription is
+   *     unhealthy
+   * @param executorProvider the executor for the subscriber listeners
+   * @since 4.1.5
+   */
+  public HealthTrackerRegistryImpl(
+      String projectId,
+      Integer lagThreshold,
+      Integer backlogThreshold,
+      ExecutorProvider executorProvider) {
+    this.projectId = projectId;
+    this.metricServiceClient = null;
+    this.lagThreshold = lagThreshold;
+    this.backlogThreshold = backlogThreshold;
+    this.lookUpInterval = null;
+    this.healthTrackers = new ConcurrentHashMap<>();
+    this.executorProvider = executorProvider;
+    this.localTracking = true;
+  }
+
+  /**
+   * Set whether to register {@link LocalHealthTracker}s, which derive the health of subscriptions
+   * from in-process counters and only query Cloud Monitoring as a fallback, instead of {@link
+   * HealthTrackerImpl}s. Always enabled on registries created without a {@link
+   * MetricServiceClient}.
+   *
+   * @param localTracking whether to track health with in-process counters
+   * @since 4.1.5
+   */
+  public void setLocalTracking(boolean localTracking) {
+    Assert.isTrue(
+        localTracking || this.metricServiceClient != null,
+        "Local tracking can't be disabled without a MetricServiceClient.");
+    this.localTracking = localTracking;
+  }
+
+  /**
+   * Set the minimum interval between two Cloud Monitoring queries for the same subscription, when
+   * local tracking falls back to them. Defaults to 60 seconds.
+   *
+   * @param remoteCheckInterval the minimum interval between two queries
+   * @since 4.1.5
+   */
+  public void setRemoteCheckInterval(Duration remoteCheckInterval) {
+    Assert.notNull(remoteCheckInterval, "remoteCheckInterval can't be null.");
+    this.remoteCheckInterval = remoteCheckInterval;
+  }
+
   @Override
   public HealthTracker registerTracker(String subscriptionName) {
     ProjectSubscriptionName projectSubscriptionName =
@@ -93,13 +153,24 @@ public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
 
   @Override
   public HealthTracker registerTracker(ProjectSubscriptionName projectSubscriptionName) {
+    HealthTrackerImpl remoteTracker =
+        metricServiceClient != null
+            ? new HealthTrackerImpl(
+                projectSubscriptionName,
+                metricServiceClient,
+                lagThreshold,
+                backlogThreshold,
+                lookUpInterval)
+            : null;
     HealthTracker healthTracker =
-        new HealthTrackerImpl(
-            projectSubscriptionName,
-            metricServiceClient,
-            lagThreshold,
-            backlogThreshold,
-            lookUpInterval);
+        localTracking
+            ? new LocalHealthTracker(
+                projectSubscriptionName,
+                lagThreshold,
+                backlogThreshold,
+                remoteTracker,
+                remoteCheckInterval)
+            : remoteTracker;
     healthTrackers.put(projectSubscriptionName, healthTracker);
     return healthTracker;
   }
@@ -109,6 +180,20 @@ public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
     return healthTrackers.containsKey(projectSubscriptionName);
   }
 
+  /**
+   * Wrap a message receiver with the {@link LocalHealthTracker} registered for a subscription, so
+   * that it counts outstanding messages. Receivers of subscriptions tracked by other trackers are
+   * returned unchanged.
+   */
+  @Override
+  public MessageReceiver wrapTracked(
+      ProjectSubscriptionName subscriptionName, MessageReceiver messageReceiver) {
+    HealthTracker healthTracker = healthTrackers.get(subscriptionName);
+    return healthTracker instanceof LocalHealthTracker
+        ? healthTracker.wrap(messageReceiver)
+        : messageReceiver;
+  }
+
   @Override
   public void processedMessage(ProjectSubscriptionName subscription) {
     if (!healthTrackers.containsKey(subscription)) {
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.health;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link HealthTracker} deriving the health of a subscription from in-process counters, without
+ * calling Cloud Monitoring on every health check.
+ *
+ * <p>Messages received through a {@link #wrap(MessageReceiver) wrapped receiver} are outstanding
+ * until they are acked or nacked. A subscription is unhealthy when no message was processed within
+ * the lag threshold while messages received at least that long ago are still outstanding; the
+ * number of outstanding messages over the backlog threshold is then reported.
+ *
+ * <p>When nothing is outstanding, an idle subscriber can't tell an empty subscription from one
+ * whose messages aren't delivered. The backlog is then looked up on Cloud Monitoring through the
+ * optional remote tracker, at most once per remote check interval; the last result is reused in
+ * between, and kept when the lookup fails.
+ *
+ * <p>The counters are updated without locking on the message path.
+ *
+ * @since 4.1.5
+ */
+public class LocalHealthTracker implements HealthTracker {
+
+  private static final Log LOGGER = LogFactory.getLog(LocalHealthTracker.class);
+
+  private static final long NO_MESSAGES_OVER_THRESHOLD = 0L;
+
+  /** Completed entries tolerated behind the oldest outstanding message before sweeping them. */
+  private static final int SWEEP_SLACK = 1024;
+
+  private final ProjectSubscriptionName projectSubscriptionName;
+
+  private final long lagThresholdMillis;
+
+  private final Integer backlogThreshold;
+
+  private final HealthTrackerImpl remoteTracker;
+
+  private final long remoteCheckIntervalMillis;
+
+  private final LongSupplier clock;
+
+  private final AtomicLong processedAt;
+
+  private final LongAdder receivedCount = new LongAdder();
+
+  private final LongAdder completedCount = new LongAdder();
+
+  /** Received messages in arrival order; completed ones are trimmed lazily. */
+  private final ConcurrentLinkedQueue<InFlightMessage> inFlightMessages =
+      new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger queuedCount = new AtomicInteger();
+
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+
+  private final AtomicLong remoteCheckedAt = new AtomicLong(Long.MIN_VALUE);
+
+  private volatile long remoteMessagesOverThreshold = NO_MESSAGES_OVER_THRESHOLD;
+
+  private long rateSampledAt;
+
+  private long rateSampleReceived;
+
+  private long rateSampleProcessed;
+
+  private volatile double receiveRate;
+
+  private volatile double processingRate;
+
+  /**
+   * Create a tracker for a subscription.
+   *
+   * @param projectSubscriptionName the subscription to track
+   * @param lagThreshold the time in seconds without processing after which the subscription is
+   *     checked for a backlog
+   * @param backlogThreshold the number of messages in the backlog over which the subscription is
+   *     unhealthy
+   * @param remoteTracker the tracker to look up the backlog on Cloud Monitoring with when no
+   *     message is outstanding, or {@code null} to never look it up
+   * @param remoteCheckInterval the minimum interval between two backlog lookups
+   */
+  public LocalHealthTracker(
+      ProjectSubscriptionName projectSubscriptionName,
+      Integer lagThreshold,
+      Integer backlogThreshold,
+      @Nullable HealthTrackerImpl remoteTracker,
+      Duration remoteCheckInterval) {
+    this(
+        projectSubscriptionName,
+        lagThreshold,
+        backlogThreshold,
+        remoteTracker,
+        remoteCheckInterval,
+        System::currentTimeMillis);
+  }
+
+  LocalHealthTracker(
+      ProjectSubscriptionName projectSubscriptionName,
+      Integer lagThreshold,
+      Integer backlogThreshold,
+      @Nullable HealthTrackerImpl remoteTracker,
+      Duration remoteCheckInterval,
+      LongSupplier clock) {
+    Assert.notNull(projectSubscriptionName, "projectSubscriptionName can't be null.");
+    Assert.notNull(lagThreshold, "lagThreshold can't be null.");
+    Assert.notNull(backlogThreshold, "backlogThreshold can't be null.");
+    Assert.notNull(remoteCheckInterval, "remoteCheckInterval can't be null.");
+    this.projectSubscriptionName = projectSubscriptionName;
+    this.lagThresholdMillis = lagThreshold * 1000L;
+    this.backlogThreshold = backlogThreshold;
+    this.remoteTracker = remoteTracker;
+    this.remoteCheckIntervalMillis = remoteCheckInterval.toMillis();
+    this.clock = clock;
+    this.processedAt = new AtomicLong(clock.getAsLong());
+    this.rateSampledAt = clock.getAsLong();
+  }
+
+  /**
+   * Record that the subscription made progress. Only messages received through a {@link
+   * #wrap(MessageReceiver) wrapped receiver} count as processed, once acked or nacked, so that
+   * messages handled in batches or reported twice aren't miscounted.
+   */
+  @Override
+  public void processedMessage() {
+    long newValue = this.clock.getAsLong();
+    long oldValue = this.processedAt.get();
+    while (oldValue < newValue && !this.processedAt.compareAndSet(oldValue, newValue)) {
+      oldValue = this.processedAt.get();
+    }
+  }
+
+  @Override
+  public ProjectSubscriptionName subscription() {
+    return this.projectSubscriptionName;
+  }
+
+  /**
+   * Wrap a message receiver so that each message is outstanding from its reception until it is
+   * acked or nacked, and counts as processed then.
+   *
+   * @param messageReceiver the {@link MessageReceiver} to wrap.
+   * @return the wrapped {@link MessageReceiver}.
+   */
+  @Override
+  public MessageReceiver wrap(MessageReceiver messageReceiver) {
+    return (message, consumer) -> {
+      InFlightMessage inFlightMessage = received();
+      messageReceiver.receiveMessage(
+          message,
+          new AckReplyConsumer() {
+            @Override
+            public void ack() {
+              completed(inFlightMessage);
+              consumer.ack();
+            }
+
+            @Override
+            public void nack() {
+              completed(inFlightMessage);
+              consumer.nack();
+            }
+          });
+    };
+  }
+
+  @Override
+  public long messagesOverThreshold() {
+    long currentMillis = this.clock.getAsLong();
+    sampleRates(currentMillis);
+
+    if (currentMillis - this.processedAt.get() < this.lagThresholdMillis) {
+      return NO_MESSAGES_OVER_THRESHOLD;
+    }
+
+    long outstanding = getOutstandingCount();
+    if (outstanding > 0) {
+      if (getOldestUnackedMessageAge(currentMillis) < this.lagThresholdMillis) {
+        // The messages arrived after a quiet period and had no time to be processed yet.
+        return NO_MESSAGES_OVER_THRESHOLD;
+      }
+      return outstanding - this.backlogThreshold;
+    }
+
+    return remoteMessagesOverThreshold(currentMillis);
+  }
+
+  /**
+   * Return the number of messages received and neither acked nor nacked yet.
+   *
+   * @return the number of outstanding messages
+   */
+  public long getOutstandingCount() {
+    return Math.max(0, this.receivedCount.sum() - this.completedCount.sum());
+  }
+
+  /**
+   * Return how long the oldest outstanding message has been waiting for an ack or nack.
+   *
+   * @return the age of the oldest outstanding message, or {@link Duration#ZERO} if none is
+   *     outstanding
+   */
+  public Duration getOldestUnackedMessageAge() {
+    return Duration.ofMillis(getOldestUnackedMessageAge(this.clock.getAsLong()));
+  }
+
+  /**
+   * Return the rate at which messages were received between the last two health checks.
+   *
+   * @return the number of messages received per second
+   */
+  public double getReceiveRate() {
+    return this.receiveRate;
+  }
+
+  /**
+   * Return the rate at which messages were processed between the last two health checks.
+   *
+   * @return the number of messages processed per second
+   */
+  public double getProcessingRate() {
+    return this.processingRate;
+  }
+
+  int getQueuedCount() {
+    return this.queuedCount.get();
+  }
+
+  private InFlightMessage received() {
+    InFlightMessage inFlightMessage = new InFlightMessage(this.clock.getAsLong());
+    this.inFlightMessages.add(inFlightMessage);
+    this.queuedCount.incrementAndGet();
+    this.receivedCount.increment();
+    return inFlightMessage;
+  }
+
+  private void completed(InFlightMessage inFlightMessage) {
+    if (!inFlightMessage.compareAndSet(false, true)) {
+      return;
+    }
+    this.completedCount.increment();
+    processedMessage();
+    trim();
+  }
+
+  private long getOldestUnackedMessageAge(long currentMillis) {
+    trim();
+    InFlightMessage oldest = this.inFlightMessages.peek();
+    return oldest != null ? Math.max(0, currentMillis - oldest.receivedAt) : 0L;
+  }
+
+  /**
+   * Remove completed messages from the head of the queue, and from anywhere in the queue once too
+   * many completed messages pile up behind an outstanding one.
+   */
+  private void trim() {
+    InFlightMessage head;
+    while ((head = this.inFlightMessages.peek()) != null && head.get()) {
+      if (this.inFlightMessages.remove(head)) {
+        this.queuedCount.decrementAndGet();
+      }
+    }
+
+    if (this.queuedCount.get() > 2 * getOutstandingCount() + SWEEP_SLACK
+        && this.sweeping.compareAndSet(false, true)) {
+      try {
+        this.inFlightMessages.removeIf(
+            inFlightMessage -> {
+              if (inFlightMessage.get()) {
+                this.queuedCount.decrementAndGet();
+                return true;
+              }
+              return false;
+            });
+      } finally {
+        this.sweeping.set(false);
+      }
+    }
+  }
+
+  private synchronized void sampleRates(long currentMillis) {
+    long elapsedMillis = currentMillis - this.rateSampledAt;
+    if (elapsedMillis <= 0) {
+      return;
+    }
+    long received = this.receivedCount.sum();
+    long processed = this.completedCount.sum();
+    this.receiveRate = (received - this.rateSampleReceived) * 1000.0 / elapsedMillis;
+    this.processingRate = (processed - this.rateSampleProcessed) * 1000.0 / elapsedMillis;
+    this.rateSampledAt = currentMillis;
+    this.rateSampleReceived = received;
+    this.rateSampleProcessed = processed;
+  }
+
+  private long remoteMessagesOverThreshold(long currentMillis) {
+    if (this.remoteTracker == null) {
+      return NO_MESSAGES_OVER_THRESHOLD;
+    }
+
+    long checkedAt = this.remoteCheckedAt.get();
+    boolean due =
+        checkedAt == Long.MIN_VALUE || currentMillis - checkedAt >= this.remoteCheckIntervalMillis;
+    // Only one caller looks the backlog up; the others reuse the last result meanwhile.
+    if (due && this.remoteCheckedAt.compareAndSet(checkedAt, currentMillis)) {
+      try {
+        Optional<Long> backlog = this.remoteTracker.getBackLogMessages(currentMillis);
+        this.remoteMessagesOverThreshold =
+            backlog.map(messages -> messages - this.backlogThreshold)
+                .orElse(NO_MESSAGES_OVER_THRESHOLD);
+      } catch (RuntimeException ex) {
+        LOGGER.warn(
+            "Looking up the backlog of " + this.projectSubscriptionName + " failed.", ex);
+      }
+    }
+    return this.remoteMessagesOverThreshold;
+  }
+
+  /** A received message; set to {@code true} once it is acked or nacked. */
+  private static class InFlightMessage extends AtomicBoolean {
+
+    private final long receivedAt;
+
+    InFlightMessage(long receivedAt) {
+      this.receivedAt = receivedAt;
+    }
+  }
+}
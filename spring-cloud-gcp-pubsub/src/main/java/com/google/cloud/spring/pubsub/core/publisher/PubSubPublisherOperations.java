@@ -59,4 +59,21 @@ public interface PubSubPublisherOperations {
    * @return the listenable future of the call
    */
   CompletableFuture<String> publish(String topic, PubsubMessage pubsubMessage);
+
+  /**
+   * Resume publishing messages with an ordering key. With message ordering enabled, once a message
+   * with an ordering key fails to publish, the later messages with that key fail without being
+   * sent, until publishing is resumed. Does nothing if the key isn't paused.
+   *
+   * <p>The default implementation does nothing, for implementations that don't pause ordering
+   * keys.
+   *
+   * @param topic short topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/[project_name]/topics/[topic_name]} format
+   * @param orderingKey the ordering key to resume
+   * @since 4.1.5
+   */
+  default void resumePublish(String topic, String orderingKey) {
+    // Nothing to resume.
+  }
 }
@@ -22,31 +22,54 @@ import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
 import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
+import com.google.cloud.spring.pubsub.support.AdaptiveBatchingTuner;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
 import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
 import com.google.pubsub.v1.PubsubMessage;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
 import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Default implementation of {@link PubSubPublisherOperations}.
  *
  * <p>The main Google Cloud Pub/Sub integration component for publishing to topics.
  *
+ * <p>The number and size of messages handed to publishers and not yet published can be bounded
+ * with {@link #setFlowControl(long, long, PublishLimitExceededBehavior)}.
+ *
  * @since 1.1
  */
 public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
+  /**
+   * The default maximum number of messages in flight for {@link #publishAll(String, Publisher)}.
+   *
+   * @since 4.1.5
+   */
+  public static final int DEFAULT_PUBLISH_ALL_CONCURRENCY = 256;
+
   private static final Log LOGGER = LogFactory.getLog(PubSubPublisherTemplate.class);
 
   private PubSubMessageConverter pubSubMessageConverter = new SimplePubSubMessageConverter();
 
   private final PublisherFactory publisherFactory;
 
+  private PublishFlowController flowController;
+
+  private PubSubMetricsRecorder metricsRecorder;
+
+  private AdaptiveBatchingTuner adaptiveBatchingTuner;
+
   /**
    * Default {@link PubSubPublisherTemplate} constructor that uses {@link
    * SimplePubSubMessageConverter} to serialize and deserialize payloads.
@@ -70,6 +93,69 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
     this.pubSubMessageConverter = pubSubMessageConverter;
   }
 
+  /**
+   * Bound the messages handed to publishers and not yet published, across all topics.
+   *
+   * <p>With {@link PublishLimitExceededBehavior#BLOCK}, {@code publish} blocks the calling thread
+   * until the message fits within the limits. It must therefore not be called from a publish
+   * callback.
+   *
+   * @param maxOutstandingElementCount the maximum number of outstanding messages
+   * @param maxOutstandingRequestBytes the maximum size of outstanding messages, in bytes
+   * @param limitExceededBehavior what to do with a message exceeding the limits
+   * @since 4.1.5
+   */
+  public void setFlowControl(
+      long maxOutstandingElementCount,
+      long maxOutstandingRequestBytes,
+      PublishLimitExceededBehavior limitExceededBehavior) {
+    this.flowController =
+        new PublishFlowController(
+            maxOutstandingElementCount, maxOutstandingRequestBytes, limitExceededBehavior);
+  }
+
+  /**
+   * Return the number of messages admitted by the flow control and not yet published.
+   *
+   * @return the number of outstanding messages, or 0 without flow control
+   * @since 4.1.5
+   */
+  public long getOutstandingElementCount() {
+    return this.flowController != null ? this.flowController.getOutstandingElementCount() : 0L;
+  }
+
+  /**
+   * Return the size of the messages admitted by the flow control and not yet published.
+   *
+   * @return the size of outstanding messages in bytes, or 0 without flow control
+   * @since 4.1.5
+   */
+  public long getOutstandingRequestBytes() {
+    return this.flowController != null ? this.flowController.getOutstandingRequestBytes() : 0L;
+  }
+
+  /**
+   * Set the recorder of the publish latency and of the time spent converting payloads.
+   *
+   * @param metricsRecorder the metrics recorder
+   * @since 4.1.5
+   */
+  public void setMetricsRecorder(PubSubMetricsRecorder metricsRecorder) {
+    this.metricsRecorder = metricsRecorder;
+  }
+
+  /**
+   * Record every publish with the given tuner, which chooses the batching settings of publishers
+   * from the publish rate of their topic.
+   *
+   * @param adaptiveBatchingTuner the tuner
+   * @since 4.1.5
+   * @see com.google.cloud.spring.pubsub.support.CachingPublisherFactory#setAdaptiveBatching
+   */
+  public void setAdaptiveBatchingTuner(AdaptiveBatchingTuner adaptiveBatchingTuner) {
+    this.adaptiveBatchingTuner = adaptiveBatchingTuner;
+  }
+
   /**
    * Uses the configured message converter to first convert the payload and headers to a {@code
    * PubsubMessage} and then publish it.
@@ -77,7 +163,7 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
   @Override
   public <T> CompletableFuture<String> publish(
       String topic, T payload, Map<String, String> headers) {
-    return publish(topic, this.pubSubMessageConverter.toPubSubMessage(payload, headers));
+    return publish(topic, toPubSubMessage(topic, payload, headers));
   }
 
   @Override
@@ -90,8 +176,258 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
     Assert.hasText(topic, "The topic can't be null or empty.");
     Assert.notNull(pubsubMessage, "The pubsubMessage can't be null.");
 
-    ApiFuture<String> publishFuture =
-        this.publisherFactory.createPublisher(topic).publish(pubsubMessage);
+    if (this.flowController == null) {
+      return doPublish(topic, pubsubMessage);
+    }
+    CompletableFuture<Void> admission = this.flowController.acquire(pubsubMessage);
+    if (admission.isDone()
+        || this.flowController.getLimitExceededBehavior() == PublishLimitExceededBehavior.BLOCK) {
+      try {
+        admission.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        if (!admission.cancel(false) && !admission.isCompletedExceptionally()) {
+          // Admitted while being interrupted.
+          releaseFlowControl(pubsubMessage);
+        }
+        return CompletableFuture.failedFuture(new PubSubDeliveryException(
+            pubsubMessage, "Interrupted while waiting for the publisher flow control.", ex));
+      } catch (ExecutionException ex) {
+        return CompletableFuture.failedFuture(ex.getCause());
+      }
+      return doPublish(topic, pubsubMessage);
+    }
+
+    // The message is held by the flow control; publish it once admitted.
+    CompletableFuture<String> completableFuture = new CompletableFuture<>();
+    admission.whenComplete(
+        (admitted, admissionFailure) -> {
+          if (admissionFailure != null) {
+            completableFuture.completeExceptionally(admissionFailure);
+            return;
+          }
+          try {
+            doPublish(topic, pubsubMessage).whenComplete(
+                (messageId, publishFailure) -> {
+                  if (publishFailure != null) {
+                    completableFuture.completeExceptionally(publishFailure);
+                  } else {
+                    completableFuture.complete(messageId);
+                  }
+                });
+          } catch (RuntimeException ex) {
+            completableFuture.completeExceptionally(ex);
+          }
+        });
+    return completableFuture;
+  }
+
+  /**
+   * Uses the configured message converter to first convert the payload and headers to a {@code
+   * PubsubMessage} and then publish it when subscribed to.
+   *
+   * @param topic short topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/[project_name]/topics/[topic_name]} format
+   * @param payload an object that will be serialized and sent
+   * @param headers the headers to publish
+   * @param <T> the type of the payload to publish
+   * @return {@link Mono} emitting the published message ID
+   * @see #publishReactive(String, PubsubMessage)
+   * @since 4.1.5
+   */
+  public <T> Mono<String> publishReactive(String topic, T payload, Map<String, String> headers) {
+    return Mono.defer(
+        () ->
+            publishReactive(topic, toPubSubMessage(topic, payload, headers)));
+  }
+
+  /**
+   * Publish a message to Pub/Sub when subscribed to.
+   *
+   * <p>Unlike {@link #publish(String, PubsubMessage)}, this never blocks. With {@link
+   * PublishLimitExceededBehavior#BLOCK} flow control, the message waits for the outstanding
+   * messages to be published without holding a thread, and cancelling the subscription gives up
+   * the wait. With {@link PublishLimitExceededBehavior#THROW}, a message exceeding the limits is
+   * signalled as an error right away, letting the subscriber back off.
+   *
+   * @param topic short topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/[project_name]/topics/[topic_name]} format
+   * @param pubsubMessage a Google Cloud Pub/Sub API message
+   * @return {@link Mono} emitting the published message ID
+   * @since 4.1.5
+   */
+  public Mono<String> publishReactive(String topic, PubsubMessage pubsubMessage) {
+    Assert.hasText(topic, "The topic can't be null or empty.");
+    Assert.notNull(pubsubMessage, "The pubsubMessage can't be null.");
+
+    return publishMessage(topic, pubsubMessage, false);
+  }
+
+  /**
+   * Publish a stream of messages to Pub/Sub, with at most {@link #DEFAULT_PUBLISH_ALL_CONCURRENCY}
+   * messages in flight.
+   *
+   * @param topic short topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/[project_name]/topics/[topic_name]} format
+   * @param payloads the messages to publish
+   * @return {@link Flux} emitting the published message IDs
+   * @see #publishAll(String, Publisher, int)
+   * @since 4.1.5
+   */
+  public Flux<String> publishAll(String topic, Publisher<?> payloads) {
+    return publishAll(topic, payloads, DEFAULT_PUBLISH_ALL_CONCURRENCY);
+  }
+
+  /**
+   * Publish a stream of messages to Pub/Sub, with at most {@code maxConcurrency} messages in
+   * flight. {@link PubsubMessage} elements are published as is, other elements are converted by
+   * the configured message converter.
+   *
+   * <p>Messages are handed to the publisher in stream order, so messages sharing an ordering key
+   * are published in order when message ordering is enabled, and the message IDs are emitted in
+   * stream order as well. The first failed publish terminates the stream with a {@link
+   * PubSubDeliveryException}. Since the publisher stops publishing messages with the ordering key
+   * of a failed message, publishing of that ordering key is resumed, so that the stream can be
+   * retried.
+   *
+   * <p>Flow control set with {@link #setFlowControl(long, long, PublishLimitExceededBehavior)}
+   * applies as for {@link #publishReactive(String, PubsubMessage)}.
+   *
+   * @param topic short topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/[project_name]/topics/[topic_name]} format
+   * @param payloads the messages to publish
+   * @param maxConcurrency the maximum number of messages in flight
+   * @return {@link Flux} emitting the published message IDs
+   * @since 4.1.5
+   */
+  public Flux<String> publishAll(String topic, Publisher<?> payloads, int maxConcurrency) {
+    Assert.hasText(topic, "The topic can't be null or empty.");
+    Assert.notNull(payloads, "The payloads can't be null.");
+    Assert.isTrue(maxConcurrency > 0, "The maxConcurrency must be greater than 0.");
+
+    return Flux.from(payloads)
+        .map(
+            payload ->
+                payload instanceof PubsubMessage
+                    ? (PubsubMessage) payload
+                    : toPubSubMessage(topic, payload, null))
+        .flatMapSequential(
+            pubsubMessage -> publishMessage(topic, pubsubMessage, true), maxConcurrency, 1);
+  }
+
+  @Override
+  public void resumePublish(String topic, String orderingKey) {
+    Assert.hasText(topic, "The topic can't be null or empty.");
+    Assert.notNull(orderingKey, "The ordering key can't be null.");
+    com.google.cloud.pubsub.v1.Publisher publisher = this.publisherFactory.acquirePublisher(topic);
+    try {
+      publisher.resumePublish(orderingKey);
+    } finally {
+      this.publisherFactory.releasePublisher(topic, publisher);
+    }
+  }
+
+  private PubsubMessage toPubSubMessage(
+      String topic, Object payload, Map<String, String> headers) {
+    if (this.metricsRecorder == null) {
+      return this.pubSubMessageConverter.toPubSubMessage(payload, headers);
+    }
+    long startNanos = System.nanoTime();
+    PubsubMessage pubsubMessage = this.pubSubMessageConverter.toPubSubMessage(payload, headers);
+    this.metricsRecorder.recordSerialization(topic, System.nanoTime() - startNanos);
+    return pubsubMessage;
+  }
+
+  private Mono<String> publishMessage(
+      String topic, PubsubMessage pubsubMessage, boolean resumeOrderingKeyOnFailure) {
+    Mono<String> publish =
+        Mono.create(
+            sink -> {
+              com.google.cloud.pubsub.v1.Publisher publisher = null;
+              ApiFuture<String> publishFuture;
+              long startNanos = startTimer();
+              try {
+                recordAdaptiveBatchingPublish(topic);
+                publisher = this.publisherFactory.acquirePublisher(topic);
+                publishFuture = publisher.publish(pubsubMessage);
+              } catch (RuntimeException ex) {
+                releaseFlowControl(pubsubMessage);
+                recordPublish(topic, startNanos, false);
+                sink.error(ex);
+                return;
+              } finally {
+                if (publisher != null) {
+                  this.publisherFactory.releasePublisher(topic, publisher);
+                }
+              }
+              com.google.cloud.pubsub.v1.Publisher orderingPublisher = publisher;
+              ApiFutures.addCallback(
+                  publishFuture,
+                  new ApiFutureCallback<>() {
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                      releaseFlowControl(pubsubMessage);
+                      recordPublish(topic, startNanos, false);
+                      String errorMessage = "Publishing to " + topic + " topic failed.";
+                      LOGGER.warn(errorMessage, throwable);
+                      if (resumeOrderingKeyOnFailure
+                          && !pubsubMessage.getOrderingKey().isEmpty()) {
+                        orderingPublisher.resumePublish(pubsubMessage.getOrderingKey());
+                      }
+                      sink.error(
+                          new PubSubDeliveryException(pubsubMessage, errorMessage, throwable));
+                    }
+
+                    @Override
+                    public void onSuccess(String result) {
+                      releaseFlowControl(pubsubMessage);
+                      recordPublish(topic, startNanos, true);
+                      sink.success(result);
+                    }
+                  },
+                  directExecutor());
+            });
+
+    if (this.flowController == null) {
+      return publish;
+    }
+    return Mono.defer(
+        () -> {
+          CompletableFuture<Void> admission = this.flowController.acquire(pubsubMessage);
+          // Claimed by either the publish or a cancellation, whichever comes first, so that the
+          // permit of an admitted message is released even if it's never published.
+          AtomicBoolean claimed = new AtomicBoolean();
+          return Mono.fromFuture(admission)
+              .then(Mono.defer(() -> claimed.compareAndSet(false, true) ? publish : Mono.empty()))
+              .doOnCancel(
+                  () -> {
+                    if (!admission.cancel(false)
+                        && !admission.isCompletedExceptionally()
+                        && claimed.compareAndSet(false, true)) {
+                      releaseFlowControl(pubsubMessage);
+                    }
+                  });
+        });
+  }
+
+  private CompletableFuture<String> doPublish(String topic, PubsubMessage pubsubMessage) {
+    com.google.cloud.pubsub.v1.Publisher publisher = null;
+    ApiFuture<String> publishFuture;
+    long startNanos = startTimer();
+    try {
+      recordAdaptiveBatchingPublish(topic);
+      publisher = this.publisherFactory.acquirePublisher(topic);
+      publishFuture = publisher.publish(pubsubMessage);
+    } catch (RuntimeException ex) {
+      releaseFlowControl(pubsubMessage);
+      recordPublish(topic, startNanos, false);
+      throw ex;
+    } finally {
+      if (publisher != null) {
+        this.publisherFactory.releasePublisher(topic, publisher);
+      }
+    }
 
     final CompletableFuture<String> completableFuture = new CompletableFuture<>();
     ApiFutures.addCallback(
@@ -100,6 +436,8 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
           @Override
           public void onFailure(Throwable throwable) {
+            releaseFlowControl(pubsubMessage);
+            recordPublish(topic, startNanos, false);
             String errorMessage = "Publishing to " + topic + " topic failed.";
             LOGGER.warn(errorMessage, throwable);
             PubSubDeliveryException pubSubDeliveryException =
@@ -109,6 +447,8 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
           @Override
           public void onSuccess(String result) {
+            releaseFlowControl(pubsubMessage);
+            recordPublish(topic, startNanos, true);
             if (LOGGER.isDebugEnabled()) {
               LOGGER.debug("Publishing to " + topic + " was successful. Message ID: " + result);
             }
@@ -120,6 +460,28 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
     return completableFuture;
   }
 
+  private void releaseFlowControl(PubsubMessage pubsubMessage) {
+    if (this.flowController != null) {
+      this.flowController.release(pubsubMessage);
+    }
+  }
+
+  private void recordAdaptiveBatchingPublish(String topic) {
+    if (this.adaptiveBatchingTuner != null) {
+      this.adaptiveBatchingTuner.recordPublish(topic);
+    }
+  }
+
+  private long startTimer() {
+    return this.metricsRecorder != null ? System.nanoTime() : 0L;
+  }
+
+  private void recordPublish(String topic, long startNanos, boolean success) {
+    if (this.metricsRecorder != null) {
+      this.metricsRecorder.recordPublish(topic, System.nanoTime() - startNanos, success);
+    }
+  }
+
   public PublisherFactory getPublisherFactory() {
     return this.publisherFactory;
   }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.publisher;
+
+import com.google.api.gax.batching.FlowController.MaxOutstandingElementCountReachedException;
+import com.google.api.gax.batching.FlowController.MaxOutstandingRequestBytesReachedException;
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.util.Assert;
+
+/**
+ * Bounds the number and size of messages handed to publishers and not yet published.
+ *
+ * <p>A message is admitted by {@link #acquire(PubsubMessage)} when it fits within the limits, and
+ * must be {@link #release(PubsubMessage) released} once its publish completes. Messages that don't
+ * fit are rejected or wait in arrival order, depending on the {@link PublishLimitExceededBehavior}.
+ * A message larger than the byte limit is admitted once no other message is outstanding.
+ *
+ * <p>Waiting messages are handed their permits by a single thread at a time, and new messages
+ * wait while a hand-over is in progress, so that they can't overtake messages admitted before
+ * them.
+ *
+ * @since 4.1.5
+ */
+class PublishFlowController {
+
+  private static final CompletableFuture<Void> ADMITTED = CompletableFuture.completedFuture(null);
+
+  private final long maxOutstandingElementCount;
+
+  private final long maxOutstandingRequestBytes;
+
+  private final PublishLimitExceededBehavior limitExceededBehavior;
+
+  private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+  private long outstandingElementCount;
+
+  private long outstandingRequestBytes;
+
+  private long waitingRequestBytes;
+
+  /** Whether a thread is handing permits over to waiting messages. */
+  private boolean handingOver;
+
+  PublishFlowController(
+      long maxOutstandingElementCount,
+      long maxOutstandingRequestBytes,
+      PublishLimitExceededBehavior limitExceededBehavior) {
+    Assert.isTrue(maxOutstandingElementCount > 0,
+        "maxOutstandingElementCount must be greater than 0.");
+    Assert.isTrue(maxOutstandingRequestBytes > 0,
+        "maxOutstandingRequestBytes must be greater than 0.");
+    Assert.notNull(limitExceededBehavior, "limitExceededBehavior can't be null.");
+    this.maxOutstandingElementCount = maxOutstandingElementCount;
+    this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+    this.limitExceededBehavior = limitExceededBehavior;
+  }
+
+  PublishLimitExceededBehavior getLimitExceededBehavior() {
+    return this.limitExceededBehavior;
+  }
+
+  synchronized long getOutstandingElementCount() {
+    return this.outstandingElementCount;
+  }
+
+  synchronized long getOutstandingRequestBytes() {
+    return this.outstandingRequestBytes;
+  }
+
+  /**
+   * Admit a message, or wait for it to be admitted.
+   *
+   * @param message the message about to be published
+   * @return future completing once the message is admitted, or completing exceptionally with a
+   *     {@link PubSubDeliveryException} if it is rejected or dropped. Cancelling the future gives
+   *     up the wait.
+   */
+  CompletableFuture<Void> acquire(PubsubMessage message) {
+    long bytes = message.getSerializedSize();
+    List<Waiter> dropped = null;
+    Waiter waiter;
+    synchronized (this) {
+      if (this.waiters.isEmpty() && !this.handingOver && fits(bytes)) {
+        admit(bytes);
+        return ADMITTED;
+      }
+      if (this.limitExceededBehavior == PublishLimitExceededBehavior.THROW) {
+        Exception cause = this.outstandingElementCount >= this.maxOutstandingElementCount
+            ? new MaxOutstandingElementCountReachedException(this.maxOutstandingElementCount)
+            : new MaxOutstandingRequestBytesReachedException(this.maxOutstandingRequestBytes);
+        return CompletableFuture.failedFuture(new PubSubDeliveryException(
+            message, "The publisher flow control limits were exceeded.", cause));
+      }
+
+      waiter = new Waiter(message, bytes);
+      this.waiters.addLast(waiter);
+      this.waitingRequestBytes += bytes;
+      if (this.limitExceededBehavior == PublishLimitExceededBehavior.DROP_OLDEST) {
+        while (this.waiters.size() > this.maxOutstandingElementCount
+            || (this.waitingRequestBytes > this.maxOutstandingRequestBytes
+                && this.waiters.size() > 1)) {
+          Waiter oldest = this.waiters.pollFirst();
+          this.waitingRequestBytes -= oldest.bytes;
+          if (dropped == null) {
+            dropped = new ArrayList<>();
+          }
+          dropped.add(oldest);
+        }
+      }
+    }
+
+    if (dropped != null) {
+      dropped.forEach(
+          oldest ->
+              oldest.future.completeExceptionally(new PubSubDeliveryException(
+                  oldest.message,
+                  "The message was dropped by the publisher flow control.",
+                  null)));
+    }
+    return waiter.future;
+  }
+
+  /**
+   * Release a message admitted by {@link #acquire(PubsubMessage)}, admitting waiting messages that
+   * fit within the limits again.
+   *
+   * @param message the message whose publish completed
+   */
+  void release(PubsubMessage message) {
+    synchronized (this) {
+      this.outstandingElementCount--;
+      this.outstandingRequestBytes -= message.getSerializedSize();
+      if (this.handingOver) {
+        // The thread handing permits over admits the next waiters once done.
+        return;
+      }
+      this.handingOver = true;
+    }
+    handOver();
+  }
+
+  private void handOver() {
+    List<Waiter> admitted = new ArrayList<>();
+    while (true) {
+      synchronized (this) {
+        while (!this.waiters.isEmpty() && fits(this.waiters.peekFirst().bytes)) {
+          Waiter waiter = this.waiters.pollFirst();
+          this.waitingRequestBytes -= waiter.bytes;
+          admit(waiter.bytes);
+          admitted.add(waiter);
+        }
+        if (admitted.isEmpty()) {
+          this.handingOver = false;
+          return;
+        }
+      }
+
+      for (Waiter waiter : admitted) {
+        if (!waiter.future.complete(null)) {
+          // The wait was given up; hand the permit over to the next waiter.
+          synchronized (this) {
+            this.outstandingElementCount--;
+            this.outstandingRequestBytes -= waiter.bytes;
+          }
+        }
+      }
+      admitted.clear();
+    }
+  }
+
+  private boolean fits(long bytes) {
+    return this.outstandingElementCount < this.maxOutstandingElementCount
+        && (this.outstandingRequestBytes + bytes <= this.maxOutstandingRequestBytes
+            || this.outstandingElementCount == 0);
+  }
+
+  private void admit(long bytes) {
+    this.outstandingElementCount++;
+    this.outstandingRequestBytes += bytes;
+  }
+
+  private static class Waiter {
+
+    private final PubsubMessage message;
+
+    private final long bytes;
+
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    Waiter(PubsubMessage message, long bytes) {
+      this.message = message;
+      this.bytes = bytes;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.publisher;
+
+/**
+ * The behavior of {@link PubSubPublisherTemplate} when publishing a message would exceed its
+ * outstanding message limits.
+ *
+ * @since 4.1.5
+ */
+public enum PublishLimitExceededBehavior {
+
+  /** Wait until enough outstanding messages have been published. */
+  BLOCK,
+
+  /** Fail the publish right away. */
+  THROW,
+
+  /**
+   * Hold the message until enough outstanding messages have been published, dropping the oldest
+   * held messages when the held messages exceed the limits themselves.
+   */
+  DROP_OLDEST
+}
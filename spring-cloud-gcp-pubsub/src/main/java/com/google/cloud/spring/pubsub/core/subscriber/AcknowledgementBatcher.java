@@ -0,0 +1,305 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.pubsub.v1.AckResponse;
+import com.google.cloud.spring.pubsub.core.PubSubAcknowledgementException;
+import com.google.protobuf.Empty;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.springframework.util.Assert;
+
+/**
+ * Coalesces acknowledgement and ack deadline modification requests issued for the same
+ * subscription into as few RPCs as possible.
+ *
+ * <p>Ack IDs are buffered per subscription and operation. A buffer is flushed as a single request
+ * as soon as it holds {@code maxAckIdsPerRequest} ack IDs, or when {@code maxDelay} has elapsed
+ * since the first ack ID was buffered, whichever happens first. Every caller receives a future that
+ * completes when the request carrying its ack IDs completes.
+ *
+ * @since 4.1.5
+ */
+class AcknowledgementBatcher {
+
+  /** The maximum number of ack IDs the Pub/Sub client library sends in a single request. */
+  static final int MAX_ACK_IDS_PER_REQUEST = 1000;
+
+  private final int maxAckIdsPerRequest;
+
+  private final Duration maxDelay;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final ConcurrentHashMap<BatchKey, Batch> batches = new ConcurrentHashMap<>();
+
+  AcknowledgementBatcher(
+      int maxAckIdsPerRequest, Duration maxDelay, ScheduledExecutorService scheduler) {
+    Assert.isTrue(
+        maxAckIdsPerRequest > 0 && maxAckIdsPerRequest <= MAX_ACK_IDS_PER_REQUEST,
+        "maxAckIdsPerRequest must be between 1 and " + MAX_ACK_IDS_PER_REQUEST + ".");
+    Assert.notNull(maxDelay, "maxDelay can't be null.");
+    Assert.isTrue(!maxDelay.isNegative(), "maxDelay must not be negative.");
+    Assert.notNull(scheduler, "scheduler can't be null.");
+    this.maxAckIdsPerRequest = maxAckIdsPerRequest;
+    this.maxDelay = maxDelay;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Buffers ack IDs for a batched operation on a subscription.
+   *
+   * @param subscriptionName fully-qualified subscription name
+   * @param ackDeadlineSeconds the new ack deadline, or {@code null} for an acknowledgement
+   * @param ackIds ack IDs to buffer
+   * @param operation the RPC used to send a flushed batch of ack IDs
+   * @return future completing when the request carrying the ack IDs completes
+   */
+  ApiFuture<Empty> add(
+      String subscriptionName,
+      Integer ackDeadlineSeconds,
+      Collection<String> ackIds,
+      BiFunction<String, List<String>, ApiFuture<Empty>> operation) {
+    SettableApiFuture<Empty> result = SettableApiFuture.create();
+
+    if (ackIds.size() >= this.maxAckIdsPerRequest) {
+      // Already a full batch; there is nothing to coalesce it with.
+      send(subscriptionName, List.of(new PendingEntry(ackIds, result)), operation);
+      return result;
+    }
+
+    BatchKey key = new BatchKey(subscriptionName, ackDeadlineSeconds);
+    List<PendingEntry> toFlush = null;
+    boolean scheduleFlush = false;
+
+    boolean added = false;
+    while (!added) {
+      Batch batch = this.batches.computeIfAbsent(key, k -> new Batch(operation));
+      synchronized (batch) {
+        if (batch.removed) {
+          // Flushed and removed since it was looked up; buffer in a new batch.
+          continue;
+        }
+        if (batch.ackIdCount + ackIds.size() > this.maxAckIdsPerRequest) {
+          toFlush = batch.drain();
+        }
+        scheduleFlush = batch.entries.isEmpty();
+        batch.entries.add(new PendingEntry(ackIds, result));
+        batch.ackIdCount += ackIds.size();
+        if (batch.ackIdCount == this.maxAckIdsPerRequest) {
+          toFlush = concat(toFlush, batch.drain());
+          scheduleFlush = false;
+        }
+        added = true;
+      }
+    }
+
+    if (toFlush != null) {
+      send(subscriptionName, toFlush, operation);
+    }
+    if (scheduleFlush) {
+      try {
+        this.scheduler.schedule(
+            () -> flush(key), this.maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException ex) {
+        // The scheduler was shut down; send the ack IDs right away rather than never.
+        flush(key);
+      }
+    }
+
+    return result;
+  }
+
+  /** Sends all buffered ack IDs immediately. */
+  void flushAll() {
+    this.batches.keySet().forEach(this::flush);
+  }
+
+  /** The number of batches buffering ack IDs, or flushed but not removed yet. */
+  int getBatchCount() {
+    return this.batches.size();
+  }
+
+  private void flush(BatchKey key) {
+    Batch batch = this.batches.get(key);
+    if (batch == null) {
+      return;
+    }
+    List<PendingEntry> toFlush;
+    synchronized (batch) {
+      toFlush = batch.drain();
+      // Remove the emptied batch, so that batches of ack deadlines no longer used don't pile up.
+      batch.removed = true;
+      this.batches.remove(key, batch);
+    }
+    if (!toFlush.isEmpty()) {
+      send(key.subscriptionName, toFlush, batch.operation);
+    }
+  }
+
+  private static void send(
+      String subscriptionName,
+      List<PendingEntry> entries,
+      BiFunction<String, List<String>, ApiFuture<Empty>> operation) {
+    List<String> ackIds = new ArrayList<>();
+    for (PendingEntry entry : entries) {
+      ackIds.addAll(entry.ackIds);
+    }
+
+    ApiFuture<Empty> requestFuture;
+    try {
+      requestFuture = operation.apply(subscriptionName, ackIds);
+    } catch (RuntimeException ex) {
+      entries.forEach(entry -> entry.future.setException(ex));
+      return;
+    }
+    ApiFutures.addCallback(requestFuture, new ForwardingCallback(entries), directExecutor());
+  }
+
+  private static List<PendingEntry> concat(List<PendingEntry> first, List<PendingEntry> second) {
+    if (first == null) {
+      return second;
+    }
+    first.addAll(second);
+    return first;
+  }
+
+  /**
+   * Completes the futures of all callers whose ack IDs were sent in a request. When the request
+   * reports which ack IDs failed, only the callers of these ack IDs see the failure.
+   */
+  private static class ForwardingCallback implements ApiFutureCallback<Empty> {
+
+    private final List<PendingEntry> entries;
+
+    ForwardingCallback(List<PendingEntry> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public void onFailure(Throwable throwable) {
+      if (!(throwable instanceof PubSubAcknowledgementException acknowledgementException)) {
+        this.entries.forEach(entry -> entry.future.setException(throwable));
+        return;
+      }
+      Map<String, AckResponse> failedAckIds = acknowledgementException.getFailedAckIds();
+      for (PendingEntry entry : this.entries) {
+        Map<String, AckResponse> entryFailures = new HashMap<>();
+        for (String ackId : entry.ackIds) {
+          AckResponse ackResponse = failedAckIds.get(ackId);
+          if (ackResponse != null) {
+            entryFailures.put(ackId, ackResponse);
+          }
+        }
+        if (entryFailures.isEmpty()) {
+          entry.future.set(Empty.getDefaultInstance());
+        } else {
+          entry.future.setException(
+              new PubSubAcknowledgementException(
+                  acknowledgementException.getMessage(),
+                  entryFailures,
+                  acknowledgementException.getCause()));
+        }
+      }
+    }
+
+    @Override
+    public void onSuccess(Empty empty) {
+      this.entries.forEach(entry -> entry.future.set(empty));
+    }
+  }
+
+  private static class Batch {
+
+    private final BiFunction<String, List<String>, ApiFuture<Empty>> operation;
+
+    private List<PendingEntry> entries = new ArrayList<>();
+
+    private int ackIdCount;
+
+    private boolean removed;
+
+    Batch(BiFunction<String, List<String>, ApiFuture<Empty>> operation) {
+      this.operation = operation;
+    }
+
+    List<PendingEntry> drain() {
+      List<PendingEntry> drained = this.entries;
+      this.entries = new ArrayList<>();
+      this.ackIdCount = 0;
+      return drained;
+    }
+  }
+
+  private static class PendingEntry {
+
+    private final Collection<String> ackIds;
+
+    private final SettableApiFuture<Empty> future;
+
+    PendingEntry(Collection<String> ackIds, SettableApiFuture<Empty> future) {
+      this.ackIds = ackIds;
+      this.future = future;
+    }
+  }
+
+  private static class BatchKey {
+
+    private final String subscriptionName;
+
+    private final Integer ackDeadlineSeconds;
+
+    BatchKey(String subscriptionName, Integer ackDeadlineSeconds) {
+      this.subscriptionName = subscriptionName;
+      this.ackDeadlineSeconds = ackDeadlineSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BatchKey that = (BatchKey) o;
+      return this.subscriptionName.equals(that.subscriptionName)
+          && Objects.equals(this.ackDeadlineSeconds, that.ackDeadlineSeconds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.subscriptionName, this.ackDeadlineSeconds);
+    }
+  }
+}
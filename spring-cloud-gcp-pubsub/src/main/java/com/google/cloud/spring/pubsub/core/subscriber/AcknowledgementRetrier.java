@@ -0,0 +1,244 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.pubsub.v1.AckResponse;
+import com.google.cloud.spring.pubsub.core.PubSubAcknowledgementException;
+import com.google.protobuf.Empty;
+import com.google.rpc.ErrorInfo;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.springframework.util.Assert;
+
+/**
+ * Sends acknowledgement and ack deadline modification requests, reporting the outcome of each ack
+ * ID on subscriptions with exactly-once delivery.
+ *
+ * <p>On such subscriptions, a failed request lists the ack IDs that failed in its error details;
+ * the others succeeded. Ack IDs that failed permanently, e.g. because they expired, are reported
+ * through a {@link PubSubAcknowledgementException}. Ack IDs that failed transiently are resent
+ * together, with exponential backoff, until they succeed, fail permanently or the retry timeout
+ * elapses.
+ *
+ * <p>Requests failing without per-ack-id details fail as a whole, after the retries of the
+ * subscriber stub.
+ *
+ * @since 4.1.5
+ */
+class AcknowledgementRetrier {
+
+  /** The reason of the error info listing the ack IDs that failed. */
+  static final String EXACTLY_ONCE_ACK_ID_FAILURE = "EXACTLY_ONCE_ACKID_FAILURE";
+
+  /** The prefix of the errors of ack IDs that failed transiently. */
+  static final String TRANSIENT_FAILURE_PREFIX = "TRANSIENT_FAILURE";
+
+  /** The error of ack IDs that expired or are unknown. */
+  static final String PERMANENT_FAILURE_INVALID_ACK_ID = "PERMANENT_FAILURE_INVALID_ACK_ID";
+
+  private static final long INITIAL_RETRY_DELAY_MILLIS = 100L;
+
+  private static final long MAX_RETRY_DELAY_MILLIS = 10_000L;
+
+  private final Duration retryTimeout;
+
+  private final ScheduledExecutorService scheduler;
+
+  AcknowledgementRetrier(Duration retryTimeout, ScheduledExecutorService scheduler) {
+    Assert.notNull(retryTimeout, "retryTimeout can't be null.");
+    Assert.isTrue(!retryTimeout.isNegative(), "retryTimeout must not be negative.");
+    Assert.notNull(scheduler, "scheduler can't be null.");
+    this.retryTimeout = retryTimeout;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Send a request, retrying the ack IDs that failed transiently.
+   *
+   * @param subscriptionName fully-qualified subscription name
+   * @param ackIds ack IDs to send
+   * @param operation the RPC sending ack IDs
+   * @return future completing when all ack IDs succeeded or failed for good; it fails with a
+   *     {@link PubSubAcknowledgementException} listing the failed ack IDs if some failed
+   */
+  ApiFuture<Empty> send(
+      String subscriptionName,
+      List<String> ackIds,
+      BiFunction<String, List<String>, ApiFuture<Empty>> operation) {
+    Request request =
+        new Request(subscriptionName, operation, System.nanoTime() + this.retryTimeout.toNanos());
+    request.send(ackIds, INITIAL_RETRY_DELAY_MILLIS);
+    return request.result;
+  }
+
+  /**
+   * Get the errors of the ack IDs that failed on a subscription with exactly-once delivery.
+   *
+   * @param throwable the failure of a request
+   * @return the errors keyed by ack ID, or {@code null} if the failure has no per-ack-id details
+   */
+  static Map<String, String> getAckIdErrors(Throwable throwable) {
+    if (throwable instanceof ApiException apiException
+        && apiException.getErrorDetails() != null) {
+      ErrorInfo errorInfo = apiException.getErrorDetails().getErrorInfo();
+      if (errorInfo != null && EXACTLY_ONCE_ACK_ID_FAILURE.equals(errorInfo.getReason())) {
+        return errorInfo.getMetadataMap();
+      }
+    }
+    return null;
+  }
+
+  private static AckResponse toAckResponse(Throwable throwable) {
+    if (throwable instanceof ApiException apiException) {
+      switch (apiException.getStatusCode().getCode()) {
+        case PERMISSION_DENIED:
+          return AckResponse.PERMISSION_DENIED;
+        case FAILED_PRECONDITION:
+          return AckResponse.FAILED_PRECONDITION;
+        default:
+          return AckResponse.OTHER;
+      }
+    }
+    return AckResponse.OTHER;
+  }
+
+  /** The attempts to send the ack IDs of a request. Attempts are sent one after the other. */
+  private class Request {
+
+    private final SettableApiFuture<Empty> result = SettableApiFuture.create();
+
+    private final String subscriptionName;
+
+    private final BiFunction<String, List<String>, ApiFuture<Empty>> operation;
+
+    private final long deadlineNanos;
+
+    private final Map<String, AckResponse> failedAckIds = new HashMap<>();
+
+    private boolean retried;
+
+    Request(
+        String subscriptionName,
+        BiFunction<String, List<String>, ApiFuture<Empty>> operation,
+        long deadlineNanos) {
+      this.subscriptionName = subscriptionName;
+      this.operation = operation;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    void send(List<String> ackIds, long retryDelayMillis) {
+      ApiFuture<Empty> attempt;
+      try {
+        attempt = this.operation.apply(this.subscriptionName, ackIds);
+      } catch (RuntimeException ex) {
+        onFailure(ackIds, ex, retryDelayMillis);
+        return;
+      }
+      ApiFutures.addCallback(
+          attempt,
+          new ApiFutureCallback<>() {
+            @Override
+            public void onFailure(Throwable throwable) {
+              Request.this.onFailure(ackIds, throwable, retryDelayMillis);
+            }
+
+            @Override
+            public void onSuccess(Empty empty) {
+              complete(null);
+            }
+          },
+          directExecutor());
+    }
+
+    private void onFailure(List<String> ackIds, Throwable throwable, long retryDelayMillis) {
+      Map<String, String> ackIdErrors = getAckIdErrors(throwable);
+      if (ackIdErrors == null) {
+        // The whole request failed. Only ack IDs of a retry need to be told apart from the others.
+        if (!this.retried) {
+          this.result.setException(throwable);
+          return;
+        }
+        AckResponse ackResponse = toAckResponse(throwable);
+        ackIds.forEach(ackId -> this.failedAckIds.put(ackId, ackResponse));
+        complete(throwable);
+        return;
+      }
+
+      List<String> transientlyFailedAckIds = new ArrayList<>();
+      for (String ackId : ackIds) {
+        String error = ackIdErrors.get(ackId);
+        if (error == null) {
+          continue;
+        }
+        if (error.startsWith(TRANSIENT_FAILURE_PREFIX)) {
+          transientlyFailedAckIds.add(ackId);
+        } else {
+          this.failedAckIds.put(
+              ackId,
+              PERMANENT_FAILURE_INVALID_ACK_ID.equals(error)
+                  ? AckResponse.INVALID
+                  : AckResponse.OTHER);
+        }
+      }
+
+      if (!transientlyFailedAckIds.isEmpty()) {
+        long retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelayMillis);
+        if (retryAtNanos - this.deadlineNanos < 0 && !scheduler.isShutdown()) {
+          this.retried = true;
+          scheduler.schedule(
+              () ->
+                  send(
+                      transientlyFailedAckIds,
+                      Math.min(2 * retryDelayMillis, MAX_RETRY_DELAY_MILLIS)),
+              retryDelayMillis,
+              TimeUnit.MILLISECONDS);
+          return;
+        }
+        transientlyFailedAckIds.forEach(ackId -> this.failedAckIds.put(ackId, AckResponse.OTHER));
+      }
+      complete(throwable);
+    }
+
+    private void complete(Throwable cause) {
+      if (this.failedAckIds.isEmpty()) {
+        this.result.set(Empty.getDefaultInstance());
+        return;
+      }
+      this.result.setException(
+          new PubSubAcknowledgementException(
+              this.failedAckIds.size()
+                  + " ack IDs failed on subscription "
+                  + this.subscriptionName
+                  + ".",
+              new HashMap<>(this.failedAckIds),
+              cause));
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.Assert;
+
+/**
+ * Remembers the IDs of the messages acknowledged on each subscription for a period of time, so
+ * that redeliveries of these messages can be recognized.
+ *
+ * <p>Even with exactly-once delivery, Pub/Sub redelivers a message whose ack ID expired before the
+ * acknowledgement reached it. The window bounds the number of message IDs remembered for each
+ * subscription; when it's full, the oldest ones are forgotten first.
+ *
+ * <p>Lookups don't lock. Each subscription keeps its IDs in its own shard, so that adding IDs on
+ * one subscription doesn't hold up the others.
+ *
+ * @since 4.1.5
+ */
+class DeduplicationWindow {
+
+  private final long windowNanos;
+
+  private final int maxMessageIds;
+
+  private final Map<String, Shard> shardsBySubscription = new ConcurrentHashMap<>();
+
+  DeduplicationWindow(Duration window, int maxMessageIds) {
+    Assert.notNull(window, "window can't be null.");
+    Assert.isTrue(!window.isNegative() && !window.isZero(), "window must be positive.");
+    Assert.isTrue(maxMessageIds > 0, "maxMessageIds must be greater than 0.");
+    this.windowNanos = window.toNanos();
+    this.maxMessageIds = maxMessageIds;
+  }
+
+  /**
+   * Remember that a message was acknowledged.
+   *
+   * @param subscriptionName fully-qualified subscription name
+   * @param messageId the ID of the message
+   */
+  void add(String subscriptionName, String messageId) {
+    if (messageId.isEmpty()) {
+      return;
+    }
+    this.shardsBySubscription
+        .computeIfAbsent(subscriptionName, name -> new Shard())
+        .add(messageId, this.windowNanos, this.maxMessageIds);
+  }
+
+  /**
+   * Return whether a message was acknowledged within the window.
+   *
+   * @param subscriptionName fully-qualified subscription name
+   * @param messageId the ID of the message
+   * @return true if the message is a redelivery of an acknowledged message
+   */
+  boolean contains(String subscriptionName, String messageId) {
+    Shard shard = this.shardsBySubscription.get(subscriptionName);
+    if (shard == null) {
+      return false;
+    }
+    Long expiryNanos = shard.expiryNanosByMessageId.get(messageId);
+    return expiryNanos != null && expiryNanos - System.nanoTime() > 0;
+  }
+
+  /** The message IDs remembered for one subscription. */
+  private static final class Shard {
+
+    private final Map<String, Long> expiryNanosByMessageId = new ConcurrentHashMap<>();
+
+    /**
+     * Message IDs in the order they were added, hence by expiry. A re-added ID is queued again;
+     * its earlier entry no longer matches the map and is dropped without effect.
+     */
+    private final Deque<Expiry> expiries = new ArrayDeque<>();
+
+    private synchronized void add(String messageId, long windowNanos, int maxMessageIds) {
+      long nowNanos = System.nanoTime();
+      Expiry head;
+      while ((head = this.expiries.peekFirst()) != null
+          && (head.nanos - nowNanos <= 0 || this.expiries.size() >= maxMessageIds)) {
+        this.expiries.pollFirst();
+        this.expiryNanosByMessageId.remove(head.messageId, head.nanos);
+      }
+      Expiry expiry = new Expiry(messageId, nowNanos + windowNanos);
+      this.expiries.addLast(expiry);
+      this.expiryNanosByMessageId.put(messageId, expiry.nanos);
+    }
+  }
+
+  private static final class Expiry {
+
+    private final String messageId;
+
+    private final long nanos;
+
+    private Expiry(String messageId, long nanos) {
+      this.messageId = messageId;
+      this.nanos = nanos;
+    }
+  }
+}
@@ -16,14 +16,18 @@
 
 package com.google.cloud.spring.pubsub.core.subscriber;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.cloud.spring.pubsub.core.PubSubAcknowledgementException;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
@@ -38,6 +42,7 @@ import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.PullRequest;
 import com.google.pubsub.v1.PullResponse;
 import com.google.pubsub.v1.ReceivedMessage;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -47,10 +52,14 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.Assert;
 
@@ -68,10 +77,22 @@ import org.springframework.util.Assert;
  * the asynchronous pull callback operations. By default, this is executed on the same thread that
  * executes the callback.
  *
+ * <p>Acknowledgement and deadline operations on pulled messages can optionally be coalesced with
+ * {@link #setAckBatching(int, Duration)}, so that many individual {@code ack()} or {@code nack()}
+ * calls for the same subscription are sent as a single request.
+ *
+ * <p>On subscriptions with exactly-once delivery, {@link #setAckRetry(Duration)} makes the futures
+ * of pulled messages complete with the outcome of their own ack ID, failing with a {@link
+ * PubSubAcknowledgementException} if it failed, and retries the ack IDs that failed transiently.
+ * Redeliveries of acknowledged messages can be filtered out with {@link
+ * #setDeduplicationWindow(Duration, int)}.
+ *
  * @since 1.1
  */
 public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, DisposableBean {
 
+  private static final Log LOGGER = LogFactory.getLog(PubSubSubscriberTemplate.class);
+
   private final SubscriberFactory subscriberFactory;
 
   private PubSubMessageConverter pubSubMessageConverter = new SimplePubSubMessageConverter();
@@ -85,6 +106,18 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
   private final ConcurrentHashMap<String, SubscriberStub> subscriptionNameToStubMap =
       new ConcurrentHashMap<>();
 
+  private ScheduledExecutorService ackBatchingScheduler;
+
+  private AcknowledgementBatcher acknowledgementBatcher;
+
+  private ScheduledExecutorService ackRetryScheduler;
+
+  private AcknowledgementRetrier acknowledgementRetrier;
+
+  private DeduplicationWindow deduplicationWindow;
+
+  private PubSubMetricsRecorder metricsRecorder;
+
   /**
    * Default {@link PubSubSubscriberTemplate} constructor.
    *
@@ -139,6 +172,67 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     this.asyncPullExecutor = asyncPullExecutor;
   }
 
+  /**
+   * Enables coalescing of acknowledgement and deadline operations on pulled messages.
+   *
+   * <p>Ack IDs are buffered per subscription and sent as a single request once {@code
+   * maxAckIdsPerRequest} ack IDs are buffered, or once {@code maxDelay} has elapsed since the first
+   * ack ID was buffered. The futures returned for every message complete when the request carrying
+   * their ack IDs completes.
+   *
+   * @param maxAckIdsPerRequest the maximum number of ack IDs to send in one request, up to 1000
+   * @param maxDelay the maximum amount of time an ack ID is buffered before it is sent
+   */
+  public void setAckBatching(int maxAckIdsPerRequest, Duration maxDelay) {
+    Assert.state(this.acknowledgementBatcher == null, "Ack batching is already enabled.");
+    this.ackBatchingScheduler = newDaemonScheduler("gcp-pubsub-ack-batching");
+    this.acknowledgementBatcher =
+        new AcknowledgementBatcher(maxAckIdsPerRequest, maxDelay, this.ackBatchingScheduler);
+  }
+
+  /**
+   * Enables per-ack-id outcomes and retries of the ack IDs of pulled messages that failed
+   * transiently on subscriptions with exactly-once delivery.
+   *
+   * <p>These ack IDs are resent together, with exponential backoff, until they succeed, fail
+   * permanently or {@code retryTimeout} elapses. The futures returned for every message complete
+   * once the outcome of their ack ID is known; a {@link Duration#ZERO} timeout reports the outcomes
+   * without retrying.
+   *
+   * @param retryTimeout the maximum amount of time to retry ack IDs for
+   * @since 4.1.5
+   */
+  public void setAckRetry(Duration retryTimeout) {
+    Assert.state(this.ackRetryScheduler == null, "Ack retries are already enabled.");
+    this.ackRetryScheduler = newDaemonScheduler("gcp-pubsub-ack-retry");
+    this.acknowledgementRetrier = new AcknowledgementRetrier(retryTimeout, this.ackRetryScheduler);
+  }
+
+  /**
+   * Enables the filtering of redelivered messages. The IDs of acknowledged messages are remembered
+   * for {@code window}; pulled or received messages with a remembered ID are acknowledged again
+   * and not passed on, so that consumers don't have to check whether they processed a message
+   * before.
+   *
+   * @param window the amount of time message IDs are remembered for
+   * @param maxMessageIds the maximum number of message IDs to remember for each subscription
+   * @since 4.1.5
+   */
+  public void setDeduplicationWindow(Duration window, int maxMessageIds) {
+    this.deduplicationWindow = new DeduplicationWindow(window, maxMessageIds);
+  }
+
+  /**
+   * Set the recorder of the latency of pull and acknowledgement requests, of the number of
+   * messages pulled and of the time spent converting payloads.
+   *
+   * @param metricsRecorder the metrics recorder
+   * @since 4.1.5
+   */
+  public void setMetricsRecorder(PubSubMetricsRecorder metricsRecorder) {
+    this.metricsRecorder = metricsRecorder;
+  }
+
   @Override
   public Subscriber subscribe(
       String subscription, Consumer<BasicAcknowledgeablePubsubMessage> messageConsumer) {
@@ -147,13 +241,19 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     Subscriber subscriber =
         this.subscriberFactory.createSubscriber(
             subscription,
-            (message, ackReplyConsumer) ->
+            (message, ackReplyConsumer) -> {
+              ProjectSubscriptionName projectSubscriptionName =
+                  PubSubSubscriptionUtils.toProjectSubscriptionName(
+                      subscription, this.subscriberFactory.getProjectId());
+              if (!isRedelivery(projectSubscriptionName, message, ackReplyConsumer)) {
                 messageConsumer.accept(
                     new PushedAcknowledgeablePubsubMessage(
-                        PubSubSubscriptionUtils.toProjectSubscriptionName(
-                            subscription, this.subscriberFactory.getProjectId()),
+                        projectSubscriptionName,
                         message,
-                        ackReplyConsumer)));
+                        ackReplyConsumer,
+                        this.deduplicationWindow));
+              }
+            });
     subscriber.startAsync();
     return subscriber;
   }
@@ -168,14 +268,20 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     Subscriber subscriber =
         this.subscriberFactory.createSubscriber(
             subscription,
-            (message, ackReplyConsumer) ->
+            (message, ackReplyConsumer) -> {
+              ProjectSubscriptionName projectSubscriptionName =
+                  PubSubSubscriptionUtils.toProjectSubscriptionName(
+                      subscription, this.subscriberFactory.getProjectId());
+              if (!isRedelivery(projectSubscriptionName, message, ackReplyConsumer)) {
                 messageConsumer.accept(
                     new ConvertedPushedAcknowledgeablePubsubMessage<>(
-                        PubSubSubscriptionUtils.toProjectSubscriptionName(
-                            subscription, this.subscriberFactory.getProjectId()),
+                        projectSubscriptionName,
                         message,
-                        this.getMessageConverter().fromPubSubMessage(message, payloadType),
-                        ackReplyConsumer)));
+                        fromPubSubMessage(subscription, message, payloadType),
+                        ackReplyConsumer,
+                        this.deduplicationWindow));
+              }
+            });
     subscriber.startAsync();
     return subscriber;
   }
@@ -189,8 +295,16 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
    */
   private List<AcknowledgeablePubsubMessage> pull(PullRequest pullRequest) {
     Assert.notNull(pullRequest, "The pull request can't be null.");
-    PullResponse pullResponse =
-        getSubscriberStub(pullRequest.getSubscription()).pullCallable().call(pullRequest);
+    long startNanos = startTimer();
+    PullResponse pullResponse;
+    try {
+      pullResponse =
+          getSubscriberStub(pullRequest.getSubscription()).pullCallable().call(pullRequest);
+    } catch (RuntimeException ex) {
+      recordPull(pullRequest, 0, startNanos, false);
+      throw ex;
+    }
+    recordPull(pullRequest, pullResponse.getReceivedMessagesCount(), startNanos, true);
     return toAcknowledgeablePubsubMessageList(
         pullResponse.getReceivedMessagesList(), pullRequest.getSubscription());
   }
@@ -204,6 +318,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
    */
   private CompletableFuture<List<AcknowledgeablePubsubMessage>> pullAsync(PullRequest pullRequest) {
     Assert.notNull(pullRequest, "The pull request can't be null.");
+    long startNanos = startTimer();
     ApiFuture<PullResponse> pullFuture =
         getSubscriberStub(pullRequest.getSubscription()).pullCallable().futureCall(pullRequest);
 
@@ -215,11 +330,14 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
 
           @Override
           public void onFailure(Throwable throwable) {
+            recordPull(pullRequest, 0, startNanos, false);
             completableFuture.completeExceptionally(throwable);
           }
 
           @Override
           public void onSuccess(PullResponse pullResponse) {
+            recordPull(
+                pullRequest, pullResponse.getReceivedMessagesCount(), startNanos, true);
             List<AcknowledgeablePubsubMessage> result =
                 toAcknowledgeablePubsubMessageList(
                     pullResponse.getReceivedMessagesList(), pullRequest.getSubscription());
@@ -234,15 +352,65 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
 
   private List<AcknowledgeablePubsubMessage> toAcknowledgeablePubsubMessageList(
       List<ReceivedMessage> messages, String subscriptionId) {
-    return messages.stream()
-        .map(
-            message ->
-                (AcknowledgeablePubsubMessage) new PulledAcknowledgeablePubsubMessage(
-                    PubSubSubscriptionUtils.toProjectSubscriptionName(
-                        subscriptionId, this.subscriberFactory.getProjectId()),
-                    message.getMessage(),
-                    message.getAckId()))
-        .toList();
+    ProjectSubscriptionName projectSubscriptionName =
+        PubSubSubscriptionUtils.toProjectSubscriptionName(
+            subscriptionId, this.subscriberFactory.getProjectId());
+    List<AcknowledgeablePubsubMessage> pulledMessages =
+        messages.stream()
+            .map(
+                message ->
+                    (AcknowledgeablePubsubMessage) new PulledAcknowledgeablePubsubMessage(
+                        projectSubscriptionName, message.getMessage(), message.getAckId()))
+            .toList();
+    return removeRedeliveries(projectSubscriptionName, pulledMessages);
+  }
+
+  /**
+   * Acknowledge the pulled messages that were already acknowledged within the deduplication
+   * window, and return the others.
+   */
+  private List<AcknowledgeablePubsubMessage> removeRedeliveries(
+      ProjectSubscriptionName projectSubscriptionName,
+      List<AcknowledgeablePubsubMessage> messages) {
+    DeduplicationWindow window = this.deduplicationWindow;
+    if (window == null || messages.isEmpty()) {
+      return messages;
+    }
+    String subscriptionName = projectSubscriptionName.toString();
+    Map<Boolean, List<AcknowledgeablePubsubMessage>> partitioned =
+        messages.stream()
+            .collect(
+                Collectors.partitioningBy(
+                    message ->
+                        window.contains(
+                            subscriptionName, message.getPubsubMessage().getMessageId())));
+    List<AcknowledgeablePubsubMessage> redeliveries = partitioned.get(true);
+    if (!redeliveries.isEmpty()) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug(
+            "Acknowledging " + redeliveries.size() + " redeliveries on " + subscriptionName + ".");
+      }
+      ack(redeliveries)
+          .exceptionally(
+              throwable -> {
+                LOGGER.warn("Failed to acknowledge redelivered messages.", throwable);
+                return null;
+              });
+    }
+    return partitioned.get(false);
+  }
+
+  private boolean isRedelivery(
+      ProjectSubscriptionName projectSubscriptionName,
+      PubsubMessage message,
+      AckReplyConsumer ackReplyConsumer) {
+    DeduplicationWindow window = this.deduplicationWindow;
+    if (window == null
+        || !window.contains(projectSubscriptionName.toString(), message.getMessageId())) {
+      return false;
+    }
+    ackReplyConsumer.ack();
+    return true;
   }
 
   @Override
@@ -290,17 +458,31 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
 
   private <T> List<ConvertedAcknowledgeablePubsubMessage<T>> toConvertedAcknowledgeablePubsubMessages(
       Class<T> payloadType, List<AcknowledgeablePubsubMessage> ackableMessages) {
+    // The messages of a pull all come from the same subscription.
+    String subscription =
+        this.metricsRecorder != null && !ackableMessages.isEmpty()
+            ? ackableMessages.get(0).getProjectSubscriptionName().toString()
+            : null;
     return ackableMessages.stream()
         .map(
             m ->
                 (ConvertedAcknowledgeablePubsubMessage<T>)
                     new ConvertedPulledAcknowledgeablePubsubMessage<>(
-                        m,
-                        this.pubSubMessageConverter
-                            .fromPubSubMessage(m.getPubsubMessage(), payloadType)))
+                        m, fromPubSubMessage(subscription, m.getPubsubMessage(), payloadType)))
         .toList();
   }
 
+  private <T> T fromPubSubMessage(
+      String subscription, PubsubMessage message, Class<T> payloadType) {
+    if (this.metricsRecorder == null) {
+      return this.pubSubMessageConverter.fromPubSubMessage(message, payloadType);
+    }
+    long startNanos = System.nanoTime();
+    T payload = this.pubSubMessageConverter.fromPubSubMessage(message, payloadType);
+    this.metricsRecorder.recordDeserialization(subscription, System.nanoTime() - startNanos);
+    return payload;
+  }
+
   @Override
   public List<PubsubMessage> pullAndAck(
       String subscription, Integer maxMessages, Boolean returnImmediately) {
@@ -392,7 +574,19 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     Assert.notEmpty(
         acknowledgeablePubsubMessages, "The acknowledgeablePubsubMessages can't be empty.");
 
-    return doBatchedAsyncOperation(acknowledgeablePubsubMessages, this::ack);
+    DeduplicationWindow window = this.deduplicationWindow;
+    if (window != null) {
+      acknowledgeablePubsubMessages.forEach(
+          message ->
+              window.add(
+                  message.getProjectSubscriptionName().toString(),
+                  message.getPubsubMessage().getMessageId()));
+    }
+
+    return doBatchedAsyncOperation(
+        acknowledgeablePubsubMessages,
+        (String subscriptionName, List<String> ackIds) ->
+            sendOrCoalesce(subscriptionName, null, ackIds, this::ack));
   }
 
   /**
@@ -428,18 +622,56 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     return doBatchedAsyncOperation(
         acknowledgeablePubsubMessages,
         (String subscriptionName, List<String> ackIds) ->
-            modifyAckDeadline(subscriptionName, ackIds, ackDeadlineSeconds));
+            sendOrCoalesce(
+                subscriptionName,
+                ackDeadlineSeconds,
+                ackIds,
+                (name, ids) -> modifyAckDeadline(name, ids, ackDeadlineSeconds)));
   }
 
-  /** Destroys the default executor, regardless of whether it was used. */
+  /**
+   * Destroys the default executor, regardless of whether it was used. Ack IDs still buffered for
+   * coalescing are sent before the subscriber stubs are closed; pending ack retries are dropped.
+   */
   @Override
   public void destroy() {
+    if (this.acknowledgementBatcher != null) {
+      this.acknowledgementBatcher.flushAll();
+      this.ackBatchingScheduler.shutdown();
+    }
+    if (this.ackRetryScheduler != null) {
+      this.ackRetryScheduler.shutdown();
+    }
     this.defaultAckExecutor.shutdown();
     for (SubscriberStub stub : subscriptionNameToStubMap.values()) {
       stub.close();
     }
   }
 
+  private ApiFuture<Empty> sendOrCoalesce(
+      String subscriptionName,
+      Integer ackDeadlineSeconds,
+      List<String> ackIds,
+      BiFunction<String, List<String>, ApiFuture<Empty>> operation) {
+    AcknowledgementRetrier retrier = this.acknowledgementRetrier;
+    BiFunction<String, List<String>, ApiFuture<Empty>> retriedOperation =
+        retrier == null ? operation : (name, ids) -> retrier.send(name, ids, operation);
+    if (this.acknowledgementBatcher == null) {
+      return retriedOperation.apply(subscriptionName, ackIds);
+    }
+    return this.acknowledgementBatcher.add(
+        subscriptionName, ackDeadlineSeconds, ackIds, retriedOperation);
+  }
+
+  private static ScheduledExecutorService newDaemonScheduler(String threadName) {
+    return Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+          Thread thread = new Thread(runnable, threadName);
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
   private ApiFuture<Empty> ack(String subscriptionName, Collection<String> ackIds) {
     AcknowledgeRequest acknowledgeRequest =
         AcknowledgeRequest.newBuilder()
@@ -447,7 +679,11 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
             .setSubscription(subscriptionName)
             .build();
     SubscriberStub subscriberStub = getSubscriberStub(subscriptionName);
-    return subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest);
+    return recordAcknowledgement(
+        subscriptionName,
+        PubSubMetricsRecorder.ACK,
+        ackIds.size(),
+        () -> subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest));
   }
 
   private ApiFuture<Empty> modifyAckDeadline(
@@ -459,7 +695,58 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
             .setSubscription(subscriptionName)
             .build();
     SubscriberStub subscriberStub = getSubscriberStub(subscriptionName);
-    return subscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest);
+    return recordAcknowledgement(
+        subscriptionName,
+        ackDeadlineSeconds == 0
+            ? PubSubMetricsRecorder.NACK
+            : PubSubMetricsRecorder.MODIFY_ACK_DEADLINE,
+        ackIds.size(),
+        () -> subscriberStub.modifyAckDeadlineCallable().futureCall(modifyAckDeadlineRequest));
+  }
+
+  private long startTimer() {
+    return this.metricsRecorder != null ? System.nanoTime() : 0L;
+  }
+
+  private void recordPull(
+      PullRequest pullRequest, int messageCount, long startNanos, boolean success) {
+    if (this.metricsRecorder != null) {
+      this.metricsRecorder.recordPull(
+          pullRequest.getSubscription(), messageCount, System.nanoTime() - startNanos, success);
+    }
+  }
+
+  private ApiFuture<Empty> recordAcknowledgement(
+      String subscriptionName,
+      String operation,
+      int ackIdCount,
+      Supplier<ApiFuture<Empty>> request) {
+    PubSubMetricsRecorder recorder = this.metricsRecorder;
+    if (recorder == null) {
+      return request.get();
+    }
+    long startNanos = System.nanoTime();
+    ApiFuture<Empty> future = request.get();
+    ApiFutures.addCallback(
+        future,
+        new ApiFutureCallback<>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            record(false);
+          }
+
+          @Override
+          public void onSuccess(Empty empty) {
+            record(true);
+          }
+
+          private void record(boolean success) {
+            recorder.recordAcknowledgement(
+                subscriptionName, operation, ackIdCount, System.nanoTime() - startNanos, success);
+          }
+        },
+        directExecutor());
+    return future;
   }
 
   /**
@@ -617,12 +904,16 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
 
     private final AckReplyConsumer ackReplyConsumer;
 
+    private final DeduplicationWindow deduplicationWindow;
+
     PushedAcknowledgeablePubsubMessage(
         ProjectSubscriptionName projectSubscriptionName,
         PubsubMessage message,
-        AckReplyConsumer ackReplyConsumer) {
+        AckReplyConsumer ackReplyConsumer,
+        DeduplicationWindow deduplicationWindow) {
       super(projectSubscriptionName, message);
       this.ackReplyConsumer = ackReplyConsumer;
+      this.deduplicationWindow = deduplicationWindow;
     }
 
     @Override
@@ -630,6 +921,10 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
       CompletableFuture<Void> completableFuture = new CompletableFuture<>();
 
       try {
+        if (this.deduplicationWindow != null) {
+          this.deduplicationWindow.add(
+              getProjectSubscriptionName().toString(), getPubsubMessage().getMessageId());
+        }
         this.ackReplyConsumer.ack();
         completableFuture.complete(null);
       } catch (Exception e) {
@@ -696,8 +991,9 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
         ProjectSubscriptionName projectSubscriptionName,
         PubsubMessage message,
         T payload,
-        AckReplyConsumer ackReplyConsumer) {
-      super(projectSubscriptionName, message, ackReplyConsumer);
+        AckReplyConsumer ackReplyConsumer,
+        DeduplicationWindow deduplicationWindow) {
+      super(projectSubscriptionName, message, ackReplyConsumer, deduplicationWindow);
       this.payload = payload;
     }
 
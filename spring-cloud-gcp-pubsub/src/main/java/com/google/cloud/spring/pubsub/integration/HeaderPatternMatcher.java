@@ -0,0 +1,171 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.PatternMatchUtils;
+
+/**
+ * Decides whether a header name matches a list of header patterns, with the semantics of {@link
+ * org.springframework.integration.support.utils.PatternMatchUtils#smartMatch(String, String...)}:
+ * the first matching pattern decides, and patterns starting with {@code !} exclude the headers
+ * they match.
+ *
+ * <p>The patterns are compiled once. Exact names are looked up in a hash map, and patterns with a
+ * single leading or trailing {@code *} in prefix and suffix tries, so that the first matching
+ * pattern is found without trying every pattern. Other patterns are matched one by one. Decisions
+ * are memoized per header name, up to {@link #MAX_CACHED_DECISIONS} names.
+ *
+ * @since 4.1.5
+ */
+class HeaderPatternMatcher {
+
+  /** The maximum number of header names whose decision is memoized. */
+  static final int MAX_CACHED_DECISIONS = 1024;
+
+  private final Map<String, Rule> exactRules = new HashMap<>();
+
+  private final TrieNode prefixRules = new TrieNode();
+
+  private final TrieNode suffixRules = new TrieNode();
+
+  private final List<Rule> otherRules = new ArrayList<>();
+
+  private Rule matchAllRule;
+
+  private final ConcurrentHashMap<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+  HeaderPatternMatcher(String... patterns) {
+    for (int i = 0; i < patterns.length; i++) {
+      String pattern = patterns[i];
+      boolean negated = pattern.startsWith("!");
+      if (negated || pattern.startsWith("\\")) {
+        pattern = pattern.substring(1);
+      }
+      Rule rule = new Rule(i, negated, pattern);
+
+      int firstWildcard = pattern.indexOf('*');
+      int lastWildcard = pattern.lastIndexOf('*');
+      if (firstWildcard < 0) {
+        this.exactRules.putIfAbsent(pattern, rule);
+      } else if (pattern.length() == 1) {
+        if (this.matchAllRule == null) {
+          this.matchAllRule = rule;
+        }
+      } else if (firstWildcard == lastWildcard && firstWildcard == pattern.length() - 1) {
+        this.prefixRules.add(pattern, 0, pattern.length() - 1, false, rule);
+      } else if (firstWildcard == lastWildcard && firstWildcard == 0) {
+        this.suffixRules.add(pattern, 1, pattern.length(), true, rule);
+      } else {
+        this.otherRules.add(rule);
+      }
+    }
+  }
+
+  /**
+   * Return whether the header name is matched by a pattern that doesn't exclude it.
+   *
+   * @param headerName the header name
+   * @return true if the header is to be mapped
+   */
+  boolean matches(String headerName) {
+    Boolean decision = this.decisions.get(headerName);
+    if (decision == null) {
+      decision = decide(headerName);
+      if (this.decisions.size() < MAX_CACHED_DECISIONS) {
+        this.decisions.putIfAbsent(headerName, decision);
+      }
+    }
+    return decision;
+  }
+
+  private boolean decide(String headerName) {
+    Rule first = this.exactRules.get(headerName);
+    first = earliest(first, this.prefixRules.find(headerName, false));
+    first = earliest(first, this.suffixRules.find(headerName, true));
+    first = earliest(first, this.matchAllRule);
+    for (Rule rule : this.otherRules) {
+      if (first != null && first.index < rule.index) {
+        break;
+      }
+      if (PatternMatchUtils.simpleMatch(rule.pattern, headerName)) {
+        first = rule;
+        break;
+      }
+    }
+    return first != null && !first.negated;
+  }
+
+  private static Rule earliest(Rule rule, Rule other) {
+    if (rule == null) {
+      return other;
+    }
+    return other == null || rule.index < other.index ? rule : other;
+  }
+
+  private static class Rule {
+
+    private final int index;
+
+    private final boolean negated;
+
+    private final String pattern;
+
+    Rule(int index, boolean negated, String pattern) {
+      this.index = index;
+      this.negated = negated;
+      this.pattern = pattern;
+    }
+  }
+
+  /** Trie of the literal parts of prefix or suffix patterns, read backwards for suffixes. */
+  private static class TrieNode {
+
+    private final Map<Character, TrieNode> children = new HashMap<>();
+
+    /** The earliest pattern whose literal part ends at this node. */
+    private Rule rule;
+
+    void add(String pattern, int start, int end, boolean reversed, Rule rule) {
+      TrieNode node = this;
+      for (int i = 0; i < end - start; i++) {
+        char c = pattern.charAt(reversed ? end - 1 - i : start + i);
+        node = node.children.computeIfAbsent(c, key -> new TrieNode());
+      }
+      if (node.rule == null) {
+        node.rule = rule;
+      }
+    }
+
+    Rule find(String headerName, boolean reversed) {
+      Rule first = null;
+      TrieNode node = this;
+      int length = headerName.length();
+      for (int i = 0; i < length && node != null; i++) {
+        node = node.children.get(headerName.charAt(reversed ? length - 1 - i : i));
+        if (node != null) {
+          first = earliest(first, node.rule);
+        }
+      }
+      return first;
+    }
+  }
+}
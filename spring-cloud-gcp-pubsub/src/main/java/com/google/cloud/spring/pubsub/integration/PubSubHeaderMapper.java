@@ -19,13 +19,12 @@ package com.google.cloud.spring.pubsub.integration;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import java.util.Arrays;
 import java.util.Map;
-import java.util.stream.Collectors;
 import org.springframework.integration.history.MessageHistory;
 import org.springframework.integration.mapping.HeaderMapper;
-import org.springframework.integration.support.utils.PatternMatchUtils;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.NativeMessageHeaderAccessor;
 import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
 
 /**
  * Maps headers from {@link com.google.pubsub.v1.PubsubMessage}s to {@link
@@ -55,6 +54,12 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
   /** Patterns of headers to map in {@link #toHeaders(Map)}. First patterns take precedence. */
   private String[] inboundHeaderPatterns = {"*"};
 
+  private HeaderPatternMatcher outboundHeaderMatcher =
+      new HeaderPatternMatcher(this.outboundHeaderPatterns);
+
+  private HeaderPatternMatcher inboundHeaderMatcher =
+      new HeaderPatternMatcher(this.inboundHeaderPatterns);
+
   /**
    * Set the patterns of the headers to be mapped in {@link #fromHeaders(MessageHeaders, Map)}.
    * First patterns take precedence.
@@ -66,6 +71,7 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
     Assert.noNullElements(outboundHeaderPatterns, "No header pattern can be null.");
     this.outboundHeaderPatterns =
         Arrays.copyOf(outboundHeaderPatterns, outboundHeaderPatterns.length);
+    this.outboundHeaderMatcher = new HeaderPatternMatcher(this.outboundHeaderPatterns);
   }
 
   /**
@@ -78,6 +84,7 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
     Assert.notNull(inboundHeaderPatterns, "Header patterns can't be null.");
     Assert.noNullElements(inboundHeaderPatterns, "No header pattern can be null.");
     this.inboundHeaderPatterns = Arrays.copyOf(inboundHeaderPatterns, inboundHeaderPatterns.length);
+    this.inboundHeaderMatcher = new HeaderPatternMatcher(this.inboundHeaderPatterns);
   }
 
   /**
@@ -92,12 +99,12 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
   @Override
   public void fromHeaders(
       MessageHeaders messageHeaders, final Map<String, String> pubsubMessageHeaders) {
-    messageHeaders.entrySet().stream()
-        .filter(
-            entry ->
-                Boolean.TRUE.equals(
-                    PatternMatchUtils.smartMatch(entry.getKey(), this.outboundHeaderPatterns)))
-        .forEach(entry -> pubsubMessageHeaders.put(entry.getKey(), entry.getValue().toString()));
+    HeaderPatternMatcher matcher = this.outboundHeaderMatcher;
+    for (Map.Entry<String, Object> entry : messageHeaders.entrySet()) {
+      if (matcher.matches(entry.getKey())) {
+        pubsubMessageHeaders.put(entry.getKey(), entry.getValue().toString());
+      }
+    }
   }
 
   /**
@@ -111,11 +118,13 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
    */
   @Override
   public Map<String, Object> toHeaders(Map<String, String> pubsubMessageHeaders) {
-    return pubsubMessageHeaders.entrySet().stream()
-        .filter(
-            entry ->
-                Boolean.TRUE.equals(
-                    PatternMatchUtils.smartMatch(entry.getKey(), this.inboundHeaderPatterns)))
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    HeaderPatternMatcher matcher = this.inboundHeaderMatcher;
+    Map<String, Object> headers = CollectionUtils.newHashMap(pubsubMessageHeaders.size());
+    for (Map.Entry<String, String> entry : pubsubMessageHeaders.entrySet()) {
+      if (matcher.matches(entry.getKey())) {
+        headers.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return headers;
   }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.inbound;
+
+import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.springframework.util.Assert;
+
+/**
+ * Aggregates messages received by a {@link PubSubInboundChannelAdapter} into batches.
+ *
+ * <p>A batch is handed to the batch consumer as soon as it holds {@code maxMessages} messages or
+ * {@code maxBytes} bytes of serialized messages, or when {@code maxDelay} has elapsed since its
+ * first message was added, whichever happens first. A message that would take a non-empty batch
+ * over {@code maxBytes} starts a new batch. Full batches are handed over on the thread adding the
+ * last message, and expired ones on the scheduler thread.
+ *
+ * @since 4.1.5
+ */
+class InboundMessageBatcher {
+
+  private final int maxMessages;
+
+  private final long maxBytes;
+
+  private final Duration maxDelay;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Consumer<List<ConvertedBasicAcknowledgeablePubsubMessage<?>>> batchConsumer;
+
+  private List<ConvertedBasicAcknowledgeablePubsubMessage<?>> pending = new ArrayList<>();
+
+  private long pendingBytes;
+
+  private ScheduledFuture<?> scheduledFlush;
+
+  private boolean closed;
+
+  InboundMessageBatcher(
+      int maxMessages,
+      long maxBytes,
+      Duration maxDelay,
+      ScheduledExecutorService scheduler,
+      Consumer<List<ConvertedBasicAcknowledgeablePubsubMessage<?>>> batchConsumer) {
+    Assert.isTrue(maxMessages > 0, "maxMessages must be greater than 0.");
+    Assert.isTrue(maxBytes > 0, "maxBytes must be greater than 0.");
+    Assert.notNull(maxDelay, "maxDelay can't be null.");
+    Assert.isTrue(!maxDelay.isNegative(), "maxDelay must not be negative.");
+    Assert.notNull(scheduler, "scheduler can't be null.");
+    Assert.notNull(batchConsumer, "batchConsumer can't be null.");
+    this.maxMessages = maxMessages;
+    this.maxBytes = maxBytes;
+    this.maxDelay = maxDelay;
+    this.scheduler = scheduler;
+    this.batchConsumer = batchConsumer;
+  }
+
+  /**
+   * Add a message to the current batch. Once the batcher is {@link #close() closed}, messages are
+   * handed over right away, each in its own batch.
+   *
+   * @param message the received message
+   */
+  void add(ConvertedBasicAcknowledgeablePubsubMessage<?> message) {
+    long bytes = message.getPubsubMessage().getSerializedSize();
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> previousBatch = null;
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> fullBatch = null;
+    synchronized (this) {
+      if (this.closed) {
+        fullBatch = Collections.singletonList(message);
+      } else {
+        if (!this.pending.isEmpty() && this.pendingBytes + bytes > this.maxBytes) {
+          previousBatch = takePending();
+        }
+        this.pending.add(message);
+        this.pendingBytes += bytes;
+        if (this.pending.size() >= this.maxMessages || this.pendingBytes >= this.maxBytes) {
+          fullBatch = takePending();
+        } else if (this.pending.size() == 1) {
+          List<ConvertedBasicAcknowledgeablePubsubMessage<?>> batch = this.pending;
+          this.scheduledFlush =
+              this.scheduler.schedule(
+                  () -> flush(batch), this.maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+      }
+    }
+
+    if (previousBatch != null) {
+      this.batchConsumer.accept(previousBatch);
+    }
+    if (fullBatch != null) {
+      this.batchConsumer.accept(fullBatch);
+    }
+  }
+
+  /** Hand over the current batch, if it holds any message. */
+  void flush() {
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> batch;
+    synchronized (this) {
+      if (this.pending.isEmpty()) {
+        return;
+      }
+      batch = takePending();
+    }
+    this.batchConsumer.accept(batch);
+  }
+
+  private void flush(List<ConvertedBasicAcknowledgeablePubsubMessage<?>> expiredBatch) {
+    synchronized (this) {
+      // The batch may have been handed over already, before this flush ran.
+      if (this.pending != expiredBatch) {
+        return;
+      }
+      takePending();
+    }
+    this.batchConsumer.accept(expiredBatch);
+  }
+
+  /** Hand over the current batch and stop batching messages added from now on. */
+  void close() {
+    synchronized (this) {
+      this.closed = true;
+    }
+    flush();
+  }
+
+  private List<ConvertedBasicAcknowledgeablePubsubMessage<?>> takePending() {
+    if (this.scheduledFlush != null) {
+      this.scheduledFlush.cancel(false);
+      this.scheduledFlush = null;
+    }
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> batch = this.pending;
+    this.pending = new ArrayList<>();
+    this.pendingBytes = 0;
+    return batch;
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.inbound;
+
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
+import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Keeps a buffer of messages pulled ahead of time from a subscription, for a {@link
+ * PubSubMessageSource}.
+ *
+ * <p>The buffer is refilled in the background with asynchronous pulls whenever it holds fewer
+ * than {@code bufferSize} messages. The ack deadline of buffered messages is extended to {@code
+ * ackDeadlineSeconds} right after they are pulled, and then every {@code ackDeadlineSeconds / 2}
+ * seconds, in batched {@code modifyAckDeadline} requests. Messages whose lease would expire
+ * within a second, for instance because extending it failed, are dropped and nacked instead of
+ * being handed out.
+ *
+ * <p>Until the first extension of their deadline succeeds, messages are assumed to be leased for
+ * the minimum ack deadline of a subscription. A poll waiting for a message gives up after a
+ * second, like a synchronous pull that returns no messages.
+ *
+ * @since 4.1.5
+ */
+class MessagePrefetcher {
+
+  private static final Log LOGGER = LogFactory.getLog(MessagePrefetcher.class);
+
+  /** The minimum ack deadline of a subscription. */
+  static final int MIN_ACK_DEADLINE_SECONDS = 10;
+
+  /** The maximum ack deadline Pub/Sub accepts. */
+  static final int MAX_ACK_DEADLINE_SECONDS = 600;
+
+  /** The maximum number of ack IDs to send in a single request. */
+  private static final int MAX_ACK_IDS_PER_REQUEST = 1000;
+
+  private static final long EXPIRY_MARGIN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /** How long to wait before pulling again after a pull returned nothing or failed. */
+  private static final long RETRY_DELAY_MILLIS = 1000L;
+
+  /** How long a poll waits for a message before returning none. */
+  static final long MAX_POLL_WAIT_MILLIS = 1000L;
+
+  private final PubSubSubscriberOperations pubSubSubscriberOperations;
+
+  private final String subscriptionName;
+
+  private final Class<?> payloadType;
+
+  private final int bufferSize;
+
+  private final int ackDeadlineSeconds;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final LongSupplier nanoClock;
+
+  private final ArrayDeque<BufferedMessage> buffer = new ArrayDeque<>();
+
+  private boolean pulling;
+
+  private boolean stopped;
+
+  MessagePrefetcher(
+      PubSubSubscriberOperations pubSubSubscriberOperations,
+      String subscriptionName,
+      Class<?> payloadType,
+      int bufferSize,
+      int ackDeadlineSeconds,
+      ScheduledExecutorService scheduler) {
+    this(
+        pubSubSubscriberOperations,
+        subscriptionName,
+        payloadType,
+        bufferSize,
+        ackDeadlineSeconds,
+        scheduler,
+        System::nanoTime);
+  }
+
+  MessagePrefetcher(
+      PubSubSubscriberOperations pubSubSubscriberOperations,
+      String subscriptionName,
+      Class<?> payloadType,
+      int bufferSize,
+      int ackDeadlineSeconds,
+      ScheduledExecutorService scheduler,
+      LongSupplier nanoClock) {
+    Assert.isTrue(bufferSize > 0, "bufferSize must be greater than 0.");
+    Assert.isTrue(
+        ackDeadlineSeconds >= MIN_ACK_DEADLINE_SECONDS
+            && ackDeadlineSeconds <= MAX_ACK_DEADLINE_SECONDS,
+        "ackDeadlineSeconds must be between " + MIN_ACK_DEADLINE_SECONDS + " and "
+            + MAX_ACK_DEADLINE_SECONDS + ".");
+    this.pubSubSubscriberOperations = pubSubSubscriberOperations;
+    this.subscriptionName = subscriptionName;
+    this.payloadType = payloadType;
+    this.bufferSize = bufferSize;
+    this.ackDeadlineSeconds = ackDeadlineSeconds;
+    this.scheduler = scheduler;
+    this.nanoClock = nanoClock;
+  }
+
+  /** Start filling the buffer and extending the leases of buffered messages. */
+  void start() {
+    long periodSeconds = Math.max(1, this.ackDeadlineSeconds / 2);
+    this.scheduler.scheduleWithFixedDelay(
+        () -> {
+          extendLeases();
+          refill();
+        },
+        periodSeconds,
+        periodSeconds,
+        TimeUnit.SECONDS);
+    refill();
+  }
+
+  /**
+   * Take the oldest buffered message whose lease hasn't expired. Expired messages found on the way
+   * are nacked.
+   *
+   * @param waitForMessage whether to wait for a message, up to {@link #MAX_POLL_WAIT_MILLIS}, when
+   *     the buffer is empty
+   * @return the message, or {@code null} if none is buffered
+   */
+  ConvertedAcknowledgeablePubsubMessage<?> poll(boolean waitForMessage) {
+    List<ConvertedAcknowledgeablePubsubMessage<?>> expired = new ArrayList<>();
+    BufferedMessage next = null;
+    long waitDeadlineNanos =
+        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_POLL_WAIT_MILLIS);
+    try {
+      synchronized (this) {
+        while (next == null && !this.stopped) {
+          BufferedMessage candidate = this.buffer.pollFirst();
+          if (candidate == null) {
+            long waitNanos = waitDeadlineNanos - System.nanoTime();
+            if (!waitForMessage || waitNanos <= 0) {
+              break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+          } else if (candidate.leaseExpiryNanos - this.nanoClock.getAsLong()
+              <= EXPIRY_MARGIN_NANOS) {
+            expired.add(candidate.message);
+          } else {
+            next = candidate;
+          }
+        }
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (!expired.isEmpty()) {
+        LOGGER.warn(String.format(
+            "Dropped %d prefetched messages from %s whose lease expired; nacking them.",
+            expired.size(), this.subscriptionName));
+        nackInBatches(expired);
+      }
+    }
+    refill();
+    return next != null ? next.message : null;
+  }
+
+  /**
+   * Return the number of buffered messages.
+   *
+   * @return the number of messages pulled and not handed out yet
+   */
+  synchronized int getBufferedCount() {
+    return this.buffer.size();
+  }
+
+  /** Stop prefetching and nack the buffered messages so that they are redelivered right away. */
+  void stop() {
+    List<ConvertedAcknowledgeablePubsubMessage<?>> buffered = new ArrayList<>();
+    synchronized (this) {
+      this.stopped = true;
+      this.buffer.forEach(bufferedMessage -> buffered.add(bufferedMessage.message));
+      this.buffer.clear();
+      notifyAll();
+    }
+    nackInBatches(buffered);
+  }
+
+  private void refill() {
+    int missing;
+    synchronized (this) {
+      if (this.stopped || this.pulling || this.buffer.size() >= this.bufferSize) {
+        return;
+      }
+      missing = this.bufferSize - this.buffer.size();
+      this.pulling = true;
+    }
+
+    long pulledNanos = this.nanoClock.getAsLong();
+    this.pubSubSubscriberOperations
+        .pullAndConvertAsync(this.subscriptionName, missing, false, this.payloadType)
+        .whenComplete(
+            (messages, throwable) -> {
+              if (throwable != null) {
+                synchronized (this) {
+                  this.pulling = false;
+                }
+                LOGGER.warn("Prefetching messages from " + this.subscriptionName + " failed.",
+                    throwable);
+                scheduleRefill();
+                return;
+              }
+              onPulled(messages, pulledNanos);
+            });
+  }
+
+  private synchronized void scheduleRefill() {
+    // The scheduler is shut down only once this prefetcher is stopped.
+    if (!this.stopped) {
+      this.scheduler.schedule(this::refill, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void onPulled(
+      List<? extends ConvertedAcknowledgeablePubsubMessage<?>> messages, long pulledNanos) {
+    List<BufferedMessage> pulled = new ArrayList<>(messages.size());
+    long leaseExpiryNanos = pulledNanos + TimeUnit.SECONDS.toNanos(MIN_ACK_DEADLINE_SECONDS);
+    for (ConvertedAcknowledgeablePubsubMessage<?> message : messages) {
+      pulled.add(new BufferedMessage(message, leaseExpiryNanos));
+    }
+
+    boolean stoppedMeanwhile;
+    synchronized (this) {
+      this.pulling = false;
+      stoppedMeanwhile = this.stopped;
+      if (!stoppedMeanwhile) {
+        this.buffer.addAll(pulled);
+        notifyAll();
+      }
+    }
+    if (stoppedMeanwhile) {
+      nackInBatches(new ArrayList<>(messages));
+      return;
+    }
+    if (messages.isEmpty()) {
+      scheduleRefill();
+      return;
+    }
+
+    extendLeases(pulled);
+    refill();
+  }
+
+  private void extendLeases() {
+    List<BufferedMessage> buffered;
+    synchronized (this) {
+      buffered = new ArrayList<>(this.buffer);
+    }
+    extendLeases(buffered);
+  }
+
+  private void extendLeases(List<BufferedMessage> messages) {
+    for (int start = 0; start < messages.size(); start += MAX_ACK_IDS_PER_REQUEST) {
+      List<BufferedMessage> batch =
+          messages.subList(start, Math.min(messages.size(), start + MAX_ACK_IDS_PER_REQUEST));
+      List<ConvertedAcknowledgeablePubsubMessage<?>> batchMessages = new ArrayList<>(batch.size());
+      batch.forEach(bufferedMessage -> batchMessages.add(bufferedMessage.message));
+      long leaseExpiryNanos =
+          this.nanoClock.getAsLong() + TimeUnit.SECONDS.toNanos(this.ackDeadlineSeconds);
+      this.pubSubSubscriberOperations
+          .modifyAckDeadline(batchMessages, this.ackDeadlineSeconds)
+          .whenComplete(
+              (result, throwable) -> {
+                if (throwable != null) {
+                  LOGGER.warn("Extending the lease of prefetched messages from "
+                      + this.subscriptionName + " failed.", throwable);
+                  return;
+                }
+                batch.forEach(
+                    bufferedMessage ->
+                        bufferedMessage.leaseExpiryNanos =
+                            Math.max(bufferedMessage.leaseExpiryNanos, leaseExpiryNanos));
+              });
+    }
+  }
+
+  private void nackInBatches(List<ConvertedAcknowledgeablePubsubMessage<?>> messages) {
+    for (int start = 0; start < messages.size(); start += MAX_ACK_IDS_PER_REQUEST) {
+      this.pubSubSubscriberOperations.nack(
+          messages.subList(start, Math.min(messages.size(), start + MAX_ACK_IDS_PER_REQUEST)));
+    }
+  }
+
+  private static class BufferedMessage {
+
+    private final ConvertedAcknowledgeablePubsubMessage<?> message;
+
+    private volatile long leaseExpiryNanos;
+
+    BufferedMessage(ConvertedAcknowledgeablePubsubMessage<?> message, long leaseExpiryNanos) {
+      this.message = message;
+      this.leaseExpiryNanos = leaseExpiryNanos;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.inbound;
+
+import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Hands messages received by a {@link PubSubInboundChannelAdapter} to a fixed number of lanes, each
+ * handling its messages one at a time on its own thread.
+ *
+ * <p>Messages with the same ordering key always go to the same lane, so they're handled in the
+ * order they were received, while messages with other ordering keys are handled concurrently on
+ * the other lanes. Messages without an ordering key are spread over the lanes in turn.
+ *
+ * <p>Each lane holds at most {@code laneCapacity} messages that are waiting or being handled. When
+ * a lane is full, adding a message blocks the subscriber thread until the lane has room, so that
+ * the subscriber flow control limits how many messages are outstanding. Messages that can't be
+ * handed to their lane, because the dispatcher is {@link #close() closed} or the subscriber thread
+ * is interrupted while waiting, are nacked so that Pub/Sub redelivers them, rather than handled out
+ * of turn on the subscriber thread.
+ *
+ * @since 4.1.5
+ */
+class OrderingKeyDispatcher {
+
+  private static final Log LOGGER = LogFactory.getLog(OrderingKeyDispatcher.class);
+
+  private final Lane[] lanes;
+
+  private final Consumer<ConvertedBasicAcknowledgeablePubsubMessage<?>> messageConsumer;
+
+  private final LaneWaitListener waitListener;
+
+  private final AtomicInteger nextUnorderedLane = new AtomicInteger();
+
+  OrderingKeyDispatcher(
+      int laneCount,
+      int laneCapacity,
+      String threadNamePrefix,
+      Consumer<ConvertedBasicAcknowledgeablePubsubMessage<?>> messageConsumer,
+      LaneWaitListener waitListener) {
+    Assert.isTrue(laneCount > 0, "laneCount must be greater than 0.");
+    Assert.isTrue(laneCapacity > 0, "laneCapacity must be greater than 0.");
+    Assert.notNull(threadNamePrefix, "threadNamePrefix can't be null.");
+    Assert.notNull(messageConsumer, "messageConsumer can't be null.");
+    Assert.notNull(waitListener, "waitListener can't be null.");
+    this.messageConsumer = messageConsumer;
+    this.waitListener = waitListener;
+    this.lanes = new Lane[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+      this.lanes[i] = new Lane(laneCapacity, threadNamePrefix + i);
+    }
+  }
+
+  /**
+   * Hand a message to the lane of its ordering key, waiting for the lane to have room if it's full.
+   *
+   * @param message the received message
+   */
+  void dispatch(ConvertedBasicAcknowledgeablePubsubMessage<?> message) {
+    long dispatchNanos = System.nanoTime();
+    String orderingKey = message.getPubsubMessage().getOrderingKey();
+    int laneIndex =
+        orderingKey.isEmpty()
+            ? Math.floorMod(this.nextUnorderedLane.getAndIncrement(), this.lanes.length)
+            : Math.floorMod(orderingKey.hashCode(), this.lanes.length);
+    Lane lane = this.lanes[laneIndex];
+
+    try {
+      lane.permits.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while waiting for dispatch lane " + laneIndex + "; message nacked.");
+      message.nack();
+      return;
+    }
+
+    try {
+      lane.executor.execute(
+          () -> {
+            try {
+              handle(laneIndex, message, dispatchNanos);
+            } finally {
+              lane.permits.release();
+            }
+          });
+    } catch (RejectedExecutionException ex) {
+      // The dispatcher was closed.
+      lane.permits.release();
+      message.nack();
+    }
+  }
+
+  /**
+   * Get the number of messages a lane holds, waiting or being handled.
+   *
+   * @param lane the index of the lane
+   * @return the number of messages in the lane
+   */
+  int getQueuedMessageCount(int lane) {
+    Lane laneToCount = this.lanes[lane];
+    return laneToCount.capacity - laneToCount.permits.availablePermits();
+  }
+
+  /** Stop accepting messages in the lanes. Messages already in a lane are still handled. */
+  void close() {
+    for (Lane lane : this.lanes) {
+      lane.executor.shutdown();
+    }
+  }
+
+  private void handle(
+      int laneIndex, ConvertedBasicAcknowledgeablePubsubMessage<?> message, long dispatchNanos) {
+    this.waitListener.onWait(laneIndex, System.nanoTime() - dispatchNanos);
+    this.messageConsumer.accept(message);
+  }
+
+  /** Notified of the time messages waited for their lane, including waiting for it to have room. */
+  @FunctionalInterface
+  interface LaneWaitListener {
+
+    void onWait(int lane, long waitNanos);
+  }
+
+  private static final class Lane {
+
+    private final int capacity;
+
+    private final Semaphore permits;
+
+    private final ThreadPoolExecutor executor;
+
+    private Lane(int capacity, String threadName) {
+      this.capacity = capacity;
+      this.permits = new Semaphore(capacity);
+      ThreadFactory threadFactory =
+          runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+          };
+      // The permits keep the queue from ever being full.
+      this.executor =
+          new ThreadPoolExecutor(
+              1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), threadFactory);
+    }
+  }
+}
@@ -22,9 +22,15 @@ import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.integration.endpoint.MessageProducerSupport;
@@ -35,6 +41,16 @@ import org.springframework.util.Assert;
 /**
  * Converts from GCP Pub/Sub message to Spring message and sends the Spring message to the attached
  * channels.
+ *
+ * <p>In batch mode, enabled with {@link #setBatchMode(int, long, Duration)}, incoming messages are
+ * aggregated and sent as a single Spring message whose payload is the list of converted payloads.
+ * The {@link GcpPubSubHeaders#ORIGINAL_MESSAGES} header holds the original message of each
+ * element for acking and nacking, and the {@link GcpPubSubHeaders#BATCH_CONVERTED_HEADERS} header
+ * holds the headers mapped from each element.
+ *
+ * <p>With {@link #setOrderingKeyDispatch(int, int)}, messages are handled on a fixed number of
+ * lanes instead of the subscriber threads, so that messages with different ordering keys are
+ * handled concurrently while the messages of each ordering key keep their order.
  */
 public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
@@ -54,6 +70,24 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
   private HealthTrackerRegistry healthTrackerRegistry;
 
+  private PubSubMetricsRecorder metricsRecorder;
+
+  private int maxBatchSize;
+
+  private long maxBatchBytes;
+
+  private Duration maxBatchDelay;
+
+  private ScheduledExecutorService batchingScheduler;
+
+  private InboundMessageBatcher batcher;
+
+  private int dispatchLaneCount;
+
+  private int dispatchLaneCapacity;
+
+  private OrderingKeyDispatcher dispatcher;
+
   /**
    * Instantiates a streaming Pub/Sub subscription adapter.
    *
@@ -82,6 +116,17 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
     this.healthTrackerRegistry = healthTrackerRegistry;
   }
 
+  /**
+   * Set the recorder of the time taken to handle received messages. The subscriber operations
+   * record their own measurements.
+   *
+   * @param metricsRecorder the metrics recorder
+   * @since 4.1.5
+   */
+  public void setMetricsRecorder(PubSubMetricsRecorder metricsRecorder) {
+    this.metricsRecorder = metricsRecorder;
+  }
+
   public Class<?> getPayloadType() {
     return this.payloadType;
   }
@@ -112,15 +157,120 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
     this.headerMapper = headerMapper;
   }
 
+  /**
+   * Enable batch mode. Incoming messages are aggregated into batches that are sent downstream as a
+   * single Spring message, with a {@code List} payload. In the {@link AckMode#AUTO} and {@link
+   * AckMode#AUTO_ACK} modes, the messages of a batch are acked or nacked together, and the client
+   * library sends their acknowledgements in as few requests as possible.
+   *
+   * <p>A batch is sent as soon as it holds {@code maxBatchSize} messages or {@code maxBatchBytes}
+   * bytes of serialized messages, or once {@code maxBatchDelay} has elapsed since its first
+   * message was received. Batches can't hold more messages than the subscriber flow control lets
+   * through at a time.
+   *
+   * @param maxBatchSize the maximum number of messages in a batch
+   * @param maxBatchBytes the maximum size of the serialized messages of a batch, in bytes
+   * @param maxBatchDelay the maximum amount of time a message waits for its batch to be sent
+   * @since 4.1.5
+   */
+  public void setBatchMode(int maxBatchSize, long maxBatchBytes, Duration maxBatchDelay) {
+    Assert.isTrue(maxBatchSize > 0, "maxBatchSize must be greater than 0.");
+    Assert.isTrue(maxBatchBytes > 0, "maxBatchBytes must be greater than 0.");
+    Assert.notNull(maxBatchDelay, "maxBatchDelay can't be null.");
+    Assert.isTrue(!maxBatchDelay.isNegative(), "maxBatchDelay must not be negative.");
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchBytes = maxBatchBytes;
+    this.maxBatchDelay = maxBatchDelay;
+  }
+
+  /**
+   * Return whether batch mode is enabled.
+   *
+   * @return true if messages are sent downstream in batches
+   * @since 4.1.5
+   */
+  public boolean isBatchMode() {
+    return this.maxBatchSize > 0;
+  }
+
+  /**
+   * Enable ordering key dispatch. Received messages are handed to {@code laneCount} lanes, each
+   * handling its messages one at a time on its own thread. Messages with the same ordering key go
+   * to the same lane and are handled in order; messages with other ordering keys, or without one,
+   * are handled concurrently on the other lanes.
+   *
+   * <p>When the lane of a message already holds {@code laneCapacity} messages, the subscriber
+   * thread waits for the lane to have room, so that the subscriber flow control throttles the
+   * subscription. Messages received once the adapter is stopping are nacked rather than handled
+   * out of order. Ordering key dispatch can't be combined with batch mode.
+   *
+   * @param laneCount the number of lanes
+   * @param laneCapacity the maximum number of messages waiting or being handled in each lane
+   * @since 4.1.5
+   */
+  public void setOrderingKeyDispatch(int laneCount, int laneCapacity) {
+    Assert.isTrue(laneCount > 0, "laneCount must be greater than 0.");
+    Assert.isTrue(laneCapacity > 0, "laneCapacity must be greater than 0.");
+    this.dispatchLaneCount = laneCount;
+    this.dispatchLaneCapacity = laneCapacity;
+  }
+
+  /**
+   * Return whether ordering key dispatch is enabled.
+   *
+   * @return true if messages are handled on ordering key lanes
+   * @since 4.1.5
+   */
+  public boolean isOrderingKeyDispatch() {
+    return this.dispatchLaneCount > 0;
+  }
+
   @Override
   protected void doStart() {
     super.doStart();
 
     addToHealthRegistry();
 
-    this.subscriber =
-        this.pubSubSubscriberOperations.subscribeAndConvert(
-            this.subscriptionName, this::consumeMessage, this.payloadType);
+    Assert.state(
+        !isBatchMode() || !isOrderingKeyDispatch(),
+        "Batch mode and ordering key dispatch can't be enabled together.");
+
+    if (isBatchMode()) {
+      this.batchingScheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "gcp-pubsub-inbound-batching");
+                thread.setDaemon(true);
+                return thread;
+              });
+      InboundMessageBatcher messageBatcher =
+          new InboundMessageBatcher(
+              this.maxBatchSize,
+              this.maxBatchBytes,
+              this.maxBatchDelay,
+              this.batchingScheduler,
+              this::consumeBatch);
+      this.batcher = messageBatcher;
+      this.subscriber =
+          this.pubSubSubscriberOperations.subscribeAndConvert(
+              this.subscriptionName, messageBatcher::add, this.payloadType);
+    } else if (isOrderingKeyDispatch()) {
+      OrderingKeyDispatcher messageDispatcher =
+          new OrderingKeyDispatcher(
+              this.dispatchLaneCount,
+              this.dispatchLaneCapacity,
+              "gcp-pubsub-dispatch-" + this.subscriptionName + "-",
+              this::consumeMessage,
+              this::recordDispatchWait);
+      this.dispatcher = messageDispatcher;
+      this.subscriber =
+          this.pubSubSubscriberOperations.subscribeAndConvert(
+              this.subscriptionName, messageDispatcher::dispatch, this.payloadType);
+    } else {
+      this.subscriber =
+          this.pubSubSubscriberOperations.subscribeAndConvert(
+              this.subscriptionName, this::consumeMessage, this.payloadType);
+    }
 
     addListeners();
   }
@@ -131,6 +281,19 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
       this.subscriber.stopAsync();
     }
 
+    if (this.batcher != null) {
+      // Messages still arriving while the subscriber stops are sent one by one.
+      this.batcher.close();
+      this.batcher = null;
+      this.batchingScheduler.shutdown();
+    }
+
+    if (this.dispatcher != null) {
+      // Messages already in a lane are still handled; later ones are nacked.
+      this.dispatcher.close();
+      this.dispatcher = null;
+    }
+
     super.doStop();
   }
 
@@ -142,6 +305,7 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
     // ack/nack, or just have access to the original message for any other reason.
     messageHeaders.put(GcpPubSubHeaders.ORIGINAL_MESSAGE, message);
 
+    long startNanos = startTimer();
     try {
       sendMessage(
           getMessageBuilderFactory()
@@ -154,6 +318,7 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
       if (this.ackMode == AckMode.AUTO_ACK || this.ackMode == AckMode.AUTO) {
         message.ack();
       }
+      recordProcessing(1, startNanos, true);
     } catch (RuntimeException re) {
       if (this.ackMode == AckMode.AUTO) {
         message.nack();
@@ -161,15 +326,82 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
       } else {
         logWarning(message, re, "message neither acked nor nacked.");
       }
+      recordProcessing(1, startNanos, false);
     }
   }
 
+  private void consumeBatch(List<ConvertedBasicAcknowledgeablePubsubMessage<?>> messages) {
+    List<Object> payloads = new ArrayList<>(messages.size());
+    List<Map<String, Object>> convertedHeaders = new ArrayList<>(messages.size());
+    for (ConvertedBasicAcknowledgeablePubsubMessage<?> message : messages) {
+      payloads.add(message.getPayload());
+      convertedHeaders.add(
+          this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap()));
+    }
+
+    long startNanos = startTimer();
+    try {
+      sendMessage(
+          getMessageBuilderFactory()
+              .withPayload(payloads)
+              .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGES, messages)
+              .setHeader(GcpPubSubHeaders.BATCH_CONVERTED_HEADERS, convertedHeaders)
+              .build());
+
+      processedMessage(messages.get(0).getProjectSubscriptionName());
+
+      if (this.ackMode == AckMode.AUTO_ACK || this.ackMode == AckMode.AUTO) {
+        messages.forEach(ConvertedBasicAcknowledgeablePubsubMessage::ack);
+      }
+      recordProcessing(messages.size(), startNanos, true);
+    } catch (RuntimeException re) {
+      if (this.ackMode == AckMode.AUTO) {
+        messages.forEach(ConvertedBasicAcknowledgeablePubsubMessage::nack);
+        logBatchWarning(messages, re, "messages nacked automatically.");
+      } else {
+        logBatchWarning(messages, re, "messages neither acked nor nacked.");
+      }
+      recordProcessing(messages.size(), startNanos, false);
+    }
+  }
+
+  private long startTimer() {
+    return this.metricsRecorder != null ? System.nanoTime() : 0L;
+  }
+
+  private void recordProcessing(int messageCount, long startNanos, boolean success) {
+    if (this.metricsRecorder != null) {
+      this.metricsRecorder.recordProcessing(
+          this.subscriptionName, messageCount, System.nanoTime() - startNanos, success);
+    }
+  }
+
+  private void recordDispatchWait(int lane, long waitNanos) {
+    if (this.metricsRecorder != null) {
+      this.metricsRecorder.recordDispatchWait(this.subscriptionName, lane, waitNanos);
+    }
+  }
+
+  private void logBatchWarning(
+      List<ConvertedBasicAcknowledgeablePubsubMessage<?>> messages,
+      RuntimeException re,
+      String actionMessage) {
+    LOGGER.warn(String.format("Sending Spring message batch of %d messages starting with [%s] "
+        + "failed; %s",
+        messages.size(), messages.get(0).getPubsubMessage().getMessageId(), actionMessage));
+    logCause(re);
+  }
+
   private void logWarning(
       ConvertedBasicAcknowledgeablePubsubMessage<?> message,
       RuntimeException re,
       String actionMessage) {
     LOGGER.warn(String.format("Sending Spring message [%s] failed; %s",
         message.getPubsubMessage().getMessageId(), actionMessage));
+    logCause(re);
+  }
+
+  private void logCause(RuntimeException re) {
     // Starting from Spring 3.0, nested exception message is NOT included in stacktrace.
     // However, customers may still rely on messages in nested exception to troubleshoot,
     // so we explicitly log failure messages.
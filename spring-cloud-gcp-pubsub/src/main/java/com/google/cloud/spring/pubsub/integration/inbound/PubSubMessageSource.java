@@ -20,10 +20,14 @@ import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.springframework.context.Lifecycle;
 import org.springframework.integration.IntegrationMessageHeaderAccessor;
 import org.springframework.integration.endpoint.AbstractFetchLimitingMessageSource;
 import org.springframework.integration.endpoint.AbstractMessageSource;
@@ -36,9 +40,13 @@ import org.springframework.util.Assert;
  * A <a href="https://cloud.google.com/pubsub/docs/pull#pubsub-pull-messages-sync-java">PubSub
  * Synchronous pull</a> implementation of {@link AbstractMessageSource}.
  *
+ * <p>With {@link #setPrefetch(int, int)}, messages are pulled ahead of time in the background and
+ * their leases are extended while they wait to be received, instead of being pulled on demand.
+ *
  * @since 1.2
  */
-public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Object> {
+public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Object>
+    implements Lifecycle {
 
   private final String subscriptionName;
 
@@ -55,6 +63,16 @@ public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Obje
   private final ArrayDeque<ConvertedAcknowledgeablePubsubMessage<?>> cachedMessages =
       new ArrayDeque<>();
 
+  private int prefetchBufferSize;
+
+  private int prefetchAckDeadlineSeconds;
+
+  private ScheduledExecutorService prefetchScheduler;
+
+  private volatile MessagePrefetcher prefetcher;
+
+  private PubSubMetricsRecorder metricsRecorder;
+
   /**
    * Instantiates a Pub/Sub inbound message adapter to poll a given subscription for messages.
    *
@@ -93,17 +111,132 @@ public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Obje
     this.blockOnPull = blockOnPull;
   }
 
+  /**
+   * Set the recorder of the time taken by each poll to return a message, or to find none. The
+   * subscriber operations record their own measurements.
+   *
+   * @param metricsRecorder the metrics recorder
+   * @since 4.1.5
+   */
+  public void setMetricsRecorder(PubSubMetricsRecorder metricsRecorder) {
+    this.metricsRecorder = metricsRecorder;
+  }
+
+  /**
+   * Enables prefetching. A buffer of up to {@code bufferSize} messages is kept full in the
+   * background with asynchronous pulls, and the ack deadline of buffered messages is extended to
+   * {@code ackDeadlineSeconds} in batched requests, so that large buffers don't risk redelivery.
+   * Buffered messages whose lease expired anyway are nacked instead of being received. Messages
+   * still buffered when the source is stopped are nacked.
+   *
+   * <p>Buffered messages are only received while more than a second of their lease is left. As
+   * their deadline is extended every {@code ackDeadlineSeconds / 2} seconds, received messages
+   * usually have at least half of {@code ackDeadlineSeconds} left to be processed, but that isn't
+   * guaranteed: messages whose deadline wasn't extended yet, or failed to be, may have as little as
+   * a second left. With {@link #setBlockOnPull(boolean)}, a receive waits up to a second for a
+   * message. The {@code fetchSize} is not used when prefetching.
+   *
+   * @param bufferSize the number of messages to keep buffered
+   * @param ackDeadlineSeconds the ack deadline buffered messages are extended to, between 10 and
+   *     600 seconds
+   * @since 4.1.5
+   */
+  public void setPrefetch(int bufferSize, int ackDeadlineSeconds) {
+    Assert.isTrue(bufferSize > 0, "bufferSize must be greater than 0.");
+    Assert.isTrue(
+        ackDeadlineSeconds >= MessagePrefetcher.MIN_ACK_DEADLINE_SECONDS
+            && ackDeadlineSeconds <= MessagePrefetcher.MAX_ACK_DEADLINE_SECONDS,
+        "ackDeadlineSeconds must be between " + MessagePrefetcher.MIN_ACK_DEADLINE_SECONDS
+            + " and " + MessagePrefetcher.MAX_ACK_DEADLINE_SECONDS + ".");
+    this.prefetchBufferSize = bufferSize;
+    this.prefetchAckDeadlineSeconds = ackDeadlineSeconds;
+  }
+
+  /**
+   * Starts prefetching, if enabled. Prefetching also starts on the first receive.
+   *
+   * @since 4.1.5
+   */
+  @Override
+  public void start() {
+    if (this.prefetchBufferSize > 0) {
+      startPrefetcher();
+    }
+  }
+
+  private synchronized MessagePrefetcher startPrefetcher() {
+    if (this.prefetcher != null) {
+      return this.prefetcher;
+    }
+    this.prefetchScheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "gcp-pubsub-prefetch");
+              thread.setDaemon(true);
+              return thread;
+            });
+    MessagePrefetcher messagePrefetcher =
+        new MessagePrefetcher(
+            this.pubSubSubscriberOperations,
+            this.subscriptionName,
+            this.payloadType,
+            this.prefetchBufferSize,
+            this.prefetchAckDeadlineSeconds,
+            this.prefetchScheduler);
+    this.prefetcher = messagePrefetcher;
+    messagePrefetcher.start();
+    return messagePrefetcher;
+  }
+
+  /**
+   * Stops prefetching, nacking the buffered messages.
+   *
+   * @since 4.1.5
+   */
+  @Override
+  public synchronized void stop() {
+    if (this.prefetcher != null) {
+      this.prefetcher.stop();
+      this.prefetcher = null;
+      this.prefetchScheduler.shutdown();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return this.prefetcher != null;
+  }
+
   /**
    * Provides a single polled message.
    *
    * <p>Messages are received from Pub/Sub by synchronous pull, in batches determined by {@code
-   * fetchSize}.
+   * fetchSize}, or from the prefetched messages if prefetching is enabled.
    *
    * @param fetchSize number of messages to fetch from Pub/Sub.
    * @return {@link Message} wrapper containing the original message.
    */
   @Override
   protected Object doReceive(int fetchSize) {
+    if (this.metricsRecorder == null) {
+      return receive(fetchSize);
+    }
+    long startNanos = System.nanoTime();
+    AbstractIntegrationMessageBuilder<?> message = receive(fetchSize);
+    this.metricsRecorder.recordReceive(
+        this.subscriptionName, message != null ? 1 : 0, System.nanoTime() - startNanos);
+    return message;
+  }
+
+  private AbstractIntegrationMessageBuilder<?> receive(int fetchSize) {
+    if (this.prefetchBufferSize > 0) {
+      MessagePrefetcher messagePrefetcher = this.prefetcher;
+      if (messagePrefetcher == null) {
+        messagePrefetcher = startPrefetcher();
+      }
+      return processMessage(messagePrefetcher.poll(this.blockOnPull));
+    }
+
     if (this.cachedMessages.isEmpty()) {
       Integer maxMessages = (fetchSize > 0) ? fetchSize : 1;
 
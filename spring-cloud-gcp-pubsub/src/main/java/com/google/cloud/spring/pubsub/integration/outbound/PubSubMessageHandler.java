@@ -16,16 +16,32 @@
 
 package com.google.cloud.spring.pubsub.integration.outbound;
 
+import com.google.api.gax.batching.FlowController.FlowControlException;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
 import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherOperations;
 import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
+import com.google.cloud.spring.pubsub.integration.outbound.PubSubSpillBuffer.SpilledMessage;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.common.LiteralExpression;
@@ -46,8 +62,20 @@ import org.springframework.util.Assert;
  */
 public class PubSubMessageHandler extends AbstractMessageHandler {
 
+  private static final Log LOGGER = LogFactory.getLog(PubSubMessageHandler.class);
+
   private static final long DEFAULT_PUBLISH_TIMEOUT = 10000;
 
+  private static final long SPILL_DRAIN_INTERVAL_MILLIS = 1000;
+
+  private static final int SPILL_DRAIN_BATCH_SIZE = 1000;
+
+  private static final Set<StatusCode.Code> RETRYABLE_STATUS_CODES =
+      EnumSet.of(
+          StatusCode.Code.UNAVAILABLE,
+          StatusCode.Code.DEADLINE_EXCEEDED,
+          StatusCode.Code.RESOURCE_EXHAUSTED);
+
   private final PubSubPublisherOperations pubSubPublisherOperations;
 
   private Expression topicExpression;
@@ -66,6 +94,12 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 
   private HeaderMapper<Map<String, String>> headerMapper = new PubSubHeaderMapper();
 
+  private PubSubSpillBuffer spillBuffer;
+
+  private PubSubMessageConverter spillMessageConverter;
+
+  private ScheduledExecutorService spillDrainer;
+
   /**
    * Instantiates an outbound adapter for publishing messages to a topic.
    *
@@ -198,6 +232,37 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
     this.headerMapper = headerMapper;
   }
 
+  /**
+   * Set the buffer keeping the messages that failed to publish, to publish them again in the
+   * background once publishing succeeds again.
+   *
+   * <p>Only messages failing with errors that may not happen again are spilled: Pub/Sub being
+   * unavailable, too slow or overloaded, and flow control rejections. Other failures fail the
+   * message as without a spill buffer. While the buffer holds messages, new messages are appended
+   * to it rather than published. Spilled messages count as handled: their publish future completes
+   * with a {@code null} message ID. Messages are only failed when they can't be spilled either,
+   * e.g. because the buffer is full.
+   *
+   * <p>Spilled messages with the same ordering key are published again in the order they were
+   * spilled, each once the previous one is published, and those without an ordering key are
+   * published concurrently. A message that fails after later ones were published directly is
+   * published after them. A spilled message failing again with an error that would happen again is
+   * dropped and logged. Spilled messages may be published more than once. The buffer is closed when
+   * the handler is destroyed.
+   *
+   * @param spillBuffer the spill buffer
+   * @param messageConverter the converter turning payloads into {@link PubsubMessage}s to spill;
+   *     should be the one of the publisher operations
+   * @since 4.1.5
+   */
+  public void setSpillBuffer(
+      PubSubSpillBuffer spillBuffer, PubSubMessageConverter messageConverter) {
+    Assert.notNull(spillBuffer, "The spill buffer can't be null.");
+    Assert.notNull(messageConverter, "The message converter can't be null.");
+    this.spillBuffer = spillBuffer;
+    this.spillMessageConverter = messageConverter;
+  }
+
   @Override
   protected void handleMessageInternal(Message<?> message) {
     Object payload = message.getPayload();
@@ -207,7 +272,9 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
     this.headerMapper.fromHeaders(message.getHeaders(), headers);
 
     CompletableFuture<String> pubsubFuture =
-        this.pubSubPublisherOperations.publish(topic, payload, headers);
+        this.spillBuffer != null
+            ? publishOrSpill(topic, this.spillMessageConverter.toPubSubMessage(payload, headers))
+            : this.pubSubPublisherOperations.publish(topic, payload, headers);
 
     if (this.publishCallback != null) {
       pubsubFuture.whenComplete(this.publishCallback);
@@ -263,10 +330,211 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
     }
   }
 
+  private CompletableFuture<String> publishOrSpill(String topic, PubsubMessage pubsubMessage) {
+    if (!this.spillBuffer.isEmpty()) {
+      // Published after the messages spilled before it.
+      return spill(topic, pubsubMessage, null);
+    }
+    CompletableFuture<String> publishFuture;
+    try {
+      publishFuture = this.pubSubPublisherOperations.publish(topic, pubsubMessage);
+    } catch (RuntimeException ex) {
+      if (!isRetryable(ex)) {
+        throw ex;
+      }
+      return spill(topic, pubsubMessage, ex);
+    }
+    return publishFuture
+        .handle(
+            (messageId, throwable) -> {
+              if (throwable == null) {
+                return CompletableFuture.completedFuture(messageId);
+              }
+              return isRetryable(throwable)
+                  ? spill(topic, pubsubMessage, throwable)
+                  : CompletableFuture.<String>failedFuture(throwable);
+            })
+        .thenCompose(future -> future);
+  }
+
+  private CompletableFuture<String> spill(
+      String topic, PubsubMessage pubsubMessage, Throwable publishFailure) {
+    boolean spilled;
+    try {
+      spilled = this.spillBuffer.append(topic, pubsubMessage);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(
+          new PubSubDeliveryException(pubsubMessage, "Failed to spill message.", ex));
+    }
+    if (!spilled) {
+      return CompletableFuture.failedFuture(
+          new PubSubDeliveryException(
+              pubsubMessage,
+              "Failed to publish message and the spill buffer is full.",
+              publishFailure));
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
+  /**
+   * Publish the spilled messages, a batch at a time, until the buffer is empty or a message fails
+   * to publish with an error that may not happen again. Messages are removed from the buffer once
+   * published or once they failed with an error that would happen again.
+   */
+  private void drainSpillBuffer() {
+    try {
+      List<SpilledMessage> batch;
+      while (!(batch = this.spillBuffer.peek(SPILL_DRAIN_BATCH_SIZE)).isEmpty()) {
+        if (!publishSpilled(batch)) {
+          return;
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException ex) {
+      // Keeps the drainer scheduled.
+      LOGGER.warn("Error publishing spilled messages.", ex);
+    }
+  }
+
+  /**
+   * Publish a batch of spilled messages. Messages with the same topic and ordering key are
+   * published one after the other, and the first one failing with a retryable error stops its key,
+   * so that the later ones are neither published nor removed before it. Other messages are
+   * published concurrently.
+   *
+   * @return true if no message is left to retry
+   */
+  private boolean publishSpilled(List<SpilledMessage> batch) throws InterruptedException {
+    Map<Map.Entry<String, String>, CompletableFuture<Boolean>> lastOfKeys = new HashMap<>();
+    List<CompletableFuture<Boolean>> results = new ArrayList<>(batch.size());
+    for (SpilledMessage spilledMessage : batch) {
+      String orderingKey = spilledMessage.getMessage().getOrderingKey();
+      CompletableFuture<Boolean> result;
+      if (orderingKey.isEmpty()) {
+        result = publishSpilled(spilledMessage);
+      } else {
+        Map.Entry<String, String> key = Map.entry(spilledMessage.getTopic(), orderingKey);
+        CompletableFuture<Boolean> previous = lastOfKeys.get(key);
+        result =
+            previous == null
+                ? publishSpilled(spilledMessage)
+                : previous.thenCompose(
+                    done ->
+                        done
+                            ? publishSpilled(spilledMessage)
+                            : CompletableFuture.completedFuture(false));
+        lastOfKeys.put(key, result);
+      }
+      results.add(result);
+    }
+    boolean allDone = true;
+    for (CompletableFuture<Boolean> result : results) {
+      try {
+        allDone &= result.get();
+      } catch (ExecutionException ex) {
+        allDone = false;
+      }
+    }
+    return allDone;
+  }
+
+  /**
+   * Publish a spilled message, removing it from the buffer unless it fails with a retryable error.
+   * A message failing with another error is dropped, since publishing it again would fail again.
+   *
+   * @return a future completing with false if the message is left in the buffer to retry later
+   */
+  private CompletableFuture<Boolean> publishSpilled(SpilledMessage spilledMessage) {
+    String topic = spilledMessage.getTopic();
+    PubsubMessage pubsubMessage = spilledMessage.getMessage();
+    CompletableFuture<String> publishFuture;
+    try {
+      if (!pubsubMessage.getOrderingKey().isEmpty()) {
+        // The key is paused if an earlier message with it failed.
+        this.pubSubPublisherOperations.resumePublish(topic, pubsubMessage.getOrderingKey());
+      }
+      publishFuture = this.pubSubPublisherOperations.publish(topic, pubsubMessage);
+    } catch (RuntimeException ex) {
+      publishFuture = CompletableFuture.failedFuture(ex);
+    }
+    return publishFuture
+        .orTimeout(DEFAULT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS)
+        .handle(
+            (messageId, throwable) -> {
+              if (throwable != null && isRetryable(throwable)) {
+                if (LOGGER.isDebugEnabled()) {
+                  LOGGER.debug("Failed to publish spilled message; retrying later.", throwable);
+                }
+                return false;
+              }
+              if (throwable != null) {
+                LOGGER.error(
+                    "Dropping spilled message that can't be published to " + topic + ".",
+                    throwable);
+              }
+              this.spillBuffer.remove(spilledMessage);
+              return true;
+            });
+  }
+
+  /**
+   * Return whether a publish failure may not happen again, so that the message is worth spilling
+   * and publishing again later: Pub/Sub was unavailable, too slow or overloaded, the flow control
+   * rejected the message, or the message wasn't sent because an earlier one with the same ordering
+   * key failed.
+   */
+  private static boolean isRetryable(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ApiException apiException) {
+        return RETRYABLE_STATUS_CODES.contains(apiException.getStatusCode().getCode());
+      }
+      if (cause instanceof FlowControlException
+          || cause instanceof CancellationException
+          || cause instanceof TimeoutException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   protected void onInit() {
     super.onInit();
     this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+    if (this.spillBuffer != null) {
+      this.spillDrainer =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "gcp-pubsub-spill-drainer");
+                thread.setDaemon(true);
+                return thread;
+              });
+      this.spillDrainer.scheduleWithFixedDelay(
+          this::drainSpillBuffer, 0, SPILL_DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Remove the handler's meters, then stop publishing the spilled messages and close the spill
+   * buffer, if any. Messages left in the buffer are published when it's opened again.
+   *
+   * @since 4.1.5
+   */
+  @Override
+  public void destroy() {
+    super.destroy();
+    if (this.spillDrainer != null) {
+      this.spillDrainer.shutdownNow();
+      try {
+        this.spillDrainer.awaitTermination(DEFAULT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (this.spillBuffer != null) {
+      this.spillBuffer.close();
+    }
   }
 
   /** Implement this callback to post-process a successfully published message. */
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.outbound;
+
+import com.google.cloud.spring.pubsub.core.PubSubException;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A local, append-only log of messages that couldn't be published, for a {@link
+ * PubSubMessageHandler} to publish again later.
+ *
+ * <p>Messages are appended to memory-mapped segment files of a fixed size in a directory of their
+ * own, so spilling a message costs a memory copy and doesn't take heap space. Messages are read
+ * back in the order they were appended. Published messages are marked as such in place, and a
+ * segment file is deleted once all of its messages are published. The total size of the segment
+ * files is bounded; once it's reached, messages can't be spilled anymore.
+ *
+ * <p>Messages survive application restarts: the segment files found in the directory on creation
+ * are read back, skipping a record torn by a crash. The operating system writes mapped pages to
+ * disk in the background, so recently spilled messages can be lost if the host itself fails,
+ * unless {@link #force()} is called. A message published right before a crash may be published
+ * again after the restart.
+ *
+ * @since 4.1.5
+ */
+public class PubSubSpillBuffer implements Closeable {
+
+  private static final Log LOGGER = LogFactory.getLog(PubSubSpillBuffer.class);
+
+  private static final String SEGMENT_SUFFIX = ".spill";
+
+  /** The length and checksum preceding the content of each record. */
+  private static final int RECORD_HEADER_BYTES = 8;
+
+  private final Path directory;
+
+  private final int segmentBytes;
+
+  private final int maxSegments;
+
+  private final Deque<Segment> segments = new ArrayDeque<>();
+
+  private long spilledMessageCount;
+
+  private long nextSegmentId;
+
+  private boolean closed;
+
+  /**
+   * Open the spill buffer stored in a directory, reading back the messages spilled before.
+   *
+   * @param directory the directory holding the segment files; created if it doesn't exist
+   * @param segmentBytes the size of each segment file, in bytes; a message has to fit in one
+   * @param maxBytes the maximum total size of the segment files, in bytes
+   * @throws PubSubException if the directory or its segment files can't be read
+   */
+  public PubSubSpillBuffer(Path directory, int segmentBytes, long maxBytes) {
+    Assert.notNull(directory, "The directory can't be null.");
+    Assert.isTrue(
+        segmentBytes > RECORD_HEADER_BYTES, "The segment size must be greater than 8 bytes.");
+    Assert.isTrue(maxBytes >= segmentBytes, "The maximum size can't be less than a segment.");
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.maxSegments = (int) Math.min(Integer.MAX_VALUE, maxBytes / segmentBytes);
+    try {
+      Files.createDirectories(directory);
+      recover();
+    } catch (IOException ex) {
+      throw new PubSubException("Error opening the spill buffer in " + directory + ".", ex);
+    }
+  }
+
+  /**
+   * Append a message to the buffer.
+   *
+   * @param topic the topic to publish the message to
+   * @param message the message
+   * @return false if the buffer is full or closed, or the message doesn't fit in a segment
+   * @throws PubSubException if a segment file can't be created
+   */
+  public synchronized boolean append(String topic, PubsubMessage message) {
+    byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+    int contentBytes = 4 + topicBytes.length + message.getSerializedSize();
+    if (this.closed || RECORD_HEADER_BYTES + contentBytes > this.segmentBytes) {
+      return false;
+    }
+
+    Segment segment = this.segments.peekLast();
+    if (segment == null || !segment.fits(contentBytes)) {
+      if (this.segments.size() >= this.maxSegments) {
+        return false;
+      }
+      segment = createSegment();
+      this.segments.addLast(segment);
+    }
+
+    byte[] content = new byte[contentBytes];
+    ByteBuffer contentBuffer = ByteBuffer.wrap(content);
+    contentBuffer.putInt(topicBytes.length).put(topicBytes).put(message.toByteArray());
+    segment.write(content);
+    this.spilledMessageCount++;
+    return true;
+  }
+
+  /**
+   * Get the oldest messages of the buffer that haven't been removed yet, in the order they were
+   * appended.
+   *
+   * @param maxMessages the maximum number of messages to get
+   * @return the spilled messages; empty if the buffer is empty
+   */
+  synchronized List<SpilledMessage> peek(int maxMessages) {
+    List<SpilledMessage> messages = new ArrayList<>();
+    for (Segment segment : this.segments) {
+      if (messages.size() >= maxMessages) {
+        break;
+      }
+      segment.read(messages, maxMessages);
+    }
+    return messages;
+  }
+
+  /**
+   * Remove a published message from the buffer. Segment files holding no more messages are
+   * deleted.
+   *
+   * @param message the message returned by {@link #peek(int)}
+   */
+  synchronized void remove(SpilledMessage message) {
+    if (this.closed || !message.segment.markPublished(message.position)) {
+      return;
+    }
+    this.spilledMessageCount--;
+    if (message.segment.liveRecords == 0) {
+      this.segments.remove(message.segment);
+      message.segment.delete();
+    }
+  }
+
+  /**
+   * Return the number of spilled messages that weren't published yet.
+   *
+   * @return the number of messages in the buffer
+   */
+  public synchronized long getSpilledMessageCount() {
+    return this.spilledMessageCount;
+  }
+
+  /**
+   * Return whether the buffer holds no message.
+   *
+   * @return true if all spilled messages were published
+   */
+  public synchronized boolean isEmpty() {
+    return this.spilledMessageCount == 0;
+  }
+
+  /** Write the spilled messages to disk, so that they survive a failure of the host. */
+  public synchronized void force() {
+    for (Segment segment : this.segments) {
+      segment.buffer.force();
+    }
+  }
+
+  /** Write the spilled messages to disk and close the segment files. */
+  @Override
+  public synchronized void close() {
+    if (this.closed) {
+      return;
+    }
+    force();
+    this.closed = true;
+    for (Segment segment : this.segments) {
+      segment.closeChannel();
+    }
+  }
+
+  private void recover() throws IOException {
+    List<Path> segmentFiles;
+    try (Stream<Path> files = Files.list(this.directory)) {
+      segmentFiles =
+          files
+              .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+              .sorted()
+              .toList();
+    }
+    for (Path segmentFile : segmentFiles) {
+      String fileName = segmentFile.getFileName().toString();
+      long id = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+      Segment segment = new Segment(segmentFile, openChannel(segmentFile));
+      segment.recover();
+      // Keep segment IDs increasing, so that file names sort in append order.
+      this.nextSegmentId = id + 1;
+      if (segment.liveRecords == 0) {
+        segment.delete();
+      } else {
+        this.segments.addLast(segment);
+        this.spilledMessageCount += segment.liveRecords;
+      }
+    }
+    if (this.spilledMessageCount > 0) {
+      LOGGER.info(
+          "Recovered " + this.spilledMessageCount + " spilled messages from " + this.directory
+              + ".");
+    }
+  }
+
+  private Segment createSegment() {
+    Path segmentFile =
+        this.directory.resolve(String.format("%020d%s", this.nextSegmentId++, SEGMENT_SUFFIX));
+    try {
+      return new Segment(segmentFile, openChannel(segmentFile));
+    } catch (IOException ex) {
+      throw new PubSubException("Error creating spill segment " + segmentFile + ".", ex);
+    }
+  }
+
+  private FileChannel openChannel(Path segmentFile) throws IOException {
+    return FileChannel.open(
+        segmentFile,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  private static int checksum(byte[] content) {
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    return (int) crc.getValue();
+  }
+
+  /** A message read back from the buffer, along with its position in the buffer. */
+  static final class SpilledMessage {
+
+    private final String topic;
+
+    private final PubsubMessage message;
+
+    private final Segment segment;
+
+    private final int position;
+
+    private SpilledMessage(String topic, PubsubMessage message, Segment segment, int position) {
+      this.topic = topic;
+      this.message = message;
+      this.segment = segment;
+      this.position = position;
+    }
+
+    String getTopic() {
+      return this.topic;
+    }
+
+    PubsubMessage getMessage() {
+      return this.message;
+    }
+  }
+
+  /**
+   * A segment file. Each record is made of its content length, the checksum of its content and the
+   * content: the topic and the serialized message. A zero length ends the records, and a negative
+   * one marks a published record.
+   */
+  private final class Segment {
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    /** The position of the first record that may not be published yet. */
+    private int readPosition;
+
+    private int writePosition;
+
+    private int liveRecords;
+
+    private Segment(Path path, FileChannel channel) throws IOException {
+      this.path = path;
+      this.channel = channel;
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+
+    private boolean fits(int contentBytes) {
+      return this.writePosition + RECORD_HEADER_BYTES + contentBytes <= segmentBytes;
+    }
+
+    private void write(byte[] content) {
+      int position = this.writePosition;
+      int end = position + RECORD_HEADER_BYTES + content.length;
+      if (end + 4 <= segmentBytes) {
+        // Clears the remains of a torn record, if any, to end the records.
+        this.buffer.putInt(end, 0);
+      }
+      this.buffer.put(position + RECORD_HEADER_BYTES, content);
+      this.buffer.putInt(position + 4, checksum(content));
+      // Written last, so that a record is only seen once complete.
+      this.buffer.putInt(position, content.length);
+      this.writePosition = end;
+      this.liveRecords++;
+    }
+
+    private void read(List<SpilledMessage> messages, int maxMessages) {
+      int position = this.readPosition;
+      boolean leading = true;
+      while (position < this.writePosition && messages.size() < maxMessages) {
+        int length = this.buffer.getInt(position);
+        if (length > 0) {
+          leading = false;
+          messages.add(readRecord(position, length));
+        } else if (leading) {
+          this.readPosition = position + RECORD_HEADER_BYTES - length;
+        }
+        position += RECORD_HEADER_BYTES + Math.abs(length);
+      }
+    }
+
+    private SpilledMessage readRecord(int position, int length) {
+      byte[] content = new byte[length];
+      this.buffer.get(position + RECORD_HEADER_BYTES, content);
+      ByteBuffer contentBuffer = ByteBuffer.wrap(content);
+      byte[] topicBytes = new byte[contentBuffer.getInt()];
+      contentBuffer.get(topicBytes);
+      try {
+        return new SpilledMessage(
+            new String(topicBytes, StandardCharsets.UTF_8),
+            PubsubMessage.parseFrom(contentBuffer),
+            this,
+            position);
+      } catch (InvalidProtocolBufferException ex) {
+        // The checksum matched on recovery, so the content was written this way.
+        throw new PubSubException("Error reading spilled message from " + this.path + ".", ex);
+      }
+    }
+
+    private boolean markPublished(int position) {
+      int length = this.buffer.getInt(position);
+      if (length <= 0) {
+        return false;
+      }
+      this.buffer.putInt(position, -length);
+      this.liveRecords--;
+      return true;
+    }
+
+    /** Find the records written before the segment was last closed. */
+    private void recover() {
+      int position = 0;
+      while (position + RECORD_HEADER_BYTES <= segmentBytes) {
+        int length = this.buffer.getInt(position);
+        int end = position + RECORD_HEADER_BYTES + Math.abs(length);
+        if (length == 0 || length == Integer.MIN_VALUE || end > segmentBytes || end < 0) {
+          break;
+        }
+        if (length > 0) {
+          byte[] content = new byte[length];
+          this.buffer.get(position + RECORD_HEADER_BYTES, content);
+          if (checksum(content) != this.buffer.getInt(position + 4)) {
+            LOGGER.warn("Ignoring torn record at " + position + " of spill segment " + this.path
+                + " and the records after it.");
+            break;
+          }
+          this.liveRecords++;
+        }
+        position = end;
+      }
+      this.writePosition = position;
+    }
+
+    private void delete() {
+      closeChannel();
+      try {
+        Files.deleteIfExists(this.path);
+      } catch (IOException ex) {
+        LOGGER.warn("Unable to delete spill segment " + this.path + ".", ex);
+      }
+    }
+
+    private void closeChannel() {
+      try {
+        this.channel.close();
+      } catch (IOException ex) {
+        LOGGER.warn("Unable to close spill segment " + this.path + ".", ex);
+      }
+    }
+  }
+}
@@ -16,9 +16,14 @@
 
 package com.google.cloud.spring.pubsub.reactive;
 
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+import com.google.api.core.ApiService;
 import com.google.api.gax.rpc.DeadlineExceededException;
+import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -28,6 +33,7 @@ import org.springframework.util.Assert;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.FluxSink.OverflowStrategy;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
@@ -38,6 +44,9 @@ import reactor.core.scheduler.Scheduler;
  * subscription, when the demand is unlimited. The scheduler is not used when there is a specific
  * demand (a.k.a backpressure).
  *
+ * <p>Streams created by {@link #streamingPull(String)} are backed by StreamingPull instead, and
+ * don't use the scheduler at all.
+ *
  * @since 1.2
  */
 public final class PubSubReactiveFactory {
@@ -120,6 +129,48 @@ public final class PubSubReactiveFactory {
                 }));
   }
 
+  /**
+   * Create an infinite stream {@link Flux} of {@link BasicAcknowledgeablePubsubMessage} objects
+   * backed by a StreamingPull {@link Subscriber}.
+   *
+   * <p>Unlike {@link #poll(String, long)}, messages are pushed to the stream as soon as the server
+   * delivers them, and an idle subscription doesn't cause any pull requests.
+   *
+   * <p>Messages that arrive before there is demand for them are held until requested. Held messages
+   * are not acknowledged, so they count towards the outstanding messages and bytes of the
+   * subscriber's flow control, which stops the server from delivering more messages once its limits
+   * are reached. The {@code flow-control} settings of the subscription therefore bound how far
+   * ahead of demand the stream may read.
+   *
+   * <p>The subscriber is started when the stream is subscribed to and stopped when the stream is
+   * cancelled. A subscriber failure is passed as an error to the stream.
+   *
+   * @param subscriptionName subscription from which to retrieve messages.
+   * @return infinite stream of {@link BasicAcknowledgeablePubsubMessage} objects.
+   * @since 4.1.5
+   */
+  public Flux<BasicAcknowledgeablePubsubMessage> streamingPull(String subscriptionName) {
+    Assert.hasText(subscriptionName, "subscriptionName cannot be null or empty.");
+
+    return Flux.create(
+        sink -> {
+          Subscriber subscriber = this.subscriberOperations.subscribe(subscriptionName, sink::next);
+          subscriber.addListener(
+              new ApiService.Listener() {
+                @Override
+                public void failed(ApiService.State from, Throwable failure) {
+                  sink.error(failure);
+                }
+              },
+              directExecutor());
+          if (subscriber.state() == ApiService.State.FAILED) {
+            sink.error(subscriber.failureCause());
+          }
+          sink.onDispose(subscriber::stopAsync);
+        },
+        OverflowStrategy.BUFFER);
+  }
+
   private void pollingPull(
       String subscriptionName, long pollingPeriodMs, FluxSink<AcknowledgeablePubsubMessage> sink) {
     Disposable disposable =
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support;
+
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.springframework.util.Assert;
+
+/**
+ * Chooses publisher batching settings per topic from the observed publish rate.
+ *
+ * <p>The element count and delay thresholds are kept within the configured bounds. When fewer than
+ * two messages are expected within the maximum delay, batching has nothing to gain and the minimum
+ * thresholds are used, keeping latency low. Otherwise the element count is set to the number of
+ * messages expected within the maximum delay, and the delay to the time expected to fill such a
+ * batch, so that batches are full under heavy load.
+ *
+ * <p>Publishes are recorded with {@link #recordPublish(String)} and the publish rate is
+ * re-estimated on every call to {@link #update()}. Since the batching settings of a {@link
+ * com.google.cloud.pubsub.v1.Publisher} can't be changed once it is built, {@link #update()}
+ * returns the topics whose publishers should be recreated to pick up the new settings. This is
+ * done by {@link CachingPublisherFactory#setAdaptiveBatching(AdaptiveBatchingTuner, Duration,
+ * org.springframework.scheduling.TaskScheduler)}.
+ *
+ * @since 4.1.5
+ */
+public class AdaptiveBatchingTuner {
+
+  /** The maximum number of messages Pub/Sub accepts in a single publish request. */
+  public static final long MAX_ELEMENT_COUNT_PER_REQUEST = 1000L;
+
+  /**
+   * A tuned threshold has to move by at least this factor from the one a publisher was built with
+   * before the publisher is recreated.
+   */
+  private static final double RETUNE_FACTOR = 2.0;
+
+  /** Weight of the latest rate sample in the moving average. */
+  private static final double RATE_SMOOTHING = 0.5;
+
+  private final long minElementCountThreshold;
+
+  private final long maxElementCountThreshold;
+
+  private final Duration minDelayThreshold;
+
+  private final Duration maxDelayThreshold;
+
+  private long requestByteThreshold = 1_000_000L;
+
+  private FlowControlSettings flowControlSettings;
+
+  private final ConcurrentHashMap<String, TopicState> topics = new ConcurrentHashMap<>();
+
+  private volatile Consumer<String> tunedTopicListener;
+
+  private volatile Consumer<String> removedTopicListener;
+
+  private long lastUpdateNanos = System.nanoTime();
+
+  /**
+   * Create an {@link AdaptiveBatchingTuner} keeping the thresholds within the given bounds.
+   *
+   * @param minElementCountThreshold the element count threshold used under light traffic
+   * @param maxElementCountThreshold the element count threshold used under heavy traffic
+   * @param minDelayThreshold the delay threshold used under light traffic
+   * @param maxDelayThreshold the longest delay threshold to use
+   */
+  public AdaptiveBatchingTuner(
+      long minElementCountThreshold,
+      long maxElementCountThreshold,
+      Duration minDelayThreshold,
+      Duration maxDelayThreshold) {
+    Assert.isTrue(minElementCountThreshold > 0,
+        "minElementCountThreshold must be greater than 0.");
+    Assert.isTrue(
+        maxElementCountThreshold >= minElementCountThreshold
+            && maxElementCountThreshold <= MAX_ELEMENT_COUNT_PER_REQUEST,
+        "maxElementCountThreshold must be between minElementCountThreshold and "
+            + MAX_ELEMENT_COUNT_PER_REQUEST + ".");
+    Assert.notNull(minDelayThreshold, "minDelayThreshold can't be null.");
+    Assert.notNull(maxDelayThreshold, "maxDelayThreshold can't be null.");
+    Assert.isTrue(!minDelayThreshold.isNegative() && !minDelayThreshold.isZero(),
+        "minDelayThreshold must be positive.");
+    Assert.isTrue(maxDelayThreshold.compareTo(minDelayThreshold) >= 0,
+        "maxDelayThreshold must not be shorter than minDelayThreshold.");
+    this.minElementCountThreshold = minElementCountThreshold;
+    this.maxElementCountThreshold = maxElementCountThreshold;
+    this.minDelayThreshold = minDelayThreshold;
+    this.maxDelayThreshold = maxDelayThreshold;
+  }
+
+  /**
+   * Set the request byte threshold of the tuned batching settings. Defaults to 1 MB, so that
+   * batches are normally closed by the tuned element count or delay thresholds.
+   *
+   * @param requestByteThreshold the request byte threshold
+   */
+  public void setRequestByteThreshold(long requestByteThreshold) {
+    Assert.isTrue(requestByteThreshold > 0, "requestByteThreshold must be greater than 0.");
+    this.requestByteThreshold = requestByteThreshold;
+  }
+
+  /**
+   * Set the flow control settings of the tuned batching settings.
+   *
+   * @param flowControlSettings the flow control settings
+   */
+  public void setFlowControlSettings(FlowControlSettings flowControlSettings) {
+    this.flowControlSettings = flowControlSettings;
+  }
+
+  /**
+   * Set a listener notified with the topic name the first time batching settings are handed out
+   * for a topic. Useful to register per-topic metrics.
+   *
+   * @param tunedTopicListener the listener
+   */
+  public void setTunedTopicListener(Consumer<String> tunedTopicListener) {
+    this.tunedTopicListener = tunedTopicListener;
+  }
+
+  /**
+   * Set a listener notified with the topic name when a topic is removed with {@link
+   * #removeTopic(String)}. Useful to remove per-topic metrics.
+   *
+   * @param removedTopicListener the listener
+   */
+  public void setRemovedTopicListener(Consumer<String> removedTopicListener) {
+    this.removedTopicListener = removedTopicListener;
+  }
+
+  /**
+   * Record a message about to be published to a topic.
+   *
+   * @param topic the topic name, as passed to {@link PublisherFactory#createPublisher(String)}
+   */
+  public void recordPublish(String topic) {
+    this.topics.computeIfAbsent(topic, key -> new TopicState()).publishCount.increment();
+  }
+
+  /**
+   * Forget the publish rate and thresholds of a topic, e.g. once its publisher is evicted, so that
+   * the state kept by the tuner doesn't grow with every topic ever published to.
+   *
+   * @param topic the topic name
+   */
+  public void removeTopic(String topic) {
+    TopicState state = this.topics.remove(topic);
+    Consumer<String> listener = this.removedTopicListener;
+    if (state != null && state.appliedElementCount != 0 && listener != null) {
+      listener.accept(topic);
+    }
+  }
+
+  /**
+   * Return the batching settings for a new publisher of a topic, tuned to the latest publish rate
+   * estimate. The returned thresholds are the ones reported by {@link
+   * #getElementCountThreshold(String)} and {@link #getDelayThreshold(String)}.
+   *
+   * @param topic the topic name, as passed to {@link PublisherFactory#createPublisher(String)}
+   * @return the batching settings to build the publisher with
+   */
+  public BatchingSettings getBatchingSettings(String topic) {
+    TopicState state = this.topics.computeIfAbsent(topic, key -> new TopicState());
+    boolean firstTuned;
+    long elementCount;
+    Duration delay;
+    synchronized (state) {
+      firstTuned = state.appliedElementCount == 0;
+      state.appliedElementCount = state.elementCount;
+      state.appliedDelay = state.delay;
+      elementCount = state.elementCount;
+      delay = state.delay;
+    }
+    Consumer<String> listener = this.tunedTopicListener;
+    if (firstTuned && listener != null) {
+      listener.accept(topic);
+    }
+
+    BatchingSettings.Builder builder =
+        BatchingSettings.newBuilder()
+            .setElementCountThreshold(elementCount)
+            .setRequestByteThreshold(this.requestByteThreshold)
+            .setDelayThreshold(org.threeten.bp.Duration.ofNanos(delay.toNanos()));
+    if (this.flowControlSettings != null) {
+      builder.setFlowControlSettings(this.flowControlSettings);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Re-estimate the publish rate of every topic from the publishes recorded since the previous
+   * call, and re-tune the thresholds accordingly.
+   *
+   * @return the topics whose thresholds moved far enough from the ones their current publisher was
+   *     built with for the publisher to be recreated
+   */
+  public synchronized Set<String> update() {
+    long now = System.nanoTime();
+    double elapsedSeconds = (now - this.lastUpdateNanos) / 1e9;
+    this.lastUpdateNanos = now;
+    if (elapsedSeconds <= 0) {
+      return Collections.emptySet();
+    }
+
+    Set<String> retunedTopics = new HashSet<>();
+    this.topics.forEach(
+        (topic, state) -> {
+          double rate = state.publishCount.sumThenReset() / elapsedSeconds;
+          synchronized (state) {
+            state.rate =
+                state.rate < 0 ? rate : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * state.rate;
+            tune(state);
+            if (state.appliedElementCount != 0
+                && (moved(state.appliedElementCount, state.elementCount)
+                    || moved(state.appliedDelay.toNanos(), state.delay.toNanos()))) {
+              retunedTopics.add(topic);
+            }
+          }
+        });
+    return retunedTopics;
+  }
+
+  /**
+   * Return the topics batching settings have been handed out for.
+   *
+   * @return the tuned topic names
+   */
+  public Set<String> getTunedTopics() {
+    Set<String> tunedTopics = new HashSet<>();
+    this.topics.forEach(
+        (topic, state) -> {
+          if (state.appliedElementCount != 0) {
+            tunedTopics.add(topic);
+          }
+        });
+    return tunedTopics;
+  }
+
+  /**
+   * Return the element count threshold of the latest publisher created for a topic.
+   *
+   * @param topic the topic name
+   * @return the element count threshold, or {@code 0} if no publisher was created for the topic
+   */
+  public long getElementCountThreshold(String topic) {
+    TopicState state = this.topics.get(topic);
+    return state != null ? state.appliedElementCount : 0;
+  }
+
+  /**
+   * Return the delay threshold of the latest publisher created for a topic.
+   *
+   * @param topic the topic name
+   * @return the delay threshold, or {@code null} if no publisher was created for the topic
+   */
+  public Duration getDelayThreshold(String topic) {
+    TopicState state = this.topics.get(topic);
+    return state != null && state.appliedElementCount != 0 ? state.appliedDelay : null;
+  }
+
+  /**
+   * Return the estimated publish rate of a topic.
+   *
+   * @param topic the topic name
+   * @return the publish rate in messages per second, or {@code 0} before the first estimate
+   */
+  public double getPublishRate(String topic) {
+    TopicState state = this.topics.get(topic);
+    return state != null ? Math.max(state.rate, 0) : 0;
+  }
+
+  private void tune(TopicState state) {
+    double expectedWithinMaxDelay = state.rate * this.maxDelayThreshold.toNanos() / 1e9;
+    if (expectedWithinMaxDelay < 2) {
+      state.elementCount = this.minElementCountThreshold;
+      state.delay = this.minDelayThreshold;
+      return;
+    }
+    long elementCount =
+        Math.max(
+            this.minElementCountThreshold,
+            Math.min(this.maxElementCountThreshold, (long) Math.ceil(expectedWithinMaxDelay)));
+    long delayNanos = (long) (elementCount / state.rate * 1e9);
+    state.elementCount = elementCount;
+    state.delay =
+        Duration.ofNanos(
+            Math.max(
+                this.minDelayThreshold.toNanos(),
+                Math.min(this.maxDelayThreshold.toNanos(), delayNanos)));
+  }
+
+  private static boolean moved(long applied, long tuned) {
+    return tuned >= applied * RETUNE_FACTOR || applied >= tuned * RETUNE_FACTOR;
+  }
+
+  private class TopicState {
+
+    private final LongAdder publishCount = new LongAdder();
+
+    private volatile double rate = -1;
+
+    private volatile long elementCount = minElementCountThreshold;
+
+    private volatile Duration delay = minDelayThreshold;
+
+    private volatile long appliedElementCount;
+
+    private volatile Duration appliedDelay;
+  }
+}
@@ -17,21 +17,64 @@
 package com.google.cloud.spring.pubsub.support;
 
 import com.google.cloud.pubsub.v1.Publisher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
 
 /**
  * The caching implementation of the {@link PublisherFactory}.
  *
  * <p>Creates {@link Publisher}s for topics once using delegate, caches and reuses them.
+ *
+ * <p>The cache is unbounded by default. It can be bounded with {@link #setMaxSize(int)}, in which
+ * case the least recently used publisher is evicted when the limit is exceeded, and with {@link
+ * #setIdleTimeout(Duration, TaskScheduler)}, in which case publishers that have not been used for
+ * the given time are evicted. Evicted publishers are shut down gracefully, publishing any
+ * outstanding messages first. Publishers obtained with {@link #acquirePublisher(String)} are only
+ * shut down once released, while those obtained with {@link #createPublisher(String)} should be
+ * used right away rather than retained.
+ *
+ * <p>With {@link #setAdaptiveBatching(AdaptiveBatchingTuner, Duration, TaskScheduler)}, publishers
+ * are replaced whenever their batching settings are re-tuned by an {@link AdaptiveBatchingTuner},
+ * and evicted topics are removed from the tuner.
  */
 public class CachingPublisherFactory implements PublisherFactory {
+
+  private static final Log LOGGER = LogFactory.getLog(CachingPublisherFactory.class);
+
   /** {@link Publisher} cache, enforces only one {@link Publisher} per Pub/Sub topic exists. */
-  private final ConcurrentHashMap<String, Publisher> publishers =
+  private final ConcurrentHashMap<String, CachedPublisher> publishers =
       new ConcurrentHashMap<>();
 
   private final PublisherFactory delegate;
 
+  private int maxSize = Integer.MAX_VALUE;
+
+  private ScheduledFuture<?> idleEvictionTask;
+
+  private AdaptiveBatchingTuner adaptiveBatchingTuner;
+
+  private ScheduledFuture<?> adaptiveBatchingTask;
+
+  /** Publishers replaced on the previous tuning run, shut down on the next one. */
+  private List<CachedPublisher> replacedPublishers = new ArrayList<>();
+
+  /**
+   * Publishers evicted or replaced, but not shut down yet, keyed by themselves so that their
+   * leases can still be released.
+   */
+  private final ConcurrentHashMap<Publisher, CachedPublisher> retiredPublishers =
+      new ConcurrentHashMap<>();
+
   /**
    * Constructs a caching {@link PublisherFactory} using the delegate.
    *
@@ -41,9 +84,112 @@ public class CachingPublisherFactory implements PublisherFactory {
     this.delegate = delegate;
   }
 
+  /**
+   * Set the maximum number of cached publishers. When the limit is exceeded, the least recently
+   * used publisher is shut down and evicted.
+   *
+   * @param maxSize the maximum number of cached publishers
+   * @since 4.1.5
+   */
+  public void setMaxSize(int maxSize) {
+    Assert.isTrue(maxSize > 0, "maxSize must be greater than 0.");
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Shut down and evict publishers that have not been used for the given time. The cache is checked
+   * for idle publishers on the provided scheduler at half the idle timeout interval.
+   *
+   * @param idleTimeout time after which an unused publisher is evicted
+   * @param scheduler scheduler used to periodically check for idle publishers
+   * @since 4.1.5
+   */
+  public void setIdleTimeout(Duration idleTimeout, TaskScheduler scheduler) {
+    Assert.notNull(idleTimeout, "idleTimeout can't be null.");
+    Assert.isTrue(!idleTimeout.isNegative() && !idleTimeout.isZero(),
+        "idleTimeout must be positive.");
+    Assert.notNull(scheduler, "scheduler can't be null.");
+    if (this.idleEvictionTask != null) {
+      this.idleEvictionTask.cancel(false);
+    }
+    long idleTimeoutNanos = idleTimeout.toNanos();
+    this.idleEvictionTask = scheduler.scheduleWithFixedDelay(
+        () -> evictIdlePublishers(idleTimeoutNanos), idleTimeout.dividedBy(2));
+  }
+
+  /**
+   * Re-tune the given tuner at a fixed interval on the provided scheduler. The publishes are
+   * recorded by the publishing side, e.g. the {@link
+   * com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate}. When the batching
+   * settings of a topic are re-tuned, its publisher is replaced with one created by the delegate,
+   * which is expected to apply the tuned settings (see {@link
+   * DefaultPublisherFactory#setAdaptiveBatchingTuner(AdaptiveBatchingTuner)}). The replaced
+   * publisher is shut down gracefully one interval later. Topics evicted from the cache are removed
+   * from the tuner.
+   *
+   * @param adaptiveBatchingTuner the tuner choosing the batching settings
+   * @param interval the interval at which the tuner re-estimates the publish rates
+   * @param scheduler scheduler used to periodically re-tune the batching settings
+   * @since 4.1.5
+   */
+  public void setAdaptiveBatching(
+      AdaptiveBatchingTuner adaptiveBatchingTuner, Duration interval, TaskScheduler scheduler) {
+    Assert.notNull(adaptiveBatchingTuner, "adaptiveBatchingTuner can't be null.");
+    Assert.notNull(interval, "interval can't be null.");
+    Assert.isTrue(!interval.isNegative() && !interval.isZero(), "interval must be positive.");
+    Assert.notNull(scheduler, "scheduler can't be null.");
+    if (this.adaptiveBatchingTask != null) {
+      this.adaptiveBatchingTask.cancel(false);
+    }
+    this.adaptiveBatchingTuner = adaptiveBatchingTuner;
+    this.adaptiveBatchingTask = scheduler.scheduleWithFixedDelay(this::retunePublishers, interval);
+  }
+
   @Override
   public Publisher createPublisher(String topic) {
-    return this.publishers.computeIfAbsent(topic, delegate::createPublisher);
+    CachedPublisher cachedPublisher = getCachedPublisher(topic);
+    cachedPublisher.lastUsedNanos = System.nanoTime();
+    return cachedPublisher.publisher;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The publisher is leased until released, so that it isn't shut down if it's evicted or
+   * replaced in the meantime; its shutdown is deferred to its release.
+   */
+  @Override
+  public Publisher acquirePublisher(String topic) {
+    CachedPublisher cachedPublisher;
+    do {
+      cachedPublisher = getCachedPublisher(topic);
+    } while (!cachedPublisher.lease());
+    cachedPublisher.lastUsedNanos = System.nanoTime();
+    return cachedPublisher.publisher;
+  }
+
+  @Override
+  public void releasePublisher(String topic, Publisher publisher) {
+    CachedPublisher cachedPublisher = this.publishers.get(topic);
+    if (cachedPublisher == null || cachedPublisher.publisher != publisher) {
+      // Retired publishers are registered before being removed from the cache.
+      cachedPublisher = this.retiredPublishers.get(publisher);
+    }
+    if (cachedPublisher != null && cachedPublisher.release()) {
+      shutdownIfUnleased(cachedPublisher);
+    }
+  }
+
+  private CachedPublisher getCachedPublisher(String topic) {
+    CachedPublisher cachedPublisher = this.publishers.get(topic);
+    if (cachedPublisher == null) {
+      cachedPublisher = this.publishers.computeIfAbsent(
+          topic, key -> new CachedPublisher(this.delegate.createPublisher(key)));
+      if (this.publishers.size() > this.maxSize) {
+        evictLeastRecentlyUsedPublisher(topic);
+      }
+    }
+    return cachedPublisher;
   }
 
   /**
@@ -60,6 +206,139 @@ public class CachingPublisherFactory implements PublisherFactory {
    */
   @PreDestroy
   public void shutdown() {
-    publishers.forEachValue(1L, Publisher::shutdown);
+    if (this.idleEvictionTask != null) {
+      this.idleEvictionTask.cancel(false);
+    }
+    if (this.adaptiveBatchingTask != null) {
+      this.adaptiveBatchingTask.cancel(false);
+    }
+    shutdownReplacedPublishers();
+    this.retiredPublishers.forEachValue(1L, CachedPublisher::shutdownNow);
+    publishers.forEachValue(1L, CachedPublisher::shutdownNow);
+  }
+
+  private void evictLeastRecentlyUsedPublisher(String excludedTopic) {
+    Map.Entry<String, CachedPublisher> eldest = null;
+    for (Map.Entry<String, CachedPublisher> entry : this.publishers.entrySet()) {
+      if (!entry.getKey().equals(excludedTopic)
+          && (eldest == null
+              || entry.getValue().lastUsedNanos - eldest.getValue().lastUsedNanos < 0)) {
+        eldest = entry;
+      }
+    }
+    if (eldest != null) {
+      evict(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private void evictIdlePublishers(long idleTimeoutNanos) {
+    long now = System.nanoTime();
+    this.publishers.forEach(
+        (topic, cachedPublisher) -> {
+          if (now - cachedPublisher.lastUsedNanos >= idleTimeoutNanos) {
+            evict(topic, cachedPublisher);
+          }
+        });
+  }
+
+  void retunePublishers() {
+    shutdownReplacedPublishers();
+    for (String topic : this.adaptiveBatchingTuner.update()) {
+      CachedPublisher cachedPublisher = this.publishers.get(topic);
+      if (cachedPublisher == null) {
+        continue;
+      }
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Replacing cached publisher for topic " + topic
+            + " to apply re-tuned batching settings.");
+      }
+      CachedPublisher replacement =
+          new CachedPublisher(this.delegate.createPublisher(topic));
+      replacement.lastUsedNanos = cachedPublisher.lastUsedNanos;
+      this.retiredPublishers.put(cachedPublisher.publisher, cachedPublisher);
+      if (this.publishers.replace(topic, cachedPublisher, replacement)) {
+        synchronized (this) {
+          this.replacedPublishers.add(cachedPublisher);
+        }
+      } else {
+        this.retiredPublishers.remove(cachedPublisher.publisher, cachedPublisher);
+        replacement.publisher.shutdown();
+      }
+    }
+  }
+
+  private void shutdownReplacedPublishers() {
+    List<CachedPublisher> toShutdown;
+    synchronized (this) {
+      toShutdown = this.replacedPublishers;
+      this.replacedPublishers = new ArrayList<>();
+    }
+    toShutdown.forEach(this::retire);
+  }
+
+  private void evict(String topic, CachedPublisher cachedPublisher) {
+    this.retiredPublishers.put(cachedPublisher.publisher, cachedPublisher);
+    if (this.publishers.remove(topic, cachedPublisher)) {
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("Shutting down cached publisher for topic " + topic + ".");
+      }
+      AdaptiveBatchingTuner tuner = this.adaptiveBatchingTuner;
+      if (tuner != null) {
+        tuner.removeTopic(topic);
+      }
+      retire(cachedPublisher);
+    } else {
+      this.retiredPublishers.remove(cachedPublisher.publisher, cachedPublisher);
+    }
+  }
+
+  private void retire(CachedPublisher cachedPublisher) {
+    cachedPublisher.retired = true;
+    shutdownIfUnleased(cachedPublisher);
+  }
+
+  private void shutdownIfUnleased(CachedPublisher cachedPublisher) {
+    if (cachedPublisher.leases.compareAndSet(0, -1)) {
+      this.retiredPublishers.remove(cachedPublisher.publisher, cachedPublisher);
+      cachedPublisher.publisher.shutdown();
+    }
+  }
+
+  private static class CachedPublisher {
+
+    private final Publisher publisher;
+
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    /** Number of leases of the publisher, or -1 once it's shut down. */
+    private final AtomicInteger leases = new AtomicInteger();
+
+    private volatile boolean retired;
+
+    CachedPublisher(Publisher publisher) {
+      this.publisher = publisher;
+    }
+
+    boolean lease() {
+      int count;
+      do {
+        count = this.leases.get();
+        if (count < 0) {
+          return false;
+        }
+      } while (!this.leases.compareAndSet(count, count + 1));
+      return true;
+    }
+
+    /** Returns whether the publisher was retired and is no longer leased. */
+    boolean release() {
+      return this.leases.decrementAndGet() == 0 && this.retired;
+    }
+
+    void shutdownNow() {
+      if (this.leases.getAndSet(-1) >= 0) {
+        this.publisher.shutdown();
+      }
+    }
   }
 }
@@ -24,11 +24,15 @@ import com.google.api.gax.rpc.HeaderProvider;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.cloud.pubsub.v1.Publisher;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
 import com.google.cloud.spring.pubsub.core.PubSubException;
 import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
+import com.google.pubsub.v1.TopicName;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.util.Assert;
 
 /**
@@ -58,6 +62,16 @@ public class DefaultPublisherFactory implements PublisherFactory {
 
   private List<PublisherCustomizer> customizers;
 
+  private PubSubConfiguration pubSubConfiguration;
+
+  private Map<TopicName, ExecutorProvider> executorProviderMap = new ConcurrentHashMap<>();
+
+  private Map<TopicName, RetrySettings> retrySettingsMap = new ConcurrentHashMap<>();
+
+  private Map<TopicName, BatchingSettings> batchingSettingsMap = new ConcurrentHashMap<>();
+
+  private AdaptiveBatchingTuner adaptiveBatchingTuner;
+
   /**
    * Create {@link DefaultPublisherFactory} instance based on the provided {@link
    * GcpProjectIdProvider}.
@@ -74,6 +88,24 @@ public class DefaultPublisherFactory implements PublisherFactory {
     Assert.hasText(this.projectId, "The project ID can't be null or empty.");
   }
 
+  /**
+   * Create {@link DefaultPublisherFactory} instance based on the provided {@link
+   * GcpProjectIdProvider} and {@link PubSubConfiguration}.
+   *
+   * <p>The {@link PubSubConfiguration} is used to resolve topic-specific message ordering and
+   * endpoint settings, which take precedence over the ones set on the factory. It must have been
+   * initialized.
+   *
+   * @param projectIdProvider provides the default GCP project ID for selecting the topic
+   * @param pubSubConfiguration contains the publisher properties to configure
+   */
+  public DefaultPublisherFactory(
+      GcpProjectIdProvider projectIdProvider, PubSubConfiguration pubSubConfiguration) {
+    this(projectIdProvider);
+    Assert.notNull(pubSubConfiguration, "The pub/sub configuration can't be null.");
+    this.pubSubConfiguration = pubSubConfiguration;
+  }
+
   /**
    * Set the provider for the executor that will be used by the publisher. Useful to specify the
    * number of threads to be used by each executor.
@@ -151,6 +183,52 @@ public class DefaultPublisherFactory implements PublisherFactory {
     this.endpoint = endpoint;
   }
 
+  /**
+   * Set the executor providers to be used by the publishers of specific topics, overriding the
+   * executor provider set by {@link #setExecutorProvider(ExecutorProvider)}.
+   *
+   * @param executorProviderMap executor providers keyed by fully-qualified topic name
+   */
+  public void setExecutorProviderMap(Map<TopicName, ExecutorProvider> executorProviderMap) {
+    Assert.notNull(executorProviderMap, "executorProviderMap can't be null.");
+    this.executorProviderMap.putAll(executorProviderMap);
+  }
+
+  /**
+   * Set the API call retry configurations of specific topics, overriding the configuration set by
+   * {@link #setRetrySettings(RetrySettings)}.
+   *
+   * @param retrySettingsMap retry settings keyed by fully-qualified topic name
+   */
+  public void setRetrySettingsMap(Map<TopicName, RetrySettings> retrySettingsMap) {
+    Assert.notNull(retrySettingsMap, "retrySettingsMap can't be null.");
+    this.retrySettingsMap.putAll(retrySettingsMap);
+  }
+
+  /**
+   * Set the API call batching configurations of specific topics, overriding the configuration set
+   * by {@link #setBatchingSettings(BatchingSettings)}.
+   *
+   * @param batchingSettingsMap batching settings keyed by fully-qualified topic name
+   */
+  public void setBatchingSettingsMap(Map<TopicName, BatchingSettings> batchingSettingsMap) {
+    Assert.notNull(batchingSettingsMap, "batchingSettingsMap can't be null.");
+    this.batchingSettingsMap.putAll(batchingSettingsMap);
+  }
+
+  /**
+   * Set the tuner choosing the batching settings of publishers from the observed publish rate.
+   * The tuned settings replace the ones set by {@link #setBatchingSettings(BatchingSettings)}.
+   * Topics with their own batching settings or with message ordering enabled keep static batching
+   * settings, since recreating their publishers to apply new settings could reorder messages.
+   *
+   * @param adaptiveBatchingTuner the adaptive batching tuner
+   * @since 4.1.5
+   */
+  public void setAdaptiveBatchingTuner(AdaptiveBatchingTuner adaptiveBatchingTuner) {
+    this.adaptiveBatchingTuner = adaptiveBatchingTuner;
+  }
+
   /**
    * Accepts a list of {@link Publisher.Builder} customizers.
    * The customizers are applied in the order provided, so the later customizers can override
@@ -167,6 +245,8 @@ public class DefaultPublisherFactory implements PublisherFactory {
    * <p></p>Configuration precedence:
    * <ol>
    *   <li>modifications applied by the factory customizers
+   *   <li>{@code spring.cloud.gcp.pubsub.topic.[topic-name]} configuration options
+   *   <li>batching settings chosen by the {@link AdaptiveBatchingTuner}, if set
    *   <li>{@code spring.cloud.gcp.pubsub.publisher} configuration options
    *   <li>client library defaults
    *</ol>
@@ -177,10 +257,11 @@ public class DefaultPublisherFactory implements PublisherFactory {
   @Override
   public Publisher createPublisher(String topic) {
     try {
-      Publisher.Builder publisherBuilder =
-          Publisher.newBuilder(PubSubTopicUtils.toTopicName(topic, this.projectId));
+      TopicName topicName = PubSubTopicUtils.toTopicName(topic, this.projectId);
+      Publisher.Builder publisherBuilder = Publisher.newBuilder(topicName);
 
-      applyPublisherSettings(publisherBuilder);
+      applyPublisherSettings(publisherBuilder, topicName);
+      applyAdaptiveBatchingSettings(publisherBuilder, topic, topicName);
       applyCustomizers(publisherBuilder, topic);
 
       return publisherBuilder.build();
@@ -190,9 +271,10 @@ public class DefaultPublisherFactory implements PublisherFactory {
     }
   }
 
-  void applyPublisherSettings(Publisher.Builder publisherBuilder) {
-    if (this.executorProvider != null) {
-      publisherBuilder.setExecutorProvider(this.executorProvider);
+  void applyPublisherSettings(Publisher.Builder publisherBuilder, TopicName topicName) {
+    ExecutorProvider executor = getExecutorProvider(topicName);
+    if (executor != null) {
+      publisherBuilder.setExecutorProvider(executor);
     }
 
     if (this.channelProvider != null) {
@@ -207,23 +289,70 @@ public class DefaultPublisherFactory implements PublisherFactory {
       publisherBuilder.setHeaderProvider(this.headerProvider);
     }
 
-    if (this.retrySettings != null) {
-      publisherBuilder.setRetrySettings(this.retrySettings);
+    RetrySettings retry = getRetrySettings(topicName);
+    if (retry != null) {
+      publisherBuilder.setRetrySettings(retry);
+    }
+
+    BatchingSettings batching = getBatchingSettings(topicName);
+    if (batching != null) {
+      publisherBuilder.setBatchingSettings(batching);
     }
 
-    if (this.batchingSettings != null) {
-      publisherBuilder.setBatchingSettings(this.batchingSettings);
+    Boolean messageOrdering = getEnableMessageOrdering(topicName);
+    if (messageOrdering != null) {
+      publisherBuilder.setEnableMessageOrdering(messageOrdering);
     }
 
-    if (this.enableMessageOrdering != null) {
-      publisherBuilder.setEnableMessageOrdering(this.enableMessageOrdering);
+    String publisherEndpoint = getEndpoint(topicName);
+    if (publisherEndpoint != null) {
+      publisherBuilder.setEndpoint(publisherEndpoint);
     }
+  }
 
-    if (this.endpoint != null) {
-      publisherBuilder.setEndpoint(this.endpoint);
+  void applyAdaptiveBatchingSettings(
+      Publisher.Builder publisherBuilder, String topic, TopicName topicName) {
+    if (this.adaptiveBatchingTuner != null
+        && !this.batchingSettingsMap.containsKey(topicName)
+        && !Boolean.TRUE.equals(getEnableMessageOrdering(topicName))) {
+      publisherBuilder.setBatchingSettings(this.adaptiveBatchingTuner.getBatchingSettings(topic));
     }
   }
 
+  ExecutorProvider getExecutorProvider(TopicName topicName) {
+    return this.executorProviderMap.getOrDefault(topicName, this.executorProvider);
+  }
+
+  RetrySettings getRetrySettings(TopicName topicName) {
+    return this.retrySettingsMap.getOrDefault(topicName, this.retrySettings);
+  }
+
+  BatchingSettings getBatchingSettings(TopicName topicName) {
+    return this.batchingSettingsMap.getOrDefault(topicName, this.batchingSettings);
+  }
+
+  Boolean getEnableMessageOrdering(TopicName topicName) {
+    PubSubConfiguration.Publisher topicProperties = getTopicProperties(topicName);
+    if (topicProperties != null && topicProperties.getEnableMessageOrdering() != null) {
+      return topicProperties.getEnableMessageOrdering();
+    }
+    return this.enableMessageOrdering;
+  }
+
+  String getEndpoint(TopicName topicName) {
+    PubSubConfiguration.Publisher topicProperties = getTopicProperties(topicName);
+    if (topicProperties != null && topicProperties.getEndpoint() != null) {
+      return topicProperties.getEndpoint();
+    }
+    return this.endpoint;
+  }
+
+  private PubSubConfiguration.Publisher getTopicProperties(TopicName topicName) {
+    return this.pubSubConfiguration != null
+        ? this.pubSubConfiguration.getFullyQualifiedPublisherProperties().get(topicName)
+        : null;
+  }
+
   void applyCustomizers(Publisher.Builder publisherBuilder, String topic) {
     if (this.customizers == null) {
       return;
@@ -244,6 +244,10 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
     boolean shouldAddToHealthCheck = shouldAddToHealthCheck(subscriptionName);
     if (shouldAddToHealthCheck) {
       receiver = healthTrackerRegistry.wrap(projectSubscriptionName, receiver);
+    } else if (healthTrackerRegistry != null) {
+      // Registered beforehand, e.g. by an inbound channel adapter; the tracker may still need to
+      // observe the messages.
+      receiver = healthTrackerRegistry.wrapTracked(projectSubscriptionName, receiver);
     }
 
     Subscriber.Builder subscriberBuilder = Subscriber.newBuilder(projectSubscriptionName, receiver);
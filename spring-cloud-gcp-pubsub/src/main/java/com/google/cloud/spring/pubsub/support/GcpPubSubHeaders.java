@@ -16,6 +16,8 @@
 
 package com.google.cloud.spring.pubsub.support;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.messaging.Message;
 
@@ -29,6 +31,14 @@ public abstract class GcpPubSubHeaders {
   /** The client header text. */
   public static final String CLIENT = "googclient_*";
 
+  /**
+   * The attribute Pub/Sub sets on messages of topics with a schema, holding the encoding of the
+   * message data: {@code JSON} or {@code BINARY}.
+   *
+   * @since 4.1.5
+   */
+  public static final String SCHEMA_ENCODING = "googclient_schemaencoding";
+
   /** The topic header text. */
   public static final String TOPIC = PREFIX + "topic";
 
@@ -38,6 +48,20 @@ public abstract class GcpPubSubHeaders {
   /** The Pub/Sub message ordering key. */
   public static final String ORDERING_KEY = PREFIX + "ordering_key";
 
+  /**
+   * The original messages header text, set on batches of messages in batch mode.
+   *
+   * @since 4.1.5
+   */
+  public static final String ORIGINAL_MESSAGES = PREFIX + "original_messages";
+
+  /**
+   * The header text of the headers mapped from each message of a batch, in batch mode.
+   *
+   * @since 4.1.5
+   */
+  public static final String BATCH_CONVERTED_HEADERS = PREFIX + "batch_converted_headers";
+
   /**
    * A simple utility method for pulling the {@link #ORIGINAL_MESSAGE} header out of a {@link
    * Message}.
@@ -54,4 +78,24 @@ public abstract class GcpPubSubHeaders {
     }
     return Optional.empty();
   }
+
+  /**
+   * A simple utility method for pulling the {@link #ORIGINAL_MESSAGES} header out of a {@link
+   * Message} carrying a batch of messages.
+   *
+   * @param message The Spring Message that was produced by a {@link
+   *     com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter} in batch
+   *     mode.
+   * @return the BasicAcknowledgeablePubsubMessage for acking and nacking each message of the
+   *     batch, in the order of the batch payloads, or an empty list if the header is not set.
+   * @since 4.1.5
+   */
+  @SuppressWarnings("unchecked")
+  public static List<BasicAcknowledgeablePubsubMessage> getOriginalMessages(Message<?> message) {
+    Object originalMessages = message.getHeaders().get(ORIGINAL_MESSAGES);
+    if (originalMessages instanceof List) {
+      return (List<BasicAcknowledgeablePubsubMessage>) originalMessages;
+    }
+    return Collections.emptyList();
+  }
 }
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support;
+
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannel;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.spring.pubsub.core.PubSubException;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A gRPC channel spreading calls over a pool of channels, so that publishers, subscribers and
+ * subscriber stubs share a bounded number of connections instead of each opening their own.
+ *
+ * <p>Each call goes to the channel with the fewest outstanding calls, counting streaming pulls
+ * until they end. When every channel carries the maximum number of concurrent streams, another
+ * channel is opened, up to the maximum channel count; beyond that calls keep going to the least
+ * busy channel. Channels are only closed when the pool is shut down.
+ *
+ * <p>Clients use the pool through {@link #createChannelProvider()}. Since the channel provider
+ * doesn't close the pool when a client is closed, the pool has to be shut down by its owner.
+ *
+ * @since 4.1.5
+ */
+public class PubSubChannelPool extends ManagedChannel {
+
+  private static final Log LOGGER = LogFactory.getLog(PubSubChannelPool.class);
+
+  private final TransportChannelProvider channelProvider;
+
+  private final int maxChannelCount;
+
+  private final int maxConcurrentStreamsPerChannel;
+
+  private final List<PooledChannel> channels = new CopyOnWriteArrayList<>();
+
+  private final Object lifecycleMonitor = new Object();
+
+  private volatile boolean shutdown;
+
+  /**
+   * Create a pool and open its initial channels.
+   *
+   * @param channelProvider provides the pooled channels; must provide gRPC channels without
+   *     needing headers or an endpoint
+   * @param channelCount the number of channels to open on creation
+   * @param maxChannelCount the maximum number of channels
+   * @param maxConcurrentStreamsPerChannel the number of outstanding calls above which a channel is
+   *     considered busy
+   * @throws PubSubException if a channel can't be opened
+   */
+  public PubSubChannelPool(
+      TransportChannelProvider channelProvider,
+      int channelCount,
+      int maxChannelCount,
+      int maxConcurrentStreamsPerChannel) {
+    Assert.notNull(channelProvider, "The channel provider can't be null.");
+    Assert.isTrue(channelCount > 0, "The channel count must be greater than 0.");
+    Assert.isTrue(
+        maxChannelCount >= channelCount,
+        "The maximum channel count can't be less than the channel count.");
+    Assert.isTrue(
+        maxConcurrentStreamsPerChannel > 0,
+        "The maximum number of concurrent streams per channel must be greater than 0.");
+    this.channelProvider = channelProvider;
+    this.maxChannelCount = maxChannelCount;
+    this.maxConcurrentStreamsPerChannel = maxConcurrentStreamsPerChannel;
+    for (int i = 0; i < channelCount; i++) {
+      this.channels.add(openChannel());
+    }
+  }
+
+  /**
+   * Create a channel provider handing out this pool. Clients using it don't shut the pool down
+   * when they're closed.
+   *
+   * @return the channel provider
+   */
+  public TransportChannelProvider createChannelProvider() {
+    return FixedTransportChannelProvider.create(GrpcTransportChannel.create(this));
+  }
+
+  /**
+   * Get the number of open channels.
+   *
+   * @return the number of channels
+   */
+  public int getChannelCount() {
+    return this.channels.size();
+  }
+
+  /**
+   * Get the number of calls made on the pooled channels that haven't completed yet.
+   *
+   * @return the number of outstanding calls
+   */
+  public int getOutstandingCallCount() {
+    int outstandingCalls = 0;
+    for (PooledChannel channel : this.channels) {
+      outstandingCalls += channel.outstandingCalls.get();
+    }
+    return outstandingCalls;
+  }
+
+  /**
+   * Get the ratio of outstanding calls to the number of concurrent streams the open channels are
+   * meant to carry. Values above 1 mean that the pool reached its maximum channel count and
+   * channels are overloaded.
+   *
+   * @return the channel utilization
+   */
+  public double getUtilization() {
+    return (double) getOutstandingCallCount()
+        / ((long) getChannelCount() * this.maxConcurrentStreamsPerChannel);
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> methodDescriptor, CallOptions callOptions) {
+    PooledChannel channel = selectChannel();
+    // Count the call right away so that bursts of calls spread over the channels before any of
+    // them is started.
+    channel.outstandingCalls.incrementAndGet();
+    try {
+      return new CountingClientCall<>(
+          channel.transportChannel.getChannel().newCall(methodDescriptor, callOptions),
+          channel.outstandingCalls);
+    } catch (RuntimeException ex) {
+      channel.outstandingCalls.decrementAndGet();
+      throw ex;
+    }
+  }
+
+  @Override
+  public String authority() {
+    return this.channels.get(0).transportChannel.getChannel().authority();
+  }
+
+  @Override
+  public ManagedChannel shutdown() {
+    synchronized (this.lifecycleMonitor) {
+      this.shutdown = true;
+    }
+    for (PooledChannel channel : this.channels) {
+      channel.transportChannel.shutdown();
+    }
+    return this;
+  }
+
+  @Override
+  public ManagedChannel shutdownNow() {
+    synchronized (this.lifecycleMonitor) {
+      this.shutdown = true;
+    }
+    for (PooledChannel channel : this.channels) {
+      channel.transportChannel.shutdownNow();
+    }
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return this.shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    if (!this.shutdown) {
+      return false;
+    }
+    for (PooledChannel channel : this.channels) {
+      if (!channel.transportChannel.isTerminated()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+    for (PooledChannel channel : this.channels) {
+      long remainingNanos = deadlineNanos - System.nanoTime();
+      if (!channel.transportChannel.awaitTermination(remainingNanos, TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+    }
+    return isTerminated();
+  }
+
+  private PooledChannel selectChannel() {
+    PooledChannel channel = leastBusyChannel();
+    if (!isSaturated(channel)) {
+      return channel;
+    }
+    synchronized (this.lifecycleMonitor) {
+      channel = leastBusyChannel();
+      if (isSaturated(channel) && !this.shutdown) {
+        try {
+          channel = openChannel();
+          this.channels.add(channel);
+        } catch (RuntimeException ex) {
+          LOGGER.warn("Unable to open another Pub/Sub channel; using the least busy one.", ex);
+        }
+      }
+    }
+    return channel;
+  }
+
+  private PooledChannel leastBusyChannel() {
+    PooledChannel leastBusy = null;
+    int leastOutstandingCalls = Integer.MAX_VALUE;
+    for (PooledChannel channel : this.channels) {
+      int outstandingCalls = channel.outstandingCalls.get();
+      if (outstandingCalls < leastOutstandingCalls) {
+        leastBusy = channel;
+        leastOutstandingCalls = outstandingCalls;
+      }
+    }
+    return leastBusy;
+  }
+
+  private boolean isSaturated(PooledChannel leastBusy) {
+    return leastBusy.outstandingCalls.get() >= this.maxConcurrentStreamsPerChannel
+        && this.channels.size() < this.maxChannelCount;
+  }
+
+  private PooledChannel openChannel() {
+    TransportChannel transportChannel;
+    try {
+      transportChannel = this.channelProvider.getTransportChannel();
+    } catch (IOException ex) {
+      throw new PubSubException("Error opening a Pub/Sub channel.", ex);
+    }
+    Assert.isInstanceOf(
+        GrpcTransportChannel.class,
+        transportChannel,
+        "The channel provider must provide gRPC channels.");
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Opened Pub/Sub channel " + (this.channels.size() + 1) + ".");
+    }
+    return new PooledChannel((GrpcTransportChannel) transportChannel);
+  }
+
+  private static final class PooledChannel {
+
+    private final GrpcTransportChannel transportChannel;
+
+    private final AtomicInteger outstandingCalls = new AtomicInteger();
+
+    private PooledChannel(GrpcTransportChannel transportChannel) {
+      this.transportChannel = transportChannel;
+    }
+  }
+
+  /**
+   * Counts the call as outstanding on its channel from its creation until it's closed, or until
+   * it's cancelled if it was never started.
+   */
+  private static final class CountingClientCall<ReqT, RespT>
+      extends SimpleForwardingClientCall<ReqT, RespT> {
+
+    private final AtomicInteger outstandingCalls;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private CountingClientCall(ClientCall<ReqT, RespT> delegate, AtomicInteger outstandingCalls) {
+      super(delegate);
+      this.outstandingCalls = outstandingCalls;
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      this.started.set(true);
+      try {
+        super.start(
+            new SimpleForwardingClientCallListener<RespT>(responseListener) {
+              @Override
+              public void onClose(Status status, Metadata trailers) {
+                release();
+                super.onClose(status, trailers);
+              }
+            },
+            headers);
+      } catch (RuntimeException ex) {
+        release();
+        throw ex;
+      }
+    }
+
+    @Override
+    public void cancel(String message, Throwable cause) {
+      try {
+        super.cancel(message, cause);
+      } finally {
+        // A started call is released when its listener is closed.
+        if (!this.started.get()) {
+          release();
+        }
+      }
+    }
+
+    private void release() {
+      if (this.released.compareAndSet(false, true)) {
+        this.outstandingCalls.decrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support;
+
+/**
+ * Receives measurements of the publish and subscribe paths of the Pub/Sub templates and channel
+ * adapters, for instance to export them as metrics. Every method does nothing by default.
+ *
+ * <p>The methods are called on the threads publishing, pulling or handling messages, so
+ * implementations must be thread-safe and return quickly. Topic and subscription names are passed
+ * on as the application gave them, either short or fully-qualified.
+ *
+ * @since 4.1.5
+ */
+public interface PubSubMetricsRecorder {
+
+  /** Operation name of acknowledgements. */
+  String ACK = "ack";
+
+  /** Operation name of negative acknowledgements, i.e. setting the ack deadline to 0. */
+  String NACK = "nack";
+
+  /** Operation name of other ack deadline modifications. */
+  String MODIFY_ACK_DEADLINE = "modify-ack-deadline";
+
+  /**
+   * Record a publish, from the message being handed to the publisher until the publish completed.
+   * The time spent waiting for the publisher flow control isn't included.
+   *
+   * @param topic the topic published to
+   * @param durationNanos the publish latency, in nanoseconds
+   * @param success whether the message was published
+   */
+  default void recordPublish(String topic, long durationNanos, boolean success) {}
+
+  /**
+   * Record the conversion of a payload to a Pub/Sub message.
+   *
+   * @param topic the topic the message is published to
+   * @param durationNanos the conversion time, in nanoseconds
+   */
+  default void recordSerialization(String topic, long durationNanos) {}
+
+  /**
+   * Record a pull request.
+   *
+   * @param subscription the subscription pulled from
+   * @param messageCount the number of messages pulled
+   * @param durationNanos the pull latency, in nanoseconds
+   * @param success whether the pull succeeded
+   */
+  default void recordPull(
+      String subscription, int messageCount, long durationNanos, boolean success) {}
+
+  /**
+   * Record the conversion of a Pub/Sub message to a payload.
+   *
+   * @param subscription the subscription the message was received from
+   * @param durationNanos the conversion time, in nanoseconds
+   */
+  default void recordDeserialization(String subscription, long durationNanos) {}
+
+  /**
+   * Record an acknowledgement request of pulled messages.
+   *
+   * @param subscription the subscription of the messages
+   * @param operation one of {@link #ACK}, {@link #NACK} and {@link #MODIFY_ACK_DEADLINE}
+   * @param ackIdCount the number of ack IDs in the request
+   * @param durationNanos the request latency, in nanoseconds
+   * @param success whether the request succeeded
+   */
+  default void recordAcknowledgement(
+      String subscription,
+      String operation,
+      int ackIdCount,
+      long durationNanos,
+      boolean success) {}
+
+  /**
+   * Record the handling of a received message, or of a batch of received messages, by a channel
+   * adapter, from the message being sent to the output channel until the send returned and the
+   * message was acked or nacked according to the acknowledgement mode.
+   *
+   * @param subscription the subscription the messages were received from
+   * @param messageCount the number of messages handled together
+   * @param durationNanos the handling time, in nanoseconds
+   * @param success whether the messages were handled without error
+   */
+  default void recordProcessing(
+      String subscription, int messageCount, long durationNanos, boolean success) {}
+
+  /**
+   * Record the time a received message waited for its dispatch lane, when a channel adapter
+   * dispatches messages by ordering key. The time spent waiting for the lane to have room is
+   * included.
+   *
+   * @param subscription the subscription the message was received from
+   * @param lane the index of the lane the message was dispatched to
+   * @param waitNanos the time from receiving the message until its handling started, in
+   *     nanoseconds
+   */
+  default void recordDispatchWait(String subscription, int lane, long waitNanos) {}
+
+  /**
+   * Record a poll of a message source.
+   *
+   * @param subscription the subscription polled
+   * @param messageCount the number of messages returned, 0 or 1
+   * @param durationNanos the time taken to return, in nanoseconds
+   */
+  default void recordReceive(String subscription, int messageCount, long durationNanos) {}
+}
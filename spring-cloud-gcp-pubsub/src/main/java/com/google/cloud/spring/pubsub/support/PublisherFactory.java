@@ -29,4 +29,28 @@ public interface PublisherFactory {
    */
   Publisher createPublisher(String topic);
 
+  /**
+   * Obtains a {@link Publisher} for a given topic to publish with right away. The publisher must be
+   * passed to {@link #releasePublisher(String, Publisher)} once messages were handed to it, and
+   * isn't shut down by the factory in the meantime.
+   *
+   * @param topic destination topic
+   * @return fully configured publisher
+   * @since 4.1.5
+   */
+  default Publisher acquirePublisher(String topic) {
+    return createPublisher(topic);
+  }
+
+  /**
+   * Releases a {@link Publisher} obtained from {@link #acquirePublisher(String)}.
+   *
+   * @param topic destination topic
+   * @param publisher the publisher to release
+   * @since 4.1.5
+   */
+  default void releasePublisher(String topic, Publisher publisher) {
+    // Publishers aren't shut down by the factory by default.
+  }
+
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.Assert;
+
+/**
+ * A converter compressing the data of the messages created by another converter, and decompressing
+ * the data of received messages before the other converter reads them.
+ *
+ * <p>Only messages of at least {@code thresholdBytes} are compressed, and only if compressing makes
+ * them smaller. Compressed messages are marked with the {@link #CONTENT_ENCODING} attribute,
+ * holding the name of the codec, so that uncompressed messages and messages compressed by other
+ * codecs can be read as well: received messages are decompressed with the codec registered under
+ * the name they're marked with. Messages are decompressed into a buffer reused by each thread, and
+ * fail to convert if they decompress to more than {@link #setMaxDecompressedBytes(int)} bytes, so
+ * that a small, highly compressed message can't exhaust the heap.
+ *
+ * @since 4.1.5
+ */
+public class CompressingPubSubMessageConverter implements PubSubMessageConverter {
+
+  /** The attribute holding the name of the codec that compressed a message. */
+  public static final String CONTENT_ENCODING = "content-encoding";
+
+  /** The default maximum size of decompressed messages: 64 MiB. */
+  public static final int DEFAULT_MAX_DECOMPRESSED_BYTES = 64 * 1024 * 1024;
+
+  /** Buffers grown beyond this size aren't kept for reuse. */
+  private static final int MAX_POOLED_BUFFER_BYTES = 1024 * 1024;
+
+  private static final ThreadLocal<PooledBuffer> BUFFERS = new ThreadLocal<>();
+
+  private final PubSubMessageConverter delegate;
+
+  private final PubSubPayloadCodec codec;
+
+  private final int thresholdBytes;
+
+  private final Map<String, PubSubPayloadCodec> codecsByName = new ConcurrentHashMap<>();
+
+  private int maxDecompressedBytes = DEFAULT_MAX_DECOMPRESSED_BYTES;
+
+  /**
+   * Create a converter compressing messages with gzip.
+   *
+   * @param delegate the converter creating and reading the uncompressed messages
+   * @param thresholdBytes the minimum size of the messages to compress, in bytes
+   */
+  public CompressingPubSubMessageConverter(PubSubMessageConverter delegate, int thresholdBytes) {
+    this(delegate, new GzipPubSubPayloadCodec(), thresholdBytes);
+  }
+
+  /**
+   * Create a converter compressing messages with the given codec.
+   *
+   * @param delegate the converter creating and reading the uncompressed messages
+   * @param codec the codec compressing messages
+   * @param thresholdBytes the minimum size of the messages to compress, in bytes
+   */
+  public CompressingPubSubMessageConverter(
+      PubSubMessageConverter delegate, PubSubPayloadCodec codec, int thresholdBytes) {
+    Assert.notNull(delegate, "The delegate converter can't be null.");
+    Assert.notNull(codec, "The codec can't be null.");
+    Assert.isTrue(thresholdBytes >= 0, "The threshold can't be negative.");
+    this.delegate = delegate;
+    this.codec = codec;
+    this.thresholdBytes = thresholdBytes;
+    registerCodec(new GzipPubSubPayloadCodec());
+    registerCodec(codec);
+  }
+
+  /**
+   * Register a codec to decompress received messages with, in addition to gzip and the codec
+   * compressing messages.
+   *
+   * @param codec the codec
+   */
+  public void registerCodec(PubSubPayloadCodec codec) {
+    Assert.notNull(codec, "The codec can't be null.");
+    this.codecsByName.put(codec.getName(), codec);
+  }
+
+  /**
+   * Set the maximum size of decompressed messages. Received messages decompressing to more bytes
+   * fail to convert with a {@link PubSubMessageConversionException}.
+   *
+   * @param maxDecompressedBytes the maximum size of decompressed messages, in bytes; {@link
+   *     #DEFAULT_MAX_DECOMPRESSED_BYTES} by default
+   */
+  public void setMaxDecompressedBytes(int maxDecompressedBytes) {
+    Assert.isTrue(maxDecompressedBytes > 0, "The maximum decompressed size must be positive.");
+    this.maxDecompressedBytes = maxDecompressedBytes;
+  }
+
+  @Override
+  public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+    PubsubMessage message = this.delegate.toPubSubMessage(payload, headers);
+    ByteString data = message.getData();
+    if (data.size() < this.thresholdBytes) {
+      return message;
+    }
+
+    ByteString.Output compressed = ByteString.newOutput(data.size() / 2);
+    try (OutputStream out = this.codec.compressingStream(compressed)) {
+      data.writeTo(out);
+    } catch (IOException ex) {
+      throw new PubSubMessageConversionException(
+          "Compression of a message with " + this.codec.getName() + " failed.", ex);
+    }
+    if (compressed.size() >= data.size()) {
+      return message;
+    }
+    return message.toBuilder()
+        .setData(compressed.toByteString())
+        .putAttributes(CONTENT_ENCODING, this.codec.getName())
+        .build();
+  }
+
+  @Override
+  public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+    String contentEncoding = message.getAttributesOrDefault(CONTENT_ENCODING, null);
+    if (contentEncoding == null) {
+      return this.delegate.fromPubSubMessage(message, payloadType);
+    }
+
+    PubSubPayloadCodec decodingCodec = this.codecsByName.get(contentEncoding);
+    if (decodingCodec == null) {
+      throw new PubSubMessageConversionException(
+          "Unable to decompress a message with unknown content encoding " + contentEncoding + ".");
+    }
+
+    ByteString decompressed;
+    PooledBuffer buffer = BUFFERS.get();
+    if (buffer == null) {
+      buffer = new PooledBuffer();
+      BUFFERS.set(buffer);
+    }
+    buffer.reset();
+    try (InputStream in = decodingCodec.decompressingStream(message.getData().newInput())) {
+      if (!buffer.readFrom(in, this.maxDecompressedBytes)) {
+        throw new PubSubMessageConversionException(
+            "A message compressed with " + contentEncoding + " decompresses to more than "
+                + this.maxDecompressedBytes + " bytes.");
+      }
+      decompressed = buffer.toByteString();
+    } catch (IOException ex) {
+      throw new PubSubMessageConversionException(
+          "Decompression of a message with " + contentEncoding + " failed.", ex);
+    } finally {
+      if (buffer.capacity() > MAX_POOLED_BUFFER_BYTES) {
+        BUFFERS.remove();
+      }
+    }
+
+    return this.delegate.fromPubSubMessage(
+        message.toBuilder().setData(decompressed).removeAttributes(CONTENT_ENCODING).build(),
+        payloadType);
+  }
+
+  /** A growable buffer whose content is copied once, into a {@link ByteString}. */
+  private static final class PooledBuffer extends ByteArrayOutputStream {
+
+    private PooledBuffer() {
+      super(8192);
+    }
+
+    /**
+     * Read a stream to its end into the buffer, unless it holds more than {@code maxBytes}.
+     *
+     * @return false if the stream holds more than {@code maxBytes}
+     */
+    private boolean readFrom(InputStream in, int maxBytes) throws IOException {
+      while (true) {
+        int limit = Math.min(this.buf.length, maxBytes);
+        if (this.count >= limit) {
+          if (this.count >= maxBytes) {
+            return in.read() < 0;
+          }
+          this.buf = Arrays.copyOf(this.buf, (int) Math.min(maxBytes, 2L * this.buf.length));
+          limit = this.buf.length;
+        }
+        int read = in.read(this.buf, this.count, limit - this.count);
+        if (read < 0) {
+          return true;
+        }
+        this.count += read;
+      }
+    }
+
+    private ByteString toByteString() {
+      return ByteString.copyFrom(this.buf, 0, this.count);
+    }
+
+    private int capacity() {
+      return this.buf.length;
+    }
+  }
+}
@@ -18,17 +18,29 @@ package com.google.cloud.spring.pubsub.support.converter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.protobuf.ByteString;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.protobuf.UnsafeByteOperations;
 import com.google.pubsub.v1.PubsubMessage;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.util.Assert;
 
-/** A converter using Jackson JSON. */
+/**
+ * A converter using Jackson JSON.
+ *
+ * <p>The {@link ObjectReader} and {@link ObjectWriter} used for a payload type are created once and
+ * reused, so the {@link ObjectMapper} should not be reconfigured once the converter is in use.
+ */
 public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
 
   private final ObjectMapper objectMapper;
 
+  private final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
   /**
    * Constructor.
    *
@@ -42,8 +54,12 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
   @Override
   public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
     try {
+      ObjectWriter writer = payload != null
+          ? this.writers.computeIfAbsent(payload.getClass(), this.objectMapper::writerFor)
+          : this.objectMapper.writer();
+      // The serialized bytes are not referenced anywhere else, so they don't need to be copied.
       return byteStringToPubSubMessage(
-          ByteString.copyFrom(this.objectMapper.writeValueAsBytes(payload)), headers);
+          UnsafeByteOperations.unsafeWrap(writer.writeValueAsBytes(payload)), headers);
     } catch (JsonProcessingException ex) {
       throw new PubSubMessageConversionException(
           "JSON serialization of an object of type " + payload.getClass().getName() + " failed.",
@@ -54,8 +70,9 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
   @Override
   public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
     try {
-      return (T)
-          this.objectMapper.readerFor(payloadType).readValue(message.getData().toByteArray());
+      return this.readers
+          .computeIfAbsent(payloadType, this.objectMapper::readerFor)
+          .readValue(message.getData().newInput());
     } catch (IOException ex) {
       throw new PubSubMessageConversionException(
           "JSON deserialization of an object of type " + payloadType.getName() + " failed.", ex);
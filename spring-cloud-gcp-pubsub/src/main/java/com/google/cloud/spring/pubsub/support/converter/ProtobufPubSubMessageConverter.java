@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Internal;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import com.google.pubsub.v1.Encoding;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.Assert;
+
+/**
+ * A converter for Protocol Buffers messages, in the binary or the JSON encoding of topic schemas.
+ *
+ * <p>Messages are published in the encoding the converter is created with, which should be the
+ * one of the schema settings of the topic, e.g. as returned by {@link
+ * com.google.cloud.spring.pubsub.PubSubAdmin#getTopic(String)}. Received messages are read in the
+ * encoding given by their {@link GcpPubSubHeaders#SCHEMA_ENCODING} attribute, if any, and in the
+ * encoding of the converter otherwise. Message data is parsed in place, without being copied.
+ *
+ * <p>The default instance of each payload type is looked up once and reused to parse messages.
+ *
+ * @since 4.1.5
+ */
+public class ProtobufPubSubMessageConverter implements PubSubMessageConverter {
+
+  private final Encoding encoding;
+
+  private final JsonFormat.Printer jsonPrinter;
+
+  private final JsonFormat.Parser jsonParser;
+
+  private final ConcurrentHashMap<Class<?>, Message> defaultInstances = new ConcurrentHashMap<>();
+
+  /** Create a converter publishing messages in the binary encoding. */
+  public ProtobufPubSubMessageConverter() {
+    this(Encoding.BINARY);
+  }
+
+  /**
+   * Create a converter publishing messages in the given encoding.
+   *
+   * @param encoding the encoding of the schema of the topics messages are published to
+   */
+  public ProtobufPubSubMessageConverter(Encoding encoding) {
+    this(encoding, JsonFormat.printer(), JsonFormat.parser().ignoringUnknownFields());
+  }
+
+  /**
+   * Create a converter publishing messages in the given encoding, with the given JSON printer and
+   * parser, e.g. to resolve {@code Any} fields.
+   *
+   * @param encoding the encoding of the schema of the topics messages are published to
+   * @param jsonPrinter the printer of the JSON encoding
+   * @param jsonParser the parser of the JSON encoding
+   */
+  public ProtobufPubSubMessageConverter(
+      Encoding encoding, JsonFormat.Printer jsonPrinter, JsonFormat.Parser jsonParser) {
+    Assert.isTrue(
+        encoding == Encoding.BINARY || encoding == Encoding.JSON,
+        "The encoding must be BINARY or JSON.");
+    Assert.notNull(jsonPrinter, "The JSON printer can't be null.");
+    Assert.notNull(jsonParser, "The JSON parser can't be null.");
+    this.encoding = encoding;
+    this.jsonPrinter = jsonPrinter;
+    this.jsonParser = jsonParser;
+  }
+
+  public Encoding getEncoding() {
+    return this.encoding;
+  }
+
+  @Override
+  public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+    if (!(payload instanceof Message message)) {
+      throw new PubSubMessageConversionException(
+          "Unable to convert payload of type "
+              + (payload != null ? payload.getClass().getName() : null)
+              + " to a Protocol Buffers message.");
+    }
+    if (this.encoding == Encoding.BINARY) {
+      return byteStringToPubSubMessage(message.toByteString(), headers);
+    }
+    try {
+      return byteStringToPubSubMessage(
+          ByteString.copyFromUtf8(this.jsonPrinter.print(message)), headers);
+    } catch (InvalidProtocolBufferException ex) {
+      throw new PubSubMessageConversionException(
+          "JSON serialization of a message of type " + payload.getClass().getName() + " failed.",
+          ex);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+    Message defaultInstance = getDefaultInstance(payloadType);
+    String schemaEncoding = message.getAttributesOrDefault(GcpPubSubHeaders.SCHEMA_ENCODING, null);
+    boolean json =
+        schemaEncoding != null
+            ? Encoding.JSON.name().equals(schemaEncoding)
+            : this.encoding == Encoding.JSON;
+    try {
+      if (!json) {
+        return (T) defaultInstance.getParserForType().parseFrom(message.getData());
+      }
+      Message.Builder builder = defaultInstance.newBuilderForType();
+      try (Reader reader =
+          new InputStreamReader(message.getData().newInput(), StandardCharsets.UTF_8)) {
+        this.jsonParser.merge(reader, builder);
+      }
+      return (T) builder.build();
+    } catch (IOException ex) {
+      throw new PubSubMessageConversionException(
+          (json ? "JSON" : "Binary")
+              + " deserialization of a message of type "
+              + payloadType.getName()
+              + " failed.",
+          ex);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Message getDefaultInstance(Class<?> payloadType) {
+    if (!Message.class.isAssignableFrom(payloadType)) {
+      throw new PubSubMessageConversionException(
+          "Unable to convert a message to type "
+              + payloadType.getName()
+              + ", which isn't a Protocol Buffers message.");
+    }
+    return this.defaultInstances.computeIfAbsent(
+        payloadType, type -> Internal.getDefaultInstance((Class<Message>) type));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compression codec of the {@link CompressingPubSubMessageConverter}.
+ *
+ * <p>Codecs are stream-based, so that codecs of compression libraries providing streams, such as
+ * zstd or Snappy, can be plugged in.
+ *
+ * @since 4.1.5
+ */
+public interface PubSubPayloadCodec {
+
+  /**
+   * Get the name of the codec, set in the content encoding attribute of compressed messages.
+   *
+   * @return the name of the codec
+   */
+  String getName();
+
+  /**
+   * Wrap a stream to compress the data written to it.
+   *
+   * @param out the stream receiving the compressed data
+   * @return the stream compressing the data written to it; closing it finishes the compression
+   * @throws IOException if the stream can't be created
+   */
+  OutputStream compressingStream(OutputStream out) throws IOException;
+
+  /**
+   * Wrap a stream to decompress the data read from it.
+   *
+   * @param in the stream of compressed data
+   * @return the stream of decompressed data
+   * @throws IOException if the stream can't be created
+   */
+  InputStream decompressingStream(InputStream in) throws IOException;
+}
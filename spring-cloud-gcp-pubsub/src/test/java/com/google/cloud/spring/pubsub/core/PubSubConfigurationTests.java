@@ -22,7 +22,10 @@ import com.google.api.gax.batching.FlowController;
 import com.google.api.gax.rpc.StatusCode.Code;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.TopicName;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -52,6 +55,28 @@ class PubSubConfigurationTests {
     assertThat(health.getBacklogThreshold()).isNull();
     assertThat(health.getLookUpInterval()).isEqualTo(1);
     assertThat(health.getExecutorThreads()).isEqualTo(4);
+    assertThat(health.isLocalTracking()).isFalse();
+    assertThat(health.isRemoteFallback()).isTrue();
+    assertThat(health.getRemoteCheckInterval()).isEqualTo(60);
+  }
+
+  @Test
+  void testDefaultMetricsProperties() {
+    PubSubConfiguration.Metrics metrics = pubSubConfiguration.getMetrics();
+
+    assertThat(metrics.isEnabled()).isFalse();
+    assertThat(metrics.getMaxTaggedNames()).isEqualTo(100);
+    assertThat(metrics.isPercentileHistogram()).isTrue();
+  }
+
+  @Test
+  void testDefaultChannelPoolProperties() {
+    PubSubConfiguration.ChannelPool channelPool = pubSubConfiguration.getChannelPool();
+
+    assertThat(channelPool.isEnabled()).isFalse();
+    assertThat(channelPool.getChannelCount()).isEqualTo(4);
+    assertThat(channelPool.getMaxChannelCount()).isEqualTo(16);
+    assertThat(channelPool.getMaxConcurrentStreamsPerChannel()).isEqualTo(100);
   }
 
   @Test
@@ -64,6 +89,11 @@ class PubSubConfigurationTests {
     assertThat(subscriber.getExecutorThreads()).isNull();
     assertThat(subscriber.getMaxAcknowledgementThreads()).isEqualTo(4);
     assertThat(subscriber.getParallelPullCount()).isNull();
+    assertThat(subscriber.isVirtualThreads()).isFalse();
+    assertThat(subscriber.getExactlyOnce().isEnabled()).isFalse();
+    assertThat(subscriber.getExactlyOnce().getAckRetryTimeoutSeconds()).isEqualTo(60);
+    assertThat(subscriber.getExactlyOnce().getDeduplicationWindowSeconds()).isEqualTo(600);
+    assertThat(subscriber.getExactlyOnce().getDeduplicationMaxMessages()).isEqualTo(100_000);
 
     assertThat(subscriber.getMaxAckExtensionPeriod()).isNull();
     assertThat(subscriber.getMinDurationPerAckExtension()).isNull();
@@ -624,4 +654,88 @@ class PubSubConfigurationTests {
     assertThat(retrySettings.getRpcTimeoutMultiplier()).isEqualTo(12.0);
     assertThat(retrySettings.getMaxRpcTimeoutSeconds()).isEqualTo(8L);
   }
+
+  @Test
+  void testTopicProperties_keyedByFullyQualifiedName() {
+    PubSubConfiguration.Publisher shortNamePublisher = new PubSubConfiguration.Publisher();
+    PubSubConfiguration.Publisher otherProjectPublisher = new PubSubConfiguration.Publisher();
+    Map<String, PubSubConfiguration.Publisher> topicMap = new HashMap<>();
+    topicMap.put("topic-name", shortNamePublisher);
+    topicMap.put("projects/otherProject/topics/topic-name", otherProjectPublisher);
+    pubSubConfiguration.setTopic(topicMap);
+
+    pubSubConfiguration.initialize("projectId");
+
+    assertThat(pubSubConfiguration.getFullyQualifiedPublisherProperties())
+        .hasSize(2)
+        .containsEntry(TopicName.of("projectId", "topic-name"), shortNamePublisher)
+        .containsEntry(TopicName.of("otherProject", "topic-name"), otherProjectPublisher);
+    assertThat(pubSubConfiguration.getTopicProperties(TopicName.of("projectId", "topic-name")))
+        .isSameAs(shortNamePublisher);
+    assertThat(pubSubConfiguration.getTopicProperties(TopicName.of("projectId", "other")))
+        .isSameAs(publisher);
+  }
+
+  @Test
+  void testTopicPublisherProperties_unsetExecutorThreads() {
+    PubSubConfiguration.Publisher topicPublisher = new PubSubConfiguration.Publisher();
+
+    assertThat(topicPublisher.hasExecutorThreads()).isFalse();
+    assertThat(topicPublisher.getExecutorThreads()).isEqualTo(4);
+
+    topicPublisher.setExecutorThreads(2);
+
+    assertThat(topicPublisher.hasExecutorThreads()).isTrue();
+    assertThat(topicPublisher.getExecutorThreads()).isEqualTo(2);
+  }
+
+  @Test
+  void testComputePublisherBatchingSettings_topicTakesPrecedence() {
+    PubSubConfiguration.Batching globalBatching = publisher.getBatching();
+    globalBatching.setElementCountThreshold(100L);
+    globalBatching.setDelayThresholdSeconds(2L);
+    globalBatching.getFlowControl().setMaxOutstandingElementCount(1000L);
+    globalBatching.getFlowControl()
+        .setLimitExceededBehavior(FlowController.LimitExceededBehavior.Block);
+
+    PubSubConfiguration.Publisher topicPublisher = new PubSubConfiguration.Publisher();
+    topicPublisher.getBatching().setElementCountThreshold(1000L);
+    topicPublisher.getBatching().getFlowControl().setMaxOutstandingElementCount(5000L);
+    pubSubConfiguration.setTopic(Collections.singletonMap("topic-name", topicPublisher));
+
+    pubSubConfiguration.initialize("projectId");
+
+    PubSubConfiguration.Batching batching =
+        pubSubConfiguration.computePublisherBatchingSettings(
+            TopicName.of("projectId", "topic-name"));
+    assertThat(batching.getElementCountThreshold()).isEqualTo(1000L);
+    assertThat(batching.getDelayThresholdSeconds()).isEqualTo(2L);
+    assertThat(batching.getRequestByteThreshold()).isNull();
+    assertThat(batching.getFlowControl().getMaxOutstandingElementCount()).isEqualTo(5000L);
+    assertThat(batching.getFlowControl().getLimitExceededBehavior())
+        .isEqualTo(FlowController.LimitExceededBehavior.Block);
+
+    assertThat(
+            pubSubConfiguration.computePublisherBatchingSettings(
+                TopicName.of("projectId", "other-topic")))
+        .isSameAs(globalBatching);
+  }
+
+  @Test
+  void testComputePublisherRetrySettings_topicTakesPrecedence() {
+    publisher.getRetry().setMaxAttempts(3);
+    publisher.getRetry().setTotalTimeoutSeconds(60L);
+
+    PubSubConfiguration.Publisher topicPublisher = new PubSubConfiguration.Publisher();
+    topicPublisher.getRetry().setMaxAttempts(10);
+    pubSubConfiguration.setTopic(Collections.singletonMap("topic-name", topicPublisher));
+
+    pubSubConfiguration.initialize("projectId");
+
+    PubSubConfiguration.Retry retry =
+        pubSubConfiguration.computePublisherRetrySettings(TopicName.of("projectId", "topic-name"));
+    assertThat(retry.getMaxAttempts()).isEqualTo(10);
+    assertThat(retry.getTotalTimeoutSeconds()).isEqualTo(60L);
+    assertThat(retry.getJittered()).isNull();
+  }
 }
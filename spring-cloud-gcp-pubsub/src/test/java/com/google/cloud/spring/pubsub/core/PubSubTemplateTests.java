@@ -19,11 +19,14 @@ package com.google.cloud.spring.pubsub.core;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -32,11 +35,15 @@ import static org.mockito.Mockito.when;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.core.ApiService;
 import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.batching.FlowController.MaxOutstandingElementCountReachedException;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Publisher;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.publisher.PublishLimitExceededBehavior;
 import com.google.cloud.spring.pubsub.core.test.allowed.AllowedPayload;
+import com.google.cloud.spring.pubsub.support.AdaptiveBatchingTuner;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.JacksonPubSubMessageConverter;
@@ -50,14 +57,18 @@ import java.util.concurrent.ExecutionException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 /** Tests for the Pub/Sub template. */
 @ExtendWith(MockitoExtension.class)
 class PubSubTemplateTests {
 
-  @Mock private PublisherFactory mockPublisherFactory;
+  @Mock(answer = Answers.CALLS_REAL_METHODS)
+  private PublisherFactory mockPublisherFactory;
 
   @Mock private SubscriberFactory mockSubscriberFactory;
 
@@ -199,6 +210,195 @@ class PubSubTemplateTests {
         .hasStackTraceContaining("Publish failed");
   }
 
+  @Test
+  void testPublish_flowControlThrow() throws ExecutionException, InterruptedException {
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    publisherTemplate.setFlowControl(1L, Long.MAX_VALUE, PublishLimitExceededBehavior.THROW);
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+    SettableApiFuture<String> secondApiFuture = SettableApiFuture.create();
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondApiFuture);
+
+    CompletableFuture<String> first = publisherTemplate.publish("testTopic", this.pubsubMessage);
+    CompletableFuture<String> rejected =
+        publisherTemplate.publish("testTopic", this.pubsubMessage);
+
+    assertThatThrownBy(rejected::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(PubSubDeliveryException.class)
+        .hasRootCauseInstanceOf(MaxOutstandingElementCountReachedException.class);
+
+    this.settableApiFuture.set("result1");
+    assertThat(first.get()).isEqualTo("result1");
+    CompletableFuture<String> third = publisherTemplate.publish("testTopic", this.pubsubMessage);
+    secondApiFuture.set("result3");
+    assertThat(third.get()).isEqualTo("result3");
+  }
+
+  @Test
+  void testPublish_flowControlDropOldest() throws ExecutionException, InterruptedException {
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    publisherTemplate.setFlowControl(1L, Long.MAX_VALUE, PublishLimitExceededBehavior.DROP_OLDEST);
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+    SettableApiFuture<String> secondApiFuture = SettableApiFuture.create();
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondApiFuture);
+    PubsubMessage droppedMessage =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("dropped")).build();
+
+    CompletableFuture<String> first = publisherTemplate.publish("testTopic", this.pubsubMessage);
+    CompletableFuture<String> dropped = publisherTemplate.publish("testTopic", droppedMessage);
+    CompletableFuture<String> held = publisherTemplate.publish("testTopic", this.pubsubMessage);
+
+    assertThatThrownBy(dropped::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(PubSubDeliveryException.class)
+        .hasMessageContaining("dropped by the publisher flow control");
+    verify(this.mockPublisher, times(1)).publish(isA(PubsubMessage.class));
+
+    this.settableApiFuture.set("result1");
+    secondApiFuture.set("result3");
+    assertThat(first.get()).isEqualTo("result1");
+    assertThat(held.get()).isEqualTo("result3");
+    verify(this.mockPublisher, times(2)).publish(this.pubsubMessage);
+  }
+
+  @Test
+  void testPublishReactive_flowControlWaitsWithoutBlocking() {
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    publisherTemplate.setFlowControl(1L, Long.MAX_VALUE, PublishLimitExceededBehavior.BLOCK);
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+    SettableApiFuture<String> secondApiFuture = SettableApiFuture.create();
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondApiFuture);
+
+    publisherTemplate.publish("testTopic", this.pubsubMessage);
+
+    StepVerifier.create(publisherTemplate.publishReactive("testTopic", this.pubsubMessage))
+        .expectSubscription()
+        .then(
+            () -> {
+              verify(this.mockPublisher, times(1)).publish(isA(PubsubMessage.class));
+              this.settableApiFuture.set("result1");
+              secondApiFuture.set("result2");
+            })
+        .expectNext("result2")
+        .verifyComplete();
+  }
+
+  @Test
+  void testPublishAll() {
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+    SettableApiFuture<String> secondApiFuture = SettableApiFuture.create();
+    SettableApiFuture<String> thirdApiFuture = SettableApiFuture.create();
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondApiFuture, thirdApiFuture);
+
+    StepVerifier.create(
+            publisherTemplate.publishAll(
+                "testTopic", Flux.just(this.pubsubMessage, "payload", this.pubsubMessage), 2))
+        .then(
+            () -> {
+              verify(this.mockPublisher, times(2)).publish(isA(PubsubMessage.class));
+              secondApiFuture.set("id2");
+              this.settableApiFuture.set("id1");
+              thirdApiFuture.set("id3");
+            })
+        .expectNext("id1", "id2", "id3")
+        .verifyComplete();
+    verify(this.mockPublisher)
+        .publish(argThat(message -> message.getData().toStringUtf8().equals("\"payload\"")));
+  }
+
+  @Test
+  void testPublishAll_failureResumesOrderingKey() {
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+    when(this.mockPublisher.publish(isA(PubsubMessage.class))).thenReturn(this.settableApiFuture);
+    this.settableApiFuture.setException(new Exception("Publish failed"));
+    PubsubMessage orderedMessage = this.pubsubMessage.toBuilder().setOrderingKey("key1").build();
+
+    StepVerifier.create(publisherTemplate.publishAll("testTopic", Flux.just(orderedMessage)))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(error)
+                    .isInstanceOf(PubSubDeliveryException.class)
+                    .hasMessage("Publishing to testTopic topic failed."))
+        .verify();
+    verify(this.mockPublisher).resumePublish("key1");
+  }
+
+  @Test
+  void testResumePublish() {
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+
+    this.pubSubTemplate.resumePublish("testTopic", "key1");
+
+    verify(this.mockPublisher).resumePublish("key1");
+  }
+
+  @Test
+  void testPublish_recordsMetrics() {
+    PubSubMetricsRecorder metricsRecorder = mock(PubSubMetricsRecorder.class);
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    publisherTemplate.setMetricsRecorder(metricsRecorder);
+    publisherTemplate.setFlowControl(10L, Long.MAX_VALUE, PublishLimitExceededBehavior.THROW);
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+    SettableApiFuture<String> secondApiFuture = SettableApiFuture.create();
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondApiFuture);
+
+    publisherTemplate.publish("testTopic", "payload");
+    publisherTemplate.publish("testTopic", this.pubsubMessage);
+
+    assertThat(publisherTemplate.getOutstandingElementCount()).isEqualTo(2);
+    assertThat(publisherTemplate.getOutstandingRequestBytes()).isPositive();
+    verify(metricsRecorder).recordSerialization(eq("testTopic"), anyLong());
+    verify(metricsRecorder, never()).recordPublish(any(), anyLong(), anyBoolean());
+
+    this.settableApiFuture.set("result");
+    secondApiFuture.setException(new Exception("Publish failed"));
+
+    verify(metricsRecorder).recordPublish(eq("testTopic"), anyLong(), eq(true));
+    verify(metricsRecorder).recordPublish(eq("testTopic"), anyLong(), eq(false));
+    assertThat(publisherTemplate.getOutstandingElementCount()).isZero();
+    assertThat(publisherTemplate.getOutstandingRequestBytes()).isZero();
+  }
+
+  @Test
+  void testPublish_recordsAdaptiveBatchingPublishes() {
+    AdaptiveBatchingTuner tuner = mock(AdaptiveBatchingTuner.class);
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    publisherTemplate.setAdaptiveBatchingTuner(tuner);
+    when(this.mockPublisherFactory.createPublisher("testTopic")).thenReturn(this.mockPublisher);
+    when(this.mockPublisher.publish(isA(PubsubMessage.class))).thenReturn(this.settableApiFuture);
+
+    publisherTemplate.publish("testTopic", this.pubsubMessage);
+    StepVerifier.create(publisherTemplate.publishReactive("testTopic", this.pubsubMessage))
+        .then(() -> this.settableApiFuture.set("result"))
+        .expectNext("result")
+        .verifyComplete();
+
+    verify(tuner, times(2)).recordPublish("testTopic");
+  }
+
+  @Test
+  void testPublish_recordsMetricsWhenPublisherCreationFails() {
+    PubSubMetricsRecorder metricsRecorder = mock(PubSubMetricsRecorder.class);
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    publisherTemplate.setMetricsRecorder(metricsRecorder);
+    when(this.mockPublisherFactory.createPublisher("testTopic"))
+        .thenThrow(new PubSubException("couldn't create the publisher."));
+
+    StepVerifier.create(publisherTemplate.publishReactive("testTopic", this.pubsubMessage))
+        .expectError(PubSubException.class)
+        .verify();
+
+    verify(metricsRecorder).recordPublish(eq("testTopic"), anyLong(), eq(false));
+    assertThat(publisherTemplate.getOutstandingElementCount()).isZero();
+  }
+
   @Test
   void testSubscribe() {
 
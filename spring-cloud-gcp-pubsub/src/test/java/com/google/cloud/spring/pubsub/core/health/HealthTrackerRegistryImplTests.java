@@ -17,6 +17,7 @@
 package com.google.cloud.spring.pubsub.core.health;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -197,6 +198,33 @@ class HealthTrackerRegistryImplTests {
     assertThat(healthTrackers.containsKey(subscriptionName)).isTrue();
   }
 
+  @Test
+  void testRegisterLocalTracker() {
+    ProjectSubscriptionName subscriptionName =
+        ProjectSubscriptionName.of("project-id", "subscription-id");
+
+    ((HealthTrackerRegistryImpl) healthTrackerRegistry).setLocalTracking(true);
+    HealthTracker healthTracker = healthTrackerRegistry.registerTracker(subscriptionName);
+
+    assertThat(healthTracker).isInstanceOf(LocalHealthTracker.class);
+    assertThat(healthTracker.subscription()).isEqualTo(subscriptionName);
+  }
+
+  @Test
+  void testRegisterLocalTrackerWithoutMetricServiceClient() {
+    HealthTrackerRegistryImpl localRegistry =
+        new HealthTrackerRegistryImpl(
+            DEFAULT_PROJECT_ID, DEFAULT_LAG_THRESHOLD, DEFAULT_BACKLOG_THRESHOLD, executorProvider);
+
+    HealthTracker healthTracker = localRegistry.registerTracker("subscription-id");
+
+    assertThat(healthTracker).isInstanceOf(LocalHealthTracker.class);
+    assertThat(healthTracker.messagesOverThreshold()).isZero();
+    assertThatThrownBy(() -> localRegistry.setLocalTracking(false))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Local tracking can't be disabled without a MetricServiceClient.");
+  }
+
   @Test
   void testProcessedMessageNoHealthTracker() {
     String projectId = "project-id";
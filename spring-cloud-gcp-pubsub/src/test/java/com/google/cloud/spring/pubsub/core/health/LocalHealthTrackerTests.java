@@ -0,0 +1,190 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.health;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link LocalHealthTracker}. */
+class LocalHealthTrackerTests {
+
+  private static final ProjectSubscriptionName SUBSCRIPTION =
+      ProjectSubscriptionName.of("project-id", "subscription-id");
+
+  private static final int LAG_THRESHOLD = 10;
+
+  private static final int BACKLOG_THRESHOLD = 1;
+
+  private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+  private final List<AckReplyConsumer> consumers = new ArrayList<>();
+
+  private HealthTrackerImpl remoteTracker;
+
+  private MessageReceiver receiver;
+
+  private LocalHealthTracker healthTracker;
+
+  @BeforeEach
+  void setUp() {
+    remoteTracker = mock(HealthTrackerImpl.class);
+    healthTracker =
+        new LocalHealthTracker(
+            SUBSCRIPTION,
+            LAG_THRESHOLD,
+            BACKLOG_THRESHOLD,
+            remoteTracker,
+            Duration.ofSeconds(60),
+            clock::get);
+    receiver = healthTracker.wrap((message, consumer) -> consumers.add(consumer));
+  }
+
+  @Test
+  void outstandingMessagesUntilAckedOrNacked() {
+    AckReplyConsumer originalConsumer = mock(AckReplyConsumer.class);
+    receive(originalConsumer);
+    clock.addAndGet(1000);
+    receive(originalConsumer);
+    clock.addAndGet(1000);
+
+    assertThat(healthTracker.getOutstandingCount()).isEqualTo(2);
+    assertThat(healthTracker.getOldestUnackedMessageAge()).isEqualTo(Duration.ofSeconds(2));
+
+    consumers.get(0).ack();
+    consumers.get(0).ack();
+
+    assertThat(healthTracker.getOutstandingCount()).isEqualTo(1);
+    assertThat(healthTracker.getOldestUnackedMessageAge()).isEqualTo(Duration.ofSeconds(1));
+
+    consumers.get(1).nack();
+
+    assertThat(healthTracker.getOutstandingCount()).isZero();
+    assertThat(healthTracker.getOldestUnackedMessageAge()).isEqualTo(Duration.ZERO);
+    verify(originalConsumer, times(2)).ack();
+    verify(originalConsumer).nack();
+  }
+
+  @Test
+  void stuckOutstandingMessagesAreOverThreshold() {
+    receive(mock(AckReplyConsumer.class));
+    receive(mock(AckReplyConsumer.class));
+    receive(mock(AckReplyConsumer.class));
+    consumers.get(0).ack();
+
+    // Processed recently.
+    assertThat(healthTracker.messagesOverThreshold()).isZero();
+
+    clock.addAndGet(LAG_THRESHOLD * 1000L);
+
+    assertThat(healthTracker.messagesOverThreshold()).isEqualTo(2 - BACKLOG_THRESHOLD);
+    verifyNoInteractions(remoteTracker);
+  }
+
+  @Test
+  void recentMessagesAfterIdlePeriodAreNotOverThreshold() {
+    clock.addAndGet(LAG_THRESHOLD * 1000L);
+    receive(mock(AckReplyConsumer.class));
+    receive(mock(AckReplyConsumer.class));
+
+    assertThat(healthTracker.messagesOverThreshold()).isZero();
+    verifyNoInteractions(remoteTracker);
+  }
+
+  @Test
+  void idleSubscriberFallsBackToRateLimitedRemoteLookup() {
+    when(remoteTracker.getBackLogMessages(anyLong()))
+        .thenReturn(Optional.of(5L))
+        .thenThrow(mock(ApiException.class));
+    clock.addAndGet(LAG_THRESHOLD * 1000L);
+
+    assertThat(healthTracker.messagesOverThreshold()).isEqualTo(5 - BACKLOG_THRESHOLD);
+    clock.addAndGet(59_000);
+    assertThat(healthTracker.messagesOverThreshold()).isEqualTo(5 - BACKLOG_THRESHOLD);
+    verify(remoteTracker, times(1)).getBackLogMessages(anyLong());
+
+    // A failed lookup keeps the last result.
+    clock.addAndGet(1000);
+    assertThat(healthTracker.messagesOverThreshold()).isEqualTo(5 - BACKLOG_THRESHOLD);
+    verify(remoteTracker, times(2)).getBackLogMessages(anyLong());
+  }
+
+  @Test
+  void noRemoteTrackerMeansNoLookup() {
+    LocalHealthTracker localOnly =
+        new LocalHealthTracker(
+            SUBSCRIPTION, LAG_THRESHOLD, BACKLOG_THRESHOLD, null, Duration.ZERO, clock::get);
+    clock.addAndGet(LAG_THRESHOLD * 1000L);
+
+    assertThat(localOnly.messagesOverThreshold()).isZero();
+  }
+
+  @Test
+  void ratesBetweenHealthChecks() {
+    healthTracker.messagesOverThreshold();
+    for (int i = 0; i < 4; i++) {
+      receive(mock(AckReplyConsumer.class));
+    }
+    consumers.get(0).ack();
+    consumers.get(1).ack();
+    // Reported by the adapter for the same message; not counted again.
+    healthTracker.processedMessage();
+    clock.addAndGet(2000);
+
+    healthTracker.messagesOverThreshold();
+
+    assertThat(healthTracker.getReceiveRate()).isEqualTo(2.0);
+    assertThat(healthTracker.getProcessingRate()).isEqualTo(1.0);
+  }
+
+  @Test
+  void completedMessagesBehindStuckMessageAreSwept() {
+    receive(mock(AckReplyConsumer.class));
+    for (int i = 0; i < 5000; i++) {
+      receive(mock(AckReplyConsumer.class));
+      consumers.get(consumers.size() - 1).ack();
+    }
+
+    assertThat(healthTracker.getOutstandingCount()).isEqualTo(1);
+    assertThat(healthTracker.getQueuedCount()).isLessThanOrEqualTo(2 + 1024);
+
+    consumers.get(0).ack();
+
+    assertThat(healthTracker.getQueuedCount()).isZero();
+  }
+
+  private void receive(AckReplyConsumer consumer) {
+    receiver.receiveMessage(PubsubMessage.getDefaultInstance(), consumer);
+  }
+}
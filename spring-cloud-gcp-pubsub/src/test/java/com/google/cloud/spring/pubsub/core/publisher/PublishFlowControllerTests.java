@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.spring.pubsub.core.publisher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link PublishFlowController}. */
+class PublishFlowControllerTests {
+
+  @Test
+  void testAcquireDuringHandOverWaitsForAdmittedMessages() {
+    PubsubMessage first = message(8);
+    PubsubMessage second = message(18);
+    PubsubMessage third = message(3);
+    PublishFlowController flowController =
+        new PublishFlowController(10L, 25L, PublishLimitExceededBehavior.BLOCK);
+    assertThat(flowController.acquire(first)).isDone();
+    CompletableFuture<Void> secondAdmission = flowController.acquire(second);
+    assertThat(secondAdmission).isNotDone();
+
+    AtomicReference<CompletableFuture<Void>> thirdAdmission = new AtomicReference<>();
+    AtomicReference<Boolean> thirdAdmittedDuringHandOver = new AtomicReference<>();
+    secondAdmission.thenRun(
+        () -> {
+          thirdAdmission.set(flowController.acquire(third));
+          thirdAdmittedDuringHandOver.set(thirdAdmission.get().isDone());
+        });
+
+    flowController.release(first);
+
+    assertThat(thirdAdmittedDuringHandOver.get()).isFalse();
+    assertThat(thirdAdmission.get()).isCompleted();
+    assertThat(flowController.getOutstandingElementCount()).isEqualTo(2);
+    assertThat(flowController.getOutstandingRequestBytes())
+        .isEqualTo(second.getSerializedSize() + third.getSerializedSize());
+  }
+
+  @Test
+  void testGivenUpWaitReturnsPermit() {
+    PubsubMessage first = message(1);
+    PubsubMessage second = message(1);
+    PubsubMessage third = message(1);
+    PublishFlowController flowController =
+        new PublishFlowController(1L, Long.MAX_VALUE, PublishLimitExceededBehavior.BLOCK);
+    flowController.acquire(first);
+    CompletableFuture<Void> secondAdmission = flowController.acquire(second);
+    CompletableFuture<Void> thirdAdmission = flowController.acquire(third);
+
+    secondAdmission.cancel(false);
+    flowController.release(first);
+
+    assertThat(thirdAdmission).isCompleted();
+    assertThat(flowController.getOutstandingElementCount()).isEqualTo(1);
+    assertThat(flowController.getOutstandingRequestBytes()).isEqualTo(third.getSerializedSize());
+  }
+
+  private static PubsubMessage message(int dataSize) {
+    return PubsubMessage.newBuilder().setData(ByteString.copyFrom(new byte[dataSize])).build();
+  }
+}
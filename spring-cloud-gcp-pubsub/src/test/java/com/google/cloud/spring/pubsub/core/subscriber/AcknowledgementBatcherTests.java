@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.protobuf.Empty;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link AcknowledgementBatcher}. */
+class AcknowledgementBatcherTests {
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  private final List<List<String>> requests = new ArrayList<>();
+
+  private final BiFunction<String, List<String>, ApiFuture<Empty>> operation =
+      (subscription, ackIds) -> {
+        synchronized (this.requests) {
+          this.requests.add(ackIds);
+        }
+        return ApiFutures.immediateFuture(Empty.getDefaultInstance());
+      };
+
+  @AfterEach
+  void tearDown() {
+    this.scheduler.shutdownNow();
+  }
+
+  @Test
+  void testFullBatchFailureCompletesFuture() {
+    AcknowledgementBatcher batcher =
+        new AcknowledgementBatcher(1, Duration.ofHours(1), this.scheduler);
+    RuntimeException failure = new IllegalStateException("boom!");
+
+    ApiFuture<Empty> result =
+        batcher.add(
+            "sub",
+            null,
+            List.of("ack1"),
+            (subscription, ackIds) -> {
+              throw failure;
+            });
+
+    assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCause(failure);
+  }
+
+  @Test
+  void testAckIdsSentRightAwayOnceSchedulerIsShutDown() throws Exception {
+    AcknowledgementBatcher batcher =
+        new AcknowledgementBatcher(1000, Duration.ofHours(1), this.scheduler);
+    this.scheduler.shutdown();
+
+    batcher.add("sub", null, List.of("ack1"), this.operation).get(10, TimeUnit.SECONDS);
+
+    assertThat(this.requests).containsExactly(List.of("ack1"));
+    assertThat(batcher.getBatchCount()).isZero();
+  }
+
+  @Test
+  void testFlushedBatchesAreRemoved() throws Exception {
+    AcknowledgementBatcher batcher =
+        new AcknowledgementBatcher(1000, Duration.ofHours(1), this.scheduler);
+
+    for (int deadline = 10; deadline < 20; deadline++) {
+      batcher.add("sub", deadline, List.of("ack" + deadline), this.operation);
+    }
+    assertThat(batcher.getBatchCount()).isEqualTo(10);
+
+    batcher.flushAll();
+
+    assertThat(batcher.getBatchCount()).isZero();
+    assertThat(this.requests).hasSize(10);
+  }
+
+  @Test
+  void testAckIdsAddedAfterRemovalAreFlushed() throws Exception {
+    AcknowledgementBatcher batcher =
+        new AcknowledgementBatcher(1000, Duration.ofMillis(10), this.scheduler);
+
+    batcher.add("sub", null, List.of("ack1"), this.operation).get(10, TimeUnit.SECONDS);
+    batcher.add("sub", null, List.of("ack2"), this.operation).get(10, TimeUnit.SECONDS);
+
+    assertThat(this.requests).containsExactly(List.of("ack1"), List.of("ack2"));
+    assertThat(batcher.getBatchCount()).isZero();
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link DeduplicationWindow}. */
+class DeduplicationWindowTests {
+
+  @Test
+  void testMessageIdsRememberedPerSubscription() {
+    DeduplicationWindow window = new DeduplicationWindow(Duration.ofMinutes(10), 2);
+
+    window.add("projects/p/subscriptions/a", "msg1");
+
+    assertThat(window.contains("projects/p/subscriptions/a", "msg1")).isTrue();
+    assertThat(window.contains("projects/p/subscriptions/b", "msg1")).isFalse();
+    assertThat(window.contains("projects/p/subscriptions/a", "msg2")).isFalse();
+  }
+
+  @Test
+  void testOldestMessageIdsForgottenWhenFull() {
+    DeduplicationWindow window = new DeduplicationWindow(Duration.ofMinutes(10), 2);
+
+    window.add("projects/p/subscriptions/a", "msg1");
+    window.add("projects/p/subscriptions/a", "msg2");
+    window.add("projects/p/subscriptions/b", "msg1");
+    window.add("projects/p/subscriptions/a", "msg3");
+
+    assertThat(window.contains("projects/p/subscriptions/a", "msg1")).isFalse();
+    assertThat(window.contains("projects/p/subscriptions/a", "msg2")).isTrue();
+    assertThat(window.contains("projects/p/subscriptions/a", "msg3")).isTrue();
+    // Other subscriptions keep their own message IDs.
+    assertThat(window.contains("projects/p/subscriptions/b", "msg1")).isTrue();
+  }
+
+  @Test
+  void testReAddedMessageIdNotForgottenWithItsEarlierEntry() {
+    DeduplicationWindow window = new DeduplicationWindow(Duration.ofMinutes(10), 2);
+
+    window.add("projects/p/subscriptions/a", "msg1");
+    window.add("projects/p/subscriptions/a", "msg1");
+    window.add("projects/p/subscriptions/a", "msg2");
+
+    assertThat(window.contains("projects/p/subscriptions/a", "msg1")).isTrue();
+    assertThat(window.contains("projects/p/subscriptions/a", "msg2")).isTrue();
+  }
+
+  @Test
+  void testMessageIdsExpire() {
+    DeduplicationWindow window = new DeduplicationWindow(Duration.ofNanos(1), 2);
+
+    window.add("projects/p/subscriptions/a", "msg1");
+
+    assertThat(window.contains("projects/p/subscriptions/a", "msg1")).isFalse();
+  }
+}
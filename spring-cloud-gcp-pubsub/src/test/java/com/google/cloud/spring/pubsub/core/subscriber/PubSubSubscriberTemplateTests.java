@@ -17,7 +17,10 @@
 package com.google.cloud.spring.pubsub.core.subscriber;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
@@ -29,17 +32,26 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import com.google.api.gax.rpc.ErrorDetails;
 import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.AckResponse;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.cloud.spring.pubsub.core.PubSubAcknowledgementException;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
+import com.google.protobuf.Any;
 import com.google.protobuf.Empty;
 import com.google.pubsub.v1.AcknowledgeRequest;
 import com.google.pubsub.v1.ModifyAckDeadlineRequest;
@@ -47,9 +59,13 @@ import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.PullRequest;
 import com.google.pubsub.v1.PullResponse;
 import com.google.pubsub.v1.ReceivedMessage;
+import com.google.rpc.ErrorInfo;
+import io.grpc.Status;
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -408,6 +424,212 @@ class PubSubSubscriberTemplateTests {
     verify(this.ackApiFuture, times(2)).addListener(any(), same(mockExecutor));
   }
 
+  @Test
+  void testPull_AndCoalescedAck()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(pullResponseWithAckIds("ack1", "ack2", "ack3"));
+    this.pubSubSubscriberTemplate.setAckBatching(1000, Duration.ofMillis(10));
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 3, true);
+    assertThat(result).hasSize(3);
+
+    List<CompletableFuture<Void>> futures =
+        result.stream().map(AcknowledgeablePubsubMessage::ack).toList();
+    for (CompletableFuture<Void> future : futures) {
+      future.get(10L, TimeUnit.SECONDS);
+    }
+
+    ArgumentCaptor<AcknowledgeRequest> requestCaptor =
+        ArgumentCaptor.forClass(AcknowledgeRequest.class);
+    verify(this.ackCallable, times(1)).futureCall(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getAckIdsList()).containsExactly("ack1", "ack2", "ack3");
+    assertThat(requestCaptor.getValue().getSubscription())
+        .isEqualTo("projects/testProject/subscriptions/sub2");
+
+    this.pubSubSubscriberTemplate.destroy();
+  }
+
+  @Test
+  void testPull_AndCoalescedAck_flushesWhenBatchIsFull()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(pullResponseWithAckIds("ack1", "ack2", "ack3"));
+    this.pubSubSubscriberTemplate.setAckBatching(2, Duration.ofHours(1));
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 3, true);
+
+    CompletableFuture<Void> first = result.get(0).ack();
+    CompletableFuture<Void> second = result.get(1).ack();
+    CompletableFuture<Void> third = result.get(2).ack();
+
+    first.get(10L, TimeUnit.SECONDS);
+    second.get(10L, TimeUnit.SECONDS);
+    assertThat(third).isNotDone();
+    verify(this.ackCallable, times(1)).futureCall(any(AcknowledgeRequest.class));
+
+    this.pubSubSubscriberTemplate.destroy();
+
+    third.get(10L, TimeUnit.SECONDS);
+    verify(this.ackCallable, times(2)).futureCall(any(AcknowledgeRequest.class));
+  }
+
+  @Test
+  void testPull_AndCoalescedAckAndNack_sentSeparately()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(pullResponseWithAckIds("ack1", "ack2", "ack3"));
+    this.pubSubSubscriberTemplate.setAckBatching(1000, Duration.ofMillis(10));
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 3, true);
+
+    CompletableFuture<Void> ack = result.get(0).ack();
+    CompletableFuture<Void> nack1 = result.get(1).nack();
+    CompletableFuture<Void> nack2 = result.get(2).nack();
+    CompletableFuture.allOf(ack, nack1, nack2).get(10L, TimeUnit.SECONDS);
+
+    ArgumentCaptor<ModifyAckDeadlineRequest> requestCaptor =
+        ArgumentCaptor.forClass(ModifyAckDeadlineRequest.class);
+    verify(this.ackCallable, times(1)).futureCall(any(AcknowledgeRequest.class));
+    verify(this.modifyAckDeadlineCallable, times(1)).futureCall(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getAckIdsList()).containsExactly("ack2", "ack3");
+    assertThat(requestCaptor.getValue().getAckDeadlineSeconds()).isZero();
+
+    this.pubSubSubscriberTemplate.destroy();
+  }
+
+  @Test
+  void testPull_AndCoalescedAck_reportsFailedAckIdsToTheirCallers()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(pullResponseWithAckIds("ack1", "ack2", "ack3"));
+    when(this.ackCallable.futureCall(any(AcknowledgeRequest.class)))
+        .thenReturn(
+            ApiFutures.immediateFailedFuture(
+                exactlyOnceFailure(
+                    Map.of("ack2", AcknowledgementRetrier.PERMANENT_FAILURE_INVALID_ACK_ID))));
+    this.pubSubSubscriberTemplate.setAckBatching(1000, Duration.ofMillis(10));
+    this.pubSubSubscriberTemplate.setAckRetry(Duration.ZERO);
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 3, true);
+    CompletableFuture<Void> first = result.get(0).ack();
+    CompletableFuture<Void> second = result.get(1).ack();
+    CompletableFuture<Void> third = result.get(2).ack();
+
+    first.get(10L, TimeUnit.SECONDS);
+    third.get(10L, TimeUnit.SECONDS);
+    assertThatThrownBy(() -> second.get(10L, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .cause()
+        .isInstanceOf(PubSubAcknowledgementException.class);
+    assertThat(
+            ((PubSubAcknowledgementException) second.handle((v, ex) -> ex).join())
+                .getFailedAckIds())
+        .containsExactly(Map.entry("ack2", AckResponse.INVALID));
+    verify(this.ackCallable, times(1)).futureCall(any(AcknowledgeRequest.class));
+
+    this.pubSubSubscriberTemplate.destroy();
+  }
+
+  @Test
+  void testPull_AndAck_retriesTransientlyFailedAckIds()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(pullResponseWithAckIds("ack1", "ack2", "ack3"));
+    when(this.ackCallable.futureCall(any(AcknowledgeRequest.class)))
+        .thenReturn(
+            ApiFutures.immediateFailedFuture(
+                exactlyOnceFailure(
+                    Map.of(
+                        "ack1", "TRANSIENT_FAILURE_UNORDERED_ACK_ID",
+                        "ack3", AcknowledgementRetrier.PERMANENT_FAILURE_INVALID_ACK_ID))))
+        .thenReturn(ApiFutures.immediateFuture(Empty.getDefaultInstance()));
+    this.pubSubSubscriberTemplate.setAckRetry(Duration.ofSeconds(10));
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 3, true);
+    CompletableFuture<Void> ackFuture = this.pubSubSubscriberTemplate.ack(result);
+
+    assertThatThrownBy(() -> ackFuture.get(10L, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .cause()
+        .isInstanceOf(PubSubAcknowledgementException.class);
+    assertThat(
+            ((PubSubAcknowledgementException) ackFuture.handle((v, ex) -> ex).join())
+                .getFailedAckIds())
+        .containsExactly(Map.entry("ack3", AckResponse.INVALID));
+
+    ArgumentCaptor<AcknowledgeRequest> requestCaptor =
+        ArgumentCaptor.forClass(AcknowledgeRequest.class);
+    verify(this.ackCallable, times(2)).futureCall(requestCaptor.capture());
+    assertThat(requestCaptor.getAllValues().get(0).getAckIdsList())
+        .containsExactly("ack1", "ack2", "ack3");
+    assertThat(requestCaptor.getAllValues().get(1).getAckIdsList()).containsExactly("ack1");
+
+    this.pubSubSubscriberTemplate.destroy();
+  }
+
+  @Test
+  void testPull_AndAck_failsWithoutPerAckIdDetails() {
+    ApiException failure =
+        ApiExceptionFactory.createException(
+            new RuntimeException("boom"), GrpcStatusCode.of(Status.Code.UNAVAILABLE), true);
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(pullResponseWithAckIds("ack1", "ack2"));
+    when(this.ackCallable.futureCall(any(AcknowledgeRequest.class)))
+        .thenReturn(ApiFutures.immediateFailedFuture(failure));
+    this.pubSubSubscriberTemplate.setAckRetry(Duration.ofSeconds(10));
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 2, true);
+    CompletableFuture<Void> ackFuture = this.pubSubSubscriberTemplate.ack(result);
+
+    assertThatThrownBy(() -> ackFuture.get(10L, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCause(failure);
+    verify(this.ackCallable, times(1)).futureCall(any(AcknowledgeRequest.class));
+
+    this.pubSubSubscriberTemplate.destroy();
+  }
+
+  @Test
+  void testPull_filtersRedeliveriesOfAcknowledgedMessages()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(pullResponseWithMessageIds("msg1", "ack1"))
+        .thenReturn(pullResponseWithMessageIds("msg1", "ack2", "msg2", "ack3"));
+    when(this.ackCallable.futureCall(any(AcknowledgeRequest.class)))
+        .thenReturn(ApiFutures.immediateFuture(Empty.getDefaultInstance()));
+    this.pubSubSubscriberTemplate.setDeduplicationWindow(Duration.ofMinutes(10), 100);
+
+    List<AcknowledgeablePubsubMessage> first = this.pubSubSubscriberTemplate.pull("sub2", 1, true);
+    this.pubSubSubscriberTemplate.ack(first).get(10L, TimeUnit.SECONDS);
+
+    List<AcknowledgeablePubsubMessage> second = this.pubSubSubscriberTemplate.pull("sub2", 2, true);
+
+    assertThat(second).hasSize(1);
+    assertThat(second.get(0).getPubsubMessage().getMessageId()).isEqualTo("msg2");
+    ArgumentCaptor<AcknowledgeRequest> requestCaptor =
+        ArgumentCaptor.forClass(AcknowledgeRequest.class);
+    verify(this.ackCallable, times(2)).futureCall(requestCaptor.capture());
+    assertThat(requestCaptor.getAllValues().get(1).getAckIdsList()).containsExactly("ack2");
+  }
+
+  @Test
+  void testSubscribe_filtersRedeliveriesOfAcknowledgedMessages() {
+    PubsubMessage message = PubsubMessage.newBuilder().setMessageId("msg1").build();
+    when(this.subscriber.startAsync()).thenReturn(this.subscriber);
+    this.pubSubSubscriberTemplate.setDeduplicationWindow(Duration.ofMinutes(10), 100);
+
+    this.pubSubSubscriberTemplate.subscribe("sub1", this.consumer);
+    this.messageReceiver.receiveMessage(message, this.ackReplyConsumer);
+    verify(this.consumer).accept(this.message.capture());
+    this.message.getValue().ack();
+
+    this.messageReceiver.receiveMessage(message, this.ackReplyConsumer);
+
+    verify(this.consumer, times(1)).accept(any());
+    verify(this.ackReplyConsumer, times(2)).ack();
+  }
+
   @Test
   void testPullAsync_AndManualAck()
       throws InterruptedException, ExecutionException, TimeoutException {
@@ -530,6 +752,49 @@ class PubSubSubscriberTemplateTests {
     assertThat(result.get(0).getProjectSubscriptionName().getSubscription()).isEqualTo("sub2");
   }
 
+  @Test
+  void testPullAndConvert_recordsMetrics() {
+    PubSubMetricsRecorder metricsRecorder = Mockito.mock(PubSubMetricsRecorder.class);
+    this.pubSubSubscriberTemplate.setMetricsRecorder(metricsRecorder);
+
+    List<ConvertedAcknowledgeablePubsubMessage<BigInteger>> result =
+        this.pubSubSubscriberTemplate.pullAndConvert("sub2", 1, true, BigInteger.class);
+    this.pubSubSubscriberTemplate.ack(result);
+    this.pubSubSubscriberTemplate.nack(result);
+    this.pubSubSubscriberTemplate.modifyAckDeadline(result, 30);
+
+    // The mocked pull request keeps the subscription name as given.
+    verify(metricsRecorder).recordPull(eq("sub2"), eq(1), anyLong(), eq(true));
+    String subscription = "projects/testProject/subscriptions/sub2";
+    verify(metricsRecorder).recordDeserialization(eq(subscription), anyLong());
+    verify(metricsRecorder)
+        .recordAcknowledgement(
+            eq(subscription), eq(PubSubMetricsRecorder.ACK), eq(1), anyLong(), eq(true));
+    verify(metricsRecorder)
+        .recordAcknowledgement(
+            eq(subscription), eq(PubSubMetricsRecorder.NACK), eq(1), anyLong(), eq(true));
+    verify(metricsRecorder)
+        .recordAcknowledgement(
+            eq(subscription),
+            eq(PubSubMetricsRecorder.MODIFY_ACK_DEADLINE),
+            eq(1),
+            anyLong(),
+            eq(true));
+  }
+
+  @Test
+  void testPullAsync_recordsFailedPull() throws ExecutionException, InterruptedException {
+    PubSubMetricsRecorder metricsRecorder = Mockito.mock(PubSubMetricsRecorder.class);
+    this.pubSubSubscriberTemplate.setMetricsRecorder(metricsRecorder);
+    when(this.pullApiFuture.get()).thenThrow(new ExecutionException(new RuntimeException("boom")));
+
+    CompletableFuture<List<AcknowledgeablePubsubMessage>> asyncResult =
+        this.pubSubSubscriberTemplate.pullAsync("sub2", 1, true);
+
+    assertThat(asyncResult).isCompletedExceptionally();
+    verify(metricsRecorder).recordPull(eq("sub2"), eq(0), anyLong(), eq(false));
+  }
+
   @Test
   void testPullNext() {
 
@@ -586,6 +851,39 @@ class PubSubSubscriberTemplateTests {
     verify(this.pubSubSubscriberTemplate, never()).ack(any());
   }
 
+  private PullResponse pullResponseWithAckIds(String... ackIds) {
+    PullResponse.Builder builder = PullResponse.newBuilder();
+    for (String ackId : ackIds) {
+      builder.addReceivedMessages(
+          ReceivedMessage.newBuilder().setMessage(this.pubsubMessage).setAckId(ackId));
+    }
+    return builder.build();
+  }
+
+  private PullResponse pullResponseWithMessageIds(String... messageIdsAndAckIds) {
+    PullResponse.Builder builder = PullResponse.newBuilder();
+    for (int i = 0; i < messageIdsAndAckIds.length; i += 2) {
+      builder.addReceivedMessages(
+          ReceivedMessage.newBuilder()
+              .setMessage(PubsubMessage.newBuilder().setMessageId(messageIdsAndAckIds[i]))
+              .setAckId(messageIdsAndAckIds[i + 1]));
+    }
+    return builder.build();
+  }
+
+  private static ApiException exactlyOnceFailure(Map<String, String> ackIdErrors) {
+    ErrorInfo errorInfo =
+        ErrorInfo.newBuilder()
+            .setReason(AcknowledgementRetrier.EXACTLY_ONCE_ACK_ID_FAILURE)
+            .putAllMetadata(ackIdErrors)
+            .build();
+    return ApiExceptionFactory.createException(
+        new RuntimeException("Some ack IDs failed."),
+        GrpcStatusCode.of(Status.Code.INVALID_ARGUMENT),
+        false,
+        ErrorDetails.builder().setRawErrorMessages(List.of(Any.pack(errorInfo))).build());
+  }
+
   private static class TestCompletableFutureCallback implements BiConsumer<Void, Throwable> {
 
     private Throwable throwable;
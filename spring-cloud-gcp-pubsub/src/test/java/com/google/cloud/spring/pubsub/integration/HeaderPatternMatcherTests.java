@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.support.utils.PatternMatchUtils;
+
+/** Tests for the {@link HeaderPatternMatcher}. */
+class HeaderPatternMatcherTests {
+
+  private static final List<String> HEADER_NAMES =
+      List.of(
+          "id", "timestamp", "gcp_pubsub_ordering_key", "gcp_pubsub_acknowledgement", "custom",
+          "custom-header", "x-custom", "x-trace-id", "trace-id", "abc", "ab", "", "!literal",
+          "nativeHeaders");
+
+  private static final List<String[]> PATTERN_LISTS =
+      List.of(
+          new String[] {"*"},
+          new String[] {"!id", "!timestamp", "*"},
+          new String[] {"custom*", "!custom-header"},
+          new String[] {"!custom-header", "custom*"},
+          new String[] {"!x-*", "*-id", "gcp_pubsub_*"},
+          new String[] {"*-id", "!x-*"},
+          new String[] {"a*c", "!ab*", "ab"},
+          new String[] {"\\!literal", "*custom*", "!*"},
+          new String[] {"gcp_*_key", "!*header*", "id"},
+          new String[] {});
+
+  @Test
+  void testMatchesLikeSmartMatch() {
+    for (String[] patterns : PATTERN_LISTS) {
+      HeaderPatternMatcher matcher = new HeaderPatternMatcher(patterns);
+      for (String headerName : HEADER_NAMES) {
+        boolean expected =
+            Boolean.TRUE.equals(PatternMatchUtils.smartMatch(headerName, patterns));
+        // The second lookup is served from the memoized decisions.
+        assertThat(matcher.matches(headerName))
+            .as("%s against %s", headerName, List.of(patterns))
+            .isEqualTo(expected);
+        assertThat(matcher.matches(headerName)).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  void testDecisionCacheIsBounded() {
+    HeaderPatternMatcher matcher = new HeaderPatternMatcher("!x-*", "*");
+
+    for (int i = 0; i < HeaderPatternMatcher.MAX_CACHED_DECISIONS * 2; i++) {
+      assertThat(matcher.matches("header" + i)).isTrue();
+    }
+    assertThat(matcher.matches("x-header")).isFalse();
+  }
+}
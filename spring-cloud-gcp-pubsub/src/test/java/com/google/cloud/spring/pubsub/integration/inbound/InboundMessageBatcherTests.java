@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link InboundMessageBatcher}. */
+class InboundMessageBatcherTests {
+
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  private final List<List<ConvertedBasicAcknowledgeablePubsubMessage<?>>> batches =
+      new CopyOnWriteArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    this.scheduler.shutdownNow();
+  }
+
+  @Test
+  void testFullBatchHandedOverRightAway() {
+    InboundMessageBatcher batcher =
+        new InboundMessageBatcher(3, 1000L, Duration.ofMinutes(1), this.scheduler, batches::add);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> first = message(10);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> second = message(10);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> third = message(10);
+
+    batcher.add(first);
+    batcher.add(second);
+    assertThat(batches).isEmpty();
+
+    batcher.add(third);
+    assertThat(batches).containsExactly(List.of(first, second, third));
+  }
+
+  @Test
+  void testBatchSplitAtByteLimit() {
+    InboundMessageBatcher batcher =
+        new InboundMessageBatcher(10, 100L, Duration.ofMinutes(1), this.scheduler, batches::add);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> first = message(40);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> second = message(40);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> third = message(40);
+
+    batcher.add(first);
+    batcher.add(second);
+    batcher.add(third);
+
+    assertThat(batches).containsExactly(List.of(first, second));
+
+    batcher.flush();
+    assertThat(batches).containsExactly(List.of(first, second), List.of(third));
+  }
+
+  @Test
+  void testBatchHandedOverAfterDelay() {
+    InboundMessageBatcher batcher =
+        new InboundMessageBatcher(10, 1000L, Duration.ofMillis(50), this.scheduler, batches::add);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> message = message(10);
+
+    batcher.add(message);
+
+    await().atMost(Duration.ofSeconds(10)).until(() -> !batches.isEmpty());
+    assertThat(batches).containsExactly(List.of(message));
+  }
+
+  @Test
+  void testClosedBatcherHandsOverMessagesOneByOne() {
+    InboundMessageBatcher batcher =
+        new InboundMessageBatcher(10, 1000L, Duration.ofMinutes(1), this.scheduler, batches::add);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> pending = message(10);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> late = message(10);
+
+    batcher.add(pending);
+    batcher.close();
+    batcher.add(late);
+
+    assertThat(batches).containsExactly(List.of(pending), List.of(late));
+  }
+
+  private static ConvertedBasicAcknowledgeablePubsubMessage<?> message(int dataSize) {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> message =
+        mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+    when(message.getPubsubMessage())
+        .thenReturn(
+            PubsubMessage.newBuilder().setData(ByteString.copyFrom(new byte[dataSize])).build());
+    return message;
+  }
+}
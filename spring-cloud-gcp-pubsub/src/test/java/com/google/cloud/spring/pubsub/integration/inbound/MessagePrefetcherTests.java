@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
+import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/** Tests for the {@link MessagePrefetcher}. */
+@ExtendWith(MockitoExtension.class)
+class MessagePrefetcherTests {
+
+  @Mock private PubSubSubscriberOperations mockPubSubSubscriberOperations;
+
+  @Mock private ScheduledExecutorService mockScheduler;
+
+  @Mock private ConvertedAcknowledgeablePubsubMessage<String> msg1;
+
+  @Mock private ConvertedAcknowledgeablePubsubMessage<String> msg2;
+
+  @Mock private ConvertedAcknowledgeablePubsubMessage<String> msg3;
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  private MessagePrefetcher prefetcher;
+
+  @BeforeEach
+  void setUp() {
+    lenient()
+        .when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 3, false, String.class))
+        .thenReturn(CompletableFuture.completedFuture(List.of(this.msg1, this.msg2, this.msg3)));
+
+    this.prefetcher =
+        new MessagePrefetcher(
+            this.mockPubSubSubscriberOperations,
+            "sub1",
+            String.class,
+            3,
+            60,
+            this.mockScheduler,
+            this.nanoTime::get);
+  }
+
+  @Test
+  void testFillsBufferAndExtendsLeases() {
+    when(this.mockPubSubSubscriberOperations.modifyAckDeadline(anyList(), anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    CompletableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> nextPull =
+        new CompletableFuture<>();
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 1, false, String.class))
+        .thenReturn(nextPull);
+
+    this.prefetcher.start();
+
+    verify(this.mockScheduler)
+        .scheduleWithFixedDelay(any(), any(Long.class), any(Long.class), any(TimeUnit.class));
+    verify(this.mockPubSubSubscriberOperations)
+        .modifyAckDeadline(List.of(this.msg1, this.msg2, this.msg3), 60);
+    assertThat(this.prefetcher.getBufferedCount()).isEqualTo(3);
+
+    // Well within the extended lease, past the minimum ack deadline.
+    this.nanoTime.set(TimeUnit.SECONDS.toNanos(30));
+    assertThat(this.prefetcher.poll(false)).isSameAs(this.msg1);
+
+    verify(this.mockPubSubSubscriberOperations)
+        .pullAndConvertAsync("sub1", 1, false, String.class);
+    assertThat(this.prefetcher.getBufferedCount()).isEqualTo(2);
+    verify(this.mockPubSubSubscriberOperations, never()).nack(anyList());
+  }
+
+  @Test
+  void testExpiredLeasesAreNacked() {
+    // The lease extension never completes, so the minimum ack deadline applies.
+    when(this.mockPubSubSubscriberOperations.modifyAckDeadline(anyList(), anyInt()))
+        .thenReturn(new CompletableFuture<>());
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 3, false, String.class))
+        .thenReturn(CompletableFuture.completedFuture(List.of(this.msg1, this.msg2, this.msg3)))
+        .thenReturn(new CompletableFuture<>());
+
+    this.prefetcher.start();
+    this.nanoTime.set(TimeUnit.SECONDS.toNanos(MessagePrefetcher.MIN_ACK_DEADLINE_SECONDS));
+
+    assertThat(this.prefetcher.poll(false)).isNull();
+    verify(this.mockPubSubSubscriberOperations).nack(List.of(this.msg1, this.msg2, this.msg3));
+    assertThat(this.prefetcher.getBufferedCount()).isZero();
+  }
+
+  @Test
+  void testStopNacksBufferedMessages() {
+    when(this.mockPubSubSubscriberOperations.modifyAckDeadline(anyList(), anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    this.prefetcher.start();
+    this.prefetcher.stop();
+
+    verify(this.mockPubSubSubscriberOperations).nack(List.of(this.msg1, this.msg2, this.msg3));
+    assertThat(this.prefetcher.getBufferedCount()).isZero();
+    assertThat(this.prefetcher.poll(true)).isNull();
+  }
+
+  @Test
+  void testPollWaitsForMessageWithinBound() {
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 3, false, String.class))
+        .thenReturn(new CompletableFuture<>());
+
+    this.prefetcher.start();
+    long startNanos = System.nanoTime();
+
+    assertThat(this.prefetcher.poll(true)).isNull();
+    assertThat(System.nanoTime() - startNanos)
+        .isGreaterThanOrEqualTo(
+            TimeUnit.MILLISECONDS.toNanos(MessagePrefetcher.MAX_POLL_WAIT_MILLIS));
+  }
+
+  @Test
+  void testInvalidAckDeadline() {
+    assertThatThrownBy(
+            () ->
+                new MessagePrefetcher(
+                    this.mockPubSubSubscriberOperations,
+                    "sub1",
+                    String.class,
+                    3,
+                    5,
+                    this.mockScheduler))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("ackDeadlineSeconds must be between 10 and 600.");
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
+import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link OrderingKeyDispatcher}. */
+class OrderingKeyDispatcherTests {
+
+  private final Map<String, List<ConvertedBasicAcknowledgeablePubsubMessage<?>>> handledByKey =
+      new ConcurrentHashMap<>();
+
+  private final Map<Integer, Long> waitsByLane = new ConcurrentHashMap<>();
+
+  private OrderingKeyDispatcher dispatcher;
+
+  @AfterEach
+  void tearDown() {
+    if (this.dispatcher != null) {
+      this.dispatcher.close();
+    }
+  }
+
+  @Test
+  void testMessagesOfEachKeyHandledInOrder() {
+    this.dispatcher =
+        new OrderingKeyDispatcher(
+            4, 100, "test-dispatch-", this::recordHandled, this.waitsByLane::put);
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> keyA = List.of(message("a"), message("a"));
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> keyB = List.of(message("b"), message("b"));
+
+    this.dispatcher.dispatch(keyA.get(0));
+    this.dispatcher.dispatch(keyB.get(0));
+    this.dispatcher.dispatch(keyA.get(1));
+    this.dispatcher.dispatch(keyB.get(1));
+
+    await()
+        .atMost(Duration.ofSeconds(10))
+        .untilAsserted(
+            () -> {
+              assertThat(this.handledByKey.get("a")).containsExactlyElementsOf(keyA);
+              assertThat(this.handledByKey.get("b")).containsExactlyElementsOf(keyB);
+            });
+    assertThat(this.waitsByLane).isNotEmpty();
+  }
+
+  @Test
+  void testOtherKeysHandledWhileOneKeyIsBlocked() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> handled = new CopyOnWriteArrayList<>();
+    ConvertedBasicAcknowledgeablePubsubMessage<?> blocking = message("blocking");
+    this.dispatcher =
+        new OrderingKeyDispatcher(
+            2,
+            10,
+            "test-dispatch-",
+            message -> {
+              if (message == blocking) {
+                awaitQuietly(release);
+              }
+              handled.add(message);
+            },
+            (lane, waitNanos) -> {});
+    ConvertedBasicAcknowledgeablePubsubMessage<?> other = messageOnOtherLane(blocking, 2);
+
+    this.dispatcher.dispatch(blocking);
+    this.dispatcher.dispatch(other);
+
+    await().atMost(Duration.ofSeconds(10)).until(() -> handled.contains(other));
+    assertThat(handled).doesNotContain(blocking);
+
+    release.countDown();
+    await().atMost(Duration.ofSeconds(10)).until(() -> handled.contains(blocking));
+  }
+
+  @Test
+  void testFullLaneBlocksDispatch() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    this.dispatcher =
+        new OrderingKeyDispatcher(
+            1, 1, "test-dispatch-", message -> awaitQuietly(release), (lane, waitNanos) -> {});
+    this.dispatcher.dispatch(message("a"));
+    assertThat(this.dispatcher.getQueuedMessageCount(0)).isEqualTo(1);
+
+    AtomicBoolean secondDispatched = new AtomicBoolean();
+    Thread subscriberThread =
+        new Thread(
+            () -> {
+              this.dispatcher.dispatch(message("a"));
+              secondDispatched.set(true);
+            });
+    subscriberThread.start();
+
+    subscriberThread.join(200);
+    assertThat(secondDispatched).isFalse();
+
+    release.countDown();
+    subscriberThread.join(10_000);
+    assertThat(secondDispatched).isTrue();
+  }
+
+  @Test
+  void testMessagesNackedAfterClose() {
+    this.dispatcher =
+        new OrderingKeyDispatcher(
+            2, 10, "test-dispatch-", this::recordHandled, this.waitsByLane::put);
+    this.dispatcher.close();
+
+    ConvertedBasicAcknowledgeablePubsubMessage<?> message = message("a");
+    this.dispatcher.dispatch(message);
+
+    verify(message).nack();
+    assertThat(this.handledByKey).isEmpty();
+  }
+
+  @Test
+  void testMessageNackedWhenInterruptedWaitingForLane() {
+    CountDownLatch release = new CountDownLatch(1);
+    this.dispatcher =
+        new OrderingKeyDispatcher(
+            1, 1, "test-dispatch-", message -> awaitQuietly(release), (lane, waitNanos) -> {});
+    this.dispatcher.dispatch(message("a"));
+
+    ConvertedBasicAcknowledgeablePubsubMessage<?> waiting = message("a");
+    Thread.currentThread().interrupt();
+    try {
+      this.dispatcher.dispatch(waiting);
+      assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    } finally {
+      Thread.interrupted();
+      release.countDown();
+    }
+
+    verify(waiting).nack();
+  }
+
+  private void recordHandled(ConvertedBasicAcknowledgeablePubsubMessage<?> message) {
+    this.handledByKey
+        .computeIfAbsent(
+            message.getPubsubMessage().getOrderingKey(), key -> new CopyOnWriteArrayList<>())
+        .add(message);
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Create a message whose ordering key goes to another lane than the given message. */
+  private static ConvertedBasicAcknowledgeablePubsubMessage<?> messageOnOtherLane(
+      ConvertedBasicAcknowledgeablePubsubMessage<?> message, int laneCount) {
+    int lane = Math.floorMod(message.getPubsubMessage().getOrderingKey().hashCode(), laneCount);
+    for (int i = 0; ; i++) {
+      String orderingKey = "key" + i;
+      if (Math.floorMod(orderingKey.hashCode(), laneCount) != lane) {
+        return message(orderingKey);
+      }
+    }
+  }
+
+  private static ConvertedBasicAcknowledgeablePubsubMessage<?> message(String orderingKey) {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> message =
+        mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+    when(message.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setOrderingKey(orderingKey).build());
+    return message;
+  }
+}
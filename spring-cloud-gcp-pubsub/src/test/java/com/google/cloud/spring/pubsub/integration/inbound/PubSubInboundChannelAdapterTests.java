@@ -19,18 +19,39 @@ package com.google.cloud.spring.pubsub.integration.inbound;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.gax.core.ExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
+import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistryImpl;
+import com.google.cloud.spring.pubsub.core.health.LocalHealthTracker;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
 import com.google.cloud.spring.pubsub.integration.AckMode;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
+import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
 import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -51,6 +72,7 @@ import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.support.GenericMessage;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /** {@link PubSubInboundChannelAdapter} unit tests. */
 @ExtendWith(MockitoExtension.class)
@@ -98,6 +120,32 @@ class PubSubInboundChannelAdapterTests {
                     });
   }
 
+  @SuppressWarnings("unchecked")
+  private void setupSubscribeAndConvertBatch(
+      ConvertedBasicAcknowledgeablePubsubMessage<?>... messages) {
+    when(this.mockPubSubSubscriberOperations.subscribeAndConvert(
+            anyString(), any(Consumer.class), any(Class.class)))
+        .then(
+            invocationOnMock -> {
+              Consumer<ConvertedBasicAcknowledgeablePubsubMessage<?>> messageConsumer =
+                  invocationOnMock.getArgument(1);
+              for (ConvertedBasicAcknowledgeablePubsubMessage<?> message : messages) {
+                messageConsumer.accept(message);
+              }
+              return null;
+            });
+  }
+
+  private static ConvertedBasicAcknowledgeablePubsubMessage<?> batchedMessage(
+      String payload, String attribute) {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> message =
+        mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+    when(message.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().putAttributes("attribute", attribute).build());
+    when(message.getPayload()).thenAnswer(invocation -> payload);
+    return message;
+  }
+
   @AfterEach
   void tearDown() {
     this.context.close();
@@ -213,6 +261,66 @@ class PubSubInboundChannelAdapterTests {
 
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  void testLocalHealthTracker_countsOutstandingMessages() {
+    HealthTrackerRegistryImpl healthTrackerRegistry =
+        new HealthTrackerRegistryImpl("test-project", 10000, 100, mock(ExecutorProvider.class));
+    PubSubConfiguration pubSubConfiguration = new PubSubConfiguration();
+    pubSubConfiguration.initialize("test-project");
+    DefaultSubscriberFactory defaultSubscriberFactory =
+        new DefaultSubscriberFactory(() -> "test-project", pubSubConfiguration);
+    defaultSubscriberFactory.setCredentialsProvider(NoCredentialsProvider.create());
+    defaultSubscriberFactory.setHealthTrackerRegistry(healthTrackerRegistry);
+
+    // Build the real subscriber to get at the receiver it was given, but don't start it.
+    AtomicReference<MessageReceiver> receiver = new AtomicReference<>();
+    Subscriber mockSubscriber = mock(Subscriber.class);
+    when(mockSubscriber.getSubscriptionNameString())
+        .thenReturn("projects/test-project/subscriptions/testSubscription");
+    SubscriberFactory mockSubscriberFactory = mock(SubscriberFactory.class);
+    when(mockSubscriberFactory.getProjectId()).thenReturn("test-project");
+    when(mockSubscriberFactory.createSubscriber(eq("testSubscription"), any()))
+        .then(
+            invocationOnMock -> {
+              Subscriber subscriber =
+                  defaultSubscriberFactory.createSubscriber(
+                      "testSubscription", invocationOnMock.getArgument(1));
+              receiver.set(
+                  (MessageReceiver) ReflectionTestUtils.getField(subscriber, "receiver"));
+              return mockSubscriber;
+            });
+    when(this.mockMessageChannel.send(any())).thenReturn(true);
+
+    adapter =
+        new PubSubInboundChannelAdapter(
+            new PubSubSubscriberTemplate(mockSubscriberFactory), "testSubscription");
+    adapter.setOutputChannel(this.mockMessageChannel);
+    adapter.setBeanFactory(this.context);
+    adapter.setAckMode(AckMode.MANUAL);
+    adapter.setHealthTrackerRegistry(healthTrackerRegistry);
+    adapter.doStart();
+
+    receiver
+        .get()
+        .receiveMessage(
+            PubsubMessage.newBuilder().setMessageId("1").build(), mock(AckReplyConsumer.class));
+
+    LocalHealthTracker healthTracker =
+        (LocalHealthTracker) healthTrackerRegistry.healthTrackers().iterator().next();
+    assertThat(healthTracker.getOutstandingCount()).isEqualTo(1);
+
+    ArgumentCaptor<Message<?>> argument = ArgumentCaptor.forClass(Message.class);
+    verify(this.mockMessageChannel).send(argument.capture());
+    argument
+        .getValue()
+        .getHeaders()
+        .get(GcpPubSubHeaders.ORIGINAL_MESSAGE, BasicAcknowledgeablePubsubMessage.class)
+        .ack();
+
+    assertThat(healthTracker.getOutstandingCount()).isZero();
+  }
+
   @Test
   void testAddingSubscription_successWhenSubscriberAdded() {
 
@@ -284,4 +392,112 @@ class PubSubInboundChannelAdapterTests {
     assertThat(headers)
         .containsEntry(GcpPubSubHeaders.ORIGINAL_MESSAGE, mockAcknowledgeableMessage);
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testBatchMode_sendsBatchAndAcksAllMessages() {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> first = batchedMessage("payload1", "value1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> second = batchedMessage("payload2", "value2");
+    setupSubscribeAndConvertBatch(first, second);
+    when(this.mockMessageChannel.send(any())).thenReturn(true);
+
+    this.adapter.setBatchMode(2, 1000L, Duration.ofMinutes(1));
+    this.adapter.start();
+
+    ArgumentCaptor<Message<?>> argument = ArgumentCaptor.forClass(Message.class);
+    verify(this.mockMessageChannel).send(argument.capture());
+    Message<?> batch = argument.getValue();
+    assertThat((List<Object>) batch.getPayload()).containsExactly("payload1", "payload2");
+    assertThat(GcpPubSubHeaders.getOriginalMessages(batch)).containsExactly(first, second);
+    assertThat((List<Map<String, Object>>) batch.getHeaders()
+            .get(GcpPubSubHeaders.BATCH_CONVERTED_HEADERS))
+        .extracting(headers -> headers.get("attribute"))
+        .containsExactly("value1", "value2");
+
+    verify(first).ack();
+    verify(second).ack();
+    this.adapter.stop();
+  }
+
+  @Test
+  void testBatchMode_nacksAllMessagesWhenDownstreamProcessingFails(
+      CapturedOutput capturedOutput) {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> first = batchedMessage("payload1", "value1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> second = batchedMessage("payload2", "value2");
+    setupSubscribeAndConvertBatch(first, second);
+    when(this.mockMessageChannel.send(any())).thenThrow(new RuntimeException(EXCEPTION_MESSAGE));
+
+    this.adapter.setBatchMode(10, 1000L, Duration.ofMinutes(1));
+    this.adapter.start();
+    verify(this.mockMessageChannel, times(0)).send(any());
+
+    // Stopping the adapter sends the pending batch.
+    this.adapter.stop();
+
+    verify(first).nack();
+    verify(second).nack();
+    verify(first, times(0)).ack();
+    assertThat(capturedOutput)
+        .contains("batch of 2 messages")
+        .contains("failed; messages nacked automatically")
+        .contains(EXCEPTION_MESSAGE);
+  }
+
+  @Test
+  void testOrderingKeyDispatch_handlesMessagesOnLanes() {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> first = batchedMessage("payload1", "value1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> second = batchedMessage("payload2", "value2");
+    setupSubscribeAndConvertBatch(first, second);
+    when(this.mockMessageChannel.send(any())).thenReturn(true);
+    PubSubMetricsRecorder metricsRecorder = mock(PubSubMetricsRecorder.class);
+    this.adapter.setMetricsRecorder(metricsRecorder);
+
+    this.adapter.setOrderingKeyDispatch(2, 10);
+    this.adapter.start();
+
+    verify(first, timeout(10_000)).ack();
+    verify(second, timeout(10_000)).ack();
+    verify(this.mockMessageChannel, times(2)).send(any());
+    verify(metricsRecorder, times(2)).recordDispatchWait(eq("testSubscription"), anyInt(), anyLong());
+    this.adapter.stop();
+  }
+
+  @Test
+  void testOrderingKeyDispatch_notAllowedInBatchMode() {
+    this.adapter.setBatchMode(2, 1000L, Duration.ofMinutes(1));
+    this.adapter.setOrderingKeyDispatch(2, 10);
+
+    assertThatThrownBy(() -> this.adapter.start())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Batch mode and ordering key dispatch can't be enabled together.");
+  }
+
+  @Test
+  void testMetricsRecorder_recordsProcessing() {
+    setupSubscribeAndConvert();
+    PubSubMetricsRecorder metricsRecorder = mock(PubSubMetricsRecorder.class);
+    this.adapter.setMetricsRecorder(metricsRecorder);
+
+    this.adapter.start();
+
+    verify(metricsRecorder)
+        .recordProcessing(eq("testSubscription"), eq(1), anyLong(), eq(true));
+  }
+
+  @Test
+  void testMetricsRecorder_recordsFailedBatchProcessing() {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> first = batchedMessage("payload1", "value1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> second = batchedMessage("payload2", "value2");
+    setupSubscribeAndConvertBatch(first, second);
+    when(this.mockMessageChannel.send(any())).thenThrow(new RuntimeException(EXCEPTION_MESSAGE));
+    PubSubMetricsRecorder metricsRecorder = mock(PubSubMetricsRecorder.class);
+    this.adapter.setMetricsRecorder(metricsRecorder);
+
+    this.adapter.setBatchMode(2, 1000L, Duration.ofMinutes(1));
+    this.adapter.start();
+
+    verify(metricsRecorder)
+        .recordProcessing(eq("testSubscription"), eq(2), anyLong(), eq(false));
+    this.adapter.stop();
+  }
 }
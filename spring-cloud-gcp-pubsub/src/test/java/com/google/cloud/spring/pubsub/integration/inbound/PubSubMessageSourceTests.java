@@ -18,6 +18,8 @@ package com.google.cloud.spring.pubsub.integration.inbound;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -26,10 +28,13 @@ import static org.mockito.Mockito.when;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.cloud.spring.pubsub.support.PubSubMetricsRecorder;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import com.google.pubsub.v1.PubsubMessage;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -91,6 +96,24 @@ class PubSubMessageSourceTests {
     assertThat(message).isNull();
   }
 
+  @Test
+  void doReceive_recordsReceivedMessageCount() {
+    PubSubMetricsRecorder metricsRecorder = mock(PubSubMetricsRecorder.class);
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setMaxFetchSize(1);
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setMetricsRecorder(metricsRecorder);
+
+    pubSubMessageSource.doReceive(1);
+    when(this.mockPubSubSubscriberOperations.pullAndConvert("sub1", 1, true, String.class))
+        .thenReturn(Collections.emptyList());
+    pubSubMessageSource.doReceive(1);
+
+    verify(metricsRecorder).recordReceive(eq("sub1"), eq(1), anyLong());
+    verify(metricsRecorder).recordReceive(eq("sub1"), eq(0), anyLong());
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   void doReceive_callsPubsubAndCachesCorrectly() {
@@ -300,4 +323,30 @@ class PubSubMessageSourceTests {
 
     verify(this.mockPubSubSubscriberOperations).pullAndConvert("sub1", 1, false, String.class);
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void doReceive_withPrefetchReceivesBufferedMessages() {
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 2, false, String.class))
+        .thenReturn(CompletableFuture.completedFuture(List.of(this.msg1, this.msg2)));
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 1, false, String.class))
+        .thenReturn(new CompletableFuture<>());
+    when(this.mockPubSubSubscriberOperations.modifyAckDeadline(List.of(this.msg1, this.msg2), 30))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setPrefetch(2, 30);
+
+    MessageBuilder<String> message = (MessageBuilder<String>) pubSubMessageSource.doReceive(1);
+    assertThat(message.getPayload()).isEqualTo("msg1");
+    assertThat(pubSubMessageSource.isRunning()).isTrue();
+
+    pubSubMessageSource.stop();
+    assertThat(pubSubMessageSource.isRunning()).isFalse();
+    verify(this.mockPubSubSubscriberOperations).nack(List.of(this.msg2));
+    verify(this.mockPubSubSubscriberOperations, times(0))
+        .pullAndConvert("sub1", 1, true, String.class);
+  }
 }
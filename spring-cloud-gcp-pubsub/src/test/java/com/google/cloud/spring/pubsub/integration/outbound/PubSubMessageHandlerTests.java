@@ -19,16 +19,28 @@ package com.google.cloud.spring.pubsub.integration.outbound;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiException;
 import com.google.cloud.spring.core.util.MapBuilder;
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
 import com.google.cloud.spring.pubsub.core.PubSubOperations;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import io.grpc.Status.Code;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
@@ -37,6 +49,8 @@ import org.awaitility.Awaitility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
@@ -45,6 +59,7 @@ import org.springframework.expression.Expression;
 import org.springframework.expression.common.LiteralExpression;
 import org.springframework.integration.expression.ValueExpression;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
 import org.springframework.messaging.support.GenericMessage;
 
 /** Tests for the Pub/Sub message handler. */
@@ -265,4 +280,143 @@ class PubSubMessageHandlerTests {
     Throwable cause = failureCauseRef.get();
     assertThat(cause).isInstanceOf(RuntimeException.class).hasMessage("boom!");
   }
+
+  @Test
+  void publishFailureSpillsMessageAndDrainerPublishesItLater(@TempDir Path spillDirectory) {
+    PubsubMessage pubsubMessage =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("testPayload")).build();
+    when(this.pubSubTemplate.publish("testTopic", pubsubMessage))
+        .thenReturn(CompletableFuture.failedFuture(failure(Code.UNAVAILABLE)))
+        .thenReturn(CompletableFuture.completedFuture("published12345"));
+    PubSubSpillBuffer spillBuffer = new PubSubSpillBuffer(spillDirectory, 1024, 4096);
+    this.adapter.setSpillBuffer(spillBuffer, new SimplePubSubMessageConverter());
+    this.adapter.setSync(true);
+
+    this.adapter.handleMessage(new GenericMessage<>("testPayload"));
+    assertThat(spillBuffer.getSpilledMessageCount()).isEqualTo(1);
+
+    this.adapter.onInit();
+    try {
+      Awaitility.await().atMost(Duration.ofSeconds(10)).until(spillBuffer::isEmpty);
+      verify(this.pubSubTemplate, times(2)).publish("testTopic", pubsubMessage);
+    } finally {
+      this.adapter.destroy();
+    }
+  }
+
+  @Test
+  void messagesSpilledAfterEarlierSpilledMessages(@TempDir Path spillDirectory) {
+    PubSubSpillBuffer spillBuffer = new PubSubSpillBuffer(spillDirectory, 1024, 4096);
+    spillBuffer.append(
+        "testTopic", PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("first")).build());
+    this.adapter.setSpillBuffer(spillBuffer, new SimplePubSubMessageConverter());
+
+    this.adapter.handleMessage(new GenericMessage<>("second"));
+
+    verify(this.pubSubTemplate, never()).publish(any(), any(PubsubMessage.class));
+    assertThat(spillBuffer.peek(10))
+        .extracting(spilled -> spilled.getMessage().getData().toStringUtf8())
+        .containsExactly("first", "second");
+    this.adapter.destroy();
+  }
+
+  @Test
+  void publishFailsWhenSpillBufferIsFull(@TempDir Path spillDirectory) {
+    when(this.pubSubTemplate.publish(eq("testTopic"), any(PubsubMessage.class)))
+        .thenReturn(CompletableFuture.failedFuture(failure(Code.UNAVAILABLE)));
+    PubSubSpillBuffer spillBuffer = new PubSubSpillBuffer(spillDirectory, 16, 16);
+    this.adapter.setSpillBuffer(spillBuffer, new SimplePubSubMessageConverter());
+    this.adapter.setSync(true);
+
+    Message<String> testMessage = new GenericMessage<>("testPayload");
+    assertThatThrownBy(() -> this.adapter.handleMessage(testMessage))
+        .isInstanceOf(MessageHandlingException.class)
+        .hasCauseInstanceOf(PubSubDeliveryException.class)
+        .hasRootCauseMessage("UNAVAILABLE");
+    this.adapter.destroy();
+  }
+
+  @Test
+  void permanentPublishFailureNotSpilled(@TempDir Path spillDirectory) {
+    when(this.pubSubTemplate.publish(eq("testTopic"), any(PubsubMessage.class)))
+        .thenReturn(CompletableFuture.failedFuture(failure(Code.INVALID_ARGUMENT)));
+    PubSubSpillBuffer spillBuffer = new PubSubSpillBuffer(spillDirectory, 1024, 4096);
+    this.adapter.setSpillBuffer(spillBuffer, new SimplePubSubMessageConverter());
+    this.adapter.setSync(true);
+
+    Message<String> testMessage = new GenericMessage<>("testPayload");
+    assertThatThrownBy(() -> this.adapter.handleMessage(testMessage))
+        .isInstanceOf(MessageHandlingException.class)
+        .hasRootCauseMessage("INVALID_ARGUMENT");
+    assertThat(spillBuffer.isEmpty()).isTrue();
+    this.adapter.destroy();
+  }
+
+  @Test
+  void drainerDropsSpilledMessageFailingPermanently(@TempDir Path spillDirectory) {
+    PubsubMessage poison = spilledMessage("poison", "");
+    PubsubMessage next = spilledMessage("next", "");
+    when(this.pubSubTemplate.publish("testTopic", poison))
+        .thenReturn(CompletableFuture.failedFuture(failure(Code.INVALID_ARGUMENT)));
+    when(this.pubSubTemplate.publish("testTopic", next))
+        .thenReturn(CompletableFuture.completedFuture("published12345"));
+    PubSubSpillBuffer spillBuffer = new PubSubSpillBuffer(spillDirectory, 1024, 4096);
+    spillBuffer.append("testTopic", poison);
+    spillBuffer.append("testTopic", next);
+    this.adapter.setSpillBuffer(spillBuffer, new SimplePubSubMessageConverter());
+
+    this.adapter.onInit();
+    try {
+      Awaitility.await().atMost(Duration.ofSeconds(10)).until(spillBuffer::isEmpty);
+      verify(this.pubSubTemplate).publish("testTopic", poison);
+      verify(this.pubSubTemplate).publish("testTopic", next);
+    } finally {
+      this.adapter.destroy();
+    }
+  }
+
+  @Test
+  void drainerStopsOrderingKeyAtFirstFailure(@TempDir Path spillDirectory) {
+    PubsubMessage firstOfA = spilledMessage("a1", "a");
+    PubsubMessage secondOfA = spilledMessage("a2", "a");
+    PubsubMessage firstOfB = spilledMessage("b1", "b");
+    when(this.pubSubTemplate.publish("testTopic", firstOfA))
+        .thenReturn(CompletableFuture.failedFuture(failure(Code.UNAVAILABLE)))
+        .thenReturn(CompletableFuture.completedFuture("published1"));
+    when(this.pubSubTemplate.publish("testTopic", secondOfA))
+        .thenReturn(CompletableFuture.completedFuture("published2"));
+    when(this.pubSubTemplate.publish("testTopic", firstOfB))
+        .thenReturn(CompletableFuture.completedFuture("published3"));
+    PubSubSpillBuffer spillBuffer = new PubSubSpillBuffer(spillDirectory, 1024, 4096);
+    spillBuffer.append("testTopic", firstOfA);
+    spillBuffer.append("testTopic", secondOfA);
+    spillBuffer.append("testTopic", firstOfB);
+    this.adapter.setSpillBuffer(spillBuffer, new SimplePubSubMessageConverter());
+
+    this.adapter.onInit();
+    try {
+      Awaitility.await().atMost(Duration.ofSeconds(10)).until(spillBuffer::isEmpty);
+      InOrder inOrder = inOrder(this.pubSubTemplate);
+      inOrder.verify(this.pubSubTemplate).resumePublish("testTopic", "a");
+      inOrder.verify(this.pubSubTemplate).publish("testTopic", firstOfA);
+      inOrder.verify(this.pubSubTemplate).resumePublish("testTopic", "a");
+      inOrder.verify(this.pubSubTemplate).publish("testTopic", firstOfA);
+      inOrder.verify(this.pubSubTemplate).publish("testTopic", secondOfA);
+      verify(this.pubSubTemplate).publish("testTopic", secondOfA);
+      verify(this.pubSubTemplate).publish("testTopic", firstOfB);
+    } finally {
+      this.adapter.destroy();
+    }
+  }
+
+  private static ApiException failure(Code code) {
+    return new ApiException(new RuntimeException(code.name()), GrpcStatusCode.of(code), false);
+  }
+
+  private static PubsubMessage spilledMessage(String data, String orderingKey) {
+    return PubsubMessage.newBuilder()
+        .setData(ByteString.copyFromUtf8(data))
+        .setOrderingKey(orderingKey)
+        .build();
+  }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration.outbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.cloud.spring.pubsub.integration.outbound.PubSubSpillBuffer.SpilledMessage;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for the {@link PubSubSpillBuffer}. */
+class PubSubSpillBufferTests {
+
+  @TempDir Path directory;
+
+  @Test
+  void testMessagesReadBackInOrder() {
+    try (PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 256, 1024)) {
+      assertThat(buffer.append("topic1", message("one"))).isTrue();
+      assertThat(buffer.append("topic2", message("two"))).isTrue();
+      assertThat(buffer.append("topic1", message("three"))).isTrue();
+
+      assertThat(buffer.getSpilledMessageCount()).isEqualTo(3);
+      List<SpilledMessage> spilled = buffer.peek(2);
+      assertThat(spilled).extracting(SpilledMessage::getTopic).containsExactly("topic1", "topic2");
+      assertThat(spilled)
+          .extracting(SpilledMessage::getMessage)
+          .containsExactly(message("one"), message("two"));
+
+      buffer.remove(spilled.get(0));
+      assertThat(buffer.peek(10))
+          .extracting(SpilledMessage::getMessage)
+          .containsExactly(message("two"), message("three"));
+      assertThat(buffer.getSpilledMessageCount()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void testMessagesRecoveredAfterReopening() {
+    try (PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 256, 1024)) {
+      buffer.append("topic", message("one"));
+      buffer.append("topic", message("two"));
+      buffer.remove(buffer.peek(1).get(0));
+    }
+
+    try (PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 256, 1024)) {
+      assertThat(buffer.getSpilledMessageCount()).isEqualTo(1);
+      assertThat(buffer.peek(10))
+          .extracting(SpilledMessage::getMessage)
+          .containsExactly(message("two"));
+
+      buffer.append("topic", message("three"));
+      assertThat(buffer.peek(10))
+          .extracting(SpilledMessage::getMessage)
+          .containsExactly(message("two"), message("three"));
+    }
+  }
+
+  @Test
+  void testTornRecordSkippedOnRecovery() throws IOException {
+    try (PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 256, 1024)) {
+      buffer.append("topic", message("one"));
+      buffer.append("topic", message("two"));
+    }
+    Path segmentFile = segmentFiles().get(0);
+    int secondRecordContent = 8 + 4 + "topic".length() + message("one").getSerializedSize() + 8;
+    try (RandomAccessFile file = new RandomAccessFile(segmentFile.toFile(), "rw")) {
+      // Corrupts the content of the second record, as if the host failed while writing it.
+      file.seek(secondRecordContent + 4 + "topic".length());
+      file.write(new byte[] {42, 42});
+    }
+
+    try (PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 256, 1024)) {
+      assertThat(buffer.peek(10))
+          .extracting(SpilledMessage::getMessage)
+          .containsExactly(message("one"));
+
+      buffer.append("topic", message("three"));
+      assertThat(buffer.peek(10))
+          .extracting(SpilledMessage::getMessage)
+          .containsExactly(message("one"), message("three"));
+    }
+  }
+
+  @Test
+  void testAppendFailsWhenFull() {
+    try (PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 64, 128)) {
+      assertThat(buffer.append("topic", message("a".repeat(40)))).isTrue();
+      assertThat(buffer.append("topic", message("b".repeat(40)))).isTrue();
+      assertThat(buffer.append("topic", message("c".repeat(40)))).isFalse();
+      assertThat(buffer.append("topic", message("d".repeat(100)))).isFalse();
+
+      buffer.remove(buffer.peek(1).get(0));
+      assertThat(buffer.append("topic", message("c".repeat(40)))).isTrue();
+    }
+  }
+
+  @Test
+  void testSegmentDeletedOnceAllMessagesRemoved() throws IOException {
+    try (PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 64, 1024)) {
+      buffer.append("topic", message("a".repeat(40)));
+      buffer.append("topic", message("b".repeat(40)));
+      assertThat(segmentFiles()).hasSize(2);
+
+      buffer.remove(buffer.peek(1).get(0));
+      assertThat(segmentFiles()).hasSize(1);
+
+      buffer.remove(buffer.peek(1).get(0));
+      assertThat(segmentFiles()).isEmpty();
+      assertThat(buffer.isEmpty()).isTrue();
+    }
+  }
+
+  @Test
+  void testAppendFailsWhenClosed() {
+    PubSubSpillBuffer buffer = new PubSubSpillBuffer(this.directory, 256, 1024);
+    buffer.close();
+
+    assertThat(buffer.append("topic", message("one"))).isFalse();
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(this.directory)) {
+      return files.sorted().toList();
+    }
+  }
+
+  private static PubsubMessage message(String data) {
+    return PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(data)).build();
+  }
+}
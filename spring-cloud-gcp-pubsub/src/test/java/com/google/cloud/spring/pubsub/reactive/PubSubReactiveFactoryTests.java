@@ -22,12 +22,16 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.core.ApiService;
 import com.google.api.gax.grpc.GrpcStatusCode;
 import com.google.api.gax.rpc.DeadlineExceededException;
+import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
 import io.grpc.Status;
@@ -37,9 +41,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -203,10 +210,67 @@ class PubSubReactiveFactoryTests {
     methodOrder.verifyNoMoreInteractions();
   }
 
-  private String messageToString(AcknowledgeablePubsubMessage message) {
+  @Test
+  void testStreamingPullEmitsHeldMessagesOnDemand() {
+    Subscriber subscriber = mock(Subscriber.class);
+    ArgumentCaptor<Consumer<BasicAcknowledgeablePubsubMessage>> consumerCaptor =
+        ArgumentCaptor.forClass(Consumer.class);
+    when(subscriberOperations.subscribe(eq("sub1"), consumerCaptor.capture()))
+        .thenReturn(subscriber);
+
+    StepVerifier.create(factory.streamingPull("sub1").map(this::messageToString), 1)
+        .expectSubscription()
+        .then(
+            () -> {
+              Consumer<BasicAcknowledgeablePubsubMessage> consumer = consumerCaptor.getValue();
+              consumer.accept(pushedMessage("msg1"));
+              consumer.accept(pushedMessage("msg2"));
+              consumer.accept(pushedMessage("msg3"));
+            })
+        .expectNext("msg1")
+        .expectNoEvent(Duration.ofMillis(50))
+        .thenRequest(2)
+        .expectNext("msg2", "msg3")
+        .thenCancel()
+        .verify();
+
+    verify(subscriber).stopAsync();
+  }
+
+  @Test
+  void testStreamingPullSubscriberFailureResultsInErrorStream() {
+    Subscriber subscriber = mock(Subscriber.class);
+    when(subscriberOperations.subscribe(eq("sub1"), any())).thenReturn(subscriber);
+    ArgumentCaptor<ApiService.Listener> listenerCaptor =
+        ArgumentCaptor.forClass(ApiService.Listener.class);
+
+    StepVerifier.create(factory.streamingPull("sub1"))
+        .expectSubscription()
+        .then(
+            () -> {
+              verify(subscriber).addListener(listenerCaptor.capture(), any(Executor.class));
+              listenerCaptor
+                  .getValue()
+                  .failed(ApiService.State.RUNNING, new RuntimeException("subscriber failed"));
+            })
+        .expectErrorMessage("subscriber failed")
+        .verify();
+
+    verify(subscriber).stopAsync();
+  }
+
+  private String messageToString(BasicAcknowledgeablePubsubMessage message) {
     return new String(message.getPubsubMessage().getData().toByteArray(), Charset.defaultCharset());
   }
 
+  private BasicAcknowledgeablePubsubMessage pushedMessage(String payload) {
+    BasicAcknowledgeablePubsubMessage msg = mock(BasicAcknowledgeablePubsubMessage.class);
+    when(msg.getPubsubMessage())
+        .thenReturn(
+            PubsubMessage.newBuilder().setData(ByteString.copyFrom(payload.getBytes())).build());
+    return msg;
+  }
+
   /**
    * Replays provided messages. If a synthetic message "stop" is encountered, immediately returns
    * previously collected messages. If a synthetic message "timeout" is encountered, throws an
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.api.gax.batching.BatchingSettings;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link AdaptiveBatchingTuner}. */
+class AdaptiveBatchingTunerTests {
+
+  private final AdaptiveBatchingTuner tuner =
+      new AdaptiveBatchingTuner(1L, 1000L, Duration.ofMillis(1), Duration.ofMillis(50));
+
+  @Test
+  void testLightTrafficUsesMinimumThresholds() {
+    tuner.setRequestByteThreshold(5000L);
+
+    BatchingSettings settings = tuner.getBatchingSettings("topic1");
+
+    assertThat(settings.getElementCountThreshold()).isEqualTo(1L);
+    assertThat(settings.getDelayThreshold().toMillis()).isEqualTo(1L);
+    assertThat(settings.getRequestByteThreshold()).isEqualTo(5000L);
+    assertThat(tuner.getElementCountThreshold("topic1")).isEqualTo(1L);
+    assertThat(tuner.getDelayThreshold("topic1")).isEqualTo(Duration.ofMillis(1));
+
+    assertThat(tuner.update()).isEmpty();
+    assertThat(tuner.getPublishRate("topic1")).isZero();
+  }
+
+  @Test
+  void testHeavyTrafficUsesFullBatches() {
+    tuner.getBatchingSettings("topic1");
+    for (int i = 0; i < 100_000; i++) {
+      tuner.recordPublish("topic1");
+    }
+
+    assertThat(tuner.update()).containsExactly("topic1");
+    assertThat(tuner.getPublishRate("topic1")).isPositive();
+
+    BatchingSettings settings = tuner.getBatchingSettings("topic1");
+    assertThat(settings.getElementCountThreshold()).isEqualTo(1000L);
+    assertThat(settings.getDelayThreshold().toNanos())
+        .isBetween(Duration.ofMillis(1).toNanos(), Duration.ofMillis(50).toNanos());
+    assertThat(tuner.getElementCountThreshold("topic1")).isEqualTo(1000L);
+  }
+
+  @Test
+  void testOnlyTopicsWithHandedOutSettingsAreRetuned() {
+    for (int i = 0; i < 100_000; i++) {
+      tuner.recordPublish("topic1");
+    }
+
+    assertThat(tuner.update()).isEmpty();
+    assertThat(tuner.getTunedTopics()).isEmpty();
+    assertThat(tuner.getElementCountThreshold("topic1")).isZero();
+    assertThat(tuner.getDelayThreshold("topic1")).isNull();
+  }
+
+  @Test
+  void testTunedTopicListenerNotifiedOnce() {
+    List<String> tunedTopics = new ArrayList<>();
+    tuner.setTunedTopicListener(tunedTopics::add);
+
+    tuner.getBatchingSettings("topic1");
+    tuner.getBatchingSettings("topic1");
+    tuner.getBatchingSettings("topic2");
+
+    assertThat(tunedTopics).containsExactly("topic1", "topic2");
+    assertThat(tuner.getTunedTopics()).containsExactlyInAnyOrder("topic1", "topic2");
+  }
+
+  @Test
+  void testRemovedTopicForgotten() {
+    List<String> removedTopics = new ArrayList<>();
+    tuner.setRemovedTopicListener(removedTopics::add);
+    tuner.getBatchingSettings("topic1");
+    tuner.recordPublish("topic2");
+
+    tuner.removeTopic("topic1");
+    tuner.removeTopic("topic2");
+
+    assertThat(removedTopics).containsExactly("topic1");
+    assertThat(tuner.getTunedTopics()).isEmpty();
+    assertThat(tuner.getElementCountThreshold("topic1")).isZero();
+  }
+
+  @Test
+  void testInvalidBounds() {
+    assertThatThrownBy(
+            () -> new AdaptiveBatchingTuner(0L, 10L, Duration.ofMillis(1), Duration.ofMillis(5)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("minElementCountThreshold must be greater than 0.");
+    assertThatThrownBy(
+            () -> new AdaptiveBatchingTuner(1L, 2000L, Duration.ofMillis(1), Duration.ofMillis(5)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("maxElementCountThreshold must be between minElementCountThreshold and 1000.");
+    assertThatThrownBy(
+            () -> new AdaptiveBatchingTuner(1L, 10L, Duration.ofMillis(5), Duration.ofMillis(1)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("maxDelayThreshold must not be shorter than minDelayThreshold.");
+  }
+}
@@ -17,15 +17,23 @@
 package com.google.cloud.spring.pubsub.support;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.pubsub.v1.Publisher;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
 
 /** Tests for the {@link CachingPublisherFactory}. */
 @ExtendWith(MockitoExtension.class)
@@ -37,6 +45,8 @@ class CachingPublisherFactoryTests {
 
   @Mock private Publisher publisher2;
 
+  @Mock private Publisher publisher3;
+
   @Test
   void testGetPublisherCaching() {
     CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
@@ -58,4 +68,145 @@ class CachingPublisherFactoryTests {
     verify(publisher1, times(1)).shutdown();
     verify(publisher2, times(1)).shutdown();
   }
+
+  @Test
+  void testLeastRecentlyUsedPublisherEvictedWhenMaxSizeExceeded() {
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+    cachingPublisherFactory.setMaxSize(2);
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+    when(delegate.createPublisher("topic3")).thenReturn(publisher3);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    cachingPublisherFactory.createPublisher("topic2");
+    // topic1 becomes the most recently used publisher
+    cachingPublisherFactory.createPublisher("topic1");
+    cachingPublisherFactory.createPublisher("topic3");
+
+    verify(publisher2).shutdown();
+    verify(publisher1, never()).shutdown();
+    verify(publisher3, never()).shutdown();
+
+    assertThat(cachingPublisherFactory.createPublisher("topic1")).isEqualTo(publisher1);
+    assertThat(cachingPublisherFactory.createPublisher("topic3")).isEqualTo(publisher3);
+    verify(delegate, times(1)).createPublisher("topic1");
+    verify(delegate, times(1)).createPublisher("topic3");
+  }
+
+  @Test
+  void testLeasedPublisherShutDownOnceReleased() {
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+    cachingPublisherFactory.setMaxSize(1);
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    Publisher leased = cachingPublisherFactory.acquirePublisher("topic1");
+    cachingPublisherFactory.acquirePublisher("topic2");
+
+    verify(publisher1, never()).shutdown();
+
+    cachingPublisherFactory.releasePublisher("topic1", leased);
+
+    verify(publisher1).shutdown();
+    verify(publisher2, never()).shutdown();
+  }
+
+  @Test
+  void testIdlePublisherEvicted() throws InterruptedException {
+    TaskScheduler scheduler = mock(TaskScheduler.class);
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+    cachingPublisherFactory.setIdleTimeout(Duration.ofMillis(20), scheduler);
+
+    ArgumentCaptor<Runnable> evictionTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).scheduleWithFixedDelay(evictionTask.capture(), eq(Duration.ofMillis(10)));
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    Thread.sleep(50);
+    cachingPublisherFactory.createPublisher("topic2");
+    evictionTask.getValue().run();
+
+    verify(publisher1).shutdown();
+    verify(publisher2, never()).shutdown();
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher3);
+    assertThat(cachingPublisherFactory.createPublisher("topic1")).isEqualTo(publisher3);
+  }
+
+  @Test
+  void testShutdownCancelsIdleEviction() {
+    TaskScheduler scheduler = mock(TaskScheduler.class);
+    ScheduledFuture<?> evictionFuture = mock(ScheduledFuture.class);
+    when(scheduler.scheduleWithFixedDelay(any(Runnable.class), any(Duration.class)))
+        .then(invocation -> evictionFuture);
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+    cachingPublisherFactory.setIdleTimeout(Duration.ofMinutes(5), scheduler);
+
+    cachingPublisherFactory.shutdown();
+
+    verify(evictionFuture).cancel(false);
+  }
+
+  @Test
+  void testPublisherReplacedWhenBatchingRetuned() {
+    TaskScheduler scheduler = mock(TaskScheduler.class);
+    AdaptiveBatchingTuner tuner =
+        new AdaptiveBatchingTuner(1L, 1000L, Duration.ofMillis(1), Duration.ofMillis(50));
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+    cachingPublisherFactory.setAdaptiveBatching(tuner, Duration.ofSeconds(1), scheduler);
+
+    ArgumentCaptor<Runnable> tuningTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).scheduleWithFixedDelay(tuningTask.capture(), eq(Duration.ofSeconds(1)));
+
+    when(delegate.createPublisher("topic1"))
+        .then(
+            invocation -> {
+              tuner.getBatchingSettings("topic1");
+              return publisher1;
+            })
+        .thenReturn(publisher2);
+
+    assertThat(cachingPublisherFactory.createPublisher("topic1")).isEqualTo(publisher1);
+    for (int i = 0; i < 100_000; i++) {
+      tuner.recordPublish("topic1");
+    }
+    tuningTask.getValue().run();
+
+    assertThat(cachingPublisherFactory.createPublisher("topic1")).isEqualTo(publisher2);
+    verify(publisher1, never()).shutdown();
+
+    tuningTask.getValue().run();
+    verify(publisher1).shutdown();
+    verify(publisher2, never()).shutdown();
+  }
+
+  @Test
+  void testEvictedTopicRemovedFromTuner() {
+    AdaptiveBatchingTuner tuner =
+        new AdaptiveBatchingTuner(1L, 1000L, Duration.ofMillis(1), Duration.ofMillis(50));
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+    cachingPublisherFactory.setMaxSize(1);
+    cachingPublisherFactory.setAdaptiveBatching(
+        tuner, Duration.ofSeconds(1), mock(TaskScheduler.class));
+
+    when(delegate.createPublisher("topic1"))
+        .then(
+            invocation -> {
+              tuner.getBatchingSettings("topic1");
+              return publisher1;
+            });
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    assertThat(tuner.getTunedTopics()).containsExactly("topic1");
+
+    cachingPublisherFactory.createPublisher("topic2");
+
+    verify(publisher1).shutdown();
+    assertThat(tuner.getTunedTopics()).isEmpty();
+  }
 }
@@ -22,15 +22,20 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.core.NoCredentialsProvider;
 import com.google.api.gax.rpc.ApiCallContext;
 import com.google.api.gax.rpc.TransportChannel;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
 import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
 import com.google.pubsub.v1.ProjectTopicName;
+import com.google.pubsub.v1.TopicName;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -40,11 +45,13 @@ class DefaultPublisherFactoryTests {
 
   DefaultPublisherFactory factory;
 
+  TransportChannelProvider mockChannelProvider;
+
   @BeforeEach
   public void setUp() throws IOException {
     factory = new DefaultPublisherFactory(() -> "projectId");
     factory.setCredentialsProvider(NoCredentialsProvider.create());
-    TransportChannelProvider mockChannelProvider = mock(TransportChannelProvider.class);
+    mockChannelProvider = mock(TransportChannelProvider.class);
     TransportChannel mockTransportChannel = mock(TransportChannel.class);
     when(mockChannelProvider.getTransportChannel()).thenReturn(mockTransportChannel);
     ApiCallContext mockContext = mock(ApiCallContext.class);
@@ -114,4 +121,87 @@ class DefaultPublisherFactoryTests {
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessage("Non-null customizers expected");
   }
+
+  @Test
+  void createPublisherUsesTopicSpecificBatchingSettings() {
+    BatchingSettings globalBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(10L).build();
+    BatchingSettings topicBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(500L).build();
+    factory.setBatchingSettings(globalBatching);
+    factory.setBatchingSettingsMap(
+        Collections.singletonMap(TopicName.of("projectId", "busyTopic"), topicBatching));
+
+    assertThat(factory.createPublisher("busyTopic").getBatchingSettings()).isSameAs(topicBatching);
+    assertThat(factory.createPublisher("projects/projectId/topics/busyTopic").getBatchingSettings())
+        .isSameAs(topicBatching);
+    assertThat(factory.createPublisher("quietTopic").getBatchingSettings())
+        .isSameAs(globalBatching);
+  }
+
+  @Test
+  void createPublisherUsesAdaptiveBatchingSettings() {
+    PubSubConfiguration pubSubConfiguration = new PubSubConfiguration();
+    PubSubConfiguration.Publisher orderedPublisher = new PubSubConfiguration.Publisher();
+    orderedPublisher.setEnableMessageOrdering(true);
+    pubSubConfiguration.setTopic(Collections.singletonMap("orderedTopic", orderedPublisher));
+    pubSubConfiguration.initialize("projectId");
+
+    DefaultPublisherFactory adaptiveFactory =
+        new DefaultPublisherFactory(() -> "projectId", pubSubConfiguration);
+    adaptiveFactory.setCredentialsProvider(NoCredentialsProvider.create());
+    adaptiveFactory.setChannelProvider(mockChannelProvider);
+    BatchingSettings globalBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(10L).build();
+    BatchingSettings topicBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(500L).build();
+    adaptiveFactory.setBatchingSettings(globalBatching);
+    adaptiveFactory.setBatchingSettingsMap(
+        Collections.singletonMap(TopicName.of("projectId", "busyTopic"), topicBatching));
+    AdaptiveBatchingTuner tuner =
+        new AdaptiveBatchingTuner(5L, 1000L, Duration.ofMillis(2), Duration.ofMillis(50));
+    adaptiveFactory.setAdaptiveBatchingTuner(tuner);
+
+    BatchingSettings tunedBatching =
+        adaptiveFactory.createPublisher("quietTopic").getBatchingSettings();
+    assertThat(tunedBatching.getElementCountThreshold()).isEqualTo(5L);
+    assertThat(tunedBatching.getDelayThreshold().toMillis()).isEqualTo(2L);
+    assertThat(tuner.getTunedTopics()).containsExactly("quietTopic");
+
+    assertThat(adaptiveFactory.createPublisher("busyTopic").getBatchingSettings())
+        .isSameAs(topicBatching);
+    assertThat(adaptiveFactory.createPublisher("orderedTopic").getBatchingSettings())
+        .isSameAs(globalBatching);
+  }
+
+  @Test
+  void topicSpecificOrderingAndEndpointTakePrecedence() {
+    PubSubConfiguration pubSubConfiguration = new PubSubConfiguration();
+    PubSubConfiguration.Publisher topicPublisher = new PubSubConfiguration.Publisher();
+    topicPublisher.setEnableMessageOrdering(true);
+    topicPublisher.setEndpoint("us-east1-pubsub.googleapis.com:443");
+    pubSubConfiguration.setTopic(Collections.singletonMap("orderedTopic", topicPublisher));
+    pubSubConfiguration.initialize("projectId");
+
+    DefaultPublisherFactory configuredFactory =
+        new DefaultPublisherFactory(() -> "projectId", pubSubConfiguration);
+    configuredFactory.setEnableMessageOrdering(false);
+    configuredFactory.setEndpoint("pubsub.googleapis.com:443");
+
+    TopicName orderedTopic = TopicName.of("projectId", "orderedTopic");
+    assertThat(configuredFactory.getEnableMessageOrdering(orderedTopic)).isTrue();
+    assertThat(configuredFactory.getEndpoint(orderedTopic))
+        .isEqualTo("us-east1-pubsub.googleapis.com:443");
+
+    TopicName otherTopic = TopicName.of("projectId", "otherTopic");
+    assertThat(configuredFactory.getEnableMessageOrdering(otherTopic)).isFalse();
+    assertThat(configuredFactory.getEndpoint(otherTopic)).isEqualTo("pubsub.googleapis.com:443");
+  }
+
+  @Test
+  void testNewDefaultPublisherFactory_nullPubSubConfiguration() {
+    assertThatThrownBy(() -> new DefaultPublisherFactory(() -> "projectId", null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The pub/sub configuration can't be null.");
+  }
 }
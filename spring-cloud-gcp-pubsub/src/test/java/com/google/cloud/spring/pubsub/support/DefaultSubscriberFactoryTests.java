@@ -799,6 +799,8 @@ class DefaultSubscriberFactoryTests {
         ProjectSubscriptionName.of("angeldust", "midnight cowboy");
 
     when(healthTrackerRegistry.isTracked(subscriptionName)).thenReturn(true);
+    when(healthTrackerRegistry.wrapTracked(eq(subscriptionName), any()))
+        .thenAnswer(invocation -> invocation.getArgument(1));
 
     DefaultSubscriberFactory factory = new DefaultSubscriberFactory(() -> "angeldust", pubSubConfig);
     factory.setCredentialsProvider(this.credentialsProvider);
@@ -810,6 +812,7 @@ class DefaultSubscriberFactoryTests {
 
     verify(healthTrackerRegistry, times(1)).isTracked(subscriptionName);
     verify(healthTrackerRegistry, times(0)).wrap(eq(subscriptionName), any());
+    verify(healthTrackerRegistry, times(1)).wrapTracked(eq(subscriptionName), any());
   }
 
   @Test
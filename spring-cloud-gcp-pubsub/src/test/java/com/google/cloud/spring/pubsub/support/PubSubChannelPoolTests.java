@@ -0,0 +1,194 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/** Tests for {@link PubSubChannelPool}. */
+class PubSubChannelPoolTests {
+
+  private final List<ManagedChannel> openedChannels = new ArrayList<>();
+
+  private final List<ClientCall<String, String>> delegateCalls = new ArrayList<>();
+
+  private final TransportChannelProvider channelProvider = mock(TransportChannelProvider.class);
+
+  private final MethodDescriptor<String, String> methodDescriptor =
+      MethodDescriptor.<String, String>newBuilder()
+          .setType(MethodDescriptor.MethodType.UNARY)
+          .setFullMethodName("google.pubsub.v1.Subscriber/Pull")
+          .setRequestMarshaller(mock(MethodDescriptor.Marshaller.class))
+          .setResponseMarshaller(mock(MethodDescriptor.Marshaller.class))
+          .build();
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() throws IOException {
+    when(channelProvider.getTransportChannel())
+        .thenAnswer(
+            invocation -> {
+              ManagedChannel channel = mock(ManagedChannel.class);
+              when(channel.newCall(any(), any()))
+                  .thenAnswer(
+                      call -> {
+                        ClientCall<String, String> delegateCall = mock(ClientCall.class);
+                        delegateCalls.add(delegateCall);
+                        return delegateCall;
+                      });
+              openedChannels.add(channel);
+              return GrpcTransportChannel.create(channel);
+            });
+  }
+
+  @Test
+  void testCallsGoToLeastBusyChannel() {
+    PubSubChannelPool pool = new PubSubChannelPool(channelProvider, 2, 2, 10);
+
+    ClientCall.Listener<String> firstListener = startCall(pool);
+    startCall(pool);
+
+    assertThat(pool.getOutstandingCallCount()).isEqualTo(2);
+    verify(openedChannels.get(0)).newCall(any(), any());
+    verify(openedChannels.get(1)).newCall(any(), any());
+
+    firstListener.onClose(Status.OK, new Metadata());
+    startCall(pool);
+
+    assertThat(pool.getOutstandingCallCount()).isEqualTo(2);
+    assertThat(pool.getUtilization()).isEqualTo(0.1);
+    verify(openedChannels.get(0), times(2)).newCall(any(), any());
+  }
+
+  @Test
+  void testChannelOpenedWhenAllChannelsAreBusy() {
+    PubSubChannelPool pool = new PubSubChannelPool(channelProvider, 1, 2, 1);
+
+    startCall(pool);
+    assertThat(pool.getChannelCount()).isEqualTo(1);
+
+    startCall(pool);
+    assertThat(pool.getChannelCount()).isEqualTo(2);
+
+    // Beyond the maximum channel count, calls go to the least busy channel.
+    startCall(pool);
+    assertThat(pool.getChannelCount()).isEqualTo(2);
+    assertThat(pool.getOutstandingCallCount()).isEqualTo(3);
+    assertThat(pool.getUtilization()).isEqualTo(1.5);
+  }
+
+  @Test
+  void testCallsCountedBeforeTheyAreStarted() {
+    PubSubChannelPool pool = new PubSubChannelPool(channelProvider, 1, 3, 1);
+
+    pool.newCall(methodDescriptor, CallOptions.DEFAULT);
+    pool.newCall(methodDescriptor, CallOptions.DEFAULT);
+
+    assertThat(pool.getOutstandingCallCount()).isEqualTo(2);
+    assertThat(pool.getChannelCount()).isEqualTo(2);
+    verify(openedChannels.get(0)).newCall(any(), any());
+    verify(openedChannels.get(1)).newCall(any(), any());
+  }
+
+  @Test
+  void testCallCancelledBeforeStartIsReleased() {
+    PubSubChannelPool pool = new PubSubChannelPool(channelProvider, 1, 1, 10);
+
+    ClientCall<String, String> call = pool.newCall(methodDescriptor, CallOptions.DEFAULT);
+    assertThat(pool.getOutstandingCallCount()).isEqualTo(1);
+
+    call.cancel("Not needed", null);
+
+    assertThat(pool.getOutstandingCallCount()).isZero();
+    verify(delegateCalls.get(0)).cancel("Not needed", null);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testStartedCallReleasedWhenClosed() {
+    PubSubChannelPool pool = new PubSubChannelPool(channelProvider, 1, 1, 10);
+
+    ClientCall<String, String> call = pool.newCall(methodDescriptor, CallOptions.DEFAULT);
+    call.start(mock(ClientCall.Listener.class), new Metadata());
+    call.cancel("Not needed", null);
+
+    assertThat(pool.getOutstandingCallCount()).isEqualTo(1);
+
+    ArgumentCaptor<ClientCall.Listener<String>> listenerCaptor =
+        ArgumentCaptor.forClass(ClientCall.Listener.class);
+    verify(delegateCalls.get(0)).start(listenerCaptor.capture(), any(Metadata.class));
+    listenerCaptor.getValue().onClose(Status.CANCELLED, new Metadata());
+
+    assertThat(pool.getOutstandingCallCount()).isZero();
+  }
+
+  @Test
+  void testShutdownClosesAllChannels() {
+    PubSubChannelPool pool = new PubSubChannelPool(channelProvider, 2, 2, 10);
+
+    assertThat(pool.createChannelProvider().shouldAutoClose()).isFalse();
+
+    pool.shutdown();
+
+    assertThat(pool.isShutdown()).isTrue();
+    verify(openedChannels.get(0)).shutdown();
+    verify(openedChannels.get(1)).shutdown();
+  }
+
+  @Test
+  void testInvalidSettings() {
+    assertThatThrownBy(() -> new PubSubChannelPool(channelProvider, 0, 2, 10))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The channel count must be greater than 0.");
+    assertThatThrownBy(() -> new PubSubChannelPool(channelProvider, 2, 1, 10))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The maximum channel count can't be less than the channel count.");
+  }
+
+  /** Start a call and return the listener the pool passed on to the pooled channel. */
+  @SuppressWarnings("unchecked")
+  private ClientCall.Listener<String> startCall(PubSubChannelPool pool) {
+    ClientCall<String, String> call = pool.newCall(methodDescriptor, CallOptions.DEFAULT);
+    call.start(mock(ClientCall.Listener.class), new Metadata());
+
+    ArgumentCaptor<ClientCall.Listener<String>> listenerCaptor =
+        ArgumentCaptor.forClass(ClientCall.Listener.class);
+    verify(delegateCalls.get(delegateCalls.size() - 1))
+        .start(listenerCaptor.capture(), any(Metadata.class));
+    return listenerCaptor.getValue();
+  }
+}
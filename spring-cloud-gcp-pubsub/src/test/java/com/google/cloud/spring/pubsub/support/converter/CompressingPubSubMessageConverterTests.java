@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the compressing message converter. */
+class CompressingPubSubMessageConverterTests {
+
+  private final CompressingPubSubMessageConverter converter =
+      new CompressingPubSubMessageConverter(
+          new SimplePubSubMessageConverter(StandardCharsets.UTF_8), 100);
+
+  @Test
+  void testLargeMessageCompressed() {
+    String payload = "{\"firstName\":\"Thomas\",\"lastName\":\"Edison\"}".repeat(100);
+
+    PubsubMessage pubsubMessage =
+        this.converter.toPubSubMessage(payload, Collections.singletonMap("key1", "value1"));
+
+    assertThat(pubsubMessage.getData().size()).isLessThan(payload.length() / 10);
+    assertThat(pubsubMessage.getAttributesMap())
+        .containsEntry("key1", "value1")
+        .containsEntry(CompressingPubSubMessageConverter.CONTENT_ENCODING, "gzip");
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(payload);
+  }
+
+  @Test
+  void testSmallMessageNotCompressed() {
+    PubsubMessage pubsubMessage = this.converter.toPubSubMessage("test payload", null);
+
+    assertThat(pubsubMessage.getData().toStringUtf8()).isEqualTo("test payload");
+    assertThat(pubsubMessage.getAttributesMap()).isEmpty();
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class))
+        .isEqualTo("test payload");
+  }
+
+  @Test
+  void testIncompressibleMessageNotCompressed() {
+    byte[] payload = new byte[1000];
+    new Random(42).nextBytes(payload);
+
+    PubsubMessage pubsubMessage = this.converter.toPubSubMessage(payload, null);
+
+    assertThat(pubsubMessage.getData().toByteArray()).isEqualTo(payload);
+    assertThat(pubsubMessage.getAttributesMap()).isEmpty();
+  }
+
+  @Test
+  void testMessageCompressedWithRegisteredCodec() {
+    CompressingPubSubMessageConverter deflateConverter =
+        new CompressingPubSubMessageConverter(
+            new SimplePubSubMessageConverter(StandardCharsets.UTF_8), new DeflateCodec(), 0);
+    String payload = "test payload ".repeat(100);
+    PubsubMessage pubsubMessage = deflateConverter.toPubSubMessage(payload, null);
+    assertThat(pubsubMessage.getAttributesMap())
+        .containsEntry(CompressingPubSubMessageConverter.CONTENT_ENCODING, "deflate");
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, String.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage("Unable to decompress a message with unknown content encoding deflate.");
+
+    this.converter.registerCodec(new DeflateCodec());
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(payload);
+  }
+
+  @Test
+  void testCorruptMessage() {
+    PubsubMessage pubsubMessage =
+        PubsubMessage.newBuilder()
+            .setData(ByteString.copyFromUtf8("not gzip"))
+            .putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING, "gzip")
+            .build();
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, String.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage("Decompression of a message with gzip failed.");
+  }
+
+  @Test
+  void testMessageDecompressingBeyondMaximumSize() {
+    String payload = "a".repeat(10_000);
+    PubsubMessage pubsubMessage = this.converter.toPubSubMessage(payload, null);
+
+    this.converter.setMaxDecompressedBytes(payload.length());
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(payload);
+
+    this.converter.setMaxDecompressedBytes(payload.length() - 1);
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, String.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage("A message compressed with gzip decompresses to more than 9999 bytes.");
+  }
+
+  private static class DeflateCodec implements PubSubPayloadCodec {
+
+    @Override
+    public String getName() {
+      return "deflate";
+    }
+
+    @Override
+    public OutputStream compressingStream(OutputStream out) {
+      return new DeflaterOutputStream(out);
+    }
+
+    @Override
+    public InputStream decompressingStream(InputStream in) {
+      return new InflaterInputStream(in);
+    }
+  }
+}
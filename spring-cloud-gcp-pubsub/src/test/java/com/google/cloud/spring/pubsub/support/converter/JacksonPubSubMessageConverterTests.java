@@ -17,9 +17,11 @@
 package com.google.cloud.spring.pubsub.support.converter;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
 import java.util.Collections;
 import org.json.JSONException;
@@ -67,6 +69,32 @@ class JacksonPubSubMessageConverterTests {
         .isEqualTo(contact);
   }
 
+  @Test
+  void testFromPubSubMessageWithSegmentedData() {
+    PubsubMessage pubsubMessage =
+        PubsubMessage.newBuilder()
+            .setData(
+                ByteString.copyFromUtf8("{\"firstName\":\"Tho")
+                    .concat(ByteString.copyFromUtf8("mas\",\"lastName\":\"Edison\",\"zip\":8817}")))
+            .build();
+
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, Contact.class))
+        .isEqualTo(new Contact("Thomas", "Edison", 8817));
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, Contact.class))
+        .isEqualTo(new Contact("Thomas", "Edison", 8817));
+  }
+
+  @Test
+  void testFromPubSubMessageWithInvalidJson() {
+    PubsubMessage pubsubMessage =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("{\"zip\":")).build();
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(pubsubMessage, Contact.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage(
+            "JSON deserialization of an object of type " + Contact.class.getName() + " failed.");
+  }
+
   @Test
   void testToPubSubMessageWithNullPayload() throws JSONException {
     PubsubMessage pubsubMessage = this.converter.toPubSubMessage(null, null);
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.Encoding;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Topic;
+import java.util.Collections;
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+
+/** Tests for the Protocol Buffers message converter. */
+class ProtobufPubSubMessageConverterTests {
+
+  private final Topic topic =
+      Topic.newBuilder().setName("projects/test/topics/contacts").putLabels("env", "test").build();
+
+  @Test
+  void testBinaryEncoding() {
+    ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter();
+
+    PubsubMessage pubsubMessage =
+        converter.toPubSubMessage(
+            this.topic, Collections.singletonMap(GcpPubSubHeaders.ORDERING_KEY, "key1"));
+
+    assertThat(pubsubMessage.getData()).isEqualTo(this.topic.toByteString());
+    assertThat(pubsubMessage.getOrderingKey()).isEqualTo("key1");
+    assertThat(converter.fromPubSubMessage(pubsubMessage, Topic.class)).isEqualTo(this.topic);
+  }
+
+  @Test
+  void testJsonEncoding() throws JSONException {
+    ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter(Encoding.JSON);
+
+    PubsubMessage pubsubMessage = converter.toPubSubMessage(this.topic, null);
+
+    JSONAssert.assertEquals(
+        "{\"name\":\"projects/test/topics/contacts\",\"labels\":{\"env\":\"test\"}}",
+        pubsubMessage.getData().toStringUtf8(),
+        true);
+    assertThat(converter.fromPubSubMessage(pubsubMessage, Topic.class)).isEqualTo(this.topic);
+  }
+
+  @Test
+  void testSchemaEncodingAttributeTakesPrecedence() {
+    ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter();
+    PubsubMessage pubsubMessage =
+        PubsubMessage.newBuilder()
+            .setData(
+                ByteString.copyFromUtf8("{\"name\":\"projects/test/")
+                    .concat(ByteString.copyFromUtf8("topics/contacts\",\"unknown\":1}")))
+            .putAttributes(GcpPubSubHeaders.SCHEMA_ENCODING, "JSON")
+            .build();
+
+    assertThat(converter.fromPubSubMessage(pubsubMessage, Topic.class).getName())
+        .isEqualTo("projects/test/topics/contacts");
+  }
+
+  @Test
+  void testNonProtobufPayload() {
+    ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter();
+    PubsubMessage pubsubMessage =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("test")).build();
+
+    assertThatThrownBy(() -> converter.toPubSubMessage("test", null))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage("Unable to convert payload of type java.lang.String to a Protocol Buffers message.");
+    assertThatThrownBy(() -> converter.fromPubSubMessage(pubsubMessage, String.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage(
+            "Unable to convert a message to type java.lang.String, which isn't a Protocol Buffers "
+                + "message.");
+  }
+
+  @Test
+  void testInvalidData() {
+    ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter();
+    PubsubMessage pubsubMessage =
+        PubsubMessage.newBuilder().setData(ByteString.copyFrom(new byte[] {(byte) 0xff})).build();
+
+    assertThatThrownBy(() -> converter.fromPubSubMessage(pubsubMessage, Topic.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage("Binary deserialization of a message of type com.google.pubsub.v1.Topic failed.");
+  }
+
+  @Test
+  void testUnspecifiedEncoding() {
+    assertThatThrownBy(() -> new ProtobufPubSubMessageConverter(Encoding.ENCODING_UNSPECIFIED))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The encoding must be BINARY or JSON.");
+  }
+}